@@ -0,0 +1,134 @@
+package com.examples.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.examples.EmployeeBulkImport;
+import com.examples.Main;
+import com.examples.ResourceExecutor;
+
+/**
+ * Latency of reads, GET /employees/ID1, while other clients keep the server
+ * busy with slow writes, bulk imports of "upload" employees on the "durable"
+ * repository, over HTTP against the server started by
+ * {@link Main#startServer()}: with "asyncThreads" set to 0, writes run on the
+ * Grizzly worker threads, otherwise on the {@link ResourceExecutor}, and the
+ * workers are free to serve the reads. Compare the percentiles of "read".
+ * 
+ * The server is configured with system properties, set before {@link Main}
+ * is initialized: each trial runs in its own fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AsyncWritesBenchmark {
+
+	@Param({ "0", "16" })
+	public String asyncThreads;
+
+	@Param("500")
+	public int upload;
+
+	private Path directory;
+
+	private HttpServer server;
+
+	private byte[] employees;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		directory = Files.createTempDirectory("employees");
+		System.setProperty("simple.rest.service.repository", "durable");
+		System.setProperty("simple.rest.service.durable.dir", directory.toString());
+		System.setProperty("simple.rest.service.durable.snapshot.seconds", "0");
+		System.setProperty("simple.rest.service.async.threads", asyncThreads);
+		server = Main.startServer();
+		StringBuilder lines = new StringBuilder();
+		for (int i = 0; i < upload; i++)
+			lines.append("{\"name\":\"Employee ").append(i).append("\",\"salary\":1000}\n");
+		employees = lines.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		server.shutdownNow();
+		BenchmarkData.deleteDirectory(directory);
+	}
+
+	/**
+	 * Buffers are per thread, since requests run in parallel.
+	 */
+	@State(Scope.Thread)
+	public static class Client {
+		private final byte[] buffer = new byte[8192];
+
+		/**
+		 * @return the number of bytes of the response
+		 */
+		long request(String method, String path, String type, byte[] body) throws IOException {
+			HttpURLConnection connection =
+				(HttpURLConnection) new URL(Main.BASE_URI + path).openConnection();
+			connection.setRequestMethod(method);
+			connection.setRequestProperty("Accept", type);
+			if (body != null) {
+				connection.setDoOutput(true);
+				connection.setRequestProperty("Content-Type", type);
+				connection.setFixedLengthStreamingMode(body.length);
+				try (OutputStream out = connection.getOutputStream()) {
+					out.write(body);
+				}
+			}
+			if (connection.getResponseCode() != 200)
+				throw new IOException(method + " " + path + ": " + connection.getResponseCode());
+			long count = 0;
+			// read the whole response, so that the connection is reused
+			try (InputStream in = connection.getInputStream()) {
+				for (int n; (n = in.read(buffer)) != -1;)
+					count += n;
+			}
+			return count;
+		}
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(4)
+	public long write(Client client) throws IOException {
+		return client.request("POST", "employees/bulk", EmployeeBulkImport.APPLICATION_NDJSON,
+			employees);
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(4)
+	public long read(Client client) throws IOException {
+		return client.request("GET", "employees/ID1", "application/json", null);
+	}
+}
@@ -0,0 +1,124 @@
+package com.examples.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.examples.EmployeeBulkImport;
+import com.examples.Main;
+
+/**
+ * A page view that needs "batch" employees, over HTTP against the server
+ * started by {@link Main#startServer()}: one GET /employees/{id} for each
+ * employee, against a single POST /employees/batch-get. Connections are kept
+ * alive by {@link HttpURLConnection}, so the difference is the per-request
+ * overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BatchGetBenchmark {
+
+	@Param({ "10", "50" })
+	public int batch;
+
+	@Param("10000")
+	public int size;
+
+	private HttpServer server;
+
+	private final byte[] buffer = new byte[8192];
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		server = Main.startServer();
+		StringBuilder upload = new StringBuilder();
+		for (int i = 0; i < size; i++)
+			upload.append("{\"name\":\"Employee ").append(i).append("\",\"salary\":1000}\n");
+		// the ids are generated after the initial ID1, ID2 and ID3
+		request("POST", "employees/bulk", EmployeeBulkImport.APPLICATION_NDJSON,
+			upload.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		server.shutdownNow();
+	}
+
+	private String randomId() {
+		return "ID" + (1 + ThreadLocalRandom.current().nextInt(3 + size));
+	}
+
+	/**
+	 * @return the number of bytes of the response
+	 */
+	private long request(String method, String path, String contentType, byte[] body)
+			throws IOException {
+		HttpURLConnection connection =
+			(HttpURLConnection) new URL(Main.BASE_URI + path).openConnection();
+		connection.setRequestMethod(method);
+		// responses have the same type of the request
+		connection.setRequestProperty("Accept", contentType);
+		if (body != null) {
+			connection.setDoOutput(true);
+			connection.setRequestProperty("Content-Type", contentType);
+			connection.setFixedLengthStreamingMode(body.length);
+			try (OutputStream out = connection.getOutputStream()) {
+				out.write(body);
+			}
+		}
+		if (connection.getResponseCode() != 200)
+			throw new IOException(method + " " + path + ": " + connection.getResponseCode());
+		long count = 0;
+		// read the whole response, so that the connection is reused
+		try (InputStream in = connection.getInputStream()) {
+			for (int n; (n = in.read(buffer)) != -1;)
+				count += n;
+		}
+		return count;
+	}
+
+	@Benchmark
+	public long singleGets() throws IOException {
+		long count = 0;
+		for (int i = 0; i < batch; i++)
+			count += request("GET", "employees/" + randomId(), "application/json", null);
+		return count;
+	}
+
+	@Benchmark
+	public long batchGet() throws IOException {
+		StringBuilder ids = new StringBuilder("[");
+		for (int i = 0; i < batch; i++) {
+			if (i > 0)
+				ids.append(',');
+			ids.append('"').append(randomId()).append('"');
+		}
+		ids.append(']');
+		return request("POST", "employees/batch-get", "application/json",
+			ids.toString().getBytes(StandardCharsets.UTF_8));
+	}
+}
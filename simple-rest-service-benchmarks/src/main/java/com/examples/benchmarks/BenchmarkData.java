@@ -0,0 +1,117 @@
+package com.examples.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.examples.model.Employee;
+import com.examples.repository.ConcurrentEmployeeRepository;
+import com.examples.repository.EmployeeRepository;
+import com.examples.repository.InMemoryEmployeeRepository;
+import com.examples.repository.OffHeapEmployeeRepository;
+
+/**
+ * Helpers for creating and populating the repositories under benchmark.
+ */
+final class BenchmarkData {
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * @param repository
+	 *            "inmemory", "concurrent" or "offheap", the same values accepted by the
+	 *            "simple.rest.service.repository" system property
+	 * @return a new, empty, repository
+	 */
+	static EmployeeRepository newRepository(String repository) {
+		EmployeeRepository result;
+		switch (repository) {
+		case "inmemory":
+			result = new InMemoryEmployeeRepository(new LinkedHashMap<>());
+			break;
+		case "concurrent":
+			result = new ConcurrentEmployeeRepository();
+			break;
+		case "offheap":
+			result = new OffHeapEmployeeRepository();
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown repository: " + repository);
+		}
+		// remove the initial contents
+		result.findAll()
+			.forEach(e -> result.deleteById(e.getEmployeeId()));
+		return result;
+	}
+
+	/**
+	 * Saves the given number of employees, with generated ids.
+	 * 
+	 * @param repository
+	 * @param size
+	 * @return the ids of the saved employees
+	 */
+	static String[] populate(EmployeeRepository repository, int size) {
+		String[] ids = new String[size];
+		for (int i = 0; i < size; i++) {
+			ids[i] = repository
+				.save(newEmployee(i))
+				.getEmployeeId();
+		}
+		return ids;
+	}
+
+	static List<Employee> newEmployees(int size) {
+		List<Employee> employees = new ArrayList<>(size);
+		for (int i = 0; i < size; i++)
+			employees.add(new Employee("ID" + (i + 1), "Employee " + i, 1000 + i % 1000));
+		return employees;
+	}
+
+	static Employee newEmployee(int i) {
+		return new Employee(null, "Employee " + i, 1000 + i % 1000);
+	}
+
+	/**
+	 * Deletes a directory of files.
+	 * 
+	 * @param directory
+	 * @return the total size of the deleted files
+	 * @throws IOException
+	 */
+	static long deleteDirectory(Path directory) throws IOException {
+		long size = 0;
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				size += Files.size(file);
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+		return size;
+	}
+
+	/**
+	 * Discards what is written, so that only the cost of producing the bytes
+	 * is measured.
+	 */
+	static class CountingOutputStream extends OutputStream {
+		long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+}
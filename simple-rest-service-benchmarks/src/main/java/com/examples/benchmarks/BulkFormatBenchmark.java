@@ -0,0 +1,112 @@
+package com.examples.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.ws.rs.core.MediaType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.examples.EmployeeStreamWriter;
+import com.examples.benchmarks.BenchmarkData.CountingOutputStream;
+import com.examples.binary.EmployeeBinaryReader;
+import com.examples.binary.EmployeeBinaryWriter;
+import com.examples.json.EmployeeJsonParser;
+import com.examples.json.EmployeeJsonWriter;
+import com.examples.model.Employee;
+
+/**
+ * Producing and parsing a full listing in the binary representation, compared
+ * with JSON and XML, as the server writes them. The payload size of each
+ * representation is printed during the setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BulkFormatBenchmark {
+
+	@Param({ "1000", "100000" })
+	public int size;
+
+	private List<Employee> employees;
+
+	private byte[] binary;
+
+	private byte[] json;
+
+	private EmployeeStreamWriter xmlWriter;
+
+	@Setup
+	public void setup() throws IOException {
+		employees = BenchmarkData.newEmployees(size);
+		xmlWriter = new EmployeeStreamWriter();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EmployeeBinaryWriter binaryWriter = new EmployeeBinaryWriter(out);
+		binaryWriter.writeAll(employees.iterator());
+		binaryWriter.flush();
+		binary = out.toByteArray();
+
+		out = new ByteArrayOutputStream();
+		EmployeeJsonWriter jsonWriter = new EmployeeJsonWriter(out);
+		jsonWriter.writeArray(employees.iterator());
+		jsonWriter.flush();
+		json = out.toByteArray();
+
+		System.out.printf("%nPayload bytes for %d employees: binary %d, JSON %d, XML %d%n",
+			size, binary.length, json.length, writeXml());
+	}
+
+	@Benchmark
+	public long writeBinary() throws IOException {
+		CountingOutputStream out = new CountingOutputStream();
+		EmployeeBinaryWriter writer = new EmployeeBinaryWriter(out);
+		writer.writeAll(employees.iterator());
+		writer.flush();
+		return out.count;
+	}
+
+	@Benchmark
+	public long writeJson() throws IOException {
+		CountingOutputStream out = new CountingOutputStream();
+		EmployeeJsonWriter writer = new EmployeeJsonWriter(out);
+		writer.writeArray(employees.iterator());
+		writer.flush();
+		return out.count;
+	}
+
+	@Benchmark
+	public long writeXml() throws IOException {
+		CountingOutputStream out = new CountingOutputStream();
+		xmlWriter.writeTo(employees.stream(), Stream.class, null, null,
+			MediaType.APPLICATION_XML_TYPE, null, out);
+		return out.count;
+	}
+
+	@Benchmark
+	public List<Employee> readBinary() throws IOException {
+		return new EmployeeBinaryReader(new ByteArrayInputStream(binary)).readAll();
+	}
+
+	@Benchmark
+	public List<Employee> readJson() throws IOException {
+		return new EmployeeJsonParser(new ByteArrayInputStream(json)).readEmployees();
+	}
+}
@@ -0,0 +1,119 @@
+package com.examples.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.examples.EmployeeBulkImport;
+import com.examples.benchmarks.BenchmarkData.CountingOutputStream;
+import com.examples.json.EmployeeJsonParser;
+import com.examples.model.Employee;
+import com.examples.repository.DurableEmployeeRepository;
+import com.examples.repository.EmployeeRepository;
+import com.examples.service.EmployeeService;
+import com.examples.service.EmployeeServiceImpl;
+
+/**
+ * Employees added per second from JSON: one at a time, parsing each employee
+ * and adding it with the service as POST /employees does, against a
+ * newline-delimited JSON upload added by {@link EmployeeBulkImport}. With
+ * the "durable" repository, which forces its log after each change, the
+ * bulk import forces it only once per batch.
+ * 
+ * A new repository is created for each iteration, so that it does not keep
+ * growing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OperationsPerInvocation(BulkImportBenchmark.RECORDS)
+public class BulkImportBenchmark {
+
+	static final int RECORDS = 10000;
+
+	@Param({ "concurrent", "durable" })
+	public String repository;
+
+	private byte[][] records;
+
+	private byte[] upload;
+
+	private Path directory;
+
+	private EmployeeRepository employees;
+
+	private EmployeeService service;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		records = new byte[RECORDS][];
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (int i = 0; i < RECORDS; i++) {
+			records[i] = ("{\"name\":\"Employee " + i + "\",\"salary\":" + (1000 + i % 1000) + "}")
+				.getBytes(StandardCharsets.UTF_8);
+			out.write(records[i]);
+			out.write('\n');
+		}
+		upload = out.toByteArray();
+	}
+
+	@Setup(Level.Iteration)
+	public void createRepository() throws IOException {
+		if (repository.equals("durable")) {
+			directory = Files.createTempDirectory("employees");
+			employees = new DurableEmployeeRepository(directory, true);
+		} else {
+			employees = BenchmarkData.newRepository(repository);
+		}
+		service = new EmployeeServiceImpl(employees);
+	}
+
+	@TearDown(Level.Iteration)
+	public void closeRepository() throws IOException {
+		if (directory != null) {
+			((DurableEmployeeRepository) employees).close();
+			BenchmarkData.deleteDirectory(directory);
+			directory = null;
+		}
+		employees = null;
+		service = null;
+	}
+
+	@Benchmark
+	public Employee oneAtATime() throws IOException {
+		Employee added = null;
+		for (byte[] record : records)
+			added = service.addEmployee(
+				new EmployeeJsonParser(new ByteArrayInputStream(record)).readEmployee());
+		return added;
+	}
+
+	@Benchmark
+	public long bulk() throws IOException {
+		CountingOutputStream out = new CountingOutputStream();
+		new EmployeeBulkImport(service, new ByteArrayInputStream(upload)).write(out);
+		return out.count;
+	}
+}
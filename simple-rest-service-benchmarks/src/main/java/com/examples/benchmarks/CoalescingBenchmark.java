@@ -0,0 +1,257 @@
+package com.examples.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.examples.CoalescingInterceptor;
+import com.examples.Main;
+
+/**
+ * Time to answer a burst of "burst" identical reads, sent at once on as
+ * many connections, with and without {@link CoalescingInterceptor}, see
+ * {@link Main#COALESCING}: "page" reads a page of 1000 employees, "all"
+ * streams all of them. The CPU time of the server per request and the
+ * share of the responses encoded for another request, taken from its
+ * metrics, are printed after each iteration.
+ * 
+ * The server runs in its own JVM with "workerThreads" threads, so that the
+ * requests of a burst are processed at the same time, and without admission
+ * control, so that none is rejected.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class CoalescingBenchmark {
+
+	private static final int EMPLOYEES = 10000;
+
+	@Param({ "off", "on" })
+	public String coalescing;
+
+	@Param({ "page", "all" })
+	public String request;
+
+	@Param("100")
+	public int burst;
+
+	@Param("64")
+	public String workerThreads;
+
+	private ServerProcess server;
+
+	private Selector selector;
+
+	private final List<Connection> open = new ArrayList<>();
+
+	private double cpuSeconds;
+
+	private double shared;
+
+	private long requests;
+
+	/**
+	 * A connection with the response it is reading: only its head and its
+	 * last bytes are kept.
+	 */
+	private static class Connection {
+		private SocketChannel channel;
+		private final ByteBuffer response = ByteBuffer.allocate(64 * 1024);
+		// -1 until the head is read
+		private long remaining;
+		private boolean chunked;
+		private boolean complete;
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException, InterruptedException {
+		Map<String, String> properties = new LinkedHashMap<>();
+		properties.put("simple.rest.service.coalescing", String.valueOf(coalescing.equals("on")));
+		properties.put("simple.rest.service.worker.threads", workerThreads);
+		properties.put("simple.rest.service.admission.reads", "0");
+		properties.put("simple.rest.service.admission.queue.millis", "0");
+		properties.put("simple.rest.service.keepalive.requests", "-1");
+		server = new ServerProcess(Collections.emptyList(), properties);
+		StringBuilder lines = new StringBuilder();
+		for (int i = 0; i < EMPLOYEES; i++)
+			lines.append("{\"name\":\"Employee ").append(i).append("\",\"salary\":1000}\n");
+		server.bulkImport(lines.toString().getBytes(StandardCharsets.UTF_8));
+		selector = Selector.open();
+		InetSocketAddress address = server.getAddress();
+		for (int i = 0; i < burst; i++) {
+			Connection connection = new Connection();
+			// blocking connects do not overflow the backlog of the server
+			connection.channel = SocketChannel.open(address);
+			connection.channel.configureBlocking(false);
+			connection.channel.register(selector, SelectionKey.OP_READ, connection);
+			open.add(connection);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException, InterruptedException {
+		for (Connection connection : open)
+			connection.channel.close();
+		selector.close();
+		server.stop();
+	}
+
+	@Setup(Level.Iteration)
+	public void startIteration() throws IOException {
+		cpuSeconds = metric("process_cpu_seconds_total");
+		shared = metric("coalesced_shared_total");
+		requests = 0;
+	}
+
+	@TearDown(Level.Iteration)
+	public void endIteration() throws IOException {
+		double cpu = metric("process_cpu_seconds_total") - cpuSeconds;
+		double sharing = metric("coalesced_shared_total") - shared;
+		System.out.printf("%nServer CPU per request: %.1f us, shared responses: %.0f%%%n",
+			cpu * 1e6 / requests, 100 * sharing / requests);
+	}
+
+	private double metric(String name) throws IOException {
+		URL metrics = new URL("http://localhost:" + server.getAddress().getPort()
+			+ "/myapp/metrics");
+		try (InputStream in = metrics.openStream();
+				Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name())) {
+			while (scanner.hasNextLine()) {
+				String line = scanner.nextLine();
+				if (line.startsWith(name + " "))
+					return Double.parseDouble(line.substring(name.length() + 1));
+			}
+		}
+		throw new IOException("No " + name + " in the metrics");
+	}
+
+	/**
+	 * Sends the same request on every connection and waits for all the
+	 * responses.
+	 * 
+	 * @return the number of bytes of the responses
+	 */
+	@Benchmark
+	public long requests() throws IOException {
+		byte[] bytes = (request.equals("page")
+			? "GET /myapp/employees?limit=1000 HTTP/1.1\r\n"
+			: "GET /myapp/employees HTTP/1.1\r\n")
+			.concat("Host: localhost\r\nAccept: application/json\r\n\r\n")
+			.getBytes(StandardCharsets.UTF_8);
+		for (Connection connection : open) {
+			connection.response.clear();
+			connection.remaining = -1;
+			connection.complete = false;
+			// a small request fits in the empty send buffer of the socket
+			if (connection.channel.write(ByteBuffer.wrap(bytes)) != bytes.length)
+				throw new IOException("Request not sent at once");
+		}
+		long received = 0;
+		int pending = open.size();
+		while (pending > 0) {
+			selector.select();
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+				Connection connection = (Connection) keys.next().attachment();
+				keys.remove();
+				if (connection.complete)
+					continue;
+				int read = connection.channel.read(connection.response);
+				if (read == -1)
+					throw new IOException("Connection closed before the response");
+				received += read;
+				if (isComplete(connection)) {
+					connection.complete = true;
+					pending--;
+				}
+			}
+		}
+		requests += open.size();
+		return received;
+	}
+
+	/**
+	 * Reads the head once, then counts Content-Length bytes or waits for the
+	 * last chunk, keeping only the last bytes when the buffer is full.
+	 */
+	private static boolean isComplete(Connection connection) throws IOException {
+		ByteBuffer buffer = connection.response;
+		byte[] bytes = buffer.array();
+		if (connection.remaining < 0) {
+			String received = new String(bytes, 0, buffer.position(),
+				StandardCharsets.ISO_8859_1);
+			int end = received.indexOf("\r\n\r\n");
+			if (end < 0)
+				return false;
+			String head = received.substring(0, end);
+			if (!head.startsWith("HTTP/1.1 200"))
+				throw new IOException("Unexpected response: " + head);
+			connection.chunked = false;
+			connection.remaining = 0;
+			for (String header : head.split("\r\n")) {
+				String lowerCase = header.toLowerCase();
+				if (lowerCase.startsWith("content-length:"))
+					connection.remaining = Long.parseLong(lowerCase.substring(15).trim());
+				else if (lowerCase.startsWith("transfer-encoding:"))
+					connection.chunked = lowerCase.contains("chunked");
+			}
+			if (!connection.chunked)
+				connection.remaining -= buffer.position() - (end + 4);
+		} else if (!connection.chunked) {
+			connection.remaining -= buffer.position();
+		}
+		boolean complete = connection.chunked
+			? endsWith(buffer, "\r\n0\r\n\r\n")
+			: connection.remaining <= 0;
+		if (!complete && connection.chunked) {
+			// the last chunk may be split between two reads
+			int keep = Math.min(buffer.position(), 16);
+			System.arraycopy(bytes, buffer.position() - keep, bytes, 0, keep);
+			buffer.position(keep);
+		} else if (!complete) {
+			buffer.clear();
+		}
+		return complete;
+	}
+
+	private static boolean endsWith(ByteBuffer buffer, String suffix) {
+		int start = buffer.position() - suffix.length();
+		if (start < 0)
+			return false;
+		for (int i = 0; i < suffix.length(); i++)
+			if (buffer.get(start + i) != suffix.charAt(i))
+				return false;
+		return true;
+	}
+}
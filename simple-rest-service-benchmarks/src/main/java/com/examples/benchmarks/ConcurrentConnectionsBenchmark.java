@@ -0,0 +1,247 @@
+package com.examples.benchmarks;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.examples.Main;
+
+/**
+ * Time to answer one request on each of "connections" concurrent
+ * connections, kept alive between operations, with the requests of the
+ * server run on the pool of Grizzly worker threads or on virtual threads,
+ * see {@link Main#THREADS}: "get" reads an employee, "put" replaces it on the
+ * "durable" repository, run on the request thread (async threads 0), where
+ * it waits for the log to be forced.
+ * 
+ * The server runs in its own JVM, the same as the benchmark's, so that each
+ * process needs one file descriptor per connection; the benchmark is a
+ * single-threaded non-blocking client. "virtual" needs Java 21 or later,
+ * e.g., -jvm /path/to/jdk-21/bin/java.
+ * 
+ * "workerThreads" and "selectorThreads" tune the server, see
+ * {@link Main#WORKER_THREADS} and {@link Main#SELECTOR_THREADS}, e.g.,
+ * -p threads=platform -p workerThreads=1,2,4,16,64 -p selectorThreads=1,2.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 6, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ConcurrentConnectionsBenchmark {
+
+	@Param({ "platform", "virtual" })
+	public String threads;
+
+	@Param("10000")
+	public int connections;
+
+	@Param({ "get", "put" })
+	public String request;
+
+	// "default" for the defaults of Main
+	@Param("default")
+	public String workerThreads;
+
+	@Param("default")
+	public String selectorThreads;
+
+	private Path directory;
+
+	private ServerProcess server;
+
+	private InetSocketAddress address;
+
+	private Selector selector;
+
+	private final List<Connection> open = new ArrayList<>();
+
+	/**
+	 * A connection with the request it sends and the response it is reading.
+	 */
+	private static class Connection {
+		private final byte[] request;
+		private SocketChannel channel;
+		private ByteBuffer response = ByteBuffer.allocate(1024);
+		private boolean complete;
+
+		private Connection(byte[] request) {
+			this.request = request;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException, InterruptedException {
+		directory = Files.createTempDirectory("employees");
+		Map<String, String> properties = new LinkedHashMap<>();
+		properties.put("simple.rest.service.threads", threads);
+		properties.put("simple.rest.service.repository", "durable");
+		properties.put("simple.rest.service.durable.dir", directory.toString());
+		properties.put("simple.rest.service.durable.snapshot.seconds", "0");
+		properties.put("simple.rest.service.async.threads", "0");
+		if (!workerThreads.equals("default"))
+			properties.put("simple.rest.service.worker.threads", workerThreads);
+		if (!selectorThreads.equals("default"))
+			properties.put("simple.rest.service.selector.threads", selectorThreads);
+		server = new ServerProcess(Collections.emptyList(), properties);
+		address = server.getAddress();
+		StringBuilder upload = new StringBuilder();
+		for (int i = 0; i < connections; i++)
+			upload.append("{\"name\":\"Employee ").append(i).append("\",\"salary\":1000}\n");
+		// the ids are generated after the initial ID1, ID2 and ID3
+		server.bulkImport(upload.toString().getBytes(StandardCharsets.UTF_8));
+		selector = Selector.open();
+		for (int i = 0; i < connections; i++) {
+			Connection connection = new Connection(newRequest("ID" + (i + 1)));
+			connect(connection);
+			open.add(connection);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException, InterruptedException {
+		for (Connection connection : open)
+			connection.channel.close();
+		selector.close();
+		server.stop();
+		BenchmarkData.deleteDirectory(directory);
+	}
+
+	private byte[] newRequest(String id) {
+		String path = "/myapp/employees/" + id;
+		String headers = "Host: " + address.getHostString() + "\r\n"
+			+ "Accept: application/json\r\n";
+		if (request.equals("get"))
+			return ("GET " + path + " HTTP/1.1\r\n" + headers + "\r\n")
+				.getBytes(StandardCharsets.UTF_8);
+		byte[] body = "{\"name\":\"Replaced\",\"salary\":2000}".getBytes(StandardCharsets.UTF_8);
+		byte[] head = ("PUT " + path + " HTTP/1.1\r\n" + headers
+			+ "Content-Type: application/json\r\n"
+			+ "Content-Length: " + body.length + "\r\n\r\n")
+			.getBytes(StandardCharsets.UTF_8);
+		byte[] bytes = new byte[head.length + body.length];
+		System.arraycopy(head, 0, bytes, 0, head.length);
+		System.arraycopy(body, 0, bytes, head.length, body.length);
+		return bytes;
+	}
+
+	private void connect(Connection connection) throws IOException {
+		// blocking connects do not overflow the backlog of the server
+		connection.channel = SocketChannel.open(address);
+		connection.channel.configureBlocking(false);
+		connection.channel.register(selector, SelectionKey.OP_READ, connection);
+	}
+
+	/**
+	 * Sends the request of every connection and waits for all the responses.
+	 * 
+	 * @return the number of bytes of the responses
+	 */
+	@Benchmark
+	public long requests() throws IOException {
+		for (Connection connection : open) {
+			connection.response.clear();
+			connection.complete = false;
+			// a small request fits in the empty send buffer of the socket
+			if (connection.channel.write(ByteBuffer.wrap(connection.request))
+					!= connection.request.length)
+				throw new IOException("Request not sent at once");
+		}
+		long bytes = 0;
+		int pending = open.size();
+		while (pending > 0) {
+			selector.select();
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+				Connection connection = (Connection) keys.next().attachment();
+				keys.remove();
+				if (connection.complete)
+					continue;
+				if (connection.channel.read(connection.response) == -1)
+					throw new IOException("Connection closed before the response");
+				if (!isComplete(connection))
+					continue;
+				connection.complete = true;
+				bytes += connection.response.position();
+				pending--;
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Checks that the response is a complete 200 (OK) with a Content-Length,
+	 * which Jersey sets on small entities, and reconnects if the server closes
+	 * the connection, e.g., after its maximum number of keep-alive requests.
+	 */
+	private boolean isComplete(Connection connection) throws IOException {
+		ByteBuffer buffer = connection.response;
+		String received = new String(buffer.array(), 0, buffer.position(),
+			StandardCharsets.ISO_8859_1);
+		int end = received.indexOf("\r\n\r\n");
+		if (end < 0) {
+			grow(connection);
+			return false;
+		}
+		String head = received.substring(0, end);
+		if (!head.startsWith("HTTP/1.1 200"))
+			throw new IOException("Unexpected response: " + head);
+		int length = -1;
+		boolean close = false;
+		for (String header : head.split("\r\n")) {
+			String lowerCase = header.toLowerCase();
+			if (lowerCase.startsWith("content-length:"))
+				length = Integer.parseInt(lowerCase.substring(15).trim());
+			else if (lowerCase.startsWith("connection:"))
+				close = lowerCase.contains("close");
+		}
+		if (length < 0)
+			throw new IOException("No Content-Length: " + head);
+		if (buffer.position() < end + 4 + length) {
+			grow(connection);
+			return false;
+		}
+		if (close) {
+			connection.channel.close();
+			connect(connection);
+		}
+		return true;
+	}
+
+	private static void grow(Connection connection) {
+		if (connection.response.hasRemaining())
+			return;
+		ByteBuffer larger = ByteBuffer.allocate(connection.response.capacity() * 2);
+		connection.response.flip();
+		larger.put(connection.response);
+		connection.response = larger;
+	}
+}
@@ -0,0 +1,93 @@
+package com.examples.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.examples.model.Employee;
+import com.examples.repository.DurableEmployeeRepository;
+
+/**
+ * Throughput of durable writes on {@link DurableEmployeeRepository} under 1,
+ * 4 and 16 threads: with group commit, concurrent writers share the forces of
+ * the log, so the throughput should grow with the number of threads. The
+ * number of writes for each force is printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DurableRepositoryBenchmark {
+
+	@Param({ "true", "false" })
+	public boolean force;
+
+	@Param("10000")
+	public int size;
+
+	private Path directory;
+
+	private DurableEmployeeRepository repository;
+
+	private String[] ids;
+
+	private long syncs;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		directory = Files.createTempDirectory("employees");
+		repository = new DurableEmployeeRepository(directory, force);
+		ids = BenchmarkData.populate(repository, size);
+		syncs = repository.getSyncs();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		long forces = repository.getSyncs() - syncs;
+		repository.close();
+		System.out.printf("%nForces: %d, log size: %d bytes%n",
+			forces, BenchmarkData.deleteDirectory(directory));
+	}
+
+	private Employee replaceRandom() {
+		return repository.save(new Employee(
+			ids[ThreadLocalRandom.current().nextInt(ids.length)], "Replaced", 1000));
+	}
+
+	@Benchmark
+	@Threads(1)
+	public Employee save01Thread() {
+		return replaceRandom();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public Employee save04Threads() {
+		return replaceRandom();
+	}
+
+	@Benchmark
+	@Threads(16)
+	public Employee save16Threads() {
+		return replaceRandom();
+	}
+}
@@ -0,0 +1,96 @@
+package com.examples.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.examples.benchmarks.BenchmarkData.CountingOutputStream;
+import com.examples.cache.EncodedEmployeeCache;
+import com.examples.model.Employee;
+
+/**
+ * Writing a random employee as XML, among a set of hot ones, through the
+ * {@link EncodedEmployeeCache} as the server does for GET /employees/{id},
+ * compared with marshalling it on each request. With a cap smaller than the
+ * encodings of the hot set, some requests miss.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EncodedCacheBenchmark {
+
+	private static final String XML = "application/xml";
+
+	@Param({ "1000" })
+	public int hot;
+
+	@Param({ "16777216", "65536" })
+	public long cacheBytes;
+
+	private List<Employee> employees;
+
+	private JAXBContext context;
+
+	private EncodedEmployeeCache cache;
+
+	@Setup
+	public void setup() throws JAXBException {
+		employees = BenchmarkData.newEmployees(hot);
+		context = JAXBContext.newInstance(Employee.class);
+		cache = new EncodedEmployeeCache(cacheBytes);
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.printf("%nCache hits %d, misses %d, evictions %d%n",
+			cache.getHits(), cache.getMisses(), cache.getEvictions());
+	}
+
+	private Employee randomEmployee() {
+		return employees.get(ThreadLocalRandom.current().nextInt(hot));
+	}
+
+	@Benchmark
+	public long marshal() throws JAXBException {
+		CountingOutputStream out = new CountingOutputStream();
+		context.createMarshaller().marshal(randomEmployee(), out);
+		return out.count;
+	}
+
+	@Benchmark
+	public long cached() throws Exception {
+		Employee employee = randomEmployee();
+		CountingOutputStream out = new CountingOutputStream();
+		byte[] bytes = cache.get(employee, XML);
+		if (bytes == null) {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+			context.createMarshaller().marshal(employee, buffer);
+			bytes = buffer.toByteArray();
+			cache.put(employee, XML, bytes);
+		}
+		out.write(bytes);
+		return out.count;
+	}
+}
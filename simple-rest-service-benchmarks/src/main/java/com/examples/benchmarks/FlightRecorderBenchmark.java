@@ -0,0 +1,55 @@
+package com.examples.benchmarks;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.examples.cache.EncodedEmployeeCache;
+import com.examples.cache.InvalidatingEmployeeRepository;
+import com.examples.events.RepositoryEvent;
+import com.examples.model.Employee;
+import com.examples.repository.ConcurrentEmployeeRepository;
+import com.examples.repository.EmployeeRepository;
+
+/**
+ * The cost of the {@link RepositoryEvent} of a findOne: without the event,
+ * with the event and no recording, and while Flight Recorder records it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FlightRecorderBenchmark {
+
+	private final EmployeeRepository storage = new ConcurrentEmployeeRepository();
+
+	private final EmployeeRepository instrumented =
+		new InvalidatingEmployeeRepository(storage, new EncodedEmployeeCache(1024));
+
+	@Benchmark
+	public Optional<Employee> withoutEvent() {
+		return storage.findOne("ID1");
+	}
+
+	@Benchmark
+	public Optional<Employee> notRecording() {
+		return instrumented.findOne("ID1");
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-XX:StartFlightRecording")
+	public Optional<Employee> recording() {
+		return instrumented.findOne("ID1");
+	}
+}
@@ -0,0 +1,105 @@
+package com.examples.benchmarks;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.examples.model.Employee;
+import com.examples.repository.EmployeeRepository;
+import com.examples.repository.OffHeapEmployeeRepository;
+
+/**
+ * Heap footprint and garbage collection of {@link OffHeapEmployeeRepository}
+ * against the on-heap repositories, with "size" employees: after populating
+ * the repository, the heap used after a full collection, the off-heap memory
+ * and the pause of a full collection are printed, and at the end of the trial the number and the time of
+ * the collections that happened during a mix of reads and replacements.
+ * 
+ * The largest size needs a few GB of memory: use, e.g., -p size=1000000 on a
+ * smaller machine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx3g", "-XX:MaxDirectMemorySize=3g" })
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+public class FootprintBenchmark {
+
+	@Param({ "inmemory", "offheap" })
+	public String repository;
+
+	@Param({ "1000000", "10000000" })
+	public int size;
+
+	private EmployeeRepository employees;
+
+	private long collections;
+
+	private long collectionMillis;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		employees = BenchmarkData.newRepository(repository);
+		for (int i = 0; i < size; i++)
+			employees.save(new Employee("ID" + (i + 1), "Employee " + i, 1000 + i % 1000));
+		System.gc();
+		// the pause of a full collection grows with the live objects
+		long start = System.nanoTime();
+		System.gc();
+		long fullCollectionMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+		long offHeap = employees instanceof OffHeapEmployeeRepository
+			? ((OffHeapEmployeeRepository) employees).getOffHeapBytes()
+			: 0;
+		System.out.printf("%nHeap used: %d MB, off-heap: %d MB, full collection: %d ms%n",
+			heap >> 20, offHeap >> 20, fullCollectionMillis);
+		collections = collections();
+		collectionMillis = collectionMillis();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		System.out.printf("%nCollections: %d, %d ms%n",
+			collections() - collections, collectionMillis() - collectionMillis);
+	}
+
+	private static long collections() {
+		return ManagementFactory.getGarbageCollectorMXBeans().stream()
+			.mapToLong(GarbageCollectorMXBean::getCollectionCount)
+			.sum();
+	}
+
+	private static long collectionMillis() {
+		return ManagementFactory.getGarbageCollectorMXBeans().stream()
+			.mapToLong(GarbageCollectorMXBean::getCollectionTime)
+			.sum();
+	}
+
+	/**
+	 * Nine reads for each replacement.
+	 */
+	@Benchmark
+	public Object readAndReplace() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int i = random.nextInt(size);
+		if (random.nextInt(10) == 0)
+			return employees.save(new Employee("ID" + (i + 1), "Replaced " + i, 2000));
+		return employees.findOne("ID" + (i + 1));
+	}
+}
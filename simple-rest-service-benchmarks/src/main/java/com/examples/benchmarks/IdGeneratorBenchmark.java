@@ -0,0 +1,55 @@
+package com.examples.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.examples.repository.IdGenerator;
+
+/**
+ * Contention on id generation: a block size of 1 makes every id go through
+ * the shared counter, like a plain {@link AtomicLong} does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+public class IdGeneratorBenchmark {
+
+	@Param({ "1", "32", "1024" })
+	public int blockSize;
+
+	private IdGenerator generator;
+
+	private final AtomicLong counter = new AtomicLong();
+
+	@Setup
+	public void setup() {
+		generator = new IdGenerator(IdGenerator.DEFAULT_PREFIX, 0, blockSize, n -> {});
+	}
+
+	@Benchmark
+	public long generator() {
+		return generator.nextNumber();
+	}
+
+	@Benchmark
+	public long atomicCounter() {
+		return counter.incrementAndGet();
+	}
+}
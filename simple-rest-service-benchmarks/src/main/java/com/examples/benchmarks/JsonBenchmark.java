@@ -0,0 +1,133 @@
+package com.examples.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.transform.stream.StreamSource;
+
+import org.eclipse.persistence.jaxb.JAXBContextFactory;
+import org.eclipse.persistence.jaxb.MarshallerProperties;
+import org.eclipse.persistence.jaxb.UnmarshallerProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.examples.benchmarks.BenchmarkData.CountingOutputStream;
+import com.examples.json.EmployeeJsonParser;
+import com.examples.json.EmployeeJsonWriter;
+import com.examples.model.Employee;
+
+/**
+ * JSON through MOXy, as jersey-media-moxy does it, compared with
+ * {@link EmployeeJsonWriter} and {@link EmployeeJsonParser}, used by the
+ * server's own providers. Run it with "-prof gc" to compare the bytes
+ * allocated per request ("gc.alloc.rate.norm").
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JsonBenchmark {
+
+	/**
+	 * Only the list benchmarks depend on the number of employees.
+	 */
+	@State(Scope.Benchmark)
+	public static class Employees {
+
+		@Param({ "10", "10000" })
+		public int size;
+
+		private List<Employee> list;
+
+		@Setup
+		public void setup() {
+			list = BenchmarkData.newEmployees(size);
+		}
+	}
+
+	private JAXBContext context;
+
+	private Employee employee;
+
+	private byte[] employeeJson;
+
+	@Setup
+	public void setup() throws JAXBException {
+		context = JAXBContextFactory.createContext(new Class<?>[] { Employee.class }, null);
+		employee = new Employee("ID1", "First Employee", 1000);
+		employeeJson = "{\"id\":\"ID1\",\"name\":\"First Employee\",\"salary\":1000}"
+			.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private Marshaller moxyMarshaller() throws JAXBException {
+		Marshaller marshaller = context.createMarshaller();
+		marshaller.setProperty(MarshallerProperties.MEDIA_TYPE, "application/json");
+		marshaller.setProperty(MarshallerProperties.JSON_INCLUDE_ROOT, false);
+		return marshaller;
+	}
+
+	@Benchmark
+	public long moxyWriteOne() throws JAXBException {
+		CountingOutputStream out = new CountingOutputStream();
+		moxyMarshaller().marshal(employee, out);
+		return out.count;
+	}
+
+	@Benchmark
+	public long moxyWriteList(Employees employees) throws JAXBException {
+		CountingOutputStream out = new CountingOutputStream();
+		moxyMarshaller().marshal(employees.list, out);
+		return out.count;
+	}
+
+	@Benchmark
+	public Employee moxyReadOne() throws JAXBException {
+		Unmarshaller unmarshaller = context.createUnmarshaller();
+		unmarshaller.setProperty(UnmarshallerProperties.MEDIA_TYPE, "application/json");
+		unmarshaller.setProperty(UnmarshallerProperties.JSON_INCLUDE_ROOT, false);
+		return unmarshaller
+			.unmarshal(new StreamSource(new ByteArrayInputStream(employeeJson)), Employee.class)
+			.getValue();
+	}
+
+	@Benchmark
+	public long handWrittenWriteOne() throws IOException {
+		CountingOutputStream out = new CountingOutputStream();
+		EmployeeJsonWriter writer = new EmployeeJsonWriter(out);
+		writer.write(employee);
+		writer.flush();
+		return out.count;
+	}
+
+	@Benchmark
+	public long handWrittenWriteList(Employees employees) throws IOException {
+		CountingOutputStream out = new CountingOutputStream();
+		EmployeeJsonWriter writer = new EmployeeJsonWriter(out);
+		writer.writeArray(employees.list.iterator());
+		writer.flush();
+		return out.count;
+	}
+
+	@Benchmark
+	public Employee handWrittenReadOne() throws IOException {
+		return new EmployeeJsonParser(new ByteArrayInputStream(employeeJson)).readEmployee();
+	}
+}
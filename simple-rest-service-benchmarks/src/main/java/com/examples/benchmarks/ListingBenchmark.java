@@ -0,0 +1,79 @@
+package com.examples.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.ws.rs.core.MediaType;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import org.eclipse.persistence.jaxb.JAXBContextFactory;
+import org.eclipse.persistence.jaxb.MarshallerProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.examples.EmployeeStreamWriter;
+import com.examples.benchmarks.BenchmarkData.CountingOutputStream;
+import com.examples.model.Employee;
+import com.examples.repository.EmployeeRepository;
+
+/**
+ * The full listing of employees as JSON: a copy with findAll() marshalled as
+ * a whole by MOXy, as opposed to streaming the repository with
+ * {@link EmployeeStreamWriter}. Run it with "-prof gc" to compare the bytes
+ * allocated per listing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ListingBenchmark {
+
+	@Param({ "10000", "1000000" })
+	public int size;
+
+	private EmployeeRepository repository;
+
+	private EmployeeStreamWriter writer;
+
+	private JAXBContext jsonContext;
+
+	@Setup
+	public void setup() throws JAXBException {
+		jsonContext = JAXBContextFactory.createContext(new Class<?>[] { Employee.class }, null);
+		repository = BenchmarkData.newRepository("concurrent");
+		BenchmarkData.populate(repository, size);
+		writer = new EmployeeStreamWriter();
+	}
+
+	@Benchmark
+	public long findAllAndMarshal() throws JAXBException {
+		CountingOutputStream out = new CountingOutputStream();
+		Marshaller marshaller = jsonContext.createMarshaller();
+		marshaller.setProperty(MarshallerProperties.MEDIA_TYPE, MediaType.APPLICATION_JSON);
+		marshaller.setProperty(MarshallerProperties.JSON_INCLUDE_ROOT, false);
+		marshaller.marshal(repository.findAll(), out);
+		return out.count;
+	}
+
+	@Benchmark
+	public long stream() throws IOException {
+		CountingOutputStream out = new CountingOutputStream();
+		writer.writeTo(repository.streamAll(), Stream.class, null, null,
+			MediaType.APPLICATION_JSON_TYPE, null, out);
+		return out.count;
+	}
+}
@@ -0,0 +1,112 @@
+package com.examples.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import org.eclipse.persistence.jaxb.JAXBContextFactory;
+import org.eclipse.persistence.jaxb.MarshallerProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.examples.benchmarks.BenchmarkData.CountingOutputStream;
+import com.examples.model.Employee;
+
+/**
+ * Marshalling of a single {@link Employee} and of a list of employees, the
+ * way the server does it: JSON goes through MOXy (jersey-media-moxy), XML
+ * through the default JAXB implementation, with the list elements wrapped in
+ * an "employees" element. As in Jersey, a new {@link Marshaller} is created
+ * for each entity, while the {@link JAXBContext} is cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MarshallingBenchmark {
+
+	/**
+	 * Only the list benchmarks depend on the number of employees.
+	 */
+	@State(Scope.Benchmark)
+	public static class Employees {
+
+		@Param({ "10", "10000", "1000000" })
+		public int size;
+
+		private List<Employee> list;
+
+		@Setup
+		public void setup() {
+			list = BenchmarkData.newEmployees(size);
+		}
+	}
+
+	private JAXBContext jsonContext;
+
+	private JAXBContext xmlContext;
+
+	private Employee employee;
+
+	@Setup
+	public void setup() throws JAXBException {
+		jsonContext = JAXBContextFactory.createContext(new Class<?>[] { Employee.class }, null);
+		xmlContext = JAXBContext.newInstance(Employee.class);
+		employee = new Employee("ID1", "First Employee", 1000);
+	}
+
+	private Marshaller jsonMarshaller() throws JAXBException {
+		Marshaller marshaller = jsonContext.createMarshaller();
+		marshaller.setProperty(MarshallerProperties.MEDIA_TYPE, "application/json");
+		marshaller.setProperty(MarshallerProperties.JSON_INCLUDE_ROOT, false);
+		return marshaller;
+	}
+
+	@Benchmark
+	public long jsonOne() throws JAXBException {
+		CountingOutputStream out = new CountingOutputStream();
+		jsonMarshaller().marshal(employee, out);
+		return out.count;
+	}
+
+	@Benchmark
+	public long jsonList(Employees employees) throws JAXBException {
+		CountingOutputStream out = new CountingOutputStream();
+		jsonMarshaller().marshal(employees.list, out);
+		return out.count;
+	}
+
+	@Benchmark
+	public long xmlOne() throws JAXBException {
+		CountingOutputStream out = new CountingOutputStream();
+		xmlContext.createMarshaller().marshal(employee, out);
+		return out.count;
+	}
+
+	@Benchmark
+	public long xmlList(Employees employees) throws Exception {
+		CountingOutputStream out = new CountingOutputStream();
+		Marshaller marshaller = xmlContext.createMarshaller();
+		marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+		out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><employees>"
+			.getBytes("UTF-8"));
+		for (Employee e : employees.list)
+			marshaller.marshal(e, out);
+		out.write("</employees>".getBytes("UTF-8"));
+		return out.count;
+	}
+}
@@ -0,0 +1,378 @@
+package com.examples.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.examples.AdmissionFilter;
+import com.examples.Main;
+
+/**
+ * Goodput of an overloaded server: "rate" requests per second for a page of
+ * 1000 employees, GET /employees?limit=1000, are sent at regular times,
+ * whether the previous ones are answered or not, like independent clients,
+ * and the responses are counted as "good" (200 within "deadlineMillis" of
+ * the time the request should have been sent), "late" (200 after it),
+ * "rejected" (429) or "unsent" (all the connections are waiting for a
+ * response or connecting again).
+ * 
+ * With "admission" off, the reads are not limited, see
+ * {@link Main#ADMISSION_READS}: above the capacity of the server, requests
+ * queue up, their latency keeps growing and fewer and fewer are good; with
+ * {@link AdmissionFilter}, the requests over the adaptive limit are
+ * rejected, which is cheap compared to a page, and the admitted ones stay
+ * good. Compare "good" at a "rate" above the capacity, e.g., twice the rate
+ * at which "good" stops following "rate" with admission off.
+ * 
+ * The limit must be the bottleneck, rather than the Grizzly worker threads:
+ * the server runs with "workerThreads" threads. It runs in its own JVM with
+ * a lower priority, so that the single-threaded non-blocking client reads
+ * the responses as soon as they are sent, even on few cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 4, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class OverloadBenchmark {
+
+	private static final int EMPLOYEES = 10000;
+
+	private static final int CONNECTIONS = 3000;
+
+	private static final int WARM_UP_REQUESTS = 20000;
+
+	@Param({ "off", "on" })
+	public String admission;
+
+	@Param({ "2500", "5000" })
+	public int rate;
+
+	@Param("500")
+	public long deadlineMillis;
+
+	@Param("64")
+	public String workerThreads;
+
+	private ServerProcess server;
+
+	private InetSocketAddress address;
+
+	private byte[] request;
+
+	private Selector selector;
+
+	private final List<Connection> open = new ArrayList<>();
+
+	private final ArrayDeque<Connection> idle = new ArrayDeque<>();
+
+	private long interval;
+
+	private long deadline;
+
+	// when the next request should be sent
+	private long next;
+
+	/**
+	 * A connection with its response, being read for the request sent at
+	 * "sent".
+	 */
+	private static class Connection {
+		private SocketChannel channel;
+		private ByteBuffer response = ByteBuffer.allocate(64 * 1024);
+		private long sent;
+		// the end of the head, 0 when it is not read yet
+		private int headEnd;
+		private int status;
+		private int length;
+		private boolean chunked;
+		private boolean close;
+		// where the next chunk starts
+		private int chunk;
+	}
+
+	/**
+	 * The responses, as rates.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Responses {
+		public long good;
+		public long late;
+		public long rejected;
+		public long unsent;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			good = 0;
+			late = 0;
+			rejected = 0;
+			unsent = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException, InterruptedException {
+		Map<String, String> properties = new LinkedHashMap<>();
+		if (admission.equals("off")) {
+			properties.put("simple.rest.service.admission.reads", "0");
+			properties.put("simple.rest.service.admission.queue.millis", "0");
+		}
+		properties.put("simple.rest.service.worker.threads", workerThreads);
+		// the connections are opened once and kept
+		properties.put("simple.rest.service.keepalive.requests", "-1");
+		properties.put("simple.rest.service.keepalive.seconds", "-1");
+		// the client is not the one waiting for the CPU
+		server = new ServerProcess(Arrays.asList("nice", "-n", "19"), properties);
+		address = server.getAddress();
+		StringBuilder lines = new StringBuilder();
+		for (int i = 0; i < EMPLOYEES; i++)
+			lines.append("{\"name\":\"Employee ").append(i).append("\",\"salary\":1000}\n");
+		server.bulkImport(lines.toString().getBytes(StandardCharsets.UTF_8));
+		request = ("GET /myapp/employees?limit=1000 HTTP/1.1\r\n"
+			+ "Host: " + address.getHostString() + "\r\n"
+			+ "Accept: application/json\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+		warmUp();
+		selector = Selector.open();
+		// connecting while overloaded would block the client; fewer than the
+		// backlog, the server may accept them after they are all connected
+		for (int i = 0; i < CONNECTIONS; i++)
+			connect();
+		interval = TimeUnit.SECONDS.toNanos(1) / rate;
+		deadline = TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException, InterruptedException {
+		for (Connection connection : open)
+			connection.channel.close();
+		selector.close();
+		server.stop();
+	}
+
+	/**
+	 * Compiles the server before it is overloaded: a cold server has a lower
+	 * capacity, and the requests queued in the meantime would take many
+	 * iterations to be answered or rejected.
+	 */
+	private void warmUp() throws IOException {
+		URL url = new URL("http://" + address.getHostString() + ":" + address.getPort()
+			+ "/myapp/employees?limit=1000");
+		byte[] buffer = new byte[8192];
+		for (int i = 0; i < WARM_UP_REQUESTS; i++) {
+			HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+			connection.setRequestProperty("Accept", "application/json");
+			// the server can already reject some requests, e.g., during a GC
+			try (InputStream in = connection.getResponseCode() == 200
+					? connection.getInputStream()
+					: connection.getErrorStream()) {
+				while (in.read(buffer) != -1) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * The requests that were due between two iterations are not sent at once
+	 * when the next one starts.
+	 */
+	@Setup(Level.Iteration)
+	public void start() {
+		next = System.nanoTime();
+	}
+
+	/**
+	 * Sends the requests that are due and reads the responses that arrived
+	 * within a millisecond.
+	 */
+	@Benchmark
+	public void requests(Responses responses) throws IOException {
+		long now = System.nanoTime();
+		for (; next <= now; next += interval) {
+			// the last connection used is the most likely to be in the caches
+			Connection connection = idle.pollLast();
+			if (connection == null) {
+				responses.unsent++;
+				continue;
+			}
+			connection.sent = next;
+			// a small request fits in the empty send buffer of the socket
+			if (connection.channel.write(ByteBuffer.wrap(request)) != request.length)
+				throw new IOException("Request not sent at once");
+		}
+		if (selector.select(1) == 0)
+			return;
+		Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+		while (keys.hasNext()) {
+			SelectionKey key = keys.next();
+			Connection connection = (Connection) key.attachment();
+			keys.remove();
+			if (key.isConnectable()) {
+				connection.channel.finishConnect();
+				key.interestOps(SelectionKey.OP_READ);
+				idle.add(connection);
+				continue;
+			}
+			if (connection.channel.read(connection.response) == -1)
+				throw new IOException("Connection closed before the response");
+			if (!isComplete(connection)) {
+				grow(connection);
+				continue;
+			}
+			long latency = System.nanoTime() - connection.sent;
+			if (connection.status == 429)
+				responses.rejected++;
+			else if (connection.status != 200)
+				throw new IOException("Unexpected status: " + connection.status);
+			else if (latency <= deadline)
+				responses.good++;
+			else
+				responses.late++;
+			boolean close = connection.close;
+			reset(connection);
+			if (close)
+				reconnect(connection);
+			else
+				idle.add(connection);
+		}
+	}
+
+	/**
+	 * Grizzly closes the connection after most errors, e.g., 503: the client
+	 * connects again without waiting for the server to accept it.
+	 */
+	private void reconnect(Connection connection) throws IOException {
+		connection.channel.close();
+		connection.channel = SocketChannel.open();
+		connection.channel.configureBlocking(false);
+		if (connection.channel.connect(address)) {
+			connection.channel.register(selector, SelectionKey.OP_READ, connection);
+			idle.add(connection);
+		} else {
+			connection.channel.register(selector, SelectionKey.OP_CONNECT, connection);
+		}
+	}
+
+	private void connect() throws IOException {
+		Connection connection = new Connection();
+		// blocking connects do not overflow the backlog of the server
+		connection.channel = SocketChannel.open(address);
+		connection.channel.configureBlocking(false);
+		connection.channel.register(selector, SelectionKey.OP_READ, connection);
+		open.add(connection);
+		reset(connection);
+		idle.add(connection);
+	}
+
+	private static void reset(Connection connection) {
+		connection.response.clear();
+		connection.headEnd = 0;
+		connection.length = -1;
+		connection.chunked = false;
+		connection.close = false;
+	}
+
+	/**
+	 * Reads the head once, then waits for Content-Length bytes or for the
+	 * last chunk.
+	 */
+	private static boolean isComplete(Connection connection) throws IOException {
+		byte[] bytes = connection.response.array();
+		int position = connection.response.position();
+		if (connection.headEnd == 0) {
+			int end = indexOf(bytes, 0, position);
+			if (end < 0)
+				return false;
+			connection.headEnd = end + 4;
+			connection.chunk = connection.headEnd;
+			connection.length = -1;
+			String head = new String(bytes, 0, end, StandardCharsets.ISO_8859_1);
+			connection.status = Integer.parseInt(head.substring(9, 12));
+			for (String header : head.split("\r\n")) {
+				String lowerCase = header.toLowerCase();
+				if (lowerCase.startsWith("content-length:"))
+					connection.length = Integer.parseInt(lowerCase.substring(15).trim());
+				else if (lowerCase.startsWith("transfer-encoding:"))
+					connection.chunked = lowerCase.contains("chunked");
+				else if (lowerCase.startsWith("connection:"))
+					connection.close = lowerCase.contains("close");
+			}
+			if (connection.length < 0 && !connection.chunked)
+				throw new IOException("No Content-Length: " + head);
+		}
+		if (!connection.chunked)
+			return position >= connection.headEnd + connection.length;
+		while (true) {
+			int lineEnd = indexOfLine(bytes, connection.chunk, position);
+			if (lineEnd < 0)
+				return false;
+			String line = new String(bytes, connection.chunk, lineEnd - connection.chunk,
+				StandardCharsets.ISO_8859_1);
+			int size = Integer.parseInt(line.trim(), 16);
+			// the chunk, then CRLF; the last chunk is followed by an empty line
+			int end = lineEnd + 2 + size + 2;
+			if (end > position)
+				return false;
+			if (size == 0)
+				return true;
+			connection.chunk = end;
+		}
+	}
+
+	// the index of CRLF CRLF, or -1
+	private static int indexOf(byte[] bytes, int from, int to) {
+		for (int i = from; i + 3 < to; i++)
+			if (bytes[i] == '\r' && bytes[i + 1] == '\n' && bytes[i + 2] == '\r'
+					&& bytes[i + 3] == '\n')
+				return i;
+		return -1;
+	}
+
+	// the index of CRLF, or -1
+	private static int indexOfLine(byte[] bytes, int from, int to) {
+		for (int i = from; i + 1 < to; i++)
+			if (bytes[i] == '\r' && bytes[i + 1] == '\n')
+				return i;
+		return -1;
+	}
+
+	private static void grow(Connection connection) {
+		if (connection.response.hasRemaining())
+			return;
+		ByteBuffer larger = ByteBuffer.allocate(connection.response.capacity() * 2);
+		connection.response.flip();
+		larger.put(connection.response);
+		connection.response = larger;
+	}
+}
@@ -0,0 +1,126 @@
+package com.examples.benchmarks;
+
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.examples.model.Employee;
+import com.examples.model.SalaryStats;
+import com.examples.repository.EmployeeRepository;
+
+/**
+ * Single-threaded cost of the basic repository operations, depending on the
+ * number of stored employees.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RepositoryBenchmark {
+
+	@Param({ "inmemory", "concurrent" })
+	public String repository;
+
+	@Param({ "10", "10000", "1000000" })
+	public int size;
+
+	private EmployeeRepository employeeRepository;
+
+	private String[] ids;
+
+	@Setup
+	public void setup() {
+		employeeRepository = BenchmarkData.newRepository(repository);
+		ids = BenchmarkData.populate(employeeRepository, size);
+	}
+
+	private String randomId() {
+		return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+	}
+
+	@Benchmark
+	public Optional<Employee> findOne() {
+		return employeeRepository.findOne(randomId());
+	}
+
+	@Benchmark
+	public List<Employee> findAll() {
+		return employeeRepository.findAll();
+	}
+
+	/**
+	 * Should not depend on the size.
+	 */
+	@Benchmark
+	public long count() {
+		return employeeRepository.count();
+	}
+
+	/**
+	 * A page of 100 employees starting from a random position.
+	 */
+	@Benchmark
+	public List<Employee> findPage() {
+		return employeeRepository.findPage(randomId(), 100);
+	}
+
+	/**
+	 * The employees with a random salary: salaries are spread over 1000
+	 * values, so about size / 1000 of them.
+	 */
+	@Benchmark
+	public List<Employee> findBySalary() {
+		int salary = 1000 + ThreadLocalRandom.current().nextInt(1000);
+		return employeeRepository.findBySalary(salary, salary);
+	}
+
+	@Benchmark
+	public SalaryStats salaryStats() {
+		return employeeRepository.salaryStats();
+	}
+
+	/**
+	 * What clients used to do: aggregate over all the employees, without
+	 * percentiles.
+	 */
+	@Benchmark
+	public IntSummaryStatistics salarySummaryOfFindAll() {
+		return employeeRepository.findAll().stream()
+			.mapToInt(Employee::getSalary)
+			.summaryStatistics();
+	}
+
+	/**
+	 * Replaces an existing employee, so that the size does not change.
+	 */
+	@Benchmark
+	public Employee save() {
+		return employeeRepository.save(new Employee(randomId(), "Replaced", 1000));
+	}
+
+	/**
+	 * Saves with a generated id, and then deletes, so that the size does not
+	 * change.
+	 */
+	@Benchmark
+	public Employee saveNewAndDelete() {
+		Employee saved = employeeRepository.save(new Employee(null, "New", 1000));
+		return employeeRepository.deleteById(saved.getEmployeeId());
+	}
+}
@@ -0,0 +1,79 @@
+package com.examples.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.examples.model.Employee;
+import com.examples.service.EmployeeService;
+import com.examples.service.EmployeeServiceImpl;
+
+/**
+ * Multi-threaded throughput of the service on top of the synchronized
+ * {@link com.examples.repository.InMemoryEmployeeRepository} and of the
+ * lock-free {@link com.examples.repository.ConcurrentEmployeeRepository}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RepositoryConcurrencyBenchmark {
+
+	@Param({ "inmemory", "concurrent" })
+	public String repository;
+
+	@Param("10000")
+	public int size;
+
+	private EmployeeService service;
+
+	private String[] ids;
+
+	@Setup
+	public void setup() {
+		service = new EmployeeServiceImpl(BenchmarkData.newRepository(repository));
+		ids = new String[size];
+		for (int i = 0; i < size; i++)
+			ids[i] = service.addEmployee(BenchmarkData.newEmployee(i)).getEmployeeId();
+	}
+
+	private String randomId() {
+		return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+	}
+
+	@Benchmark
+	@Threads(8)
+	public Employee readOnly() {
+		return service.getEmployeeById(randomId());
+	}
+
+	@Benchmark
+	@Group("readMostly")
+	@GroupThreads(7)
+	public Employee readMostlyGet() {
+		return service.getEmployeeById(randomId());
+	}
+
+	@Benchmark
+	@Group("readMostly")
+	@GroupThreads(1)
+	public Employee readMostlyReplace() {
+		return service.replaceEmployeeById(randomId(), new Employee(null, "Replaced", 1000));
+	}
+}
@@ -0,0 +1,115 @@
+package com.examples.benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.examples.model.Employee;
+import com.examples.repository.EmployeeRepository;
+
+/**
+ * Latency distribution (including p99) of type-ahead searches by name, with
+ * names made of common first and last names, alone and while another thread
+ * keeps renaming employees.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SearchBenchmark {
+
+	private static final String[] FIRST_NAMES = { "James", "Mary", "Robert", "Patricia",
+		"John", "Jennifer", "Michael", "Linda", "David", "Elizabeth", "William", "Barbara",
+		"Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen",
+		"Maria", "Giovanni", "Isabella", "Lucas", "Sofia", "Mateus", "Ana", "Pedro" };
+
+	private static final String[] LAST_NAMES = { "Smith", "Johnson", "Williams", "Brown",
+		"Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez", "Hernandez", "Lopez",
+		"Gonzalez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Martin",
+		"Silva", "Santos", "Oliveira", "Souza", "Rossi", "Russo", "Ferrari", "Esposito" };
+
+	@Param({ "inmemory", "concurrent" })
+	public String repository;
+
+	@Param("1000000")
+	public int size;
+
+	@Param("10")
+	public int limit;
+
+	private EmployeeRepository employeeRepository;
+
+	private String[] ids;
+
+	@Setup
+	public void setup() {
+		employeeRepository = BenchmarkData.newRepository(repository);
+		Random random = new Random(0);
+		ids = new String[size];
+		for (int i = 0; i < size; i++)
+			ids[i] = employeeRepository.save(new Employee(null, randomName(random), 1000))
+				.getEmployeeId();
+	}
+
+	// e.g., "Mary Silva 1234": the number makes most names unique
+	private static String randomName(Random random) {
+		return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+			+ LAST_NAMES[random.nextInt(LAST_NAMES.length)] + " "
+			+ random.nextInt(10000);
+	}
+
+	/**
+	 * What a user types: the first letters of a first name, and sometimes
+	 * of a last name.
+	 */
+	private static String randomQuery() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+		String query = first.substring(0, 1 + random.nextInt(first.length()));
+		if (random.nextBoolean()) {
+			String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+			query += " " + last.substring(0, 1 + random.nextInt(last.length()));
+		}
+		return query;
+	}
+
+	@Benchmark
+	@Threads(4)
+	public List<Employee> search() {
+		return employeeRepository.searchByName(randomQuery(), limit);
+	}
+
+	@Benchmark
+	@Group("searchUnderWrites")
+	@GroupThreads(3)
+	public List<Employee> searchWhileRenaming() {
+		return employeeRepository.searchByName(randomQuery(), limit);
+	}
+
+	@Benchmark
+	@Group("searchUnderWrites")
+	@GroupThreads(1)
+	public Employee rename() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return employeeRepository.save(new Employee(ids[random.nextInt(ids.length)],
+			randomName(new Random(random.nextLong())), 1000));
+	}
+}
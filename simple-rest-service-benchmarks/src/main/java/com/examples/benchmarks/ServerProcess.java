@@ -0,0 +1,110 @@
+package com.examples.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.examples.EmployeeBulkImport;
+import com.examples.Main;
+
+/**
+ * The server of {@link Main} in its own JVM, the same as the benchmark's, on
+ * a free port, configured with system properties; its output goes to a
+ * temporary log, which is shown if it does not start.
+ */
+class ServerProcess {
+
+	private final int port;
+
+	private final Path log;
+
+	private final Process process;
+
+	/**
+	 * @param launcher
+	 *            the command that runs java, e.g., "nice", or none
+	 * @param properties
+	 *            the system properties, e.g., "simple.rest.service.threads"
+	 */
+	ServerProcess(List<String> launcher, Map<String, String> properties)
+			throws IOException, InterruptedException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			port = socket.getLocalPort();
+		}
+		log = Files.createTempFile("server", ".log");
+		List<String> command = new ArrayList<>(launcher);
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.add("-Dsimple.rest.service.port=" + port);
+		for (Map.Entry<String, String> property : properties.entrySet())
+			command.add("-D" + property.getKey() + "=" + property.getValue());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(Main.class.getName());
+		process = new ProcessBuilder(command)
+			.redirectErrorStream(true)
+			.redirectOutput(log.toFile())
+			.start();
+		awaitServer();
+	}
+
+	InetSocketAddress getAddress() {
+		return new InetSocketAddress("localhost", port);
+	}
+
+	private void awaitServer() throws IOException, InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+		while (true) {
+			try (SocketChannel channel = SocketChannel.open(getAddress())) {
+				return;
+			} catch (IOException e) {
+				if (!process.isAlive() || System.nanoTime() > deadline) {
+					process.destroy();
+					throw new IOException("The server did not start:\n"
+						+ new String(Files.readAllBytes(log), StandardCharsets.UTF_8), e);
+				}
+				Thread.sleep(100);
+			}
+		}
+	}
+
+	/**
+	 * Adds the employees, one JSON object per line, with POST /employees/bulk.
+	 */
+	void bulkImport(byte[] body) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(
+			"http://localhost:" + port + "/myapp/employees/bulk").openConnection();
+		connection.setRequestMethod("POST");
+		connection.setRequestProperty("Accept", EmployeeBulkImport.APPLICATION_NDJSON);
+		connection.setRequestProperty("Content-Type", EmployeeBulkImport.APPLICATION_NDJSON);
+		connection.setDoOutput(true);
+		connection.setFixedLengthStreamingMode(body.length);
+		try (OutputStream out = connection.getOutputStream()) {
+			out.write(body);
+		}
+		if (connection.getResponseCode() != 200)
+			throw new IOException("Bulk import: " + connection.getResponseCode());
+		try (InputStream in = connection.getInputStream()) {
+			while (in.read() != -1) {
+			}
+		}
+	}
+
+	void stop() throws IOException, InterruptedException {
+		process.destroy();
+		process.waitFor();
+		Files.delete(log);
+	}
+}
@@ -0,0 +1,99 @@
+package com.examples.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.examples.model.Employee;
+import com.examples.service.EmployeeService;
+import com.examples.service.EmployeeServiceImpl;
+
+/**
+ * Throughput of {@link EmployeeServiceImpl} under 1, 4 and 16 threads; JMH
+ * cannot use a parameter for the number of threads, so there is a benchmark
+ * method for each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ServiceBenchmark {
+
+	@Param({ "inmemory", "concurrent" })
+	public String repository;
+
+	@Param("10000")
+	public int size;
+
+	private EmployeeService service;
+
+	private String[] ids;
+
+	@Setup
+	public void setup() {
+		service = new EmployeeServiceImpl(BenchmarkData.newRepository(repository));
+		ids = new String[size];
+		for (int i = 0; i < size; i++)
+			ids[i] = service.addEmployee(BenchmarkData.newEmployee(i)).getEmployeeId();
+	}
+
+	private Employee getRandom() {
+		return service.getEmployeeById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+	}
+
+	private Employee replaceRandom() {
+		return service.replaceEmployeeById(
+			ids[ThreadLocalRandom.current().nextInt(ids.length)],
+			new Employee(null, "Replaced", 1000));
+	}
+
+	@Benchmark
+	@Threads(1)
+	public Employee get01Thread() {
+		return getRandom();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public Employee get04Threads() {
+		return getRandom();
+	}
+
+	@Benchmark
+	@Threads(16)
+	public Employee get16Threads() {
+		return getRandom();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public Employee replace01Thread() {
+		return replaceRandom();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public Employee replace04Threads() {
+		return replaceRandom();
+	}
+
+	@Benchmark
+	@Threads(16)
+	public Employee replace16Threads() {
+		return replaceRandom();
+	}
+}
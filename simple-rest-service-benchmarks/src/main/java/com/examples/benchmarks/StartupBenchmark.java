@@ -0,0 +1,118 @@
+package com.examples.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.examples.model.Employee;
+import com.examples.repository.DurableEmployeeRepository;
+import com.examples.repository.EmployeeSnapshot;
+import com.examples.repository.WriteAheadLog;
+
+/**
+ * Time to ready of {@link DurableEmployeeRepository}, i.e., of the "durable"
+ * repository when the server starts, with "size" employees: loading a
+ * snapshot and replaying a tail of "tail" records, against replaying a log
+ * with all the employees and no snapshot.
+ * 
+ * The default size needs a few GB of heap: use, e.g., -p size=1000000 on a
+ * smaller machine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class StartupBenchmark {
+
+	@Param("10000000")
+	public int size;
+
+	@Param("10000")
+	public int tail;
+
+	private Path snapshotDirectory;
+
+	private Path logDirectory;
+
+	private DurableEmployeeRepository repository;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		snapshotDirectory = Files.createTempDirectory("employees");
+		try (WriteAheadLog log = new WriteAheadLog(snapshotDirectory, false)) {
+			// an empty directory, nothing to replay
+			log.replay(0, null);
+			long segment = log.rotate();
+			EmployeeSnapshot.write(snapshotDirectory.resolve("snapshot"), segment, size,
+				consumer -> {
+					for (int i = 0; i < size; i++)
+						consumer.accept(newEmployee(i));
+				});
+			// the changes after the snapshot
+			for (int i = 0; i < tail; i++)
+				log.appendSave(new Employee("ID" + (i + 1), "Replaced", 2000));
+			log.sync();
+			log.deleteSegmentsBefore(segment);
+		}
+		logDirectory = Files.createTempDirectory("employees");
+		try (WriteAheadLog log = new WriteAheadLog(logDirectory, false)) {
+			// an empty directory, nothing to replay
+			log.replay(0, null);
+			for (int i = 0; i < size; i++) {
+				log.appendSave(newEmployee(i));
+				// do not keep the whole log in memory
+				if (i % 100000 == 0)
+					log.sync();
+			}
+			log.sync();
+		}
+	}
+
+	private static Employee newEmployee(int i) {
+		return new Employee("ID" + (i + 1), "Employee " + i, 1000 + i % 1000);
+	}
+
+	@TearDown(Level.Iteration)
+	public void closeRepository() throws IOException {
+		repository.close();
+		// free the memory before the next iteration
+		repository = null;
+		System.gc();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		System.out.printf("%nSnapshot directory: %d bytes, log directory: %d bytes%n",
+			BenchmarkData.deleteDirectory(snapshotDirectory),
+			BenchmarkData.deleteDirectory(logDirectory));
+	}
+
+	@Benchmark
+	public DurableEmployeeRepository snapshotAndTail() throws IOException {
+		repository = new DurableEmployeeRepository(snapshotDirectory, false);
+		return repository;
+	}
+
+	@Benchmark
+	public DurableEmployeeRepository logOnly() throws IOException {
+		repository = new DurableEmployeeRepository(logDirectory, false);
+		return repository;
+	}
+}
@@ -0,0 +1,131 @@
+package com.examples;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A limit on the number of requests processed at the same time, adapted to
+ * their latency like the "gradient" limits of TCP Vegas: when the latency
+ * of the last window of requests is higher than the long-term latency, the
+ * requests are waiting for the CPU, locks or the disk rather than being
+ * processed, so the limit decreases in proportion; otherwise, it grows by
+ * about its square root, to find out whether more requests can be processed
+ * without waiting.
+ * 
+ * Acquiring is lock-free; a latency is added to the window under the lock of
+ * the limit, which is adapted once per window of {@link #WINDOW} latencies.
+ * 
+ * With a maximum of 0, the number of requests is not limited.
+ */
+public class AdaptiveLimit {
+
+	// latencies between two adaptations of the limit
+	static final int WINDOW = 20;
+
+	static final int INITIAL_LIMIT = 20;
+
+	// the latency can grow by half before the limit decreases
+	private static final double TOLERANCE = 1.5;
+
+	// weight of a window in the long-term latency, ten times lower when the
+	// latency is above the tolerance, so that an overload does not become
+	// the new normal
+	private static final double LONG_TERM_WEIGHT = 0.01;
+
+	// weight of a new limit in the limit
+	private static final double SMOOTHING = 0.2;
+
+	private final int maxLimit;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private volatile int limit;
+
+	// guarded by this
+	private double estimate;
+
+	private double longTermNanos;
+
+	private long windowNanos;
+
+	private int windowCount;
+
+	private int windowMaxInFlight;
+
+	/**
+	 * @param maxLimit
+	 *            the limit never grows above it, 0 for no limit
+	 */
+	public AdaptiveLimit(int maxLimit) {
+		this.maxLimit = maxLimit;
+		estimate = Math.min(INITIAL_LIMIT, maxLimit);
+		limit = (int) estimate;
+	}
+
+	/**
+	 * @return whether the request can be processed, in which case
+	 *         {@link #release(long)} must be called once it is
+	 */
+	public boolean tryAcquire() {
+		if (maxLimit == 0)
+			return true;
+		while (true) {
+			int current = inFlight.get();
+			if (current >= limit)
+				return false;
+			if (inFlight.compareAndSet(current, current + 1))
+				return true;
+		}
+	}
+
+	/**
+	 * @param latencyNanos
+	 *            of the request, from when it was acquired
+	 */
+	public void release(long latencyNanos) {
+		if (maxLimit == 0)
+			return;
+		int current = inFlight.getAndDecrement();
+		sample(Math.max(latencyNanos, 1), current);
+	}
+
+	private synchronized void sample(long latencyNanos, int current) {
+		windowNanos += latencyNanos;
+		windowMaxInFlight = Math.max(windowMaxInFlight, current);
+		if (++windowCount < WINDOW)
+			return;
+		double shortTermNanos = (double) windowNanos / windowCount;
+		if (longTermNanos == 0)
+			longTermNanos = shortTermNanos;
+		else if (shortTermNanos > TOLERANCE * longTermNanos)
+			longTermNanos += (shortTermNanos - longTermNanos) * LONG_TERM_WEIGHT / 10;
+		else
+			longTermNanos += (shortTermNanos - longTermNanos) * LONG_TERM_WEIGHT;
+		// after an overload, comes back to the latency without it
+		if (longTermNanos > 2 * shortTermNanos)
+			longTermNanos = 2 * shortTermNanos;
+		// the latency of a mostly unused limit says nothing about a larger one
+		if (windowMaxInFlight >= estimate / 2) {
+			double gradient = Math.max(0.5,
+				Math.min(1.0, TOLERANCE * longTermNanos / shortTermNanos));
+			double target = estimate * gradient + Math.sqrt(estimate);
+			estimate += (target - estimate) * SMOOTHING;
+			estimate = Math.max(1, Math.min(maxLimit, estimate));
+			limit = (int) estimate;
+		}
+		windowNanos = 0;
+		windowCount = 0;
+		windowMaxInFlight = 0;
+	}
+
+	/**
+	 * @return the number of requests that can be processed at the same time,
+	 *         0 for no limit
+	 */
+	public int getLimit() {
+		return maxLimit == 0 ? 0 : limit;
+	}
+
+	public int getInFlight() {
+		return inFlight.get();
+	}
+}
@@ -0,0 +1,22 @@
+package com.examples;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import javax.ws.rs.NameBinding;
+
+/**
+ * The requests of the annotated resource methods are admitted by
+ * {@link AdmissionFilter}; GET and HEAD requests are limited as reads, the
+ * others as writes, unless the method is annotated with read = true, e.g.,
+ * a POST that only reads.
+ */
+@NameBinding
+@Target({ ElementType.TYPE, ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AdmissionControl {
+
+	boolean read() default false;
+}
@@ -0,0 +1,142 @@
+package com.examples;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+/**
+ * Sheds the load of an overloaded server: reads and writes are admitted
+ * only while the requests of the same kind being processed are below their
+ * {@link AdaptiveLimit}, and only if they did not wait too long for a worker
+ * thread, see {@link QueueDelay}; the others are answered right away, before
+ * reaching the resource method, so that the admitted requests keep a short
+ * latency instead of all of them waiting longer and longer for the CPU, the
+ * locks or the disk.
+ * 
+ * Rejected requests are answered with 429 (Too Many Requests) and a
+ * Retry-After, rather than 503 (Service Unavailable): Grizzly closes the
+ * connection after a 503, and connecting again would cost the overloaded
+ * server more than the request.
+ * 
+ * A request is processed from when it was queued for a worker thread, if
+ * known, see {@link WorkerQueueProbe}, to after its entity is written, so
+ * the latency includes the wait in the queue, and the limit includes the
+ * suspended requests waiting for the {@link ResourceExecutor} and the
+ * encoding of the entity. The limits are effective when there are more
+ * worker threads than the limits, see {@link Main#WORKER_THREADS}.
+ */
+@Provider
+@AdmissionControl
+@Priority(Priorities.AUTHENTICATION)
+public class AdmissionFilter implements ContainerRequestFilter, ContainerResponseFilter,
+		WriterInterceptor {
+
+	public static final String READS = "reads";
+
+	public static final String WRITES = "writes";
+
+	private static final String ADMITTED = AdmissionFilter.class.getName();
+
+	/**
+	 * The request property from the request filter to the end of the
+	 * response.
+	 */
+	private static class Admitted {
+		private final long start;
+		private final AdaptiveLimit limit;
+
+		private Admitted(long start, AdaptiveLimit limit) {
+			this.start = start;
+			this.limit = limit;
+		}
+
+		private void release() {
+			limit.release(System.nanoTime() - start);
+		}
+	}
+
+	@Inject
+	@Named(READS)
+	private AdaptiveLimit reads;
+
+	@Inject
+	@Named(WRITES)
+	private AdaptiveLimit writes;
+
+	@Inject
+	private QueueDelay queueDelay;
+
+	@Context
+	private ResourceInfo resourceInfo;
+
+	@Override
+	public void filter(ContainerRequestContext requestContext) throws IOException {
+		long now = System.nanoTime();
+		long queued = WorkerQueueProbe.queuedNanos();
+		AdaptiveLimit limit = isRead(requestContext.getMethod()) ? reads : writes;
+		if (queueDelay.isTooLong(queued, now) || !limit.tryAcquire()) {
+			requestContext.abortWith(Response
+				.status(Status.TOO_MANY_REQUESTS)
+				.header("Retry-After", 1)
+				.entity("Too many requests")
+				.type("text/plain")
+				.build());
+			return;
+		}
+		// the latency includes the wait for the worker thread, if known
+		requestContext.setProperty(ADMITTED, new Admitted(queued == 0 ? now : queued, limit));
+	}
+
+	private boolean isRead(String httpMethod) {
+		if (HttpMethod.GET.equals(httpMethod) || HttpMethod.HEAD.equals(httpMethod))
+			return true;
+		Method method = resourceInfo.getResourceMethod();
+		AdmissionControl admissionControl =
+			method == null ? null : method.getAnnotation(AdmissionControl.class);
+		return admissionControl != null && admissionControl.read();
+	}
+
+	@Override
+	public void filter(ContainerRequestContext requestContext,
+			ContainerResponseContext responseContext) throws IOException {
+		Admitted admitted = (Admitted) requestContext.getProperty(ADMITTED);
+		// otherwise, released once the entity is written
+		if (admitted != null
+				&& (!responseContext.hasEntity()
+					|| HttpMethod.HEAD.equals(requestContext.getMethod()))) {
+			requestContext.removeProperty(ADMITTED);
+			admitted.release();
+		}
+	}
+
+	@Override
+	public void aroundWriteTo(WriterInterceptorContext context)
+			throws IOException, WebApplicationException {
+		try {
+			context.proceed();
+		} finally {
+			Admitted admitted = (Admitted) context.getProperty(ADMITTED);
+			if (admitted != null) {
+				context.removeProperty(ADMITTED);
+				admitted.release();
+			}
+		}
+	}
+}
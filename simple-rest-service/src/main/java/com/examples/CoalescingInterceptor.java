@@ -0,0 +1,75 @@
+package com.examples;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.stream.BaseStream;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import com.examples.cache.SingleFlight;
+
+/**
+ * Encodes the entity only once for concurrent identical requests, e.g., a
+ * burst of requests for the same page of employees: the first one encodes
+ * it into a buffer, while the others wait for the bytes and write them,
+ * without running the MessageBodyWriter, see {@link SingleFlight}.
+ * 
+ * Requests are identical when they have the same path and query, the same
+ * media type and the same ETag, which holds the version the entity has been
+ * read at: a request does not share the entity of another request that has
+ * read it before a write. Responses without an ETag are written as usual,
+ * like all the responses when coalescing is disabled, see
+ * {@link Main#COALESCING}. So are streams of employees, e.g., the full
+ * listing, which would otherwise be buffered whole instead of being
+ * streamed by {@link EmployeeStreamWriter}.
+ * 
+ * It runs inside the {@link EncodedEmployeeCacheInterceptor}, so that
+ * employees written from the cache do not wait for each other.
+ */
+@Provider
+@Coalesced
+@Priority(Priorities.USER + 1)
+public class CoalescingInterceptor implements WriterInterceptor {
+
+	@Inject
+	private SingleFlight<String, byte[]> flights;
+
+	@Context
+	private UriInfo uriInfo;
+
+	@Override
+	public void aroundWriteTo(WriterInterceptorContext context)
+			throws IOException, WebApplicationException {
+		Object tag = context.getHeaders().getFirst(HttpHeaders.ETAG);
+		if (tag == null || !flights.isEnabled() || context.getEntity() instanceof BaseStream) {
+			context.proceed();
+			return;
+		}
+		URI uri = uriInfo.getRequestUri();
+		String key = uri.getRawPath() + '?' + uri.getRawQuery() + ' '
+			+ context.getMediaType() + ' ' + tag;
+		OutputStream entityStream = context.getOutputStream();
+		byte[] bytes = flights.execute(key, () -> {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+			context.setOutputStream(buffer);
+			try {
+				context.proceed();
+			} finally {
+				context.setOutputStream(entityStream);
+			}
+			return buffer.toByteArray();
+		});
+		entityStream.write(bytes);
+	}
+}
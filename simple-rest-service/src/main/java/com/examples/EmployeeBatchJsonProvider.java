@@ -0,0 +1,70 @@
+package com.examples;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+
+import com.examples.json.EmployeeJsonParser;
+import com.examples.json.EmployeeJsonParser.MalformedJsonException;
+import com.examples.json.EmployeeJsonWriter;
+import com.examples.model.EmployeeBatch;
+
+/**
+ * Like {@link EmployeeJsonProvider}, but for reading many employees by id:
+ * reads the requested ids, as a JSON array of strings, and writes the
+ * {@link EmployeeBatch} in a single pass.
+ */
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class EmployeeBatchJsonProvider
+		implements MessageBodyReader<List<String>>, MessageBodyWriter<EmployeeBatch> {
+
+	@Override
+	public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations,
+			MediaType mediaType) {
+		return type.isAssignableFrom(List.class)
+			&& genericType instanceof ParameterizedType
+			&& ((ParameterizedType) genericType).getActualTypeArguments()[0] == String.class;
+	}
+
+	@Override
+	public List<String> readFrom(Class<List<String>> type, Type genericType,
+			Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, String> httpHeaders,
+			InputStream entityStream) throws IOException, WebApplicationException {
+		try (EmployeeJsonParser parser = new EmployeeJsonParser(entityStream)) {
+			List<String> ids = parser.readStrings();
+			parser.expectEnd();
+			return ids;
+		} catch (MalformedJsonException e) {
+			throw new BadRequestException(e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations,
+			MediaType mediaType) {
+		return type == EmployeeBatch.class;
+	}
+
+	@Override
+	public void writeTo(EmployeeBatch batch, Class<?> type, Type genericType,
+			Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
+			OutputStream entityStream) throws IOException, WebApplicationException {
+		try (EmployeeJsonWriter writer = new EmployeeJsonWriter(entityStream)) {
+			writer.write(batch);
+		}
+	}
+}
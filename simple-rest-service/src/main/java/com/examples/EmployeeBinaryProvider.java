@@ -0,0 +1,61 @@
+package com.examples;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.stream.Stream;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import com.examples.binary.EmployeeBinaryWriter;
+import com.examples.model.Employee;
+
+/**
+ * Writes an {@link Employee}, a collection or a {@link Stream} of employees
+ * in the compact binary format of {@link EmployeeBinaryWriter}; streams are
+ * closed when they have been written.
+ */
+@Provider
+@Produces(EmployeeBinaryProvider.APPLICATION_EMPLOYEE_BINARY)
+public class EmployeeBinaryProvider implements MessageBodyWriter<Object> {
+
+	public static final String APPLICATION_EMPLOYEE_BINARY = "application/x-employee-binary";
+
+	public static final MediaType APPLICATION_EMPLOYEE_BINARY_TYPE =
+		MediaType.valueOf(APPLICATION_EMPLOYEE_BINARY);
+
+	@Override
+	public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations,
+			MediaType mediaType) {
+		return type == Employee.class
+			|| ((Collection.class.isAssignableFrom(type) || Stream.class.isAssignableFrom(type))
+				&& genericType instanceof ParameterizedType
+				&& ((ParameterizedType) genericType).getActualTypeArguments()[0] == Employee.class);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void writeTo(Object entity, Class<?> type, Type genericType, Annotation[] annotations,
+			MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+			throws IOException, WebApplicationException {
+		try (EmployeeBinaryWriter writer = new EmployeeBinaryWriter(entityStream)) {
+			if (entity instanceof Employee) {
+				writer.write((Employee) entity);
+			} else if (entity instanceof Collection) {
+				writer.writeAll(((Collection<Employee>) entity).iterator());
+			} else {
+				try (Stream<Employee> stream = (Stream<Employee>) entity) {
+					writer.writeAll(stream.iterator());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package com.examples;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.StreamingOutput;
+
+import com.examples.json.EmployeeJsonParser;
+import com.examples.json.EmployeeJsonParser.MalformedJsonException;
+import com.examples.json.EmployeeJsonWriter;
+import com.examples.model.Employee;
+import com.examples.service.EmployeeService;
+
+/**
+ * Adds the employees of a newline-delimited JSON upload, one employee per
+ * line, while the upload is being read: employees are parsed one at a time
+ * with {@link EmployeeJsonParser} and added in batches of
+ * {@link #BATCH_SIZE}, so memory does not depend on the size of the upload.
+ * 
+ * For each non-blank line, a line of newline-delimited JSON is written with
+ * the id of the added employee or with the reason why it was not added, see
+ * {@link EmployeeJsonWriter#writeResult(int, Employee)}; results are written
+ * in the order of the lines, after each batch. A line that is not valid,
+ * including a line longer than {@link #MAX_LINE_LENGTH}, does not prevent
+ * the following ones from being added.
+ */
+public class EmployeeBulkImport implements StreamingOutput {
+
+	public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+	public static final int BATCH_SIZE = 1000;
+
+	// in bytes, so that a single line cannot hold the import for long
+	public static final int MAX_LINE_LENGTH = 64 * 1024;
+
+	/**
+	 * Either the employee or the error of a line.
+	 */
+	private static class Result {
+		private final int line;
+		private Employee employee;
+		private String error;
+
+		private Result(int line) {
+			this.line = line;
+		}
+	}
+
+	private final EmployeeService employeeService;
+
+	private final InputStream input;
+
+	// the results not written yet, with the employees not added yet
+	private final List<Result> pending = new ArrayList<>(BATCH_SIZE);
+
+	public EmployeeBulkImport(EmployeeService employeeService, InputStream input) {
+		this.employeeService = employeeService;
+		this.input = input;
+	}
+
+	@Override
+	public void write(OutputStream output) throws IOException {
+		try (EmployeeJsonParser parser = new EmployeeJsonParser(input, MAX_LINE_LENGTH);
+				EmployeeJsonWriter writer = new EmployeeJsonWriter(output)) {
+			while (parser.hasNext()) {
+				Result result = new Result(parser.getLine());
+				try {
+					Employee employee = parser.readEmployee();
+					parser.expectEndOfLine();
+					employeeService.checkNewEmployee(employee);
+					result.employee = employee;
+				} catch (MalformedJsonException e) {
+					result.error = e.getMessage();
+					// the end of the line may have been consumed already
+					if (parser.getLine() == result.line)
+						parser.skipLine();
+				} catch (BadRequestException e) {
+					result.error = e.getMessage();
+				}
+				pending.add(result);
+				if (pending.size() == BATCH_SIZE)
+					addPending(writer);
+			}
+			addPending(writer);
+		}
+	}
+
+	private void addPending(EmployeeJsonWriter writer) throws IOException {
+		List<Employee> batch = new ArrayList<>(pending.size());
+		for (Result result : pending) {
+			if (result.employee != null)
+				batch.add(result.employee);
+		}
+		Iterator<Employee> added = batch.isEmpty() ? Collections.emptyIterator()
+			: employeeService.addEmployees(batch).iterator();
+		for (Result result : pending) {
+			if (result.employee != null)
+				writer.writeResult(result.line, added.next());
+			else
+				writer.writeError(result.line, result.error);
+		}
+		pending.clear();
+	}
+}
@@ -0,0 +1,73 @@
+package com.examples;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+
+import com.examples.json.EmployeeJsonParser;
+import com.examples.json.EmployeeJsonParser.MalformedJsonException;
+import com.examples.json.EmployeeJsonWriter;
+import com.examples.model.Employee;
+
+/**
+ * Like {@link EmployeeJsonProvider}, but for a collection of employees,
+ * written as a JSON array; a JSON array can be read as a {@link List}.
+ */
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class EmployeeCollectionJsonProvider
+		implements MessageBodyReader<List<Employee>>, MessageBodyWriter<Collection<Employee>> {
+
+	private static boolean isOfEmployees(Type genericType) {
+		return genericType instanceof ParameterizedType
+			&& ((ParameterizedType) genericType).getActualTypeArguments()[0] == Employee.class;
+	}
+
+	@Override
+	public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations,
+			MediaType mediaType) {
+		return type.isAssignableFrom(List.class) && isOfEmployees(genericType);
+	}
+
+	@Override
+	public List<Employee> readFrom(Class<List<Employee>> type, Type genericType,
+			Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, String> httpHeaders,
+			InputStream entityStream) throws IOException, WebApplicationException {
+		try (EmployeeJsonParser parser = new EmployeeJsonParser(entityStream)) {
+			List<Employee> employees = parser.readEmployees();
+			parser.expectEnd();
+			return employees;
+		} catch (MalformedJsonException e) {
+			throw new BadRequestException(e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations,
+			MediaType mediaType) {
+		return Collection.class.isAssignableFrom(type) && isOfEmployees(genericType);
+	}
+
+	@Override
+	public void writeTo(Collection<Employee> employees, Class<?> type, Type genericType,
+			Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
+			OutputStream entityStream) throws IOException, WebApplicationException {
+		try (EmployeeJsonWriter writer = new EmployeeJsonWriter(entityStream)) {
+			writer.writeArray(employees.iterator());
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package com.examples;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.MessageBodyWriter;
+
+import com.examples.json.EmployeeJsonParser;
+import com.examples.json.EmployeeJsonParser.MalformedJsonException;
+import com.examples.json.EmployeeJsonWriter;
+import com.examples.model.Employee;
+
+/**
+ * Reads and writes an {@link Employee} as JSON without going through MOXy
+ * and JAXB reflection; the JSON is the same produced and accepted by MOXy.
+ * 
+ * Being declared for {@link Employee}, instead of {@link Object} like the
+ * MOXy provider, Jersey prefers this provider. It is not annotated with
+ * {@link javax.ws.rs.ext.Provider}: it is registered explicitly in
+ * {@link Main#startServer()}, together with
+ * {@link EmployeeCollectionJsonProvider} and
+ * {@link EmployeeBatchJsonProvider}.
+ */
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class EmployeeJsonProvider implements MessageBodyReader<Employee>, MessageBodyWriter<Employee> {
+
+	@Override
+	public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations,
+			MediaType mediaType) {
+		return type == Employee.class;
+	}
+
+	@Override
+	public Employee readFrom(Class<Employee> type, Type genericType, Annotation[] annotations,
+			MediaType mediaType, MultivaluedMap<String, String> httpHeaders, InputStream entityStream)
+			throws IOException, WebApplicationException {
+		try (EmployeeJsonParser parser = new EmployeeJsonParser(entityStream)) {
+			if (!parser.hasNext())
+				return null;
+			Employee employee = parser.readEmployee();
+			parser.expectEnd();
+			return employee;
+		} catch (MalformedJsonException e) {
+			throw new BadRequestException(e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations,
+			MediaType mediaType) {
+		return type == Employee.class;
+	}
+
+	@Override
+	public void writeTo(Employee employee, Class<?> type, Type genericType, Annotation[] annotations,
+			MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+			throws IOException, WebApplicationException {
+		try (EmployeeJsonWriter writer = new EmployeeJsonWriter(entityStream)) {
+			writer.write(employee);
+		}
+	}
+}
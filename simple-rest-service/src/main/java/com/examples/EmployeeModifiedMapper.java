@@ -0,0 +1,22 @@
+package com.examples;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+import com.examples.service.EmployeeModifiedException;
+
+@Provider
+public class EmployeeModifiedMapper implements ExceptionMapper<EmployeeModifiedException> {
+
+	@Override
+	public Response toResponse(EmployeeModifiedException ex) {
+		return Response
+			.status(Status.PRECONDITION_FAILED)
+			.entity(ex.getMessage())
+			.type("text/plain")
+			.build();
+	}
+
+}
@@ -1,39 +1,204 @@
 package com.examples;
 
-import java.net.URI;
-import java.net.URISyntaxException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.core.Variant;
 
 import com.examples.model.Employee;
+import com.examples.model.EmployeeBatch;
+import com.examples.model.SalaryStats;
 import com.examples.service.EmployeeService;
 
 /**
  * Root resource (exposed at "employees" path)
+ * 
+ * Employees and lists of employees are returned with a strong ETag, built
+ * from the version of the employee or of the collection and from the media
+ * type, since the XML, JSON and binary representations differ: GET requests
+ * with a matching If-None-Match are answered with 304 before reading or
+ * encoding any employee, while PUT and DELETE requests with an If-Match (of
+ * any representation) are applied only if the employee has not changed in
+ * the meantime (412 otherwise).
+ * 
+ * Writing methods suspend the request and run on the
+ * {@link ResourceExecutor}, so that slow writes do not hold the worker
+ * threads that serve reads.
+ * 
+ * Requests are admitted by {@link AdmissionFilter}, with separate limits for
+ * reads and writes.
+ * 
+ * Concurrent identical reads of employees share the encoding of the
+ * response, see {@link CoalescingInterceptor}.
  */
 @Path("employees")
+@AdmissionControl
 public class EmployeeResource {
 
+	// number of employees in a page when only the cursor is specified
+	public static final int DEFAULT_PAGE_SIZE = 100;
+
+	// number of search results when the limit is not specified
+	public static final int DEFAULT_SEARCH_LIMIT = 10;
+
+	// versions start over when the server is restarted,
+	// so ETags also depend on the start time
+	private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+	// the representations of employees, each with its own ETags
+	private static final List<Variant> VARIANTS = Variant.mediaTypes(
+			MediaType.APPLICATION_XML_TYPE, MediaType.APPLICATION_JSON_TYPE,
+			MediaType.valueOf(EmployeeBinaryProvider.APPLICATION_EMPLOYEE_BINARY))
+		.build();
+
 	@Inject
 	private EmployeeService employeeService;
 
+	// runs the writing methods, which can be slow
+	@Inject
+	private ResourceExecutor resourceExecutor;
+
+	/**
+	 * Without query parameters all the employees are returned, streamed by
+	 * {@link EmployeeStreamWriter} without building the whole list; otherwise, a
+	 * page of at most "limit" employees, starting after the position encoded
+	 * in "cursor" (from the first employee if not specified), e.g.,
+	 * http://localhost:8080/myapp/employees?limit=10
+	 * 
+	 * If the page is full, a "next" Link header holds the URI of the following
+	 * page.
+	 * 
+	 * With "minSalary" and/or "maxSalary", all the employees with a salary in
+	 * that range (inclusive) are returned instead, ordered by salary, e.g.,
+	 * http://localhost:8080/myapp/employees?minSalary=1000&maxSalary=2000
+	 * 
+	 * @param limit
+	 * @param cursor
+	 *            an opaque value taken from a "next" link
+	 * @param minSalary
+	 * @param maxSalary
+	 * @param uriInfo
+	 * @param request
+	 * @return
+	 */
 	@GET
-	@Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
-	public List<Employee> getAllEmployees() {
-		return employeeService.allEmployees();
+	@Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON,
+		EmployeeBinaryProvider.APPLICATION_EMPLOYEE_BINARY })
+	@Coalesced
+	public Response getAllEmployees(@QueryParam("limit") Integer limit,
+			@QueryParam("cursor") String cursor, @QueryParam("minSalary") Integer minSalary,
+			@QueryParam("maxSalary") Integer maxSalary, @Context UriInfo uriInfo,
+			@Context Request request) {
+		MediaType type = request.selectVariant(VARIANTS).getMediaType();
+		// the version is read before the employees, see EmployeeRepository.getVersion
+		EntityTag tag = entityTag(employeeService.employeesVersion(), type);
+		ResponseBuilder notModified = request.evaluatePreconditions(tag);
+		if (notModified != null)
+			return notModified.build();
+		if (minSalary != null || maxSalary != null) {
+			if (limit != null || cursor != null)
+				throw new BadRequestException("A salary range cannot be paginated");
+			List<Employee> employees = employeeService.employeesBySalary(
+				minSalary != null ? minSalary : Integer.MIN_VALUE,
+				maxSalary != null ? maxSalary : Integer.MAX_VALUE);
+			return Response
+				.ok(new GenericEntity<List<Employee>>(employees) {}, type)
+				.tag(tag)
+				.build();
+		}
+		if (limit == null && cursor == null) {
+			return Response
+				.ok(new GenericEntity<Stream<Employee>>(employeeService.streamAllEmployees()) {}, type)
+				.tag(tag)
+				.build();
+		}
+		int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+		List<Employee> page = employeeService.employeesPage(decodeCursor(cursor), pageSize);
+		ResponseBuilder response = Response
+			.ok(new GenericEntity<List<Employee>>(page) {}, type)
+			.tag(tag);
+		if (page.size() == pageSize) {
+			String lastId = page.get(page.size() - 1).getEmployeeId();
+			response.link(
+				uriInfo.getAbsolutePathBuilder()
+					.queryParam("limit", pageSize)
+					.queryParam("cursor", encodeCursor(lastId))
+					.build(),
+				"next");
+		}
+		return response.build();
+	}
+
+	/**
+	 * @param version
+	 * @param type
+	 *            the negotiated media type, see {@link #VARIANTS}
+	 */
+	private static EntityTag entityTag(long version, MediaType type) {
+		return new EntityTag(EPOCH + "-" + Long.toString(version, 36) + "-" + type.getSubtype());
+	}
+
+	private static EntityTag entityTag(Employee employee, MediaType type) {
+		return entityTag(employee.getVersion(), type);
+	}
+
+	/**
+	 * The client may have read the employee in any representation, so the
+	 * If-Match of a write is compared with the ETags of all of them.
+	 * 
+	 * @return null if the preconditions of the request are met
+	 */
+	private static ResponseBuilder evaluatePreconditions(Request request, Employee current) {
+		ResponseBuilder preconditionFailed = null;
+		for (Variant variant : VARIANTS) {
+			preconditionFailed =
+				request.evaluatePreconditions(entityTag(current, variant.getMediaType()));
+			if (preconditionFailed == null)
+				return null;
+		}
+		return preconditionFailed;
+	}
+
+	private static String encodeCursor(String lastId) {
+		return Base64.getUrlEncoder().withoutPadding()
+			.encodeToString(lastId.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String decodeCursor(String cursor) {
+		if (cursor == null)
+			return null;
+		try {
+			return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException e) {
+			throw new BadRequestException("Invalid cursor " + cursor);
+		}
 	}
 
 	@GET
@@ -42,9 +207,70 @@ public class EmployeeResource {
 	// Allows to type http://localhost:8080/myapp/employees/ID1
 	// ID1 will be treated as parameter "id" and passed to this method
 	@Path("{id}")
+	@Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON,
+		EmployeeBinaryProvider.APPLICATION_EMPLOYEE_BINARY })
+	// the encoded employee is kept for the next requests
+	@EncodedCache
+	@Coalesced
+	public Response getOneEmployee(@PathParam("id") String id, @Context Request request) {
+		Employee employee = employeeService.getEmployeeById(id);
+		MediaType type = request.selectVariant(VARIANTS).getMediaType();
+		EntityTag tag = entityTag(employee, type);
+		ResponseBuilder notModified = request.evaluatePreconditions(tag);
+		if (notModified != null)
+			return notModified.build();
+		return Response.ok(employee, type).tag(tag).build();
+	}
+
+	/**
+	 * Reads many employees at once, given a JSON array of ids, e.g.,
+	 * ["ID1","ID2"]: the found employees and the missing ids are returned
+	 * together, instead of one request (and one 404) for each id.
+	 * 
+	 * @param ids
+	 * @return
+	 */
+	@POST
+	@Path("batch-get")
+	@AdmissionControl(read = true)
+	@Consumes(MediaType.APPLICATION_JSON)
 	@Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
-	public Employee getOneEmployee(@PathParam("id") String id) {
-		return employeeService.getEmployeeById(id);
+	public EmployeeBatch getEmployeesByIds(List<String> ids) {
+		return employeeService.getEmployeesByIds(ids);
+	}
+
+	/**
+	 * Type-ahead search of employees by name: each word of the query must be
+	 * the prefix of a word of the name, ignoring case, e.g.,
+	 * http://localhost:8080/myapp/employees/search?q=fir%20emp
+	 * 
+	 * @param query
+	 * @param limit
+	 *            the maximum number of results
+	 * @return
+	 */
+	@GET
+	@Path("search")
+	@Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON,
+		EmployeeBinaryProvider.APPLICATION_EMPLOYEE_BINARY })
+	public List<Employee> searchEmployees(@QueryParam("q") String query,
+			@QueryParam("limit") Integer limit) {
+		return employeeService.searchEmployees(query,
+			limit != null ? limit : DEFAULT_SEARCH_LIMIT);
+	}
+
+	/**
+	 * Count, sum, average, minimum, maximum and percentiles of the salaries,
+	 * computed without reading all the employees, e.g.,
+	 * http://localhost:8080/myapp/employees/stats
+	 * 
+	 * @return
+	 */
+	@GET
+	@Path("stats")
+	@Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
+	public SalaryStats getSalaryStats() {
+		return employeeService.salaryStats();
 	}
 
 	// returns the number of employees
@@ -54,7 +280,7 @@ public class EmployeeResource {
 	@Path("count")
 	@Produces(MediaType.TEXT_PLAIN)
 	public String getCount() {
-		return String.valueOf(employeeService.allEmployees().size());
+		return String.valueOf(employeeService.countEmployees());
 	}
 
 	/**
@@ -62,49 +288,108 @@ public class EmployeeResource {
 	 * 
 	 * @param employee
 	 * @param uriInfo
-	 * @return
-	 * @throws URISyntaxException
+	 * @param response
 	 */
 	@POST
 	@Consumes(MediaType.APPLICATION_JSON)
 	@Produces(MediaType.APPLICATION_JSON)
-	public Response addEmployee(Employee employee, @Context UriInfo uriInfo) throws URISyntaxException {
-		Employee saved = employeeService.addEmployee(employee);
-		return Response
-			.created(new URI(
-				uriInfo.getAbsolutePath() + "/" + saved.getEmployeeId()))
-			.entity(saved)
-			.build();
+	public void addEmployee(Employee employee, @Context UriInfo uriInfo,
+			@Suspended AsyncResponse response) {
+		UriBuilder location = uriInfo.getAbsolutePathBuilder();
+		resourceExecutor.execute(response, () -> {
+			Employee saved = employeeService.addEmployee(employee);
+			return Response
+				.created(location.path(saved.getEmployeeId()).build())
+				.entity(saved)
+				.tag(entityTag(saved, MediaType.APPLICATION_JSON_TYPE))
+				.build();
+		});
+	}
+
+	/**
+	 * Adds the employees of a newline-delimited JSON upload, one per line,
+	 * without reading the whole upload first: for each line, a line with the
+	 * id of the added employee or with the error is returned, see
+	 * {@link EmployeeBulkImport}.
+	 * 
+	 * The upload is read, and the employees are added, while the response is
+	 * written, that is, on the thread of the {@link ResourceExecutor}.
+	 * 
+	 * @param upload
+	 * @param response
+	 */
+	@POST
+	@Path("bulk")
+	@Consumes(EmployeeBulkImport.APPLICATION_NDJSON)
+	@Produces(EmployeeBulkImport.APPLICATION_NDJSON)
+	public void addEmployees(InputStream upload, @Suspended AsyncResponse response) {
+		resourceExecutor.execute(response,
+			() -> new EmployeeBulkImport(employeeService, upload));
 	}
 
 	/**
 	 * Replaces an existing Employee given its id, with the values of the passed
-	 * Employee.
+	 * Employee; with an If-Match header, only if the existing Employee has
+	 * that ETag.
 	 * 
 	 * @param id
 	 * @param employee
-	 * @return
+	 * @param ifMatch
+	 * @param request
+	 * @param response
 	 */
 	@PUT
 	@Path("{id}")
 	@Consumes(MediaType.APPLICATION_JSON)
 	@Produces(MediaType.APPLICATION_JSON)
-	public Employee replaceEmployee(@PathParam("id") String id, Employee employee) {
-		return employeeService.replaceEmployeeById(id, employee);
+	public void replaceEmployee(@PathParam("id") String id, Employee employee,
+			@HeaderParam(HttpHeaders.IF_MATCH) String ifMatch, @Context Request request,
+			@Suspended AsyncResponse response) {
+		resourceExecutor.execute(response, () -> {
+			Employee saved;
+			if (ifMatch == null) {
+				saved = employeeService.replaceEmployeeById(id, employee);
+			} else {
+				Employee current = employeeService.getEmployeeById(id);
+				ResponseBuilder preconditionFailed = evaluatePreconditions(request, current);
+				if (preconditionFailed != null)
+					return preconditionFailed.build();
+				// fails if the employee has changed after we read it
+				saved = employeeService.replaceEmployeeById(id, employee, current.getVersion());
+			}
+			return Response.ok(saved).tag(entityTag(saved, MediaType.APPLICATION_JSON_TYPE)).build();
+		});
 	}
 
 	/**
-	 * Deletes the Employee with the given id.
+	 * Deletes the Employee with the given id; with an If-Match header, only if
+	 * the Employee has that ETag.
 	 * 
 	 * @param id
-	 * @return
+	 * @param ifMatch
+	 * @param request
+	 * @param response
 	 */
 	@DELETE
 	@Path("/{id}")
 	@Produces(MediaType.APPLICATION_JSON)
-	public Response deleteEmployee(@PathParam("id") String id) {
-		return Response
-			.accepted(employeeService.deleteEmployeeById(id))
-			.build();
+	public void deleteEmployee(@PathParam("id") String id,
+			@HeaderParam(HttpHeaders.IF_MATCH) String ifMatch, @Context Request request,
+			@Suspended AsyncResponse response) {
+		resourceExecutor.execute(response, () -> {
+			if (ifMatch == null) {
+				return Response
+					.accepted(employeeService.deleteEmployeeById(id))
+					.build();
+			}
+			Employee current = employeeService.getEmployeeById(id);
+			ResponseBuilder preconditionFailed = evaluatePreconditions(request, current);
+			if (preconditionFailed != null)
+				return preconditionFailed.build();
+			// fails if the employee has changed after we read it
+			return Response
+				.accepted(employeeService.deleteEmployeeById(id, current.getVersion()))
+				.build();
+		});
 	}
 }
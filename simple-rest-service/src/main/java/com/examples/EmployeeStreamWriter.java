@@ -0,0 +1,108 @@
+package com.examples;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import org.eclipse.persistence.jaxb.JAXBContextFactory;
+
+import com.examples.json.EmployeeJsonWriter;
+import com.examples.model.Employee;
+
+/**
+ * Writes a {@link Stream} of employees one at a time, straight to the
+ * response, so that the whole list is never materialized: the output is the
+ * same as the one of a {@link java.util.List} of employees, that is, a JSON
+ * array (written with {@link EmployeeJsonWriter}, like
+ * {@link EmployeeJsonProvider} does) or an "employees" XML element
+ * (marshalled with JAXB, like Jersey does).
+ * 
+ * The stream is closed when it has been written.
+ */
+@Provider
+@Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
+public class EmployeeStreamWriter implements MessageBodyWriter<Stream<Employee>> {
+
+	private static final byte[] XML_START =
+		"<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><employees>"
+			.getBytes(StandardCharsets.UTF_8);
+
+	private static final byte[] XML_END =
+		"</employees>".getBytes(StandardCharsets.UTF_8);
+
+	// created on the first XML listing, see xmlContext()
+	private static volatile JAXBContext xmlContext;
+
+	/**
+	 * The context is created with MOXy, which Jersey already uses for XML:
+	 * the JAXB reference implementation that may be on the classpath fails
+	 * to initialize on recent JDKs, and it would make the whole application
+	 * fail to start if the context was created when this class is loaded.
+	 */
+	private static JAXBContext xmlContext() throws JAXBException {
+		JAXBContext context = xmlContext;
+		if (context == null) {
+			synchronized (EmployeeStreamWriter.class) {
+				context = xmlContext;
+				if (context == null) {
+					context = JAXBContextFactory.createContext(new Class<?>[] { Employee.class }, null);
+					xmlContext = context;
+				}
+			}
+		}
+		return context;
+	}
+
+	@Override
+	public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations,
+			MediaType mediaType) {
+		return Stream.class.isAssignableFrom(type)
+			&& genericType instanceof ParameterizedType
+			&& ((ParameterizedType) genericType).getActualTypeArguments()[0] == Employee.class;
+	}
+
+	@Override
+	public void writeTo(Stream<Employee> employees, Class<?> type, Type genericType,
+			Annotation[] annotations, MediaType mediaType,
+			MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream)
+			throws IOException, WebApplicationException {
+		try (Stream<Employee> stream = employees) {
+			if (MediaType.APPLICATION_JSON_TYPE.isCompatible(mediaType)) {
+				try (EmployeeJsonWriter writer = new EmployeeJsonWriter(entityStream)) {
+					writer.writeArray(stream.iterator());
+				}
+				return;
+			}
+			Marshaller marshaller = xmlMarshaller();
+			entityStream.write(XML_START);
+			Iterator<Employee> iterator = stream.iterator();
+			while (iterator.hasNext())
+				marshaller.marshal(iterator.next(), entityStream);
+			entityStream.write(XML_END);
+		} catch (JAXBException e) {
+			throw new InternalServerErrorException(e);
+		}
+	}
+
+	private static Marshaller xmlMarshaller() throws JAXBException {
+		Marshaller marshaller = xmlContext().createMarshaller();
+		marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+		return marshaller;
+	}
+}
@@ -0,0 +1,18 @@
+package com.examples;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import javax.ws.rs.NameBinding;
+
+/**
+ * The {@link com.examples.model.Employee} returned by the annotated resource
+ * method is written through {@link EncodedEmployeeCacheInterceptor}.
+ */
+@NameBinding
+@Target({ ElementType.TYPE, ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface EncodedCache {
+}
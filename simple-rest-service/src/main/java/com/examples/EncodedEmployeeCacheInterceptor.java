@@ -0,0 +1,54 @@
+package com.examples;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.inject.Inject;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import com.examples.cache.EncodedEmployeeCache;
+import com.examples.model.Employee;
+
+/**
+ * Writes the bytes of an {@link Employee} from the
+ * {@link EncodedEmployeeCache} when they are there; otherwise, the employee
+ * is encoded by the selected MessageBodyWriter into a buffer, which is
+ * cached and then written. When the cache is disabled, employees are written
+ * as usual, without buffering them.
+ */
+@Provider
+@EncodedCache
+public class EncodedEmployeeCacheInterceptor implements WriterInterceptor {
+
+	@Inject
+	private EncodedEmployeeCache cache;
+
+	@Override
+	public void aroundWriteTo(WriterInterceptorContext context)
+			throws IOException, WebApplicationException {
+		if (!(context.getEntity() instanceof Employee) || !cache.isEnabled()) {
+			context.proceed();
+			return;
+		}
+		Employee employee = (Employee) context.getEntity();
+		String mediaType = context.getMediaType().toString();
+		OutputStream entityStream = context.getOutputStream();
+		byte[] bytes = cache.get(employee, mediaType);
+		if (bytes == null) {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+			context.setOutputStream(buffer);
+			try {
+				context.proceed();
+			} finally {
+				context.setOutputStream(entityStream);
+			}
+			bytes = buffer.toByteArray();
+			cache.put(employee, mediaType, bytes);
+		}
+		entityStream.write(bytes);
+	}
+}
@@ -1,46 +1,170 @@
 package com.examples;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.file.Paths;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.inject.Singleton;
 
 import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
 import org.glassfish.hk2.api.TypeLiteral;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
 import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
+import org.glassfish.jersey.moxy.xml.MoxyXmlFeature;
 import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.spi.AbstractContainerLifecycleListener;
+import org.glassfish.jersey.server.spi.Container;
 
+import com.examples.cache.EncodedEmployeeCache;
+import com.examples.cache.InvalidatingEmployeeRepository;
+import com.examples.cache.SingleFlight;
+import com.examples.metrics.RequestMetrics;
 import com.examples.model.Employee;
+import com.examples.repository.ConcurrentEmployeeRepository;
+import com.examples.repository.DurableEmployeeRepository;
 import com.examples.repository.EmployeeRepository;
 import com.examples.repository.InMemoryEmployeeRepository;
+import com.examples.repository.OffHeapEmployeeRepository;
 import com.examples.service.EmployeeService;
 import com.examples.service.EmployeeServiceImpl;
 
 /**
  * Main class.
- *
+ * 
  */
 public class Main {
+	private static final Logger LOGGER = Logger.getLogger(Main.class.getName());
+
 	// Base URI the Grizzly HTTP server will listen on
 	public static final String BASE_URI =
 		"http://0.0.0.0:"
 		+ System.getProperty("simple.rest.service.port", "8080")
 		+ "/myapp/";
 
+	// How requests are run: "platform" (the default), on the pool of Grizzly
+	// worker threads, or "virtual", each on a new virtual thread (Java 21+)
+	public static final String THREADS =
+		System.getProperty("simple.rest.service.threads", "platform");
+
+	private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+	// The Grizzly worker threads, for "platform" threads
+	public static final int WORKER_THREADS =
+		Integer.getInteger("simple.rest.service.worker.threads", 2 * CORES);
+
+	// The requests that can wait for a worker thread, for "platform"
+	// threads, before the connection is closed; -1 for no limit
+	public static final int WORKER_QUEUE =
+		Integer.getInteger("simple.rest.service.worker.queue", -1);
+
+	// The threads that accept connections and read and write their sockets
+	public static final int SELECTOR_THREADS =
+		Integer.getInteger("simple.rest.service.selector.threads", CORES);
+
+	// The connections that can wait to be accepted
+	public static final int BACKLOG =
+		Integer.getInteger("simple.rest.service.backlog", 4096);
+
+	// The socket buffers, in bytes; -1 for the defaults of the OS
+	public static final int READ_BUFFER_BYTES =
+		Integer.getInteger("simple.rest.service.read.buffer.bytes", -1);
+
+	public static final int WRITE_BUFFER_BYTES =
+		Integer.getInteger("simple.rest.service.write.buffer.bytes", -1);
+
+	// The requests on a connection before it is closed; -1 for no limit,
+	// 0 disables keep-alive
+	public static final int KEEP_ALIVE_REQUESTS =
+		Integer.getInteger("simple.rest.service.keepalive.requests", 256);
+
+	// How long an idle connection is kept open; -1 for no limit
+	public static final int KEEP_ALIVE_SECONDS =
+		Integer.getInteger("simple.rest.service.keepalive.seconds", 30);
+
+	// The EmployeeRepository implementation to use:
+	// "concurrent" (the default), "inmemory", "durable" or "offheap"
+	public static final String REPOSITORY =
+		System.getProperty("simple.rest.service.repository", "concurrent");
+
+	// The directory of the log and of the snapshot of the "durable" repository
+	public static final String DURABLE_DIR =
+		System.getProperty("simple.rest.service.durable.dir", "employees-data");
+
+	// How often the "durable" repository takes a snapshot; 0 for never
+	public static final long SNAPSHOT_SECONDS =
+		Long.getLong("simple.rest.service.durable.snapshot.seconds", 60);
+
+	// The memory, in bytes, for the cache of encoded employees; 0 disables it.
+	// It is always disabled with the "offheap" repository, see cacheBytes()
+	public static final long CACHE_BYTES =
+		Long.getLong("simple.rest.service.cache.bytes", 16 * 1024 * 1024);
+
+	// The threads running the writing methods of the resources;
+	// 0 runs them on the Grizzly worker threads
+	public static final int ASYNC_THREADS =
+		Integer.getInteger("simple.rest.service.async.threads", 16);
+
+	// The writing methods that can wait for a thread, before answering 429
+	public static final int ASYNC_QUEUE =
+		Integer.getInteger("simple.rest.service.async.queue", 1000);
+
+	// How long a writing method can wait for a thread, before answering 429;
+	// 0 for no limit
+	public static final long ASYNC_TIMEOUT_MILLIS =
+		Long.getLong("simple.rest.service.async.timeout.millis", 30000);
+
+	// The maximum of the adaptive limit of the reads, see AdmissionFilter;
+	// 0 does not limit them
+	public static final int ADMISSION_READS =
+		Integer.getInteger("simple.rest.service.admission.reads", 1000);
+
+	// The maximum of the adaptive limit of the writes; 0 does not limit them
+	public static final int ADMISSION_WRITES =
+		Integer.getInteger("simple.rest.service.admission.writes", 1000);
+
+	// The target wait of the requests in the worker queue, in milliseconds,
+	// see QueueDelay; 0 does not reject requests that waited too long
+	public static final long ADMISSION_QUEUE_MILLIS =
+		Long.getLong("simple.rest.service.admission.queue.millis", 10);
+
+	// Whether concurrent identical reads share the encoding of their
+	// response, see CoalescingInterceptor
+	public static final boolean COALESCING =
+		Boolean.parseBoolean(System.getProperty("simple.rest.service.coalescing", "true"));
+
 	/**
 	 * Starts Grizzly HTTP server exposing JAX-RS resources defined in this
 	 * application.
 	 * 
+	 * The resource executor and the "durable" repository are closed when the
+	 * server is stopped, e.g., by {@link HttpServer#shutdownNow()}.
+	 * 
 	 * @return Grizzly HTTP server.
 	 */
 	public static HttpServer startServer() {
+		final ResourceExecutor resourceExecutor =
+			new ResourceExecutor(ASYNC_THREADS, ASYNC_QUEUE, ASYNC_TIMEOUT_MILLIS);
+		final DurableEmployeeRepository durableRepository =
+			"durable".equals(REPOSITORY) ? openDurableRepository() : null;
 		// create a resource config that scans for JAX-RS resources and providers
 		// in com.examples package
 		final ResourceConfig rc = new ResourceConfig()
 			.packages("com.examples")
+			// XML with MOXy rather than the JAXB reference implementation,
+			// which cannot initialize on recent JDKs
+			.register(MoxyXmlFeature.class)
+			// JSON for employees without MOXy
+			.register(EmployeeJsonProvider.class)
+			.register(EmployeeCollectionJsonProvider.class)
+			.register(EmployeeBatchJsonProvider.class)
 			.register(new AbstractBinder() {
 				@Override
 				protected void configure() {
@@ -50,17 +174,157 @@ public class Main {
 					bind(EmployeeServiceImpl.class)
 						.to(EmployeeService.class)
 						.in(Singleton.class);
-						// all requests must be handled with the same repository
-					bind(InMemoryEmployeeRepository.class)
-						.to(EmployeeRepository.class);
-					bindAsContract(new TypeLiteral<LinkedHashMap<String, Employee>>() {})
-						.to(new TypeLiteral<Map<String, Employee>>() {});
+					bind(new EncodedEmployeeCache(cacheBytes()))
+						.to(EncodedEmployeeCache.class);
+					bind(resourceExecutor)
+						.to(ResourceExecutor.class);
+					bind(new RequestMetrics())
+						.to(RequestMetrics.class);
+					bind(new AdaptiveLimit(ADMISSION_READS))
+						.named(AdmissionFilter.READS)
+						.to(AdaptiveLimit.class);
+					bind(new AdaptiveLimit(ADMISSION_WRITES))
+						.named(AdmissionFilter.WRITES)
+						.to(AdaptiveLimit.class);
+					bind(new QueueDelay(ADMISSION_QUEUE_MILLIS))
+						.to(QueueDelay.class);
+					bind(new SingleFlight<String, byte[]>(COALESCING))
+						.to(new TypeLiteral<SingleFlight<String, byte[]>>() {});
+					// the repository used by the service invalidates the cache
+					// and stores employees in the repository named "storage"
+					bind(InvalidatingEmployeeRepository.class)
+						.to(EmployeeRepository.class)
+						.in(Singleton.class)
+						.ranked(1);
+					// all requests must be handled with the same repository
+					switch (REPOSITORY) {
+					case "inmemory":
+						bind(InMemoryEmployeeRepository.class)
+							.named(InvalidatingEmployeeRepository.STORAGE)
+							.to(EmployeeRepository.class)
+							.in(Singleton.class);
+						bindAsContract(new TypeLiteral<LinkedHashMap<String, Employee>>() {})
+							.to(new TypeLiteral<Map<String, Employee>>() {});
+						break;
+					case "concurrent":
+						bind(ConcurrentEmployeeRepository.class)
+							.named(InvalidatingEmployeeRepository.STORAGE)
+							.to(EmployeeRepository.class)
+							.in(Singleton.class);
+						break;
+					case "durable":
+						bind(durableRepository)
+							.named(InvalidatingEmployeeRepository.STORAGE)
+							.to(EmployeeRepository.class);
+						break;
+					case "offheap":
+						bind(OffHeapEmployeeRepository.class)
+							.named(InvalidatingEmployeeRepository.STORAGE)
+							.to(EmployeeRepository.class)
+							.in(Singleton.class);
+						break;
+					default:
+						throw new IllegalArgumentException(
+							"Unknown repository: " + REPOSITORY);
+					}
+				}
+			})
+			.register(new AbstractContainerLifecycleListener() {
+				@Override
+				public void onShutdown(Container container) {
+					close(resourceExecutor, durableRepository);
 				}
 			});
 
 		// create and start a new instance of grizzly http server
 		// exposing the Jersey application at BASE_URI
-		return GrizzlyHttpServerFactory.createHttpServer(URI.create(BASE_URI), rc);
+		final HttpServer server =
+			GrizzlyHttpServerFactory.createHttpServer(URI.create(BASE_URI), rc, false);
+		for (NetworkListener listener : server.getListeners())
+			configure(listener);
+		try {
+			server.start();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot start the server at " + BASE_URI, e);
+		}
+		return server;
+	}
+
+	/**
+	 * Applies the settings above, which the listener reads when it starts.
+	 * 
+	 * @param listener
+	 */
+	private static void configure(NetworkListener listener) {
+		TCPNIOTransport transport = listener.getTransport();
+		switch (THREADS) {
+		case "platform":
+			ThreadPoolConfig config = ThreadPoolConfig.defaultConfig()
+				.setPoolName("grizzly-http-server")
+				.setCorePoolSize(WORKER_THREADS)
+				.setMaxPoolSize(WORKER_THREADS)
+				.setQueueLimit(WORKER_QUEUE);
+			// the admission control sees the time spent in the queue
+			config.getInitialMonitoringConfig().addProbes(new WorkerQueueProbe());
+			transport.setWorkerThreadPoolConfig(config);
+			break;
+		case "virtual":
+			// replaces the worker pool before it is created by start();
+			// an executor set on the transport is not shut down with it,
+			// but virtual threads do not keep the JVM alive
+			transport.setWorkerThreadPool(VirtualThreads.newExecutor());
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown threads: " + THREADS);
+		}
+		transport.setSelectorRunnersCount(SELECTOR_THREADS);
+		transport.setServerConnectionBackLog(BACKLOG);
+		transport.setReadBufferSize(READ_BUFFER_BYTES);
+		transport.setWriteBufferSize(WRITE_BUFFER_BYTES);
+		listener.getKeepAlive().setMaxRequestsCount(KEEP_ALIVE_REQUESTS);
+		listener.getKeepAlive().setIdleTimeoutInSeconds(KEEP_ALIVE_SECONDS);
+	}
+
+	/**
+	 * The cache serves an encoding only for the very instance it has been
+	 * encoded from, see {@link EncodedEmployeeCache}, but the "offheap"
+	 * repository creates new instances on every read: the cache would never
+	 * hit, and it would only fill up and evict.
+	 * 
+	 * @return the memory for the cache of encoded employees
+	 */
+	private static long cacheBytes() {
+		return "offheap".equals(REPOSITORY) ? 0 : CACHE_BYTES;
+	}
+
+	/**
+	 * Closes the executor first, since its methods can still write to the
+	 * repository; then the repository, which makes the pending records of its
+	 * log durable.
+	 * 
+	 * @param resourceExecutor
+	 * @param durableRepository
+	 *            null if another repository is used
+	 */
+	private static void close(ResourceExecutor resourceExecutor,
+			DurableEmployeeRepository durableRepository) {
+		resourceExecutor.close();
+		if (durableRepository == null)
+			return;
+		try {
+			durableRepository.close();
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "Cannot close the durable repository", e);
+		}
+	}
+
+	private static DurableEmployeeRepository openDurableRepository() {
+		try {
+			// loads the latest snapshot and replays only the log after it
+			return new DurableEmployeeRepository(Paths.get(DURABLE_DIR), true, SNAPSHOT_SECONDS);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot open " + DURABLE_DIR, e);
+		}
 	}
 
 	/**
@@ -68,12 +332,19 @@ public class Main {
 	 * 
 	 * @param args
 	 * @throws IOException
+	 * @throws InterruptedException
 	 */
-	public static void main(String[] args) throws IOException {
-		startServer();
+	public static void main(String[] args) throws IOException, InterruptedException {
+		HttpServer server = startServer();
+		// stopping the server closes the durable repository, whose pending
+		// records would otherwise be lost when the JVM exits
+		Runtime.getRuntime().addShutdownHook(new Thread(server::shutdownNow));
 		System.out.println(String.format(
 				"Jersey app started with WADL available at " + "%sapplication.wadl\n",
 				BASE_URI));
+		// virtual worker threads, unlike the platform ones, do not keep the
+		// JVM alive
+		Thread.currentThread().join();
 //		System.in.read();
 //		server.shutdownNow();
 	}
@@ -0,0 +1,42 @@
+package com.examples;
+
+import java.io.IOException;
+
+import javax.annotation.Priority;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.ReaderInterceptor;
+import javax.ws.rs.ext.ReaderInterceptorContext;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import com.examples.events.MarshallingEvent;
+
+/**
+ * Records the reading and the writing of entities as
+ * {@link MarshallingEvent}s when Flight Recorder is enabled; it is the
+ * innermost interceptor, so only the MessageBodyReader or MessageBodyWriter
+ * is measured, e.g., not an employee written from the
+ * {@link EncodedEmployeeCacheInterceptor}.
+ */
+@Provider
+@Priority(Integer.MAX_VALUE)
+public class MarshallingEventInterceptor implements ReaderInterceptor, WriterInterceptor {
+
+	@Override
+	public Object aroundReadFrom(ReaderInterceptorContext context)
+			throws IOException, WebApplicationException {
+		MarshallingEvent event = new MarshallingEvent("read");
+		Object entity = context.proceed();
+		event.commit(context.getType(), context.getMediaType());
+		return entity;
+	}
+
+	@Override
+	public void aroundWriteTo(WriterInterceptorContext context)
+			throws IOException, WebApplicationException {
+		MarshallingEvent event = new MarshallingEvent("write");
+		context.proceed();
+		event.commit(context.getType(), context.getMediaType());
+	}
+}
@@ -0,0 +1,119 @@
+package com.examples;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Priority;
+import javax.inject.Inject;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import com.examples.metrics.RequestMetrics;
+import com.examples.metrics.RequestMetrics.Endpoint;
+
+/**
+ * Records the latency and the status code of every request in
+ * {@link RequestMetrics}, by resource method, e.g.,
+ * "EmployeeResource.getOneEmployee", or "none" for requests that do not match
+ * any, e.g., a 404 of {@link NotFoundMapper}.
+ * 
+ * The latency goes from before the request is matched to after the entity
+ * of the response is written, so it includes the resumption of suspended
+ * requests and streamed entities; it has the lowest priority, so that the
+ * other filters and interceptors are measured as well.
+ */
+@Provider
+@PreMatching
+@Priority(Priorities.AUTHENTICATION - 1)
+public class MetricsFilter implements ContainerRequestFilter, ContainerResponseFilter,
+		WriterInterceptor {
+
+	private static final String TIMING = MetricsFilter.class.getName();
+
+	/**
+	 * The request property from the request filter to the end of the
+	 * response.
+	 */
+	private static class Timing {
+		private final long start = System.nanoTime();
+		private Endpoint endpoint;
+		private int status;
+
+		private void record() {
+			endpoint.record(status, System.nanoTime() - start);
+		}
+	}
+
+	@Inject
+	private RequestMetrics metrics;
+
+	@Context
+	private ResourceInfo resourceInfo;
+
+	// the endpoints of the resource methods, not to build their names again
+	private final ConcurrentMap<Method, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+	private Endpoint unmatched;
+
+	@Override
+	public void filter(ContainerRequestContext requestContext) throws IOException {
+		requestContext.setProperty(TIMING, new Timing());
+	}
+
+	@Override
+	public void filter(ContainerRequestContext requestContext,
+			ContainerResponseContext responseContext) throws IOException {
+		Timing timing = (Timing) requestContext.getProperty(TIMING);
+		if (timing == null)
+			return;
+		timing.endpoint = endpoint(resourceInfo.getResourceMethod());
+		timing.status = responseContext.getStatus();
+		// otherwise, recorded once the entity is written
+		if (!responseContext.hasEntity() || HttpMethod.HEAD.equals(requestContext.getMethod())) {
+			requestContext.removeProperty(TIMING);
+			timing.record();
+		}
+	}
+
+	@Override
+	public void aroundWriteTo(WriterInterceptorContext context)
+			throws IOException, WebApplicationException {
+		try {
+			context.proceed();
+		} finally {
+			Timing timing = (Timing) context.getProperty(TIMING);
+			if (timing != null && timing.endpoint != null) {
+				context.removeProperty(TIMING);
+				timing.record();
+			}
+		}
+	}
+
+	private Endpoint endpoint(Method method) {
+		if (method == null) {
+			if (unmatched == null)
+				unmatched = metrics.endpoint("none");
+			return unmatched;
+		}
+		Endpoint endpoint = endpoints.get(method);
+		if (endpoint == null) {
+			endpoint = metrics.endpoint(
+				method.getDeclaringClass().getSimpleName() + "." + method.getName());
+			endpoints.put(method, endpoint);
+		}
+		return endpoint;
+	}
+}
@@ -0,0 +1,65 @@
+package com.examples;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+import com.examples.cache.EncodedEmployeeCache;
+import com.examples.cache.SingleFlight;
+import com.examples.metrics.PrometheusText;
+import com.examples.metrics.RequestMetrics;
+
+/**
+ * The metrics of the server, for Prometheus, e.g.,
+ * http://localhost:8080/myapp/metrics
+ */
+@Path("metrics")
+public class MetricsResource {
+
+	@Inject
+	private RequestMetrics requestMetrics;
+
+	@Inject
+	private EncodedEmployeeCache cache;
+
+	@Inject
+	private SingleFlight<String, byte[]> flights;
+
+	/**
+	 * @return the CPU time of the process, the metrics of the requests, see
+	 *         {@link MetricsFilter}, of the {@link EncodedEmployeeCache} and of
+	 *         the responses shared by {@link CoalescingInterceptor}
+	 */
+	@GET
+	@Produces(PrometheusText.CONTENT_TYPE)
+	public String getMetrics() {
+		PrometheusText text = new PrometheusText();
+		requestMetrics.write(text);
+		String[] none = {};
+		OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if (os instanceof com.sun.management.OperatingSystemMXBean) {
+			long cpuNanos = ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+			text.metric("process_cpu_seconds_total", "counter", "CPU time of the server")
+				.sample("process_cpu_seconds_total", none, cpuNanos / 1e9);
+		}
+		text.metric("employee_cache_hits_total", "counter", "Employees written from the cache")
+			.sample("employee_cache_hits_total", none, cache.getHits())
+			.metric("employee_cache_misses_total", "counter", "Employees encoded and cached")
+			.sample("employee_cache_misses_total", none, cache.getMisses())
+			.metric("employee_cache_evictions_total", "counter", "Employees evicted from the cache")
+			.sample("employee_cache_evictions_total", none, cache.getEvictions())
+			.metric("employee_cache_entries", "gauge", "Employees in the cache")
+			.sample("employee_cache_entries", none, cache.getSize())
+			.metric("employee_cache_bytes", "gauge", "Approximate memory of the cache")
+			.sample("employee_cache_bytes", none, cache.getBytes())
+			.metric("coalesced_encodings_total", "counter", "Responses encoded for identical requests")
+			.sample("coalesced_encodings_total", none, flights.getComputed())
+			.metric("coalesced_shared_total", "counter", "Responses shared with an identical request")
+			.sample("coalesced_shared_total", none, flights.getShared());
+		return text.toString();
+	}
+}
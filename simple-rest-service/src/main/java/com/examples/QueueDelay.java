@@ -0,0 +1,69 @@
+package com.examples;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Controlled delay (CoDel) of the requests in the Grizzly worker queue: a
+ * burst goes through the queue, but when even the shortest wait of an
+ * interval is above the target, the queue is standing, the server is
+ * overloaded, and the requests that waited more than twice the target are
+ * rejected right away, until the queue is drained; otherwise, they
+ * would be processed when their clients may have given up already, while
+ * the requests behind them wait even longer.
+ * 
+ * With a target of 0, requests are never rejected.
+ */
+public class QueueDelay {
+
+	static final long INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private final long targetNanos;
+
+	private final AtomicLong minDelay = new AtomicLong(Long.MAX_VALUE);
+
+	private volatile long intervalEnd = System.nanoTime() + INTERVAL_NANOS;
+
+	private volatile boolean overloaded;
+
+	/**
+	 * @param targetMillis
+	 *            the acceptable wait of the requests, 0 for no limit
+	 */
+	public QueueDelay(long targetMillis) {
+		targetNanos = TimeUnit.MILLISECONDS.toNanos(targetMillis);
+	}
+
+	/**
+	 * @param queuedNanos
+	 *            when the request was queued, see
+	 *            {@link WorkerQueueProbe#queuedNanos()}, 0 if it is not known
+	 * @param now
+	 *            as a {@link System#nanoTime()}
+	 * @return whether the request waited too long to be processed
+	 */
+	public boolean isTooLong(long queuedNanos, long now) {
+		if (targetNanos == 0 || queuedNanos == 0)
+			return false;
+		if (now - intervalEnd > 0)
+			nextInterval(now);
+		long delay = now - queuedNanos;
+		long min = minDelay.get();
+		while (delay < min && !minDelay.compareAndSet(min, delay))
+			min = minDelay.get();
+		return overloaded && delay > 2 * targetNanos;
+	}
+
+	private synchronized void nextInterval(long now) {
+		if (now - intervalEnd <= 0)
+			return;
+		long min = minDelay.getAndSet(Long.MAX_VALUE);
+		// no request during the interval, no queue
+		overloaded = min != Long.MAX_VALUE && min > targetNanos;
+		intervalEnd = now + INTERVAL_NANOS;
+	}
+
+	boolean isOverloaded() {
+		return overloaded;
+	}
+}
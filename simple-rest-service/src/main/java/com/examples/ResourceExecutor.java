@@ -0,0 +1,162 @@
+package com.examples;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * Runs the resource methods that can be slow, e.g., writes on the "durable"
+ * repository, which wait for the log to be forced, outside of the Grizzly
+ * worker threads: a suspended request does not hold a worker, which is free
+ * to serve other requests, e.g., fast reads, in the meantime.
+ * 
+ * The executor is bounded: at most "threads" methods run at the same time,
+ * and at most "queueSize" wait for a thread; when the queue is full, the
+ * request is answered with 429 (Too Many Requests) right away, like the
+ * {@link AdmissionFilter} does. A request still in the queue after the
+ * timeout is removed from it and answered with 429 as well, so it is never
+ * run. The timeout does not apply once the method has started: its change
+ * could still be applied, and a client retrying after a 429 would apply it
+ * twice, e.g., creating a duplicate employee.
+ * 
+ * With 0 threads, methods run synchronously on the worker thread, as if the
+ * requests were not suspended.
+ * 
+ * It must be closed when the server stops, see {@link #close()}.
+ */
+public class ResourceExecutor implements Closeable {
+
+	// how long close() waits for the accepted methods
+	private static final long CLOSE_SECONDS = 30;
+
+	private static final Logger LOGGER = Logger.getLogger(ResourceExecutor.class.getName());
+
+	private static final AtomicInteger EXECUTORS = new AtomicInteger();
+
+	// the states of a method in the executor
+	private static final int QUEUED = 0;
+
+	private static final int STARTED = 1;
+
+	private static final int TIMED_OUT = 2;
+
+	private final ThreadPoolExecutor executor;
+
+	private final long timeoutMillis;
+
+	/**
+	 * @param threads
+	 * @param queueSize
+	 *            the maximum number of methods waiting for a thread
+	 * @param timeoutMillis
+	 *            how long a request can wait for its response, 0 for no limit
+	 */
+	public ResourceExecutor(int threads, int queueSize, long timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+		if (threads == 0) {
+			executor = null;
+			return;
+		}
+		int number = EXECUTORS.incrementAndGet();
+		AtomicInteger count = new AtomicInteger();
+		ThreadFactory factory = runnable -> {
+			Thread thread = new Thread(runnable,
+				"resource-executor-" + number + "-" + count.incrementAndGet());
+			// requests still running do not keep the JVM alive
+			thread.setDaemon(true);
+			return thread;
+		};
+		executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+			new ArrayBlockingQueue<>(queueSize), factory);
+		// idle executors, e.g., of stopped servers, do not keep their threads
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Resumes the response with the result of the method, which can be an
+	 * entity or a {@link Response}; exceptions are mapped as if they were
+	 * thrown by a synchronous resource method.
+	 * 
+	 * @param response
+	 * @param method
+	 */
+	public void execute(AsyncResponse response, Supplier<?> method) {
+		if (executor == null) {
+			run(response, method);
+			return;
+		}
+		AtomicInteger state = new AtomicInteger(QUEUED);
+		Runnable task = () -> {
+			if (state.compareAndSet(QUEUED, STARTED))
+				run(response, method);
+		};
+		if (timeoutMillis > 0) {
+			response.setTimeoutHandler(timedOut -> {
+				if (state.compareAndSet(QUEUED, TIMED_OUT)) {
+					executor.remove(task);
+					timedOut.resume(tooManyRequests("Request timed out"));
+				} else {
+					// the method resumes the response when it completes
+					timedOut.setTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+				}
+			});
+			response.setTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			response.resume(tooManyRequests("Too many requests"));
+		}
+	}
+
+	private static void run(AsyncResponse response, Supplier<?> method) {
+		try {
+			response.resume(method.get());
+		} catch (RuntimeException e) {
+			response.resume(e);
+		} catch (Throwable e) {
+			// not mapped, but the response must not wait for the timeout
+			LOGGER.log(Level.SEVERE, "The resource method failed", e);
+			response.resume(Response.status(Status.INTERNAL_SERVER_ERROR).build());
+		}
+	}
+
+	/**
+	 * Stops accepting methods and waits for the accepted ones, both running
+	 * and queued, to complete: they can still change the repository, which is
+	 * closed afterwards. The running methods are not interrupted, since an
+	 * interrupted write can break the log of the "durable" repository.
+	 */
+	@Override
+	public void close() {
+		if (executor == null)
+			return;
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(CLOSE_SECONDS, TimeUnit.SECONDS))
+				LOGGER.warning("Resource methods still running after " + CLOSE_SECONDS + "s");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static Response tooManyRequests(String message) {
+		return Response
+			.status(Status.TOO_MANY_REQUESTS)
+			.header("Retry-After", 1)
+			.entity(message)
+			.type("text/plain")
+			.build();
+	}
+}
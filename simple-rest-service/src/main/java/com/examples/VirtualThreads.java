@@ -0,0 +1,37 @@
+package com.examples;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual threads, on Java 21 or later, while the project is still compiled
+ * for Java 8: they are created through reflection.
+ */
+public class VirtualThreads {
+
+	private VirtualThreads() {
+	}
+
+	/**
+	 * @return an executor that runs each task on a new virtual thread
+	 * @throws IllegalStateException
+	 *             if the JVM does not support virtual threads
+	 */
+	public static ExecutorService newExecutor() {
+		try {
+			return (ExecutorService) Executors.class
+				.getMethod("newVirtualThreadPerTaskExecutor")
+				.invoke(null);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException("Virtual threads need Java 21 or later, not "
+				+ System.getProperty("java.version"), e);
+		} catch (InvocationTargetException e) {
+			// a preview feature on Java 19 and 20
+			throw new IllegalStateException("Virtual threads are not enabled: "
+				+ e.getCause().getMessage(), e.getCause());
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package com.examples;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.glassfish.grizzly.threadpool.AbstractThreadPool;
+import org.glassfish.grizzly.threadpool.ThreadPoolProbe;
+
+/**
+ * Remembers when the task run by a Grizzly worker thread, e.g., reading and
+ * processing a request, was queued, so that the time it waited for the
+ * worker can be added to its latency: the worker queue is where requests
+ * wait when the server is overloaded, before any filter sees them.
+ */
+public class WorkerQueueProbe extends ThreadPoolProbe.Adapter {
+
+	// when the task of the worker thread was queued, 0 if it is not known
+	private static final ThreadLocal<long[]> QUEUED = ThreadLocal.withInitial(() -> new long[1]);
+
+	private final ConcurrentMap<Runnable, Long> queued = new ConcurrentHashMap<>();
+
+	/**
+	 * A task can process more than one request of a connection, e.g., when
+	 * they arrive together: only the first one waited in the queue.
+	 * 
+	 * @return when the task of the current thread was queued, as a
+	 *         {@link System#nanoTime()}, the first time it is called by the
+	 *         task; otherwise, or if the thread is not a worker thread with
+	 *         this probe, 0
+	 */
+	public static long queuedNanos() {
+		long[] queued = QUEUED.get();
+		long nanos = queued[0];
+		queued[0] = 0;
+		return nanos;
+	}
+
+	@Override
+	public void onTaskQueueEvent(AbstractThreadPool threadPool, Runnable task) {
+		queued.put(task, System.nanoTime());
+	}
+
+	// on the worker thread, right before the task is run
+	@Override
+	public void onTaskDequeueEvent(AbstractThreadPool threadPool, Runnable task) {
+		Long nanos = queued.remove(task);
+		QUEUED.get()[0] = nanos == null ? 0 : nanos;
+	}
+
+	@Override
+	public void onTaskCancelEvent(AbstractThreadPool threadPool, Runnable task) {
+		queued.remove(task);
+	}
+
+	@Override
+	public void onTaskCompleteEvent(AbstractThreadPool threadPool, Runnable task) {
+		QUEUED.get()[0] = 0;
+	}
+}
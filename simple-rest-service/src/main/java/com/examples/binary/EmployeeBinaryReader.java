@@ -0,0 +1,94 @@
+package com.examples.binary;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.examples.model.Employee;
+
+/**
+ * Reads employees written by {@link EmployeeBinaryWriter}, e.g., by a client
+ * of the bulk binary representation.
+ */
+public class EmployeeBinaryReader {
+
+	private final DataInputStream in;
+
+	private byte[] record = new byte[256];
+
+	private int position;
+
+	public EmployeeBinaryReader(InputStream in) {
+		this.in = new DataInputStream(in);
+	}
+
+	/**
+	 * @return the next employee, or null at the end of the stream
+	 * @throws IOException
+	 *             also if the stream ends in the middle of a record
+	 */
+	public Employee read() throws IOException {
+		int first = in.read();
+		if (first == -1)
+			return null;
+		int length = readVarint(first);
+		if (length > record.length)
+			record = new byte[Math.max(length, record.length * 2)];
+		in.readFully(record, 0, length);
+		position = 0;
+		int flags = record[position++];
+		Employee employee = new Employee();
+		if ((flags & EmployeeBinaryWriter.ID_PRESENT) != 0)
+			employee.setEmployeeId(readString());
+		if ((flags & EmployeeBinaryWriter.NAME_PRESENT) != 0)
+			employee.setName(readString());
+		int salary = readRecordVarint();
+		employee.setSalary((salary >>> 1) ^ -(salary & 1));
+		return employee;
+	}
+
+	public List<Employee> readAll() throws IOException {
+		List<Employee> employees = new ArrayList<>();
+		Employee employee;
+		while ((employee = read()) != null)
+			employees.add(employee);
+		return employees;
+	}
+
+	private int readVarint(int first) throws IOException {
+		int value = first & 0x7F;
+		int shift = 7;
+		int b = first;
+		while ((b & 0x80) != 0) {
+			b = in.read();
+			if (b == -1)
+				throw new EOFException();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		}
+		return value;
+	}
+
+	private int readRecordVarint() {
+		int value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = record[position++];
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private String readString() {
+		int length = readRecordVarint();
+		String s = new String(record, position, length, StandardCharsets.UTF_8);
+		position += length;
+		return s;
+	}
+}
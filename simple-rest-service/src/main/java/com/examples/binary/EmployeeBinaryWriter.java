@@ -0,0 +1,185 @@
+package com.examples.binary;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+import com.examples.json.BufferPool;
+import com.examples.model.Employee;
+
+/**
+ * Writes employees in a compact binary format, meant for bulk transfers; a
+ * sequence of employees is just the concatenation of their records, so it can
+ * be written while iterating and is delimited by the end of the stream. Each
+ * record is:
+ * 
+ * <pre>
+ * record length (varint, not including itself)
+ * flags (1 byte: bit 0 if the id is present, bit 1 if the name is present)
+ * id length (varint) and UTF-8 bytes, if present
+ * name length (varint) and UTF-8 bytes, if present
+ * salary (zig-zag varint)
+ * </pre>
+ * 
+ * Varints are unsigned LEB128, as in Protocol Buffers. See
+ * {@link EmployeeBinaryReader} for decoding.
+ * 
+ * Like {@link com.examples.json.EmployeeJsonWriter}, bytes are encoded into a
+ * buffer taken from a {@link BufferPool} and given back on {@link #close()};
+ * instances are not thread-safe.
+ */
+public class EmployeeBinaryWriter implements Closeable {
+
+	static final int ID_PRESENT = 1;
+
+	static final int NAME_PRESENT = 2;
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final BufferPool BUFFERS = new BufferPool(BUFFER_SIZE);
+
+	private final OutputStream out;
+
+	private byte[] buffer = BUFFERS.acquire();
+
+	private int position;
+
+	public EmployeeBinaryWriter(OutputStream out) {
+		this.out = out;
+	}
+
+	public void write(Employee employee) throws IOException {
+		String id = employee.getEmployeeId();
+		String name = employee.getName();
+		int idLength = id != null ? utf8Length(id) : 0;
+		int nameLength = name != null ? utf8Length(name) : 0;
+		int salary = zigZag(employee.getSalary());
+		int recordLength = 1 + varintLength(salary)
+			+ (id != null ? varintLength(idLength) + idLength : 0)
+			+ (name != null ? varintLength(nameLength) + nameLength : 0);
+		writeVarint(recordLength);
+		writeByte((id != null ? ID_PRESENT : 0) | (name != null ? NAME_PRESENT : 0));
+		if (id != null)
+			writeString(id, idLength);
+		if (name != null)
+			writeString(name, nameLength);
+		writeVarint(salary);
+	}
+
+	public void writeAll(Iterator<Employee> employees) throws IOException {
+		while (employees.hasNext())
+			write(employees.next());
+	}
+
+	/**
+	 * Writes the buffered bytes to the underlying stream, without flushing the
+	 * stream itself.
+	 * 
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		if (position > 0) {
+			out.write(buffer, 0, position);
+			position = 0;
+		}
+	}
+
+	/**
+	 * Flushes and gives the buffer back to the pool; the writer cannot be
+	 * used anymore, and the underlying stream is not closed.
+	 * 
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+		if (buffer == null)
+			return;
+		try {
+			flush();
+		} finally {
+			BUFFERS.release(buffer);
+			buffer = null;
+		}
+	}
+
+	static int zigZag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static int varintLength(int value) {
+		int length = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			length++;
+		}
+		return length;
+	}
+
+	private static int utf8Length(String s) {
+		int length = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+					&& Character.isLowSurrogate(s.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	private void ensureCapacity(int length) throws IOException {
+		if (position + length > buffer.length)
+			flush();
+	}
+
+	private void writeByte(int b) throws IOException {
+		ensureCapacity(1);
+		buffer[position++] = (byte) b;
+	}
+
+	private void writeVarint(int value) throws IOException {
+		ensureCapacity(5);
+		while ((value & ~0x7F) != 0) {
+			buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[position++] = (byte) value;
+	}
+
+	/**
+	 * Unpaired surrogates are encoded as 3 bytes, consistently with
+	 * {@link #utf8Length(String)}.
+	 */
+	private void writeString(String s, int utf8Length) throws IOException {
+		writeVarint(utf8Length);
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			ensureCapacity(4);
+			if (c < 0x80) {
+				buffer[position++] = (byte) c;
+			} else if (c < 0x800) {
+				buffer[position++] = (byte) (0xC0 | c >> 6);
+				buffer[position++] = (byte) (0x80 | c & 0x3F);
+			} else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+					&& Character.isLowSurrogate(s.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, s.charAt(++i));
+				buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+				buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+				buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+				buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+			} else {
+				buffer[position++] = (byte) (0xE0 | c >> 12);
+				buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+				buffer[position++] = (byte) (0x80 | c & 0x3F);
+			}
+		}
+	}
+}
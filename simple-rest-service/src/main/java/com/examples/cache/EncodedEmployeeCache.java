@@ -0,0 +1,198 @@
+package com.examples.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.examples.model.Employee;
+
+/**
+ * A bounded cache of the bytes an {@link Employee} has been encoded to, one
+ * entry per employee id holding an encoding for each media type.
+ * 
+ * An entry remembers the {@link Employee} instance it has been encoded from
+ * and it is returned only for that very instance: repositories give back the
+ * instance they store and replace it on every save, so an encoding of a
+ * replaced employee, that a concurrent request may still put in the cache
+ * after the invalidation, is never served.
+ * 
+ * The cache is split in segments, each one evicting its least recently used
+ * entries when the bytes it holds exceed its share of the memory cap.
+ */
+public class EncodedEmployeeCache {
+
+	private static final int SEGMENTS = 16;
+
+	// approximate memory taken by an entry besides the encoded bytes
+	private static final int ENTRY_OVERHEAD = 128;
+
+	private final Segment[] segments = new Segment[SEGMENTS];
+
+	private final long maxBytes;
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @param maxBytes
+	 *            the approximate memory the cache can take; 0 disables caching
+	 */
+	public EncodedEmployeeCache(long maxBytes) {
+		if (maxBytes < 0)
+			throw new IllegalArgumentException("Invalid cache size: " + maxBytes);
+		this.maxBytes = maxBytes;
+		for (int i = 0; i < SEGMENTS; i++)
+			segments[i] = new Segment(maxBytes / SEGMENTS);
+	}
+
+	/**
+	 * @param employee
+	 * @param mediaType
+	 * @return the bytes previously put for this very employee instance and
+	 *         media type, or null
+	 */
+	public byte[] get(Employee employee, String mediaType) {
+		byte[] bytes = segmentFor(employee.getEmployeeId()).get(employee, mediaType);
+		if (bytes != null)
+			hits.increment();
+		else
+			misses.increment();
+		return bytes;
+	}
+
+	public void put(Employee employee, String mediaType, byte[] bytes) {
+		segmentFor(employee.getEmployeeId()).put(employee, mediaType, bytes);
+	}
+
+	/**
+	 * Removes all the encodings of the employee with the given id.
+	 * 
+	 * @param id
+	 */
+	public void invalidate(String id) {
+		if (id != null)
+			segmentFor(id).remove(id);
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public boolean isEnabled() {
+		return maxBytes > 0;
+	}
+
+	/**
+	 * @return the approximate memory taken by the cached entries
+	 */
+	public long getBytes() {
+		long bytes = 0;
+		for (Segment segment : segments)
+			bytes += segment.bytes();
+		return bytes;
+	}
+
+	public long getSize() {
+		long size = 0;
+		for (Segment segment : segments)
+			size += segment.size();
+		return size;
+	}
+
+	private Segment segmentFor(String id) {
+		int h = id == null ? 0 : id.hashCode();
+		return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+	}
+
+	private static final class Entry {
+
+		private final Employee employee;
+
+		private final Map<String, byte[]> encodings = new LinkedHashMap<>(4);
+
+		private long bytes = ENTRY_OVERHEAD;
+
+		private Entry(Employee employee) {
+			this.employee = employee;
+		}
+	}
+
+	private final class Segment {
+
+		private final long maxBytes;
+
+		// in access order, the least recently used first
+		private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+		private long bytes;
+
+		private Segment(long maxBytes) {
+			this.maxBytes = maxBytes;
+		}
+
+		synchronized byte[] get(Employee employee, String mediaType) {
+			Entry entry = entries.get(employee.getEmployeeId());
+			if (entry == null || entry.employee != employee)
+				return null;
+			return entry.encodings.get(mediaType);
+		}
+
+		synchronized void put(Employee employee, String mediaType, byte[] encoded) {
+			if (ENTRY_OVERHEAD + encoded.length > maxBytes)
+				return;
+			String id = employee.getEmployeeId();
+			Entry entry = entries.get(id);
+			if (entry == null || entry.employee != employee) {
+				if (entry != null)
+					bytes -= entry.bytes;
+				entry = new Entry(employee);
+				entries.put(id, entry);
+				bytes += entry.bytes;
+			}
+			byte[] previous = entry.encodings.put(mediaType, encoded);
+			long delta = encoded.length - (previous != null ? previous.length : 0);
+			entry.bytes += delta;
+			bytes += delta;
+			evict();
+		}
+
+		synchronized void remove(String id) {
+			Entry entry = entries.remove(id);
+			if (entry != null)
+				bytes -= entry.bytes;
+		}
+
+		synchronized long bytes() {
+			return bytes;
+		}
+
+		synchronized int size() {
+			return entries.size();
+		}
+
+		private void evict() {
+			Iterator<Entry> iterator = entries.values().iterator();
+			while (bytes > maxBytes && iterator.hasNext()) {
+				bytes -= iterator.next().bytes;
+				iterator.remove();
+				evictions.increment();
+			}
+		}
+	}
+}
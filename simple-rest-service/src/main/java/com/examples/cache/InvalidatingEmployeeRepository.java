@@ -0,0 +1,169 @@
+package com.examples.cache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import com.examples.events.RepositoryEvent;
+import com.examples.model.Employee;
+import com.examples.model.SalaryStats;
+import com.examples.repository.EmployeeRepository;
+
+/**
+ * Delegates to the {@link EmployeeRepository} named {@link #STORAGE},
+ * removing the encodings of an employee from the {@link EncodedEmployeeCache}
+ * when it is saved, replaced or deleted; each operation is recorded as a
+ * {@link RepositoryEvent} when Flight Recorder is enabled.
+ */
+public class InvalidatingEmployeeRepository implements EmployeeRepository {
+
+	public static final String STORAGE = "storage";
+
+	private EmployeeRepository delegate;
+
+	private EncodedEmployeeCache cache;
+
+	@Inject
+	public InvalidatingEmployeeRepository(@Named(STORAGE) EmployeeRepository delegate,
+			EncodedEmployeeCache cache) {
+		this.delegate = delegate;
+		this.cache = cache;
+	}
+
+	@Override
+	public List<Employee> findAll() {
+		RepositoryEvent event = new RepositoryEvent("findAll");
+		List<Employee> found = delegate.findAll();
+		event.commit(delegate, found);
+		return found;
+	}
+
+	@Override
+	public Stream<Employee> streamAll() {
+		// only the creation of the stream, which is consumed later
+		RepositoryEvent event = new RepositoryEvent("streamAll");
+		Stream<Employee> stream = delegate.streamAll();
+		event.commit(delegate, null);
+		return stream;
+	}
+
+	@Override
+	public Optional<Employee> findOne(String id) {
+		RepositoryEvent event = new RepositoryEvent("findOne");
+		Optional<Employee> found = delegate.findOne(id);
+		event.commit(delegate, found);
+		return found;
+	}
+
+	@Override
+	public Map<String, Employee> findByIds(Collection<String> ids) {
+		RepositoryEvent event = new RepositoryEvent("findByIds");
+		Map<String, Employee> found = delegate.findByIds(ids);
+		event.commit(delegate, found);
+		return found;
+	}
+
+	@Override
+	public long count() {
+		RepositoryEvent event = new RepositoryEvent("count");
+		long count = delegate.count();
+		event.commit(delegate, count);
+		return count;
+	}
+
+	@Override
+	public List<Employee> findPage(String afterId, int limit) {
+		RepositoryEvent event = new RepositoryEvent("findPage");
+		List<Employee> found = delegate.findPage(afterId, limit);
+		event.commit(delegate, found);
+		return found;
+	}
+
+	@Override
+	public List<Employee> findBySalary(int minSalary, int maxSalary) {
+		RepositoryEvent event = new RepositoryEvent("findBySalary");
+		List<Employee> found = delegate.findBySalary(minSalary, maxSalary);
+		event.commit(delegate, found);
+		return found;
+	}
+
+	@Override
+	public List<Employee> searchByName(String query, int limit) {
+		RepositoryEvent event = new RepositoryEvent("searchByName");
+		List<Employee> found = delegate.searchByName(query, limit);
+		event.commit(delegate, found);
+		return found;
+	}
+
+	@Override
+	public SalaryStats salaryStats() {
+		RepositoryEvent event = new RepositoryEvent("salaryStats");
+		SalaryStats stats = delegate.salaryStats();
+		event.commit(delegate, stats);
+		return stats;
+	}
+
+	@Override
+	public long getVersion() {
+		return delegate.getVersion();
+	}
+
+	@Override
+	public Employee save(Employee employee) {
+		RepositoryEvent event = new RepositoryEvent("save");
+		Employee saved = delegate.save(employee);
+		cache.invalidate(saved.getEmployeeId());
+		event.commit(delegate, saved);
+		return saved;
+	}
+
+	@Override
+	public List<Employee> saveAll(List<Employee> employees) {
+		RepositoryEvent event = new RepositoryEvent("saveAll");
+		List<Employee> saved = delegate.saveAll(employees);
+		saved.forEach(employee -> cache.invalidate(employee.getEmployeeId()));
+		event.commit(delegate, saved);
+		return saved;
+	}
+
+	@Override
+	public Employee deleteById(String id) {
+		RepositoryEvent event = new RepositoryEvent("deleteById");
+		Employee deleted = delegate.deleteById(id);
+		cache.invalidate(id);
+		event.commit(delegate, deleted);
+		return deleted;
+	}
+
+	@Override
+	public Optional<Employee> replace(Employee employee) {
+		RepositoryEvent event = new RepositoryEvent("replace");
+		Optional<Employee> replaced = delegate.replace(employee);
+		replaced.ifPresent(saved -> cache.invalidate(saved.getEmployeeId()));
+		event.commit(delegate, replaced);
+		return replaced;
+	}
+
+	@Override
+	public Optional<Employee> replace(Employee employee, long version) {
+		RepositoryEvent event = new RepositoryEvent("replace");
+		Optional<Employee> replaced = delegate.replace(employee, version);
+		replaced.ifPresent(saved -> cache.invalidate(saved.getEmployeeId()));
+		event.commit(delegate, replaced);
+		return replaced;
+	}
+
+	@Override
+	public Optional<Employee> deleteById(String id, long version) {
+		RepositoryEvent event = new RepositoryEvent("deleteById");
+		Optional<Employee> deleted = delegate.deleteById(id, version);
+		deleted.ifPresent(old -> cache.invalidate(id));
+		event.commit(delegate, deleted);
+		return deleted;
+	}
+}
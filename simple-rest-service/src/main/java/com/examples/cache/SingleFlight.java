@@ -0,0 +1,115 @@
+package com.examples.cache;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs a computation only once for all the concurrent callers with the same
+ * key: the first one computes the value, the others wait for it and share
+ * it. Differently from a cache, the value is forgotten as soon as it is
+ * computed, so the key must identify the value only while it is computed,
+ * e.g., with the version of what it is computed from.
+ * 
+ * An exception of the computation is thrown to all the callers. When it is
+ * disabled, each caller computes its own value.
+ * 
+ * @param <K>
+ * @param <V>
+ */
+public class SingleFlight<K, V> {
+
+	/**
+	 * A computation that can fail with an {@link IOException}, e.g., the
+	 * encoding of an entity.
+	 */
+	@FunctionalInterface
+	public interface Computation<V> {
+		V compute() throws IOException;
+	}
+
+	private final boolean enabled;
+
+	private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+
+	private final LongAdder computed = new LongAdder();
+
+	private final LongAdder shared = new LongAdder();
+
+	public SingleFlight() {
+		this(true);
+	}
+
+	public SingleFlight(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @param key
+	 * @param computation
+	 *            run on the calling thread, unless the value is already being
+	 *            computed for the key
+	 * @return the value computed by this caller or by a concurrent one
+	 * @throws IOException
+	 *             if the computation failed with it
+	 */
+	public V execute(K key, Computation<V> computation) throws IOException {
+		if (!enabled) {
+			computed.increment();
+			return computation.compute();
+		}
+		CompletableFuture<V> flight = new CompletableFuture<>();
+		CompletableFuture<V> current = flights.putIfAbsent(key, flight);
+		if (current != null) {
+			shared.increment();
+			return join(current);
+		}
+		computed.increment();
+		try {
+			V value = computation.compute();
+			flight.complete(value);
+			return value;
+		} catch (IOException | RuntimeException | Error e) {
+			flight.completeExceptionally(e);
+			throw e;
+		} finally {
+			flights.remove(key, flight);
+		}
+	}
+
+	private static <V> V join(CompletableFuture<V> flight) throws IOException {
+		try {
+			return flight.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw e;
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @return the number of values computed
+	 */
+	public long getComputed() {
+		return computed.sum();
+	}
+
+	/**
+	 * @return the number of callers that shared a value computed by another
+	 */
+	public long getShared() {
+		return shared.sum();
+	}
+}
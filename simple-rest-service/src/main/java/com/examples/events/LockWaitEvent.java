@@ -0,0 +1,55 @@
+package com.examples.events;
+
+import java.util.concurrent.locks.Lock;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * The time a thread waited for a lock of the employees, e.g., the lock of
+ * the off-heap repository or the force of the write-ahead log; by default,
+ * like jdk.JavaMonitorEnter, only waits of at least 20 ms are recorded.
+ */
+@Name("com.examples.LockWait")
+@Label("Lock Wait")
+@Category("Simple REST Service")
+@Threshold("20 ms")
+public class LockWaitEvent extends jdk.jfr.Event {
+
+	@Label("Lock")
+	private String lock;
+
+	/**
+	 * Begins the event.
+	 */
+	public LockWaitEvent() {
+		begin();
+	}
+
+	/**
+	 * Ends the event once the lock is acquired, if it is recorded.
+	 * 
+	 * @param lock
+	 *            the name of the lock
+	 */
+	public void acquired(String lock) {
+		if (shouldCommit()) {
+			this.lock = lock;
+			commit();
+		}
+	}
+
+	/**
+	 * @param lock
+	 * @param name
+	 * @return the lock, acquired
+	 */
+	public static Lock lock(Lock lock, String name) {
+		LockWaitEvent event = new LockWaitEvent();
+		lock.lock();
+		event.acquired(name);
+		return lock;
+	}
+}
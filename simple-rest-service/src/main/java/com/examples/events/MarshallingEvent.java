@@ -0,0 +1,53 @@
+package com.examples.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * The encoding of the entity of a response by its MessageBodyWriter, or the
+ * decoding of the entity of a request by its MessageBodyReader; streamed
+ * entities include the time to write them to, or read them from, the
+ * connection. By default, only those of at least 1 ms are recorded.
+ */
+@Name("com.examples.Marshalling")
+@Label("Marshalling")
+@Category("Simple REST Service")
+@Threshold("1 ms")
+public class MarshallingEvent extends jdk.jfr.Event {
+
+	@Label("Direction")
+	private String direction;
+
+	@Label("Type")
+	private String type;
+
+	@Label("Media Type")
+	private String mediaType;
+
+	/**
+	 * Begins the event.
+	 * 
+	 * @param direction
+	 *            "read" or "write"
+	 */
+	public MarshallingEvent(String direction) {
+		this.direction = direction;
+		begin();
+	}
+
+	/**
+	 * Ends the event, if it is recorded.
+	 * 
+	 * @param type
+	 * @param mediaType
+	 */
+	public void commit(Class<?> type, Object mediaType) {
+		if (shouldCommit()) {
+			this.type = type.getName();
+			this.mediaType = String.valueOf(mediaType);
+			commit();
+		}
+	}
+}
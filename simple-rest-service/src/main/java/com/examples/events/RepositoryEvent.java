@@ -0,0 +1,77 @@
+package com.examples.events;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+import com.examples.model.Employee;
+import com.examples.model.SalaryStats;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * An operation of the {@link com.examples.repository.EmployeeRepository}
+ * used by the service, with the number of employees it returned or changed;
+ * by default, only operations of at least 1 ms are recorded, since
+ * recording all of them would cost more than most operations.
+ */
+@Name("com.examples.Repository")
+@Label("Repository Operation")
+@Category("Simple REST Service")
+@Threshold("1 ms")
+public class RepositoryEvent extends jdk.jfr.Event {
+
+	@Label("Operation")
+	private String operation;
+
+	@Label("Storage")
+	@Description("The repository that stores the employees")
+	private String storage;
+
+	@Label("Employees")
+	private int count;
+
+	/**
+	 * Begins the event.
+	 * 
+	 * @param operation
+	 *            the method of the repository
+	 */
+	public RepositoryEvent(String operation) {
+		this.operation = operation;
+		begin();
+	}
+
+	/**
+	 * Ends the event, if it is recorded.
+	 * 
+	 * @param storage
+	 * @param result
+	 *            what the operation returned, to count its employees
+	 */
+	public void commit(Object storage, Object result) {
+		if (shouldCommit()) {
+			this.storage = storage.getClass().getSimpleName();
+			this.count = count(result);
+			commit();
+		}
+	}
+
+	private static int count(Object result) {
+		if (result instanceof Collection)
+			return ((Collection<?>) result).size();
+		if (result instanceof Map)
+			return ((Map<?, ?>) result).size();
+		if (result instanceof Optional)
+			return ((Optional<?>) result).isPresent() ? 1 : 0;
+		if (result instanceof SalaryStats)
+			return (int) Math.min(((SalaryStats) result).getCount(), Integer.MAX_VALUE);
+		if (result instanceof Long)
+			return (int) Math.min((Long) result, Integer.MAX_VALUE);
+		return result instanceof Employee ? 1 : 0;
+	}
+}
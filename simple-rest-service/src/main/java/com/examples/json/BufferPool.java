@@ -0,0 +1,56 @@
+package com.examples.json;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Byte buffers of a fixed size, reused by the writers and parsers of
+ * employees instead of allocating a new buffer for each request.
+ *
+ * Buffers are kept in a fixed number of stripes, one buffer at most in each,
+ * like the blocks of {@link com.examples.repository.IdGenerator}: a thread
+ * takes the buffer of the stripe its id maps to, or allocates a new one if
+ * the stripe is empty, and puts it back when done. Buffers do not belong to
+ * threads, so when each request runs on a new (virtual) thread, the requests
+ * still share the buffers of the stripes, and the memory kept by the pool
+ * is bounded by the number of stripes rather than by the number of threads.
+ */
+public final class BufferPool {
+
+	// a power of two, so that a thread id is mapped to a stripe with a mask
+	static final int STRIPES =
+		Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+
+	private final int bufferSize;
+
+	private final AtomicReferenceArray<byte[]> buffers = new AtomicReferenceArray<>(STRIPES);
+
+	public BufferPool(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * @return a buffer of the size of this pool, which is not used by anyone
+	 *         else until it is {@link #release(byte[]) released}
+	 */
+	public byte[] acquire() {
+		byte[] buffer = buffers.getAndSet(stripe(), null);
+		return buffer != null ? buffer : new byte[bufferSize];
+	}
+
+	/**
+	 * Makes the buffer available again; it must not be used anymore by the
+	 * caller. Buffers of another size, e.g., grown by the caller, and buffers
+	 * for which the stripe has no room are left to the garbage collector.
+	 *
+	 * @param buffer
+	 */
+	public void release(byte[] buffer) {
+		if (buffer != null && buffer.length == bufferSize)
+			buffers.compareAndSet(stripe(), null, buffer);
+	}
+
+	private static int stripe() {
+		long thread = Thread.currentThread().getId();
+		return (int) (thread ^ (thread >>> 32)) & (STRIPES - 1);
+	}
+}
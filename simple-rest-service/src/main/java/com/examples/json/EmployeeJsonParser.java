@@ -0,0 +1,505 @@
+package com.examples.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.examples.model.Employee;
+
+/**
+ * Parses employees from JSON, accepting what MOXy accepts for
+ * {@link Employee}: the id is read from the "id" field, unknown fields are
+ * skipped, and the salary can also be a string.
+ * 
+ * The input is read through a buffer, and the bytes of strings are
+ * accumulated in an array, both taken from a {@link BufferPool} and given
+ * back on {@link #close()}, so that parsing only allocates the parsed values.
+ * Strings longer than {@link #MAX_STRING_LENGTH} are rejected rather than
+ * buffered.
+ * 
+ * Instances are not thread-safe.
+ */
+public class EmployeeJsonParser implements Closeable {
+
+	/**
+	 * Thrown when the input is not valid JSON or does not represent employees.
+	 */
+	public static class MalformedJsonException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		public MalformedJsonException(String message) {
+			super(message);
+		}
+	}
+
+	private static final int BUFFER_SIZE = 8192;
+
+	// in UTF-8 bytes, for any string, including the names of fields and the
+	// strings of skipped values
+	public static final int MAX_STRING_LENGTH = 64 * 1024;
+
+	private static final BufferPool BUFFERS = new BufferPool(BUFFER_SIZE);
+
+	private static final BufferPool STRING_BUFFERS = new BufferPool(256);
+
+	private final InputStream in;
+
+	private byte[] buffer = BUFFERS.acquire();
+
+	private byte[] stringBuffer = STRING_BUFFERS.acquire();
+
+	private int position;
+
+	private int limit;
+
+	private long offset;
+
+	private int line = 1;
+
+	// the offset of the first character of the current line
+	private long lineStart;
+
+	private final long maxLineLength;
+
+	// false while skipping what is not part of a value
+	private boolean checkLineLength = true;
+
+	public EmployeeJsonParser(InputStream in) {
+		this(in, Long.MAX_VALUE);
+	}
+
+	/**
+	 * @param in
+	 * @param maxLineLength
+	 *            in bytes, for newline-delimited JSON: a value on a longer
+	 *            line is rejected as soon as the line is known to be longer,
+	 *            without reading the rest of the value
+	 */
+	public EmployeeJsonParser(InputStream in, long maxLineLength) {
+		this.in = in;
+		this.maxLineLength = maxLineLength;
+	}
+
+	/**
+	 * @return the 1-based line of the next character to be parsed
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * Skips whitespace.
+	 * 
+	 * @return whether there is more input
+	 * @throws IOException
+	 */
+	public boolean hasNext() throws IOException {
+		checkLineLength = false;
+		try {
+			return skipWhitespace() != -1;
+		} finally {
+			checkLineLength = true;
+		}
+	}
+
+	/**
+	 * Checks that the rest of the current line is blank, as required by
+	 * newline-delimited JSON after each value, and skips it.
+	 * 
+	 * @throws IOException
+	 */
+	public void expectEndOfLine() throws IOException {
+		int c;
+		while ((c = peek()) == ' ' || c == '\t' || c == '\r')
+			read();
+		if (c != '\n' && c != -1)
+			throw malformed("expected the end of the line");
+		if (offset + position - lineStart > maxLineLength)
+			throw lineTooLong();
+		read();
+	}
+
+	/**
+	 * Checks that there is nothing but whitespace after the parsed value, as
+	 * required for a request body holding a single value.
+	 * 
+	 * @throws IOException
+	 */
+	public void expectEnd() throws IOException {
+		if (hasNext())
+			throw malformed("unexpected data after the value");
+	}
+
+	/**
+	 * Skips the rest of the current line, e.g., to parse the next value of
+	 * newline-delimited JSON after a malformed one.
+	 * 
+	 * @throws IOException
+	 */
+	public void skipLine() throws IOException {
+		checkLineLength = false;
+		try {
+			int c;
+			do {
+				c = read();
+			} while (c != '\n' && c != -1);
+		} finally {
+			checkLineLength = true;
+		}
+	}
+
+	/**
+	 * Gives the buffers back to the pool; the parser cannot be used anymore,
+	 * and the underlying stream is not closed.
+	 */
+	@Override
+	public void close() {
+		if (buffer == null)
+			return;
+		BUFFERS.release(buffer);
+		STRING_BUFFERS.release(stringBuffer);
+		buffer = null;
+		stringBuffer = null;
+	}
+
+	/**
+	 * Parses a JSON array of employees.
+	 * 
+	 * @return the parsed employees
+	 * @throws IOException
+	 */
+	public List<Employee> readEmployees() throws IOException {
+		List<Employee> employees = new ArrayList<>();
+		expect('[');
+		if (skipWhitespace() == ']') {
+			read();
+			return employees;
+		}
+		do {
+			employees.add(readEmployee());
+		} while (expectEither(',', ']') == ',');
+		return employees;
+	}
+
+	/**
+	 * Parses a JSON array of strings, e.g., ids; null literals are parsed as
+	 * null.
+	 * 
+	 * @return the parsed strings
+	 * @throws IOException
+	 */
+	public List<String> readStrings() throws IOException {
+		List<String> strings = new ArrayList<>();
+		expect('[');
+		if (skipWhitespace() == ']') {
+			read();
+			return strings;
+		}
+		do {
+			strings.add(readNullableString());
+		} while (expectEither(',', ']') == ',');
+		return strings;
+	}
+
+	/**
+	 * Parses a JSON object representing an employee; a null literal is
+	 * parsed as null.
+	 * 
+	 * @return the parsed employee
+	 * @throws IOException
+	 */
+	public Employee readEmployee() throws IOException {
+		if (skipWhitespace() == 'n') {
+			expectLiteral("null");
+			return null;
+		}
+		Employee employee = new Employee();
+		expect('{');
+		if (skipWhitespace() == '}') {
+			read();
+			return employee;
+		}
+		do {
+			String field = readString();
+			expect(':');
+			switch (field) {
+			case "id":
+				employee.setEmployeeId(readNullableString());
+				break;
+			case "name":
+				employee.setName(readNullableString());
+				break;
+			case "salary":
+				employee.setSalary(readInt());
+				break;
+			default:
+				skipValue();
+			}
+		} while (expectEither(',', '}') == ',');
+		return employee;
+	}
+
+	private String readNullableString() throws IOException {
+		if (skipWhitespace() == 'n') {
+			expectLiteral("null");
+			return null;
+		}
+		return readString();
+	}
+
+	private int readInt() throws IOException {
+		int c = skipWhitespace();
+		boolean quoted = c == '"';
+		if (quoted)
+			read();
+		long value = 0;
+		boolean negative = peek() == '-';
+		if (negative)
+			read();
+		int digits = 0;
+		while (peek() >= '0' && peek() <= '9') {
+			value = value * 10 + (read() - '0');
+			if (++digits > 10)
+				throw malformed("number too large");
+		}
+		if (digits == 0)
+			throw malformed("expected an integer");
+		value = negative ? -value : value;
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+			throw malformed("number too large");
+		if (quoted)
+			expect('"');
+		return (int) value;
+	}
+
+	private String readString() throws IOException {
+		expect('"');
+		int length = 0;
+		while (true) {
+			int c = read();
+			if (c == -1)
+				throw malformed("unterminated string");
+			if (c == '"')
+				break;
+			if (length + 4 > stringBuffer.length)
+				growStringBuffer();
+			if (c == '\\') {
+				length = readEscape(length);
+			} else if (c < 0x20) {
+				throw malformed("control character in string");
+			} else {
+				stringBuffer[length++] = (byte) c;
+			}
+		}
+		if (length > MAX_STRING_LENGTH)
+			throw tooLong();
+		return new String(stringBuffer, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Up to the longest string, plus the longest character.
+	 */
+	private void growStringBuffer() throws MalformedJsonException {
+		int maxLength = MAX_STRING_LENGTH + 4;
+		if (stringBuffer.length == maxLength)
+			throw tooLong();
+		byte[] larger = new byte[Math.min(stringBuffer.length * 2, maxLength)];
+		System.arraycopy(stringBuffer, 0, larger, 0, stringBuffer.length);
+		// the original buffer goes back to the pool, not the grown one
+		STRING_BUFFERS.release(stringBuffer);
+		stringBuffer = larger;
+	}
+
+	/**
+	 * Appends the escaped character, encoded as UTF-8, to the string buffer.
+	 */
+	private int readEscape(int length) throws IOException {
+		int c = read();
+		switch (c) {
+		case '"':
+		case '\\':
+		case '/':
+			stringBuffer[length++] = (byte) c;
+			return length;
+		case 'b':
+			stringBuffer[length++] = '\b';
+			return length;
+		case 'f':
+			stringBuffer[length++] = '\f';
+			return length;
+		case 'n':
+			stringBuffer[length++] = '\n';
+			return length;
+		case 'r':
+			stringBuffer[length++] = '\r';
+			return length;
+		case 't':
+			stringBuffer[length++] = '\t';
+			return length;
+		case 'u':
+			int codePoint = readHex();
+			if (Character.isHighSurrogate((char) codePoint)) {
+				if (read() != '\\' || read() != 'u')
+					throw malformed("unpaired surrogate");
+				int low = readHex();
+				if (!Character.isLowSurrogate((char) low))
+					throw malformed("unpaired surrogate");
+				codePoint = Character.toCodePoint((char) codePoint, (char) low);
+			}
+			return appendUtf8(codePoint, length);
+		default:
+			throw malformed("invalid escape");
+		}
+	}
+
+	private int readHex() throws IOException {
+		int value = 0;
+		for (int i = 0; i < 4; i++) {
+			int digit = Character.digit(read(), 16);
+			if (digit < 0)
+				throw malformed("invalid unicode escape");
+			value = value << 4 | digit;
+		}
+		return value;
+	}
+
+	private int appendUtf8(int codePoint, int length) {
+		if (codePoint < 0x80) {
+			stringBuffer[length++] = (byte) codePoint;
+		} else if (codePoint < 0x800) {
+			stringBuffer[length++] = (byte) (0xC0 | codePoint >> 6);
+			stringBuffer[length++] = (byte) (0x80 | codePoint & 0x3F);
+		} else if (codePoint < 0x10000) {
+			stringBuffer[length++] = (byte) (0xE0 | codePoint >> 12);
+			stringBuffer[length++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+			stringBuffer[length++] = (byte) (0x80 | codePoint & 0x3F);
+		} else {
+			stringBuffer[length++] = (byte) (0xF0 | codePoint >> 18);
+			stringBuffer[length++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+			stringBuffer[length++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+			stringBuffer[length++] = (byte) (0x80 | codePoint & 0x3F);
+		}
+		return length;
+	}
+
+	/**
+	 * Skips a value of any type, including nested objects and arrays.
+	 */
+	private void skipValue() throws IOException {
+		int c = skipWhitespace();
+		switch (c) {
+		case '"':
+			readString();
+			break;
+		case '{':
+			read();
+			if (skipWhitespace() == '}') {
+				read();
+				break;
+			}
+			do {
+				readString();
+				expect(':');
+				skipValue();
+			} while (expectEither(',', '}') == ',');
+			break;
+		case '[':
+			read();
+			if (skipWhitespace() == ']') {
+				read();
+				break;
+			}
+			do {
+				skipValue();
+			} while (expectEither(',', ']') == ',');
+			break;
+		case 't':
+			expectLiteral("true");
+			break;
+		case 'f':
+			expectLiteral("false");
+			break;
+		case 'n':
+			expectLiteral("null");
+			break;
+		default:
+			if (c != '-' && (c < '0' || c > '9'))
+				throw malformed("unexpected character");
+			while ((c = peek()) == '-' || c == '+' || c == '.' || c == 'e' || c == 'E'
+					|| (c >= '0' && c <= '9'))
+				read();
+		}
+	}
+
+	private void expectLiteral(String literal) throws IOException {
+		for (int i = 0; i < literal.length(); i++) {
+			if (read() != literal.charAt(i))
+				throw malformed("expected " + literal);
+		}
+	}
+
+	private void expect(char expected) throws IOException {
+		if (skipWhitespace() != expected)
+			throw malformed("expected '" + expected + "'");
+		read();
+	}
+
+	private int expectEither(char first, char second) throws IOException {
+		int c = skipWhitespace();
+		if (c != first && c != second)
+			throw malformed("expected '" + first + "' or '" + second + "'");
+		return read();
+	}
+
+	private int skipWhitespace() throws IOException {
+		int c;
+		while ((c = peek()) == ' ' || c == '\t' || c == '\r' || c == '\n')
+			read();
+		return c;
+	}
+
+	private int peek() throws IOException {
+		if (position == limit && !fill())
+			return -1;
+		return buffer[position] & 0xFF;
+	}
+
+	private int read() throws IOException {
+		if (position == limit && !fill())
+			return -1;
+		int c = buffer[position++] & 0xFF;
+		if (c == '\n') {
+			line++;
+			lineStart = offset + position;
+		}
+		return c;
+	}
+
+	private boolean fill() throws IOException {
+		offset += limit;
+		position = 0;
+		// checked once for each buffer, the rest when the line ends
+		if (checkLineLength && offset - lineStart > maxLineLength) {
+			limit = 0;
+			throw lineTooLong();
+		}
+		limit = Math.max(0, in.read(buffer));
+		return limit > 0;
+	}
+
+	private MalformedJsonException lineTooLong() {
+		return malformed("line longer than " + maxLineLength + " bytes");
+	}
+
+	private MalformedJsonException tooLong() {
+		return malformed("string longer than " + MAX_STRING_LENGTH + " bytes");
+	}
+
+	private MalformedJsonException malformed(String message) {
+		return new MalformedJsonException(
+			"Malformed JSON at offset " + (offset + position) + ": " + message);
+	}
+}
@@ -0,0 +1,293 @@
+package com.examples.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+import com.examples.model.Employee;
+import com.examples.model.EmployeeBatch;
+
+/**
+ * Writes employees as JSON, producing the same output as MOXy: the
+ * "employeeId" property is written as "id" (as specified by its
+ * {@link javax.xml.bind.annotation.XmlElement} annotation) and null
+ * properties are omitted.
+ * 
+ * Fields are encoded directly as UTF-8 bytes into a buffer taken from a
+ * {@link BufferPool}, so that, apart from the writer itself, writing does not
+ * allocate. The buffer is written to the underlying stream when full and on
+ * {@link #flush()}, and given back to the pool on {@link #close()}.
+ * 
+ * Instances are not thread-safe.
+ */
+public class EmployeeJsonWriter implements Closeable {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final BufferPool BUFFERS = new BufferPool(BUFFER_SIZE);
+
+	private static final byte[] HEX = "0123456789ABCDEF".getBytes();
+
+	private static final byte[] ID = "\"id\":".getBytes();
+
+	private static final byte[] NAME = "\"name\":".getBytes();
+
+	private static final byte[] SALARY = "\"salary\":".getBytes();
+
+	private static final byte[] EMPLOYEES = "{\"employees\":".getBytes();
+
+	private static final byte[] MISSING = ",\"missing\":[".getBytes();
+
+	private static final byte[] END_OF_BATCH = "]}".getBytes();
+
+	private static final byte[] LINE = "\"line\":".getBytes();
+
+	private static final byte[] ERROR = "\"error\":".getBytes();
+
+	private static final byte[] END_OF_RESULT = "}\n".getBytes();
+
+	private final OutputStream out;
+
+	private byte[] buffer = BUFFERS.acquire();
+
+	private int position;
+
+	public EmployeeJsonWriter(OutputStream out) {
+		this.out = out;
+	}
+
+	/**
+	 * Writes a JSON object for the given employee.
+	 * 
+	 * @param employee
+	 * @throws IOException
+	 */
+	public void write(Employee employee) throws IOException {
+		writeByte('{');
+		boolean first = true;
+		if (employee.getEmployeeId() != null) {
+			writeBytes(ID);
+			writeString(employee.getEmployeeId());
+			first = false;
+		}
+		if (employee.getName() != null) {
+			if (!first)
+				writeByte(',');
+			writeBytes(NAME);
+			writeString(employee.getName());
+			first = false;
+		}
+		if (!first)
+			writeByte(',');
+		writeBytes(SALARY);
+		writeInt(employee.getSalary());
+		writeByte('}');
+	}
+
+	/**
+	 * Writes a JSON object with the array of the found employees and the
+	 * array of the missing ids, e.g., {"employees":[...],"missing":["ID9"]}.
+	 * 
+	 * @param batch
+	 * @throws IOException
+	 */
+	public void write(EmployeeBatch batch) throws IOException {
+		writeBytes(EMPLOYEES);
+		writeArray(batch.getEmployees().iterator());
+		writeBytes(MISSING);
+		boolean first = true;
+		for (String id : batch.getMissing()) {
+			if (!first)
+				writeByte(',');
+			writeString(id);
+			first = false;
+		}
+		writeBytes(END_OF_BATCH);
+	}
+
+	/**
+	 * Writes the result of a line of a bulk import, followed by a newline,
+	 * e.g., {"line":1,"id":"ID4"}.
+	 * 
+	 * @param line
+	 * @param saved
+	 * @throws IOException
+	 */
+	public void writeResult(int line, Employee saved) throws IOException {
+		writeLine(line);
+		writeBytes(ID);
+		writeString(saved.getEmployeeId());
+		writeBytes(END_OF_RESULT);
+	}
+
+	/**
+	 * Writes the error of a line of a bulk import, followed by a newline,
+	 * e.g., {"line":2,"error":"Missing values for Employee"}.
+	 * 
+	 * @param line
+	 * @param error
+	 * @throws IOException
+	 */
+	public void writeError(int line, String error) throws IOException {
+		writeLine(line);
+		writeBytes(ERROR);
+		writeString(error);
+		writeBytes(END_OF_RESULT);
+	}
+
+	private void writeLine(int line) throws IOException {
+		writeByte('{');
+		writeBytes(LINE);
+		writeInt(line);
+		writeByte(',');
+	}
+
+	/**
+	 * Writes a JSON array of the given employees.
+	 * 
+	 * @param employees
+	 * @throws IOException
+	 */
+	public void writeArray(Iterator<Employee> employees) throws IOException {
+		writeByte('[');
+		boolean first = true;
+		while (employees.hasNext()) {
+			if (!first)
+				writeByte(',');
+			write(employees.next());
+			first = false;
+		}
+		writeByte(']');
+	}
+
+	/**
+	 * Writes the buffered bytes to the underlying stream, without flushing the
+	 * stream itself.
+	 * 
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		if (position > 0) {
+			out.write(buffer, 0, position);
+			position = 0;
+		}
+	}
+
+	/**
+	 * Flushes and gives the buffer back to the pool; the writer cannot be
+	 * used anymore, and the underlying stream is not closed.
+	 * 
+	 * @throws IOException
+	 */
+	@Override
+	public void close() throws IOException {
+		if (buffer == null)
+			return;
+		try {
+			flush();
+		} finally {
+			BUFFERS.release(buffer);
+			buffer = null;
+		}
+	}
+
+	private void ensureCapacity(int length) throws IOException {
+		if (position + length > buffer.length)
+			flush();
+	}
+
+	private void writeByte(int b) throws IOException {
+		ensureCapacity(1);
+		buffer[position++] = (byte) b;
+	}
+
+	private void writeBytes(byte[] bytes) throws IOException {
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, buffer, position, bytes.length);
+		position += bytes.length;
+	}
+
+	private void writeInt(int value) throws IOException {
+		// at most 11 chars, including the sign
+		ensureCapacity(11);
+		long v = value;
+		if (v < 0) {
+			buffer[position++] = '-';
+			v = -v;
+		}
+		int digits = 1;
+		for (long n = v; n >= 10; n /= 10)
+			digits++;
+		for (int i = position + digits - 1; i >= position; i--) {
+			buffer[i] = (byte) ('0' + v % 10);
+			v /= 10;
+		}
+		position += digits;
+	}
+
+	/**
+	 * Like MOXy, escapes quotes, backslashes, control characters and
+	 * characters outside the Basic Multilingual Plane; all the other
+	 * characters are written as UTF-8.
+	 */
+	private void writeString(String s) throws IOException {
+		writeByte('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			// the longest encoding is a \\uXXXX escape
+			ensureCapacity(6);
+			if (c == '"' || c == '\\') {
+				buffer[position++] = '\\';
+				buffer[position++] = (byte) c;
+			} else if (c < 0x20) {
+				writeControl(c);
+			} else if (c < 0x80) {
+				buffer[position++] = (byte) c;
+			} else if (c < 0x800) {
+				buffer[position++] = (byte) (0xC0 | c >> 6);
+				buffer[position++] = (byte) (0x80 | c & 0x3F);
+			} else if (Character.isSurrogate(c)) {
+				writeUnicodeEscape(c);
+			} else {
+				buffer[position++] = (byte) (0xE0 | c >> 12);
+				buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+				buffer[position++] = (byte) (0x80 | c & 0x3F);
+			}
+		}
+		writeByte('"');
+	}
+
+	private void writeControl(char c) {
+		buffer[position++] = '\\';
+		switch (c) {
+		case '\b':
+			buffer[position++] = 'b';
+			break;
+		case '\f':
+			buffer[position++] = 'f';
+			break;
+		case '\n':
+			buffer[position++] = 'n';
+			break;
+		case '\r':
+			buffer[position++] = 'r';
+			break;
+		case '\t':
+			buffer[position++] = 't';
+			break;
+		default:
+			position--;
+			writeUnicodeEscape(c);
+		}
+	}
+
+	private void writeUnicodeEscape(char c) {
+		buffer[position++] = '\\';
+		buffer[position++] = 'u';
+		buffer[position++] = HEX[c >> 12 & 0xF];
+		buffer[position++] = HEX[c >> 8 & 0xF];
+		buffer[position++] = HEX[c >> 4 & 0xF];
+		buffer[position++] = HEX[c & 0xF];
+	}
+}
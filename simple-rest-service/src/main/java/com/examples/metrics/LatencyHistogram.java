@@ -0,0 +1,97 @@
+package com.examples.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies in nanoseconds, counted in log-linear buckets like an HDR
+ * histogram: each power of two is split into {@link #SUB_BUCKETS} buckets
+ * of the same width, so a latency is known within 1/16 of its value, from
+ * 1 ns to about half an hour; longer latencies are counted in the last
+ * bucket.
+ * 
+ * Recording is lock-free, an atomic increment of the bucket and an addition
+ * to the sum; reading while recording may see a latency in the buckets but
+ * not yet in the sum.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	// latencies up to 2^41 ns
+	private static final int MAX_EXPONENT = 40;
+
+	static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	private final LongAdder sum = new LongAdder();
+
+	/**
+	 * @param nanos
+	 *            negative latencies are counted as 0
+	 */
+	public void record(long nanos) {
+		long value = Math.max(nanos, 0);
+		counts.getAndIncrement(bucket(value));
+		sum.add(value);
+	}
+
+	static int bucket(long nanos) {
+		if (nanos < SUB_BUCKETS)
+			return (int) nanos;
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		if (exponent > MAX_EXPONENT)
+			return BUCKETS - 1;
+		int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * @return the greatest latency in the bucket
+	 */
+	static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long width = 1L << (exponent - SUB_BUCKET_BITS);
+		return (SUB_BUCKETS + bucket % SUB_BUCKETS + 1) * width - 1;
+	}
+
+	/**
+	 * @param bounds
+	 *            in nanoseconds, in increasing order
+	 * @return for each bound, the number of latencies in the buckets whose
+	 *         greatest latency is not above it: a latency slightly lower than
+	 *         a bound can be counted in the next one
+	 */
+	public long[] cumulativeCounts(long[] bounds) {
+		long[] cumulative = new long[bounds.length];
+		long seen = 0;
+		int next = 0;
+		for (int bucket = 0; bucket < BUCKETS && next < bounds.length; bucket++) {
+			while (next < bounds.length && upperBound(bucket) > bounds[next])
+				cumulative[next++] = seen;
+			seen += counts.get(bucket);
+		}
+		while (next < bounds.length)
+			cumulative[next++] = seen;
+		return cumulative;
+	}
+
+	public long getCount() {
+		long count = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++)
+			count += counts.get(bucket);
+		return count;
+	}
+
+	/**
+	 * @return the sum of the latencies, in nanoseconds
+	 */
+	public long getSum() {
+		return sum.sum();
+	}
+}
@@ -0,0 +1,65 @@
+package com.examples.metrics;
+
+/**
+ * Writes metrics in the Prometheus text exposition format, version 0.0.4.
+ * Label values are not escaped: they must not contain '"', '\' or newlines.
+ */
+public class PrometheusText {
+
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private final StringBuilder text = new StringBuilder(4096);
+
+	/**
+	 * Starts a metric, whose samples follow.
+	 * 
+	 * @param name
+	 * @param type
+	 *            "counter", "gauge" or "histogram"
+	 * @param help
+	 * @return this
+	 */
+	public PrometheusText metric(String name, String type, String help) {
+		text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+		return this;
+	}
+
+	/**
+	 * @param name
+	 * @param labels
+	 *            names and values, alternated
+	 * @param value
+	 * @return this
+	 */
+	public PrometheusText sample(String name, String[] labels, long value) {
+		labels(name, labels);
+		text.append(value).append('\n');
+		return this;
+	}
+
+	public PrometheusText sample(String name, String[] labels, double value) {
+		labels(name, labels);
+		text.append(value).append('\n');
+		return this;
+	}
+
+	private void labels(String name, String[] labels) {
+		text.append(name);
+		if (labels.length > 0) {
+			text.append('{');
+			for (int i = 0; i < labels.length; i += 2) {
+				if (i > 0)
+					text.append(',');
+				text.append(labels[i]).append("=\"").append(labels[i + 1]).append('"');
+			}
+			text.append('}');
+		}
+		text.append(' ');
+	}
+
+	@Override
+	public String toString() {
+		return text.toString();
+	}
+}
@@ -0,0 +1,126 @@
+package com.examples.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The latency and the status codes of the requests, by endpoint, e.g., by
+ * resource method; recording is lock-free, so that it can be done on every
+ * request.
+ */
+public class RequestMetrics {
+
+	static final String LATENCY = "http_server_requests_seconds";
+
+	static final String RESPONSES = "http_server_responses_total";
+
+	// the Prometheus buckets, in seconds, and in nanoseconds
+	private static final String[] BOUNDS = { "0.0001", "0.00025", "0.0005", "0.001",
+		"0.0025", "0.005", "0.01", "0.025", "0.05", "0.1", "0.25", "0.5", "1", "2.5", "5",
+		"10" };
+
+	private static final long[] BOUND_NANOS = new long[BOUNDS.length];
+
+	static {
+		for (int i = 0; i < BOUNDS.length; i++)
+			BOUND_NANOS[i] = (long) (Double.parseDouble(BOUNDS[i]) * 1e9);
+	}
+
+	/**
+	 * The metrics of one endpoint.
+	 */
+	public static class Endpoint {
+		private static final int STATUSES = 600;
+
+		private final LatencyHistogram latency = new LatencyHistogram();
+
+		// created on the first response with each status
+		private final AtomicReferenceArray<LongAdder> statuses =
+			new AtomicReferenceArray<>(STATUSES);
+
+		private Endpoint() {
+		}
+
+		/**
+		 * @param status
+		 *            the HTTP status code of the response
+		 * @param nanos
+		 *            the latency of the request
+		 */
+		public void record(int status, long nanos) {
+			latency.record(nanos);
+			int index = status >= 0 && status < STATUSES ? status : 0;
+			LongAdder count = statuses.get(index);
+			if (count == null) {
+				statuses.compareAndSet(index, null, new LongAdder());
+				count = statuses.get(index);
+			}
+			count.increment();
+		}
+
+		public LatencyHistogram getLatency() {
+			return latency;
+		}
+
+		/**
+		 * @param status
+		 * @return the number of responses with the status
+		 */
+		public long getCount(int status) {
+			LongAdder count = statuses.get(status);
+			return count == null ? 0 : count.sum();
+		}
+	}
+
+	private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+	/**
+	 * @param name
+	 *            e.g., "EmployeeResource.getOneEmployee"
+	 * @return the metrics of the endpoint, created the first time
+	 */
+	public Endpoint endpoint(String name) {
+		Endpoint endpoint = endpoints.get(name);
+		return endpoint != null ? endpoint : endpoints.computeIfAbsent(name, n -> new Endpoint());
+	}
+
+	/**
+	 * Writes the latency histogram and the responses of each endpoint, with
+	 * the endpoint as "method" label.
+	 * 
+	 * @param text
+	 */
+	public void write(PrometheusText text) {
+		Map<String, Endpoint> sorted = new TreeMap<>(endpoints);
+		text.metric(LATENCY, "histogram", "Latency of the requests, by resource method");
+		for (Map.Entry<String, Endpoint> entry : sorted.entrySet()) {
+			String method = entry.getKey();
+			LatencyHistogram latency = entry.getValue().latency;
+			long[] cumulative = latency.cumulativeCounts(BOUND_NANOS);
+			long count = latency.getCount();
+			for (int i = 0; i < BOUNDS.length; i++) {
+				text.sample(LATENCY + "_bucket", new String[] { "method", method, "le", BOUNDS[i] },
+					cumulative[i]);
+			}
+			text.sample(LATENCY + "_bucket", new String[] { "method", method, "le", "+Inf" },
+				count);
+			text.sample(LATENCY + "_sum", new String[] { "method", method },
+				latency.getSum() / 1e9);
+			text.sample(LATENCY + "_count", new String[] { "method", method }, count);
+		}
+		text.metric(RESPONSES, "counter", "Responses, by resource method and status code");
+		for (Map.Entry<String, Endpoint> entry : sorted.entrySet()) {
+			for (int status = 0; status < Endpoint.STATUSES; status++) {
+				long count = entry.getValue().getCount(status);
+				if (count > 0) {
+					text.sample(RESPONSES, new String[] { "method", entry.getKey(), "status",
+						Integer.toString(status) }, count);
+				}
+			}
+		}
+	}
+}
@@ -4,6 +4,7 @@ import java.util.Objects;
 
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 
 /**
  * Domain model object.
@@ -16,6 +17,7 @@ public class Employee {
 	private String employeeId;
 	private String name;
 	private int salary;
+	private long version;
 
 	public Employee() {
 
@@ -58,6 +60,21 @@ public class Employee {
 		this.salary = salary;
 	}
 
+	/**
+	 * Set by the repository each time the employee is saved; it is not part
+	 * of the XML and JSON representations, nor of equality.
+	 * 
+	 * @return
+	 */
+	@XmlTransient
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
 	@Override
 	public String toString() {
 		return "Employee [employeeId=" + employeeId +
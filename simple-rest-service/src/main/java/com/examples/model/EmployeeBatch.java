@@ -0,0 +1,64 @@
+package com.examples.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * The result of reading many employees by id at once: the found employees,
+ * and the ids of the missing ones, both in the order of the requested ids.
+ */
+@XmlRootElement
+public class EmployeeBatch {
+	private List<Employee> employees = new ArrayList<>();
+	private List<String> missing = new ArrayList<>();
+
+	public EmployeeBatch() {
+
+	}
+
+	public EmployeeBatch(List<Employee> employees, List<String> missing) {
+		this.employees = employees;
+		this.missing = missing;
+	}
+
+	public List<Employee> getEmployees() {
+		return employees;
+	}
+
+	public void setEmployees(List<Employee> employees) {
+		this.employees = employees;
+	}
+
+	public List<String> getMissing() {
+		return missing;
+	}
+
+	public void setMissing(List<String> missing) {
+		this.missing = missing;
+	}
+
+	@Override
+	public String toString() {
+		return "EmployeeBatch [employees=" + employees + ", missing=" + missing + "]";
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(employees, missing);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		EmployeeBatch other = (EmployeeBatch) obj;
+		return Objects.equals(employees, other.employees) && Objects.equals(missing, other.missing);
+	}
+}
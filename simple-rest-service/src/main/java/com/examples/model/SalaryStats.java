@@ -0,0 +1,124 @@
+package com.examples.model;
+
+import java.util.Objects;
+
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Aggregates of the salaries of all the employees.
+ * 
+ * Minimum, maximum and percentiles are null when there are no employees;
+ * percentiles can be approximated, depending on the repository.
+ */
+@XmlRootElement
+public class SalaryStats {
+	private long count;
+	private long sum;
+	private double average;
+	private Integer min;
+	private Integer max;
+	private Integer p50;
+	private Integer p90;
+	private Integer p99;
+
+	public SalaryStats() {
+
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public void setCount(long count) {
+		this.count = count;
+	}
+
+	public long getSum() {
+		return sum;
+	}
+
+	public void setSum(long sum) {
+		this.sum = sum;
+	}
+
+	public double getAverage() {
+		return average;
+	}
+
+	public void setAverage(double average) {
+		this.average = average;
+	}
+
+	public Integer getMin() {
+		return min;
+	}
+
+	public void setMin(Integer min) {
+		this.min = min;
+	}
+
+	public Integer getMax() {
+		return max;
+	}
+
+	public void setMax(Integer max) {
+		this.max = max;
+	}
+
+	public Integer getP50() {
+		return p50;
+	}
+
+	public void setP50(Integer p50) {
+		this.p50 = p50;
+	}
+
+	public Integer getP90() {
+		return p90;
+	}
+
+	public void setP90(Integer p90) {
+		this.p90 = p90;
+	}
+
+	public Integer getP99() {
+		return p99;
+	}
+
+	public void setP99(Integer p99) {
+		this.p99 = p99;
+	}
+
+	@Override
+	public String toString() {
+		return "SalaryStats [count=" + count +
+				", sum=" + sum +
+				", average=" + average +
+				", min=" + min +
+				", max=" + max +
+				", p50=" + p50 +
+				", p90=" + p90 +
+				", p99=" + p99 + "]";
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(count, sum, average, min, max, p50, p90, p99);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		SalaryStats other = (SalaryStats) obj;
+		return count == other.count && sum == other.sum
+				&& Double.compare(average, other.average) == 0
+				&& Objects.equals(min, other.min) && Objects.equals(max, other.max)
+				&& Objects.equals(p50, other.p50) && Objects.equals(p90, other.p90)
+				&& Objects.equals(p99, other.p99);
+	}
+}
@@ -0,0 +1,443 @@
+package com.examples.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import com.examples.model.Employee;
+import com.examples.model.SalaryStats;
+
+/**
+ * A thread-safe in-memory repository for employees.
+ * 
+ * Differently from {@link InMemoryEmployeeRepository}, this is backed by a
+ * {@link ConcurrentHashMap}, so reads never block and writes on different
+ * employees do not contend: callers do not need any external locking.
+ * 
+ * The ids are also kept in an ordered index, used for pagination. The index
+ * is updated inside {@link ConcurrentHashMap#compute(Object, java.util.function.BiFunction)},
+ * so that writes on the same id update the map and the index atomically;
+ * readers might see an id in the index before (or after) its employee is in
+ * the map, and simply skip it.
+ * 
+ * Likewise, a second ordered index of (salary, id) pairs, updated in the same
+ * atomic updates, serves range queries on salaries without scanning all the
+ * employees; readers skip the pairs whose employee does not have that salary
+ * (anymore). The words of the names are indexed in the same way, see
+ * {@link NameIndex}, and the salaries are also counted in a histogram, see
+ * {@link SalaryHistogram}.
+ * 
+ * Versions of employees are taken from a sequence inside the same atomic
+ * updates, while the version of the collection is incremented after them.
+ * 
+ * Subclasses are notified of each change inside its atomic update, see
+ * {@link #saved(Employee)} and {@link #deleted(String)}.
+ */
+public class ConcurrentEmployeeRepository implements EmployeeRepository {
+
+	private final ConcurrentHashMap<String, Employee> employees = new ConcurrentHashMap<>();
+
+	private final NavigableSet<String> ids = new ConcurrentSkipListSet<>();
+
+	private final NavigableSet<SalaryKey> salaries = new ConcurrentSkipListSet<>();
+
+	private final NameIndex names = new NameIndex();
+
+	private final SalaryHistogram salaryHistogram = new SalaryHistogram();
+
+	private final IdGenerator idGenerator;
+
+	// the last version given to an employee
+	private final AtomicLong versions = new AtomicLong();
+
+	private final AtomicLong version = new AtomicLong();
+
+	/**
+	 * An entry of the salary index, ordered by salary and then by id.
+	 */
+	private static final class SalaryKey implements Comparable<SalaryKey> {
+
+		private final int salary;
+
+		// null only in bounds of ranges, greater than all the ids
+		private final String id;
+
+		SalaryKey(int salary, String id) {
+			this.salary = salary;
+			this.id = id;
+		}
+
+		@Override
+		public int compareTo(SalaryKey other) {
+			int result = Integer.compare(salary, other.salary);
+			if (result != 0 || id == other.id)
+				return result;
+			if (id == null)
+				return 1;
+			if (other.id == null)
+				return -1;
+			return id.compareTo(other.id);
+		}
+	}
+
+	public ConcurrentEmployeeRepository() {
+		// initialize the "db" with some contents
+		this(Arrays.asList(
+				new Employee("ID1", "First Employee", 1000),
+				new Employee("ID2", "Second Employee", 2000),
+				new Employee("ID3", "Third Employee", 3000)),
+			new IdGenerator(0));
+	}
+
+	/**
+	 * @param initialContents
+	 *            loaded without notifying {@link #saved(Employee)}
+	 * @param idGenerator
+	 *            it is advanced past the ids of the initial contents
+	 */
+	protected ConcurrentEmployeeRepository(Collection<Employee> initialContents,
+			IdGenerator idGenerator) {
+		this.idGenerator = idGenerator;
+		initialContents.forEach(this::load);
+	}
+
+	/**
+	 * Adds or replaces an employee without notifying {@link #saved(Employee)},
+	 * e.g., when recovering the contents of the repository.
+	 * 
+	 * @param employee
+	 *            {@link Employee#getEmployeeId()} must not return null.
+	 */
+	protected void load(Employee employee) {
+		employee.setVersion(versions.incrementAndGet());
+		Employee old = employees.put(employee.getEmployeeId(), employee);
+		ids.add(employee.getEmployeeId());
+		reindex(old, employee);
+		idGenerator.advancePast(idGenerator.parse(employee.getEmployeeId()));
+	}
+
+	/**
+	 * Removes an employee without notifying {@link #deleted(String)}.
+	 * 
+	 * @param id
+	 */
+	protected void unload(String id) {
+		Employee old = employees.remove(id);
+		ids.remove(id);
+		if (old != null)
+			unindex(old);
+	}
+
+	/**
+	 * Moves the id of the employee in the salary and name indexes, from the
+	 * values of the old employee (if any) to the new ones; the new entries
+	 * are added first, so that readers never miss the employee. The salary
+	 * histogram is updated as well.
+	 */
+	private void reindex(Employee old, Employee employee) {
+		String id = employee.getEmployeeId();
+		salaries.add(new SalaryKey(employee.getSalary(), id));
+		if (old != null && old.getSalary() != employee.getSalary())
+			salaries.remove(new SalaryKey(old.getSalary(), id));
+		names.update(id, old != null ? old.getName() : null, employee.getName());
+		salaryHistogram.add(employee.getSalary());
+		if (old != null)
+			salaryHistogram.remove(old.getSalary());
+	}
+
+	private void unindex(Employee old) {
+		salaries.remove(new SalaryKey(old.getSalary(), old.getEmployeeId()));
+		names.update(old.getEmployeeId(), old.getName(), null);
+		salaryHistogram.remove(old.getSalary());
+	}
+
+	/**
+	 * Passes each employee, in the order of ids, to the given action.
+	 * 
+	 * Each employee is read under the lock of its id, so a change notified
+	 * through {@link #saved(Employee)} or {@link #deleted(String)} before this
+	 * call is seen, even if its atomic update is still completing; later
+	 * changes might be seen or not.
+	 * 
+	 * @param action
+	 */
+	protected void forEachEmployee(Consumer<Employee> action) {
+		for (String id : ids) {
+			Employee employee = employees.compute(id, (key, current) -> current);
+			if (employee != null)
+				action.accept(employee);
+		}
+	}
+
+	/**
+	 * Called inside the atomic update that saves the employee, so calls for
+	 * the same id happen in the same order as the updates; it must not block.
+	 * It is called before anything is changed, so that if it throws, e.g.,
+	 * because the employee cannot be logged, the employee is not saved.
+	 * 
+	 * @param employee
+	 */
+	protected void saved(Employee employee) {
+		// nothing to do by default
+	}
+
+	/**
+	 * Called inside the atomic update that deletes the employee, see
+	 * {@link #saved(Employee)}.
+	 * 
+	 * @param id
+	 */
+	protected void deleted(String id) {
+		// nothing to do by default
+	}
+
+	/**
+	 * Assumes that {@link Employee#getEmployeeId()} does not return null.
+	 * 
+	 * @param employee
+	 *            {@link Employee#getEmployeeId()} must not return null.
+	 */
+	private void put(Employee employee) {
+		employees.compute(employee.getEmployeeId(), (id, old) -> {
+			saved(employee);
+			ids.add(id);
+			reindex(old, employee);
+			employee.setVersion(versions.incrementAndGet());
+			return employee;
+		});
+	}
+
+	/**
+	 * Assumes that {@link Employee#getEmployeeId()} does not return null.
+	 * 
+	 * @param employee
+	 *            {@link Employee#getEmployeeId()} must not return null.
+	 * @return whether the employee was added, that is, its id was not taken
+	 */
+	private boolean putIfAbsent(Employee employee) {
+		return employees.computeIfAbsent(employee.getEmployeeId(), id -> {
+			saved(employee);
+			ids.add(id);
+			reindex(null, employee);
+			employee.setVersion(versions.incrementAndGet());
+			return employee;
+		}) == employee;
+	}
+
+	/**
+	 * The returned list is a snapshot: it is weakly consistent with respect to
+	 * concurrent modifications.
+	 */
+	@Override
+	public List<Employee> findAll() {
+		return new ArrayList<>(employees.values());
+	}
+
+	/**
+	 * Streams over the values of the map, without copying them.
+	 */
+	@Override
+	public Stream<Employee> streamAll() {
+		return employees.values().stream();
+	}
+
+	@Override
+	public Optional<Employee> findOne(String id) {
+		return Optional.ofNullable(employees.get(id));
+	}
+
+	/**
+	 * {@link ConcurrentHashMap} maintains its size with striped counters
+	 * updated on each insertion and removal, so this does not depend on the
+	 * number of employees.
+	 */
+	@Override
+	public long count() {
+		return employees.mappingCount();
+	}
+
+	/**
+	 * Walks the ordered index of ids, so the cost only depends on the size of
+	 * the page.
+	 */
+	@Override
+	public List<Employee> findPage(String afterId, int limit) {
+		NavigableSet<String> tail = afterId == null ? ids : ids.tailSet(afterId, false);
+		List<Employee> page = new ArrayList<>(Math.min(limit, 256));
+		for (String id : tail) {
+			if (page.size() == limit)
+				break;
+			Employee employee = employees.get(id);
+			if (employee != null)
+				page.add(employee);
+		}
+		return page;
+	}
+
+	/**
+	 * Walks the salary index from the lower bound, so the cost is logarithmic
+	 * in the number of employees plus linear in the number of results.
+	 */
+	@Override
+	public List<Employee> findBySalary(int minSalary, int maxSalary) {
+		List<Employee> result = new ArrayList<>();
+		if (minSalary > maxSalary)
+			return result;
+		for (SalaryKey key : salaries.subSet(
+				new SalaryKey(minSalary, ""), true, new SalaryKey(maxSalary, null), true)) {
+			Employee employee = employees.get(key.id);
+			// the employee might have been deleted or moved to another salary
+			if (employee != null && employee.getSalary() == key.salary)
+				result.add(employee);
+		}
+		return result;
+	}
+
+	/**
+	 * Looks up the query words in the {@link NameIndex}, and checks the
+	 * current name of each candidate.
+	 */
+	@Override
+	public List<Employee> searchByName(String query, int limit) {
+		List<String> words = NameIndex.words(query);
+		List<Employee> result = new ArrayList<>(Math.min(limit, 256));
+		if (words.isEmpty())
+			return result;
+		// an employee is a candidate for each of its matching words
+		Set<String> seen = new HashSet<>();
+		Iterator<String> candidates = names.candidates(words);
+		while (result.size() < limit && candidates.hasNext()) {
+			String id = candidates.next();
+			if (!seen.add(id))
+				continue;
+			Employee employee = employees.get(id);
+			if (employee != null && NameIndex.matches(employee.getName(), words))
+				result.add(employee);
+		}
+		return result;
+	}
+
+	/**
+	 * Merges the salary histogram, without reading the employees; percentiles
+	 * are approximated, see {@link SalaryHistogram}. The minimum and maximum
+	 * are exact, taken from the ends of the salary index.
+	 */
+	@Override
+	public SalaryStats salaryStats() {
+		return salaryHistogram.stats(firstSalary(salaries), firstSalary(salaries.descendingSet()));
+	}
+
+	/**
+	 * @return the salary of the first pair whose employee still has that
+	 *         salary, or null if there is none
+	 */
+	private Integer firstSalary(NavigableSet<SalaryKey> keys) {
+		for (SalaryKey key : keys) {
+			Employee employee = employees.get(key.id);
+			if (employee != null && employee.getSalary() == key.salary)
+				return key.salary;
+		}
+		return null;
+	}
+
+	/**
+	 * If the passed employee has no id, then it is generated automatically.
+	 * 
+	 * @param employee
+	 * @return the saved employee
+	 */
+	@Override
+	public Employee save(Employee employee) {
+		if (employee.getEmployeeId() == null) {
+			// a generated id can still be taken by an employee
+			// saved with an explicit id: just try the next one
+			do {
+				employee.setEmployeeId(idGenerator.nextId());
+			} while (!putIfAbsent(employee));
+		} else {
+			put(employee);
+		}
+		version.incrementAndGet();
+		return employee;
+	}
+
+	@Override
+	public Optional<Employee> replace(Employee employee) {
+		Employee replaced = employees.computeIfPresent(employee.getEmployeeId(), (id, old) -> {
+			saved(employee);
+			reindex(old, employee);
+			employee.setVersion(versions.incrementAndGet());
+			return employee;
+		});
+		if (replaced != employee)
+			return Optional.empty();
+		version.incrementAndGet();
+		return Optional.of(employee);
+	}
+
+	@Override
+	public Optional<Employee> replace(Employee employee, long expectedVersion) {
+		boolean[] replaced = new boolean[1];
+		employees.computeIfPresent(employee.getEmployeeId(), (id, old) -> {
+			if (old.getVersion() != expectedVersion)
+				return old;
+			saved(employee);
+			reindex(old, employee);
+			employee.setVersion(versions.incrementAndGet());
+			replaced[0] = true;
+			return employee;
+		});
+		if (!replaced[0])
+			return Optional.empty();
+		version.incrementAndGet();
+		return Optional.of(employee);
+	}
+
+	@Override
+	public Employee deleteById(String id) {
+		Employee[] removed = new Employee[1];
+		employees.computeIfPresent(id, (key, old) -> {
+			deleted(key);
+			ids.remove(key);
+			unindex(old);
+			removed[0] = old;
+			return null;
+		});
+		if (removed[0] != null)
+			version.incrementAndGet();
+		return removed[0];
+	}
+
+	@Override
+	public Optional<Employee> deleteById(String id, long expectedVersion) {
+		Employee[] removed = new Employee[1];
+		employees.computeIfPresent(id, (key, old) -> {
+			if (old.getVersion() != expectedVersion)
+				return old;
+			deleted(key);
+			ids.remove(key);
+			unindex(old);
+			removed[0] = old;
+			return null;
+		});
+		if (removed[0] != null)
+			version.incrementAndGet();
+		return Optional.ofNullable(removed[0]);
+	}
+
+	@Override
+	public long getVersion() {
+		return version.get();
+	}
+}
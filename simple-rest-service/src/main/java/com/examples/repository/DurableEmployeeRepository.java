@@ -0,0 +1,288 @@
+package com.examples.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.examples.model.Employee;
+
+/**
+ * A {@link ConcurrentEmployeeRepository} whose changes survive restarts:
+ * every change is appended to a {@link WriteAheadLog}, inside the same atomic
+ * update, so that changes on the same id are logged in the order they are
+ * applied; writing methods return only when their change is durable, while
+ * reads are served from memory.
+ * 
+ * Concurrent writers do not wait for one force each: the log writes the
+ * changes of all the waiting writers with a single force. A change is
+ * visible to readers as soon as it is applied, possibly before it is
+ * durable.
+ * 
+ * From time to time, and on {@link #snapshot()}, all the employees are saved
+ * in an {@link EmployeeSnapshot} and the log segments before it are deleted:
+ * when the repository is created, the employees are loaded from the latest
+ * snapshot, and only the log after it is replayed. Ids are not generated
+ * again after a restart, since the high-water marks of the
+ * {@link IdGenerator} are saved as well.
+ */
+public class DurableEmployeeRepository extends ConcurrentEmployeeRepository implements Closeable {
+
+	private static final Logger LOGGER = Logger.getLogger(DurableEmployeeRepository.class.getName());
+
+	// how long close() waits for a snapshot in progress
+	private static final long CLOSE_SECONDS = 30;
+
+	private static final String SNAPSHOT = "snapshot";
+
+	private final WriteAheadLog log;
+
+	private final IdGenerator idGenerator;
+
+	private final Path snapshotFile;
+
+	private ScheduledExecutorService snapshots;
+
+	// the version of the collection saved by the last snapshot, guarded by this
+	private long snapshotVersion = -1;
+
+	/**
+	 * Replays the records of the log on the repository.
+	 */
+	private class Recovery implements WriteAheadLog.Handler {
+
+		@Override
+		public void save(Employee employee) {
+			load(employee);
+		}
+
+		@Override
+		public void delete(String id) {
+			unload(id);
+		}
+
+		@Override
+		public void reserve(long highWaterMark) {
+			idGenerator.advancePast(highWaterMark);
+		}
+	}
+
+	/**
+	 * Snapshots are taken only with {@link #snapshot()}.
+	 * 
+	 * @param directory
+	 *            see {@link #DurableEmployeeRepository(Path, boolean, long)}
+	 * @param force
+	 *            see {@link WriteAheadLog#WriteAheadLog(Path, boolean)}
+	 * @throws IOException
+	 */
+	public DurableEmployeeRepository(Path directory, boolean force) throws IOException {
+		this(directory, force, 0);
+	}
+
+	/**
+	 * @param directory
+	 *            where the log and the snapshot are stored; if it is empty,
+	 *            the repository is initialized with some contents
+	 * @param force
+	 *            see {@link WriteAheadLog#WriteAheadLog(Path, boolean)}
+	 * @param snapshotIntervalSeconds
+	 *            how often a snapshot is taken in the background, if there
+	 *            have been changes; 0 for never
+	 * @throws IOException
+	 */
+	public DurableEmployeeRepository(Path directory, boolean force, long snapshotIntervalSeconds)
+			throws IOException {
+		this(directory, new WriteAheadLog(directory, force), snapshotIntervalSeconds);
+	}
+
+	private DurableEmployeeRepository(Path directory, WriteAheadLog log,
+			long snapshotIntervalSeconds) throws IOException {
+		this(directory, log, new IdGenerator(IdGenerator.DEFAULT_PREFIX, 0,
+			IdGenerator.DEFAULT_BLOCK_SIZE, log::appendReservation), snapshotIntervalSeconds);
+	}
+
+	private DurableEmployeeRepository(Path directory, WriteAheadLog log, IdGenerator idGenerator,
+			long snapshotIntervalSeconds) throws IOException {
+		super(Collections.emptyList(), idGenerator);
+		this.log = log;
+		this.idGenerator = idGenerator;
+		this.snapshotFile = directory.resolve(SNAPSHOT);
+		try {
+			recover();
+		} catch (IOException | RuntimeException e) {
+			log.close();
+			throw e;
+		}
+		if (snapshotIntervalSeconds > 0) {
+			snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "employee-snapshots");
+				thread.setDaemon(true);
+				return thread;
+			});
+			snapshots.scheduleWithFixedDelay(this::snapshotIfChanged,
+				snapshotIntervalSeconds, snapshotIntervalSeconds, TimeUnit.SECONDS);
+		}
+	}
+
+	private void recover() throws IOException {
+		EmployeeSnapshot snapshot = EmployeeSnapshot.read(snapshotFile, this::load);
+		long fromSegment = 0;
+		if (snapshot != null) {
+			fromSegment = snapshot.getSegment();
+			idGenerator.advancePast(snapshot.getHighWaterMark());
+		}
+		long records = log.replay(fromSegment, new Recovery());
+		// left by a crash after the last snapshot was written
+		log.deleteSegmentsBefore(fromSegment);
+		if (snapshot == null && records == 0) {
+			// initialize the "db" with some contents
+			Arrays.asList(
+					new Employee("ID1", "First Employee", 1000),
+					new Employee("ID2", "Second Employee", 2000),
+					new Employee("ID3", "Third Employee", 3000))
+				.forEach(this::save);
+		}
+	}
+
+	/**
+	 * Saves all the employees in a new snapshot, which replaces the previous
+	 * one, and deletes the log segments it makes useless; writes can go on in
+	 * the meantime.
+	 * 
+	 * @return the new snapshot
+	 * @throws IOException
+	 */
+	public synchronized EmployeeSnapshot snapshot() throws IOException {
+		long version = getVersion();
+		// the changes logged before the new segment are seen by forEachEmployee;
+		// later ones might be seen as well, and replaying them is harmless
+		long segment = log.rotate();
+		EmployeeSnapshot snapshot = EmployeeSnapshot.write(snapshotFile, segment,
+			idGenerator.getHighWaterMark(), this::forEachEmployee);
+		log.deleteSegmentsBefore(segment);
+		snapshotVersion = version;
+		return snapshot;
+	}
+
+	private synchronized void snapshotIfChanged() {
+		if (getVersion() == snapshotVersion)
+			return;
+		try {
+			snapshot();
+		} catch (IOException | RuntimeException e) {
+			LOGGER.log(Level.WARNING, "Cannot take a snapshot of the employees", e);
+		}
+	}
+
+	@Override
+	protected void saved(Employee employee) {
+		log.appendSave(employee);
+	}
+
+	@Override
+	protected void deleted(String id) {
+		log.appendDelete(id);
+	}
+
+	private void sync() {
+		try {
+			log.sync();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public Employee save(Employee employee) {
+		Employee saved = super.save(employee);
+		sync();
+		return saved;
+	}
+
+	/**
+	 * Forces the log only once, after all the employees have been saved.
+	 */
+	@Override
+	public List<Employee> saveAll(List<Employee> employees) {
+		List<Employee> saved = new ArrayList<>(employees.size());
+		for (Employee employee : employees)
+			saved.add(super.save(employee));
+		sync();
+		return saved;
+	}
+
+	@Override
+	public Optional<Employee> replace(Employee employee) {
+		Optional<Employee> replaced = super.replace(employee);
+		sync();
+		return replaced;
+	}
+
+	@Override
+	public Optional<Employee> replace(Employee employee, long version) {
+		Optional<Employee> replaced = super.replace(employee, version);
+		sync();
+		return replaced;
+	}
+
+	@Override
+	public Employee deleteById(String id) {
+		Employee deleted = super.deleteById(id);
+		sync();
+		return deleted;
+	}
+
+	@Override
+	public Optional<Employee> deleteById(String id, long version) {
+		Optional<Employee> deleted = super.deleteById(id, version);
+		sync();
+		return deleted;
+	}
+
+	/**
+	 * @return the number of times the log has been forced, see
+	 *         {@link WriteAheadLog#getSyncs()}
+	 */
+	public long getSyncs() {
+		return log.getSyncs();
+	}
+
+	/**
+	 * @return the numbers of the log segments, see
+	 *         {@link WriteAheadLog#getSegments()}
+	 */
+	public NavigableSet<Long> getLogSegments() {
+		return log.getSegments();
+	}
+
+	/**
+	 * Waits for a snapshot in progress, if any, before closing the log: the
+	 * snapshot is not interrupted, since an interrupted
+	 * {@link WriteAheadLog#rotate()} would close the channel of the log.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (snapshots != null) {
+			snapshots.shutdown();
+			try {
+				if (!snapshots.awaitTermination(CLOSE_SECONDS, TimeUnit.SECONDS))
+					LOGGER.warning("Snapshot still running after " + CLOSE_SECONDS + "s");
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		log.close();
+	}
+}
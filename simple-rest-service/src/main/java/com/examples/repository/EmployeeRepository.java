@@ -1,17 +1,159 @@
 package com.examples.repository;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.examples.model.Employee;
+import com.examples.model.SalaryStats;
 
 public interface EmployeeRepository {
 
 	List<Employee> findAll();
 
+	/**
+	 * Differently from {@link #findAll()}, the employees do not need to be
+	 * copied in a new collection, depending on the implementation.
+	 * 
+	 * @return a stream of all the employees, weakly consistent with respect
+	 *         to concurrent modifications
+	 */
+	Stream<Employee> streamAll();
+
 	Optional<Employee> findOne(String id);
 
+	/**
+	 * Like {@link #findOne(String)} for each id, but implementations can pay
+	 * only once for the costs of a read, e.g., taking a lock.
+	 * 
+	 * @param ids
+	 * @return the found employees, by id: the ids of missing employees are
+	 *         not in the map
+	 */
+	default Map<String, Employee> findByIds(Collection<String> ids) {
+		Map<String, Employee> found = new HashMap<>();
+		for (String id : ids)
+			findOne(id).ifPresent(employee -> found.put(id, employee));
+		return found;
+	}
+
+	/**
+	 * @return the number of employees, without scanning or copying them
+	 */
+	long count();
+
+	/**
+	 * Employees are ordered by id.
+	 * 
+	 * @param afterId
+	 *            the returned employees have an id greater than this one; if
+	 *            null, the page starts from the first employee
+	 * @param limit
+	 *            the maximum number of returned employees
+	 * @return a page of employees
+	 */
+	List<Employee> findPage(String afterId, int limit);
+
+	/**
+	 * Employees are ordered by salary, then by id.
+	 * 
+	 * @param minSalary
+	 *            inclusive
+	 * @param maxSalary
+	 *            inclusive
+	 * @return the employees with a salary in the given range
+	 */
+	List<Employee> findBySalary(int minSalary, int maxSalary);
+
+	/**
+	 * A name matches the query if each word of the query is the prefix of a
+	 * word of the name, ignoring case; the order of the matches depends on
+	 * the implementation.
+	 * 
+	 * @param query
+	 * @param limit
+	 *            the maximum number of returned employees
+	 * @return employees whose name matches the query, none if the query has
+	 *         no words
+	 */
+	List<Employee> searchByName(String query, int limit);
+
+	/**
+	 * @return the aggregates of the salaries of all the employees
+	 */
+	SalaryStats salaryStats();
+
+	/**
+	 * The version of the collection changes after every save or delete, once
+	 * the change is visible to readers: if it is read before the employees,
+	 * it never accounts for changes they do not show.
+	 * 
+	 * @return the current version of the collection
+	 */
+	long getVersion();
+
+	/**
+	 * Also sets a new {@link Employee#getVersion()}.
+	 * 
+	 * @param employee
+	 * @return the saved employee
+	 */
 	Employee save(Employee employee);
 
+	/**
+	 * Saves the employees in order, like {@link #save(Employee)} does;
+	 * implementations can pay only once per batch for the costs of a save,
+	 * e.g., taking a lock or forcing a log.
+	 * 
+	 * @param employees
+	 * @return the saved employees, in the same order
+	 */
+	default List<Employee> saveAll(List<Employee> employees) {
+		return employees.stream()
+			.map(this::save)
+			.collect(Collectors.toList());
+	}
+
+	/**
+	 * Atomically replaces the employee with the same id, only if it exists:
+	 * differently from {@link #save(Employee)}, an employee deleted in the
+	 * meantime is not added back.
+	 * 
+	 * @param employee
+	 *            {@link Employee#getEmployeeId()} must not return null.
+	 * @return the saved employee, or empty if there is no employee with that
+	 *         id
+	 */
+	Optional<Employee> replace(Employee employee);
+
+	/**
+	 * Atomically replaces the employee with the same id, only if it is still
+	 * at the given version.
+	 * 
+	 * @param employee
+	 *            {@link Employee#getEmployeeId()} must not return null.
+	 * @param version
+	 *            the expected {@link Employee#getVersion()} of the replaced
+	 *            employee
+	 * @return the saved employee, or empty if there is no employee with that
+	 *         id or it is at another version
+	 */
+	Optional<Employee> replace(Employee employee, long version);
+
 	Employee deleteById(String id);
+
+	/**
+	 * Atomically deletes the employee, only if it is still at the given
+	 * version.
+	 * 
+	 * @param id
+	 * @param version
+	 * @return the deleted employee, or empty if there is no employee with
+	 *         that id or it is at another version
+	 */
+	Optional<Employee> deleteById(String id, long version);
 }
\ No newline at end of file
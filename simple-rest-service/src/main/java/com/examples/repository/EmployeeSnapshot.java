@@ -0,0 +1,226 @@
+package com.examples.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+import com.examples.model.Employee;
+
+/**
+ * A snapshot of all the employees in a file, written and read through
+ * memory-mapped regions, so that neither writing nor reading copies the
+ * contents through intermediate buffers.
+ * 
+ * The file starts with a header: a magic number, the number of the
+ * {@link WriteAheadLog} segment to replay on top of the snapshot, the
+ * high-water mark of the {@link IdGenerator} and the number of employees.
+ * Then, for each employee, the length of its record, its id and its name as
+ * a length (-1 for null) followed by UTF-8 bytes, and its salary.
+ * 
+ * A snapshot is written to a temporary file, which then atomically replaces
+ * the previous snapshot: a crash while writing leaves the previous one.
+ */
+public class EmployeeSnapshot {
+
+	private static final int MAGIC = 0x454d5031; // "EMP1"
+
+	private static final int HEADER_LENGTH = 4 + 8 + 8 + 8;
+
+	// the size of each mapped region
+	private static final int REGION = 64 * 1024 * 1024;
+
+	private final long segment;
+
+	private final long highWaterMark;
+
+	private final long count;
+
+	private EmployeeSnapshot(long segment, long highWaterMark, long count) {
+		this.segment = segment;
+		this.highWaterMark = highWaterMark;
+		this.count = count;
+	}
+
+	/**
+	 * @return the first segment of the log that is not part of the snapshot
+	 */
+	public long getSegment() {
+		return segment;
+	}
+
+	public long getHighWaterMark() {
+		return highWaterMark;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Maps consecutive regions of a file, each starting where the previous one
+	 * has been used up to, so that a record is never split between regions.
+	 */
+	private static class Regions {
+
+		private final FileChannel channel;
+
+		private final MapMode mode;
+
+		private final long limit;
+
+		private long start;
+
+		private MappedByteBuffer buffer;
+
+		Regions(FileChannel channel, MapMode mode, long limit) {
+			this.channel = channel;
+			this.mode = mode;
+			this.limit = limit;
+		}
+
+		ByteBuffer ensure(int length) throws IOException {
+			if (buffer != null && buffer.remaining() >= length)
+				return buffer;
+			long position = position();
+			long size = Math.max(length, REGION);
+			if (mode == MapMode.READ_ONLY) {
+				if (position + length > limit)
+					throw new IOException("Truncated snapshot at " + position);
+				size = Math.min(size, limit - position);
+			}
+			force();
+			start = position;
+			buffer = channel.map(mode, start, size);
+			return buffer;
+		}
+
+		long position() {
+			return buffer == null ? start : start + buffer.position();
+		}
+
+		void force() {
+			if (buffer != null && mode == MapMode.READ_WRITE)
+				buffer.force();
+		}
+	}
+
+	/**
+	 * Writes the snapshot to a temporary file, then renames it to the given
+	 * one: both the file and its directory entry are forced before returning.
+	 * 
+	 * @param file
+	 * @param segment
+	 *            the first segment of the log that is not part of the
+	 *            snapshot
+	 * @param highWaterMark
+	 * @param employees
+	 *            passes each employee to save to the given consumer
+	 * @return the written snapshot
+	 * @throws IOException
+	 */
+	public static EmployeeSnapshot write(Path file, long segment, long highWaterMark,
+			Consumer<Consumer<Employee>> employees) throws IOException {
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		long[] count = { 0 };
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			Regions regions = new Regions(channel, MapMode.READ_WRITE, Long.MAX_VALUE);
+			regions.ensure(HEADER_LENGTH).position(HEADER_LENGTH);
+			try {
+				employees.accept(employee -> {
+					write(employee, regions);
+					count[0]++;
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			long size = regions.position();
+			regions.force();
+			channel.truncate(size);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+			header.putInt(MAGIC).putLong(segment).putLong(highWaterMark).putLong(count[0]).flip();
+			while (header.hasRemaining())
+				channel.write(header, header.position());
+			channel.force(true);
+		}
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+			StandardCopyOption.ATOMIC_MOVE);
+		// the rename must be durable before the caller deletes the log
+		// segments that the previous snapshot needs
+		WriteAheadLog.forceDirectory(file.toAbsolutePath().getParent());
+		return new EmployeeSnapshot(segment, highWaterMark, count[0]);
+	}
+
+	private static void write(Employee employee, Regions regions) {
+		byte[] id = employee.getEmployeeId().getBytes(StandardCharsets.UTF_8);
+		byte[] name = employee.getName() == null ? null
+			: employee.getName().getBytes(StandardCharsets.UTF_8);
+		int length = 4 + id.length + 4 + (name == null ? 0 : name.length) + 4;
+		ByteBuffer buffer;
+		try {
+			buffer = regions.ensure(4 + length);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		buffer.putInt(length);
+		buffer.putInt(id.length).put(id);
+		if (name == null) {
+			buffer.putInt(-1);
+		} else {
+			buffer.putInt(name.length).put(name);
+		}
+		buffer.putInt(employee.getSalary());
+	}
+
+	/**
+	 * @param file
+	 * @param consumer
+	 *            receives each employee of the snapshot
+	 * @return the snapshot, or null if the file does not exist
+	 * @throws IOException
+	 */
+	public static EmployeeSnapshot read(Path file, Consumer<Employee> consumer)
+			throws IOException {
+		if (!Files.exists(file))
+			return null;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			Regions regions = new Regions(channel, MapMode.READ_ONLY, channel.size());
+			ByteBuffer buffer = regions.ensure(HEADER_LENGTH);
+			if (buffer.getInt() != MAGIC)
+				throw new IOException("Not a snapshot: " + file);
+			EmployeeSnapshot snapshot =
+				new EmployeeSnapshot(buffer.getLong(), buffer.getLong(), buffer.getLong());
+			// reused for decoding strings
+			byte[][] scratch = { new byte[64] };
+			for (long i = 0; i < snapshot.count; i++) {
+				buffer = regions.ensure(4);
+				buffer = regions.ensure(4 + buffer.getInt(buffer.position()));
+				buffer.getInt();
+				String id = readString(buffer, scratch);
+				String name = readString(buffer, scratch);
+				consumer.accept(new Employee(id, name, buffer.getInt()));
+			}
+			return snapshot;
+		}
+	}
+
+	private static String readString(ByteBuffer buffer, byte[][] scratch) {
+		int length = buffer.getInt();
+		if (length < 0)
+			return null;
+		if (scratch[0].length < length)
+			scratch[0] = new byte[Math.max(length, scratch[0].length * 2)];
+		buffer.get(scratch[0], 0, length);
+		return new String(scratch[0], 0, length, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,150 @@
+package com.examples.repository;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongConsumer;
+
+/**
+ * Generates ids of the shape prefix + number, e.g., "ID42".
+ * 
+ * Numbers are reserved from a shared {@link AtomicLong} in blocks, which are
+ * handed out from a fixed number of stripes: each thread takes its numbers
+ * from the block of the stripe its id maps to, with a compare-and-set, so the
+ * shared counter is touched only once per block, and concurrent callers
+ * neither block nor contend much. Blocks do not belong to threads: when each
+ * request runs on a new (virtual) thread, the threads still share the blocks
+ * of the stripes, instead of reserving a new block for each id. Generated
+ * numbers are unique and increasing within each thread, and blocks are
+ * reserved in increasing order.
+ * 
+ * A persistent repository can pass a listener that records each new
+ * high-water mark before the numbers of the block are handed out, and create
+ * the generator with the recorded mark after a restart (the "hi/lo" scheme):
+ * numbers generated before the restart are then never generated again.
+ */
+public class IdGenerator {
+
+	public static final String DEFAULT_PREFIX = "ID";
+
+	public static final int DEFAULT_BLOCK_SIZE = 32;
+
+	// a power of two, so that a thread id is mapped to a stripe with a mask
+	static final int STRIPES =
+		Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+
+	/**
+	 * The numbers in [next, last] can be generated from a stripe; replaced
+	 * as a whole on each generation.
+	 */
+	private static final class Block {
+		private final long next;
+		private final long last;
+
+		Block(long next, long last) {
+			this.next = next;
+			this.last = last;
+		}
+	}
+
+	private static final Block EMPTY = new Block(1, 0);
+
+	private final String prefix;
+
+	private final int blockSize;
+
+	private final AtomicLong highWaterMark;
+
+	private final LongConsumer reservationListener;
+
+	private final AtomicReferenceArray<Block> blocks = new AtomicReferenceArray<>(STRIPES);
+
+	/**
+	 * @param lastUsed
+	 *            numbers up to this one will never be generated
+	 */
+	public IdGenerator(long lastUsed) {
+		this(DEFAULT_PREFIX, lastUsed, DEFAULT_BLOCK_SIZE, highWaterMark -> {});
+	}
+
+	/**
+	 * @param prefix
+	 * @param lastUsed
+	 *            numbers up to this one will never be generated
+	 * @param blockSize
+	 *            how many numbers a stripe reserves at once
+	 * @param reservationListener
+	 *            called with the new high-water mark each time a block is
+	 *            reserved, before any of its numbers is generated
+	 */
+	public IdGenerator(String prefix, long lastUsed, int blockSize,
+			LongConsumer reservationListener) {
+		if (blockSize < 1)
+			throw new IllegalArgumentException("Invalid block size: " + blockSize);
+		this.prefix = prefix;
+		this.blockSize = blockSize;
+		this.highWaterMark = new AtomicLong(lastUsed);
+		this.reservationListener = reservationListener;
+		for (int i = 0; i < STRIPES; i++)
+			blocks.set(i, EMPTY);
+	}
+
+	public String nextId() {
+		return prefix + nextNumber();
+	}
+
+	public long nextNumber() {
+		long thread = Thread.currentThread().getId();
+		int stripe = (int) (thread ^ (thread >>> 32)) & (STRIPES - 1);
+		while (true) {
+			Block block = blocks.get(stripe);
+			if (block.next <= block.last) {
+				if (blocks.compareAndSet(stripe, block, new Block(block.next + 1, block.last)))
+					return block.next;
+				continue;
+			}
+			long last = highWaterMark.addAndGet(blockSize);
+			reservationListener.accept(last);
+			long first = last - blockSize + 1;
+			// replaces only older blocks, so that the following numbers of the
+			// stripe are greater; if a newer block has been installed in the
+			// meantime, the rest of this one is never used
+			Block refilled = new Block(first + 1, last);
+			while (block.last < last && !blocks.compareAndSet(stripe, block, refilled))
+				block = blocks.get(stripe);
+			return first;
+		}
+	}
+
+	/**
+	 * @return the highest number reserved so far
+	 */
+	public long getHighWaterMark() {
+		return highWaterMark.get();
+	}
+
+	/**
+	 * Makes sure that numbers up to the given one are not reserved anymore,
+	 * e.g., after loading existing employees; blocks already reserved by
+	 * stripes are not affected.
+	 * 
+	 * @param number
+	 */
+	public void advancePast(long number) {
+		highWaterMark.accumulateAndGet(number, Math::max);
+	}
+
+	/**
+	 * @param id
+	 * @return the number of an id with this generator's prefix, or -1 if the
+	 *         id does not have such a shape.
+	 */
+	public long parse(String id) {
+		if (id == null || !id.startsWith(prefix) || id.length() == prefix.length())
+			return -1;
+		try {
+			return Math.max(-1, Long.parseLong(id.substring(prefix.length())));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+}
@@ -1,23 +1,39 @@
 package com.examples.repository;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 
 import com.examples.model.Employee;
+import com.examples.model.SalaryStats;
 
 /**
  * An example repository implementation for employees.
  * 
  * In a real application this should be handled by a database.
+ * 
+ * The injected {@link Map} is not required to be thread-safe, so every
+ * operation is synchronized: see {@link ConcurrentEmployeeRepository} for an
+ * implementation that does not serialize concurrent requests.
  */
 public class InMemoryEmployeeRepository implements EmployeeRepository {
 
 	private Map<String, Employee> employees;
 
+	private IdGenerator idGenerator = new IdGenerator(0);
+
+	// the last version given to an employee
+	private long versions;
+
+	private long version;
+
 	@Inject
 	public InMemoryEmployeeRepository(Map<String, Employee> employees) {
 		this.employees = employees;
@@ -25,6 +41,8 @@ public class InMemoryEmployeeRepository implements EmployeeRepository {
 		put(new Employee("ID1", "First Employee", 1000));
 		put(new Employee("ID2", "Second Employee", 2000));
 		put(new Employee("ID3", "Third Employee", 3000));
+		employees.keySet()
+			.forEach(id -> idGenerator.advancePast(idGenerator.parse(id)));
 	}
 
 	/**
@@ -34,38 +52,167 @@ public class InMemoryEmployeeRepository implements EmployeeRepository {
 	 *            {@link Employee#getEmployeeId()} must not return null.
 	 */
 	private void put(Employee employee) {
+		employee.setVersion(++versions);
 		employees.put(employee.getEmployeeId(), employee);
 	}
 
 	@Override
-	public List<Employee> findAll() {
+	public synchronized List<Employee> findAll() {
 		return new ArrayList<>(employees.values());
 	}
 
+	/**
+	 * The injected {@link Map} cannot be iterated outside the lock, so this
+	 * streams over a copy.
+	 */
 	@Override
-	public Optional<Employee> findOne(String id) {
+	public Stream<Employee> streamAll() {
+		return findAll().stream();
+	}
+
+	@Override
+	public synchronized Optional<Employee> findOne(String id) {
 		return Optional.ofNullable(employees.get(id));
 	}
 
+	/**
+	 * Takes the lock only once.
+	 */
+	@Override
+	public synchronized Map<String, Employee> findByIds(Collection<String> ids) {
+		return EmployeeRepository.super.findByIds(ids);
+	}
+
+	@Override
+	public synchronized long count() {
+		return employees.size();
+	}
+
+	/**
+	 * The ids are sorted at each call, since the injected {@link Map} is not
+	 * required to keep them ordered.
+	 */
+	@Override
+	public synchronized List<Employee> findPage(String afterId, int limit) {
+		return employees.keySet().stream()
+			.filter(id -> afterId == null || id.compareTo(afterId) > 0)
+			.sorted()
+			.limit(limit)
+			.map(employees::get)
+			.collect(Collectors.toList());
+	}
+
+	/**
+	 * Scans all the employees, since the injected {@link Map} is not indexed
+	 * by salary.
+	 */
+	@Override
+	public synchronized List<Employee> findBySalary(int minSalary, int maxSalary) {
+		return employees.values().stream()
+			.filter(e -> e.getSalary() >= minSalary && e.getSalary() <= maxSalary)
+			.sorted(Comparator.comparingInt(Employee::getSalary)
+				.thenComparing(Employee::getEmployeeId))
+			.collect(Collectors.toList());
+	}
+
+	/**
+	 * Scans all the employees, in the order of ids.
+	 */
+	@Override
+	public synchronized List<Employee> searchByName(String query, int limit) {
+		List<String> words = NameIndex.words(query);
+		if (words.isEmpty())
+			return new ArrayList<>();
+		return employees.values().stream()
+			.filter(e -> NameIndex.matches(e.getName(), words))
+			.sorted(Comparator.comparing(Employee::getEmployeeId))
+			.limit(limit)
+			.collect(Collectors.toList());
+	}
+
+	/**
+	 * Sorts a copy of the salaries, so percentiles are exact.
+	 */
+	@Override
+	public SalaryStats salaryStats() {
+		int[] salaries;
+		synchronized (this) {
+			salaries = employees.values().stream()
+				.mapToInt(Employee::getSalary)
+				.toArray();
+		}
+		return SalaryHistogram.exactStats(salaries);
+	}
+
 	/**
 	 * If the passed employee has no id, then it is generated automatically.
 	 * 
 	 * @param employee
 	 * @return the saved employee
 	 */
-	public Employee save(Employee employee) {
+	@Override
+	public synchronized Employee save(Employee employee) {
 		if (employee.getEmployeeId() == null) {
-			// dumb way of generating an automatic ID
-			employee.setEmployeeId("ID" + (employees.size() + 1));
+			// skip generated ids already taken by employees
+			// saved with an explicit id
+			String id;
+			do {
+				id = idGenerator.nextId();
+			} while (employees.containsKey(id));
+			employee.setEmployeeId(id);
 		}
 		// Map.put adds a new element or replace an existing one
 		// with the given key
 		put(employee);
+		version++;
 		return employee;
 	}
 
+	/**
+	 * Takes the lock only once.
+	 */
+	@Override
+	public synchronized List<Employee> saveAll(List<Employee> employees) {
+		return EmployeeRepository.super.saveAll(employees);
+	}
+
+	@Override
+	public synchronized Optional<Employee> replace(Employee employee) {
+		if (!employees.containsKey(employee.getEmployeeId()))
+			return Optional.empty();
+		put(employee);
+		version++;
+		return Optional.of(employee);
+	}
+
+	@Override
+	public synchronized Optional<Employee> replace(Employee employee, long expectedVersion) {
+		Employee old = employees.get(employee.getEmployeeId());
+		if (old == null || old.getVersion() != expectedVersion)
+			return Optional.empty();
+		put(employee);
+		version++;
+		return Optional.of(employee);
+	}
+
+	@Override
+	public synchronized Employee deleteById(String id) {
+		Employee removed = employees.remove(id);
+		if (removed != null)
+			version++;
+		return removed;
+	}
+
+	@Override
+	public synchronized Optional<Employee> deleteById(String id, long expectedVersion) {
+		Employee old = employees.get(id);
+		if (old == null || old.getVersion() != expectedVersion)
+			return Optional.empty();
+		return Optional.of(deleteById(id));
+	}
+
 	@Override
-	public Employee deleteById(String id) {
-		return employees.remove(id);
+	public synchronized long getVersion() {
+		return version;
 	}
 }
\ No newline at end of file
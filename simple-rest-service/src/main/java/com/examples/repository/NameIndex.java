@@ -0,0 +1,231 @@
+package com.examples.repository;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * An ordered index of the words of the names of employees, for type-ahead
+ * searches: a query matches a name if each of its words is the prefix of a
+ * word of the name, ignoring case, e.g., "fir emp" matches "First Employee".
+ * 
+ * Each word of a name is kept with the id of the employee, so the ids whose
+ * name has a word starting with a given prefix are a contiguous range of the
+ * index: they are found in logarithmic time, and only the first ones that
+ * are needed are examined. Each entry also refers to the whole name, so that
+ * the other words of the query are checked without looking up the employee.
+ * 
+ * The index is safe for concurrent use, but it is not updated atomically
+ * with the employees: callers must check the current name of the candidates
+ * with {@link #matches(String, List)}.
+ */
+class NameIndex {
+
+	// the maximum number of entries examined by a search: this bounds its
+	// latency, but a query whose words are all very common might miss some
+	// matches
+	static final int MAX_CANDIDATES = 10_000;
+
+	// when choosing the word to look up, the entries of each word are
+	// counted up to this number
+	private static final int MAX_COUNT = 256;
+
+	// the names of the entries
+	private final ConcurrentNavigableMap<Key, String> entries = new ConcurrentSkipListMap<>();
+
+	/**
+	 * An entry of the index, ordered by word and then by id.
+	 */
+	private static final class Key implements Comparable<Key> {
+
+		private final String word;
+
+		private final String id;
+
+		Key(String word, String id) {
+			this.word = word;
+			this.id = id;
+		}
+
+		@Override
+		public int compareTo(Key other) {
+			int result = word.compareTo(other.word);
+			return result != 0 ? result : id.compareTo(other.id);
+		}
+	}
+
+	/**
+	 * Words are made of letters and digits.
+	 * 
+	 * @param text
+	 * @return the lower case words of the text, possibly empty
+	 */
+	static List<String> words(String text) {
+		List<String> words = new ArrayList<>(4);
+		if (text == null)
+			return words;
+		String lowerCase = text.toLowerCase(Locale.ROOT);
+		int start = -1;
+		for (int i = 0; i <= lowerCase.length(); i++) {
+			boolean inWord = i < lowerCase.length() && Character.isLetterOrDigit(lowerCase.charAt(i));
+			if (inWord && start < 0) {
+				start = i;
+			} else if (!inWord && start >= 0) {
+				words.add(lowerCase.substring(start, i));
+				start = -1;
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Called for each candidate of a search, so it neither splits nor copies
+	 * the name.
+	 * 
+	 * @param name
+	 * @param queryWords
+	 *            as returned by {@link #words(String)}
+	 * @return whether each of the query words is the prefix of a word of the
+	 *         name
+	 */
+	static boolean matches(String name, List<String> queryWords) {
+		if (name == null)
+			return false;
+		for (String prefix : queryWords) {
+			if (!startsWord(name, prefix))
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean startsWord(String name, String prefix) {
+		for (int i = 0; i + prefix.length() <= name.length(); i++) {
+			if ((i == 0 || !Character.isLetterOrDigit(name.charAt(i - 1)))
+					&& name.regionMatches(true, i, prefix, 0, prefix.length()))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Moves the id from the words of the old name to the words of the new
+	 * one; the new words are added first, so that concurrent searches never
+	 * miss the employee.
+	 * 
+	 * @param id
+	 * @param oldName
+	 *            null if there was no employee with this id
+	 * @param newName
+	 *            null if the employee has been removed
+	 */
+	void update(String id, String oldName, String newName) {
+		List<String> newWords = words(newName);
+		for (String word : newWords)
+			entries.put(new Key(word, id), newName);
+		for (String word : words(oldName)) {
+			if (!newWords.contains(word))
+				entries.remove(new Key(word, id));
+		}
+	}
+
+	/**
+	 * @param queryWords
+	 *            as returned by {@link #words(String)}, not empty
+	 * @return the ids of the employees whose indexed name matches, each
+	 *         possibly more than once, among at most {@link #MAX_CANDIDATES}
+	 *         entries
+	 */
+	Iterator<String> candidates(List<String> queryWords) {
+		// the word with the fewest entries, or the longest one if they all
+		// have many entries
+		String lookup = queryWords.get(0);
+		if (queryWords.size() > 1) {
+			int fewest = MAX_COUNT;
+			for (String word : queryWords) {
+				int count = count(word, fewest);
+				if (count < fewest || count == MAX_COUNT && word.length() > lookup.length()) {
+					fewest = count;
+					lookup = word;
+				}
+			}
+		}
+		Iterator<Map.Entry<Key, String>> range = range(lookup);
+		return new Iterator<String>() {
+
+			private int examined;
+
+			private String next = advance();
+
+			private String advance() {
+				while (examined < MAX_CANDIDATES && range.hasNext()) {
+					examined++;
+					Map.Entry<Key, String> entry = range.next();
+					if (matches(entry.getValue(), queryWords))
+						return entry.getKey().id;
+				}
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public String next() {
+				if (next == null)
+					throw new NoSuchElementException();
+				String result = next;
+				next = advance();
+				return result;
+			}
+		};
+	}
+
+	private int count(String prefix, int max) {
+		int count = 0;
+		for (Iterator<?> range = range(prefix); count < max && range.hasNext(); range.next())
+			count++;
+		return count;
+	}
+
+	/**
+	 * @return the entries whose word starts with the prefix
+	 */
+	private Iterator<Map.Entry<Key, String>> range(String prefix) {
+		Iterator<Map.Entry<Key, String>> tail =
+			entries.tailMap(new Key(prefix, ""), true).entrySet().iterator();
+		return new Iterator<Map.Entry<Key, String>>() {
+
+			private Map.Entry<Key, String> next = advance();
+
+			private Map.Entry<Key, String> advance() {
+				if (tail.hasNext()) {
+					Map.Entry<Key, String> entry = tail.next();
+					if (entry.getKey().word.startsWith(prefix))
+						return entry;
+				}
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public Map.Entry<Key, String> next() {
+				if (next == null)
+					throw new NoSuchElementException();
+				Map.Entry<Key, String> result = next;
+				next = advance();
+				return result;
+			}
+		};
+	}
+}
@@ -0,0 +1,96 @@
+package com.examples.repository;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Variable-length byte strings, e.g., UTF-8 encoded names, appended one
+ * after the other in direct buffers outside of the heap.
+ * 
+ * A string is identified by the address returned by {@link #append(byte[])}
+ * and by its length; it never spans two chunks, so it is at most
+ * {@link #CHUNK_BYTES} long. Strings are never removed: the space of the
+ * strings that are not used anymore is only reclaimed by copying the others
+ * into a new arena. It is not thread-safe.
+ */
+class OffHeapArena {
+
+	static final int CHUNK_BYTES = 1 << 22;
+
+	private final List<ByteBuffer> chunks = new ArrayList<>();
+
+	// where the next string is appended
+	private long end;
+
+	/**
+	 * @param bytes
+	 * @return the address of the appended bytes
+	 */
+	long append(byte[] bytes) {
+		checkLength(bytes);
+		int offset = (int) (end % CHUNK_BYTES);
+		if (chunks.isEmpty() || offset + bytes.length > CHUNK_BYTES) {
+			chunks.add(ByteBuffer.allocateDirect(CHUNK_BYTES));
+			end = (long) (chunks.size() - 1) * CHUNK_BYTES;
+			offset = 0;
+		}
+		ByteBuffer chunk = chunks.get(chunks.size() - 1).duplicate();
+		chunk.position(offset);
+		chunk.put(bytes);
+		long address = end;
+		end += bytes.length;
+		return address;
+	}
+
+	/**
+	 * Lets callers reject a string before changing anything else, rather
+	 * than when appending it.
+	 * 
+	 * @param bytes
+	 * @throws IllegalArgumentException
+	 *             if the string is longer than {@link #CHUNK_BYTES}
+	 */
+	static void checkLength(byte[] bytes) {
+		if (bytes.length > CHUNK_BYTES)
+			throw new IllegalArgumentException("String too long: " + bytes.length + " bytes");
+	}
+
+	byte[] read(long address, int length) {
+		ByteBuffer chunk = chunks.get((int) (address / CHUNK_BYTES)).duplicate();
+		chunk.position((int) (address % CHUNK_BYTES));
+		byte[] bytes = new byte[length];
+		chunk.get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Compares without copying the stored bytes.
+	 */
+	boolean equals(long address, int length, byte[] bytes) {
+		if (length != bytes.length)
+			return false;
+		ByteBuffer chunk = chunks.get((int) (address / CHUNK_BYTES));
+		int offset = (int) (address % CHUNK_BYTES);
+		for (int i = 0; i < length; i++) {
+			if (chunk.get(offset + i) != bytes[i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the off-heap memory of the arena, in bytes
+	 */
+	long bytes() {
+		return (long) chunks.size() * CHUNK_BYTES;
+	}
+
+	/**
+	 * @return the number of bytes appended so far, including the unused
+	 *         space at the end of each chunk
+	 */
+	long size() {
+		return end;
+	}
+}
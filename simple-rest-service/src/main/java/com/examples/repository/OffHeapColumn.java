@@ -0,0 +1,70 @@
+package com.examples.repository;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A column of fixed-width values, indexed by slot, stored outside of the
+ * heap in direct buffers: the values are not objects, so the garbage
+ * collector neither scans nor moves them.
+ * 
+ * The column grows by chunks of {@link #CHUNK_SLOTS} slots, so it is never
+ * copied. It is not thread-safe.
+ */
+class OffHeapColumn {
+
+	static final int CHUNK_SLOTS = 1 << 16;
+
+	private final int width;
+
+	private final List<ByteBuffer> chunks = new ArrayList<>();
+
+	/**
+	 * @param width
+	 *            the number of bytes of each value
+	 */
+	OffHeapColumn(int width) {
+		this.width = width;
+	}
+
+	/**
+	 * @return the position of the value of the slot in its chunk
+	 */
+	private int position(int slot, int offset) {
+		return (slot & (CHUNK_SLOTS - 1)) * width + offset;
+	}
+
+	private ByteBuffer chunk(int slot) {
+		int chunk = slot >>> 16;
+		while (chunk >= chunks.size()) {
+			chunks.add(ByteBuffer.allocateDirect(CHUNK_SLOTS * width)
+				.order(ByteOrder.nativeOrder()));
+		}
+		return chunks.get(chunk);
+	}
+
+	int getInt(int slot, int offset) {
+		return chunk(slot).getInt(position(slot, offset));
+	}
+
+	void putInt(int slot, int offset, int value) {
+		chunk(slot).putInt(position(slot, offset), value);
+	}
+
+	long getLong(int slot, int offset) {
+		return chunk(slot).getLong(position(slot, offset));
+	}
+
+	void putLong(int slot, int offset, long value) {
+		chunk(slot).putLong(position(slot, offset), value);
+	}
+
+	/**
+	 * @return the off-heap memory of the column, in bytes
+	 */
+	long bytes() {
+		return (long) chunks.size() * CHUNK_SLOTS * width;
+	}
+}
@@ -0,0 +1,619 @@
+package com.examples.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.examples.events.LockWaitEvent;
+import com.examples.model.Employee;
+import com.examples.model.SalaryStats;
+
+/**
+ * A repository that keeps employees outside of the heap, in columns: with
+ * millions of employees, the heap holds no object for each of them, so the
+ * garbage collector has nothing to scan or move, and there are no object
+ * headers or UTF-16 strings.
+ * 
+ * Each employee has a slot in the {@link OffHeapColumn}s of the fixed-width
+ * fields (salary, version, and address and length of id and name), while
+ * ids and names are UTF-8 encoded in an {@link OffHeapArena}. An off-heap
+ * hash table, with open addressing and linear probing, maps the hash of each
+ * id to its slot. Slots of deleted employees are reused; the arena is
+ * compacted when most of it is not used anymore.
+ * 
+ * {@link Employee} instances are only created when they are returned, so
+ * each call returns new instances; queries other than
+ * {@link #findOne(String)} scan the columns, as
+ * {@link InMemoryEmployeeRepository} scans its map.
+ * 
+ * Reads share a read lock, while writes take the write lock.
+ */
+public class OffHeapEmployeeRepository implements EmployeeRepository {
+
+	// the fields of the slots column
+	private static final int ID_ADDRESS = 0;
+
+	// -1 for a free slot
+	private static final int ID_LENGTH = 8;
+
+	private static final int NAME_ADDRESS = 12;
+
+	// -1 for a null name
+	private static final int NAME_LENGTH = 20;
+
+	private static final int SLOT_WIDTH = 24;
+
+	// the arena is compacted when it has at least this number of unused bytes,
+	// and they are more than the used ones
+	private static final long MIN_COMPACTED_BYTES = 4 * OffHeapArena.CHUNK_BYTES;
+
+	private static final int INITIAL_TABLE_SIZE = 1024;
+
+	// the names of the locks in LockWaitEvent
+	private static final String READ_LOCK = "OffHeapEmployeeRepository.read";
+
+	private static final String WRITE_LOCK = "OffHeapEmployeeRepository.write";
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final OffHeapColumn slots = new OffHeapColumn(SLOT_WIDTH);
+
+	private final OffHeapColumn salaries = new OffHeapColumn(4);
+
+	private final OffHeapColumn versions = new OffHeapColumn(8);
+
+	private OffHeapArena arena = new OffHeapArena();
+
+	// bytes of the arena used by removed or replaced strings
+	private long garbage;
+
+	// entries are (hash << 32 | slot + 1), 0 for empty
+	private OffHeapColumn table = new OffHeapColumn(8);
+
+	private int tableSize = INITIAL_TABLE_SIZE;
+
+	// the slots used so far
+	private int slotCount;
+
+	private int[] freeSlots = new int[16];
+
+	private int freeCount;
+
+	private int count;
+
+	private final IdGenerator idGenerator = new IdGenerator(0);
+
+	// the last version given to an employee
+	private long lastVersion;
+
+	private long version;
+
+	public OffHeapEmployeeRepository() {
+		// initialize the "db" with some contents
+		save(new Employee("ID1", "First Employee", 1000));
+		save(new Employee("ID2", "Second Employee", 2000));
+		save(new Employee("ID3", "Third Employee", 3000));
+		idGenerator.advancePast(3);
+	}
+
+	private static int hash(String id) {
+		int h = id.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private static int slotOf(long entry) {
+		return (int) entry - 1;
+	}
+
+	private static int hashOf(long entry) {
+		return (int) (entry >>> 32);
+	}
+
+	private static long entry(int hash, int slot) {
+		return (long) hash << 32 | (slot + 1);
+	}
+
+	/**
+	 * @return the index of the id in the table, or -(index + 1) of the empty
+	 *         entry where it would be inserted
+	 */
+	private int find(String id, byte[] idBytes) {
+		int hash = hash(id);
+		int mask = tableSize - 1;
+		for (int i = hash & mask;; i = (i + 1) & mask) {
+			long entry = table.getLong(i, 0);
+			if (entry == 0)
+				return -(i + 1);
+			int slot = slotOf(entry);
+			if (hashOf(entry) == hash
+					&& arena.equals(slots.getLong(slot, ID_ADDRESS), slots.getInt(slot, ID_LENGTH), idBytes))
+				return i;
+		}
+	}
+
+	private int findSlot(String id) {
+		int index = find(id, encode(id));
+		return index < 0 ? -1 : slotOf(table.getLong(index, 0));
+	}
+
+	/**
+	 * Removes the entry, moving back the following entries of the same run,
+	 * so that lookups never find a hole before their entry.
+	 */
+	private void removeEntry(int index) {
+		int mask = tableSize - 1;
+		int hole = index;
+		for (int i = (index + 1) & mask;; i = (i + 1) & mask) {
+			long entry = table.getLong(i, 0);
+			if (entry == 0)
+				break;
+			int home = hashOf(entry) & mask;
+			// whether the home of the entry is not cyclically in (hole, i]
+			boolean movable = hole <= i ? home <= hole || home > i : home <= hole && home > i;
+			if (movable) {
+				table.putLong(hole, 0, entry);
+				hole = i;
+			}
+		}
+		table.putLong(hole, 0, 0);
+	}
+
+	private void growTable() {
+		OffHeapColumn old = table;
+		int oldSize = tableSize;
+		table = new OffHeapColumn(8);
+		tableSize = oldSize * 2;
+		int mask = tableSize - 1;
+		for (int i = 0; i < oldSize; i++) {
+			long entry = old.getLong(i, 0);
+			if (entry == 0)
+				continue;
+			int j = hashOf(entry) & mask;
+			while (table.getLong(j, 0) != 0)
+				j = (j + 1) & mask;
+			table.putLong(j, 0, entry);
+		}
+	}
+
+	private static byte[] encode(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private String readId(int slot) {
+		return new String(arena.read(slots.getLong(slot, ID_ADDRESS), slots.getInt(slot, ID_LENGTH)),
+			StandardCharsets.UTF_8);
+	}
+
+	private String readName(int slot) {
+		int length = slots.getInt(slot, NAME_LENGTH);
+		if (length < 0)
+			return null;
+		return new String(arena.read(slots.getLong(slot, NAME_ADDRESS), length),
+			StandardCharsets.UTF_8);
+	}
+
+	private boolean isUsed(int slot) {
+		return slots.getInt(slot, ID_LENGTH) >= 0;
+	}
+
+	private Employee materialize(int slot) {
+		Employee employee = new Employee(readId(slot), readName(slot), salaries.getInt(slot, 0));
+		employee.setVersion(versions.getLong(slot, 0));
+		return employee;
+	}
+
+	/**
+	 * @param name
+	 * @return the UTF-8 bytes of the name, or null for a null name
+	 * @throws IllegalArgumentException
+	 *             if the name is too long for the arena; thrown before
+	 *             anything is changed, see {@link OffHeapArena#checkLength(byte[])}
+	 */
+	private static byte[] encodeName(String name) {
+		if (name == null)
+			return null;
+		byte[] bytes = encode(name);
+		OffHeapArena.checkLength(bytes);
+		return bytes;
+	}
+
+	private void writeName(int slot, byte[] name) {
+		if (name == null) {
+			slots.putInt(slot, NAME_LENGTH, -1);
+			return;
+		}
+		slots.putLong(slot, NAME_ADDRESS, arena.append(name));
+		slots.putInt(slot, NAME_LENGTH, name.length);
+	}
+
+	private void releaseName(int slot) {
+		garbage += Math.max(0, slots.getInt(slot, NAME_LENGTH));
+	}
+
+	private void update(int slot, Employee employee) {
+		byte[] name = encodeName(employee.getName());
+		int length = slots.getInt(slot, NAME_LENGTH);
+		// the same name is not appended again
+		boolean sameName = name == null ? length < 0
+			: length >= 0 && arena.equals(slots.getLong(slot, NAME_ADDRESS), length, name);
+		if (!sameName) {
+			releaseName(slot);
+			writeName(slot, name);
+		}
+		salaries.putInt(slot, 0, employee.getSalary());
+		employee.setVersion(++lastVersion);
+		versions.putLong(slot, 0, employee.getVersion());
+		compactIfNeeded();
+	}
+
+	private void insert(int index, byte[] idBytes, Employee employee) {
+		// checked before a slot is taken, which would otherwise be left
+		// behind, half written, if the arena rejected a string
+		OffHeapArena.checkLength(idBytes);
+		byte[] name = encodeName(employee.getName());
+		int slot = freeCount > 0 ? freeSlots[--freeCount] : slotCount++;
+		slots.putLong(slot, ID_ADDRESS, arena.append(idBytes));
+		slots.putInt(slot, ID_LENGTH, idBytes.length);
+		writeName(slot, name);
+		salaries.putInt(slot, 0, employee.getSalary());
+		employee.setVersion(++lastVersion);
+		versions.putLong(slot, 0, employee.getVersion());
+		table.putLong(-index - 1, 0, entry(hash(employee.getEmployeeId()), slot));
+		count++;
+		// keep the table at most half full
+		if (count * 2 > tableSize)
+			growTable();
+	}
+
+	private void delete(int index) {
+		int slot = slotOf(table.getLong(index, 0));
+		removeEntry(index);
+		garbage += slots.getInt(slot, ID_LENGTH);
+		releaseName(slot);
+		slots.putInt(slot, ID_LENGTH, -1);
+		if (freeCount == freeSlots.length)
+			freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+		freeSlots[freeCount++] = slot;
+		count--;
+		compactIfNeeded();
+	}
+
+	/**
+	 * Copies the strings that are still used into a new arena.
+	 */
+	private void compactIfNeeded() {
+		if (garbage < MIN_COMPACTED_BYTES || garbage * 2 < arena.size())
+			return;
+		OffHeapArena compacted = new OffHeapArena();
+		for (int slot = 0; slot < slotCount; slot++) {
+			if (!isUsed(slot))
+				continue;
+			int idLength = slots.getInt(slot, ID_LENGTH);
+			slots.putLong(slot, ID_ADDRESS,
+				compacted.append(arena.read(slots.getLong(slot, ID_ADDRESS), idLength)));
+			int nameLength = slots.getInt(slot, NAME_LENGTH);
+			if (nameLength >= 0) {
+				slots.putLong(slot, NAME_ADDRESS,
+					compacted.append(arena.read(slots.getLong(slot, NAME_ADDRESS), nameLength)));
+			}
+		}
+		arena = compacted;
+		garbage = 0;
+	}
+
+	private IntStream usedSlots() {
+		return IntStream.range(0, slotCount).filter(this::isUsed);
+	}
+
+	@Override
+	public List<Employee> findAll() {
+		Lock read = LockWaitEvent.lock(lock.readLock(), READ_LOCK);
+		try {
+			return usedSlots()
+				.mapToObj(this::materialize)
+				.collect(Collectors.toList());
+		} finally {
+			read.unlock();
+		}
+	}
+
+	/**
+	 * Creates each employee only when the stream reaches it, under the read
+	 * lock, so it is weakly consistent with respect to concurrent
+	 * modifications.
+	 */
+	@Override
+	public Stream<Employee> streamAll() {
+		int end;
+		Lock read = LockWaitEvent.lock(lock.readLock(), READ_LOCK);
+		try {
+			end = slotCount;
+		} finally {
+			read.unlock();
+		}
+		return IntStream.range(0, end)
+			.mapToObj(slot -> {
+				LockWaitEvent.lock(read, READ_LOCK);
+				try {
+					return slot < slotCount && isUsed(slot) ? materialize(slot) : null;
+				} finally {
+					read.unlock();
+				}
+			})
+			.filter(Objects::nonNull);
+	}
+
+	@Override
+	public Optional<Employee> findOne(String id) {
+		Lock read = LockWaitEvent.lock(lock.readLock(), READ_LOCK);
+		try {
+			int slot = findSlot(id);
+			return slot < 0 ? Optional.empty() : Optional.of(materialize(slot));
+		} finally {
+			read.unlock();
+		}
+	}
+
+	/**
+	 * Takes the read lock only once.
+	 */
+	@Override
+	public Map<String, Employee> findByIds(Collection<String> ids) {
+		Map<String, Employee> found = new HashMap<>();
+		Lock read = LockWaitEvent.lock(lock.readLock(), READ_LOCK);
+		try {
+			for (String id : ids) {
+				int slot = findSlot(id);
+				if (slot >= 0)
+					found.put(id, materialize(slot));
+			}
+			return found;
+		} finally {
+			read.unlock();
+		}
+	}
+
+	@Override
+	public long count() {
+		Lock read = LockWaitEvent.lock(lock.readLock(), READ_LOCK);
+		try {
+			return count;
+		} finally {
+			read.unlock();
+		}
+	}
+
+	/**
+	 * Keeps only the smallest "limit" ids while scanning, instead of sorting
+	 * all of them.
+	 */
+	@Override
+	public List<Employee> findPage(String afterId, int limit) {
+		Lock read = LockWaitEvent.lock(lock.readLock(), READ_LOCK);
+		try {
+			// the greatest of the kept ids first
+			PriorityQueue<String> page = new PriorityQueue<>(Collections.reverseOrder());
+			for (int slot = 0; slot < slotCount; slot++) {
+				if (!isUsed(slot))
+					continue;
+				String id = readId(slot);
+				if (afterId != null && id.compareTo(afterId) <= 0)
+					continue;
+				if (page.size() < limit) {
+					page.add(id);
+				} else if (limit > 0 && id.compareTo(page.peek()) < 0) {
+					page.poll();
+					page.add(id);
+				}
+			}
+			return page.stream()
+				.sorted()
+				.map(id -> materialize(findSlot(id)))
+				.collect(Collectors.toList());
+		} finally {
+			read.unlock();
+		}
+	}
+
+	/**
+	 * Scans the salary column, and creates only the matching employees.
+	 */
+	@Override
+	public List<Employee> findBySalary(int minSalary, int maxSalary) {
+		Lock read = LockWaitEvent.lock(lock.readLock(), READ_LOCK);
+		try {
+			return usedSlots()
+				.filter(slot -> {
+					int salary = salaries.getInt(slot, 0);
+					return salary >= minSalary && salary <= maxSalary;
+				})
+				.mapToObj(this::materialize)
+				.sorted(Comparator.comparingInt(Employee::getSalary)
+					.thenComparing(Employee::getEmployeeId))
+				.collect(Collectors.toList());
+		} finally {
+			read.unlock();
+		}
+	}
+
+	/**
+	 * Scans the names, in the order of ids.
+	 */
+	@Override
+	public List<Employee> searchByName(String query, int limit) {
+		List<String> words = NameIndex.words(query);
+		if (words.isEmpty())
+			return new ArrayList<>();
+		Lock read = LockWaitEvent.lock(lock.readLock(), READ_LOCK);
+		try {
+			return usedSlots()
+				.filter(slot -> NameIndex.matches(readName(slot), words))
+				.mapToObj(this::materialize)
+				.sorted(Comparator.comparing(Employee::getEmployeeId))
+				.limit(limit)
+				.collect(Collectors.toList());
+		} finally {
+			read.unlock();
+		}
+	}
+
+	/**
+	 * Copies the salary column, so percentiles are exact.
+	 */
+	@Override
+	public SalaryStats salaryStats() {
+		int[] copy;
+		Lock read = LockWaitEvent.lock(lock.readLock(), READ_LOCK);
+		try {
+			copy = usedSlots()
+				.map(slot -> salaries.getInt(slot, 0))
+				.toArray();
+		} finally {
+			read.unlock();
+		}
+		return SalaryHistogram.exactStats(copy);
+	}
+
+	@Override
+	public long getVersion() {
+		Lock read = LockWaitEvent.lock(lock.readLock(), READ_LOCK);
+		try {
+			return version;
+		} finally {
+			read.unlock();
+		}
+	}
+
+	/**
+	 * If the passed employee has no id, then it is generated automatically.
+	 * 
+	 * @param employee
+	 * @return the saved employee
+	 */
+	@Override
+	public Employee save(Employee employee) {
+		Lock write = LockWaitEvent.lock(lock.writeLock(), WRITE_LOCK);
+		try {
+			if (employee.getEmployeeId() == null) {
+				// skip generated ids already taken by employees
+				// saved with an explicit id
+				String id;
+				do {
+					id = idGenerator.nextId();
+				} while (findSlot(id) >= 0);
+				employee.setEmployeeId(id);
+			}
+			byte[] idBytes = encode(employee.getEmployeeId());
+			int index = find(employee.getEmployeeId(), idBytes);
+			if (index >= 0) {
+				update(slotOf(table.getLong(index, 0)), employee);
+			} else {
+				insert(index, idBytes, employee);
+			}
+			version++;
+			return employee;
+		} finally {
+			write.unlock();
+		}
+	}
+
+	/**
+	 * Takes the write lock only once.
+	 */
+	@Override
+	public List<Employee> saveAll(List<Employee> employees) {
+		Lock write = LockWaitEvent.lock(lock.writeLock(), WRITE_LOCK);
+		try {
+			return EmployeeRepository.super.saveAll(employees);
+		} finally {
+			write.unlock();
+		}
+	}
+
+	@Override
+	public Optional<Employee> replace(Employee employee) {
+		Lock write = LockWaitEvent.lock(lock.writeLock(), WRITE_LOCK);
+		try {
+			int slot = findSlot(employee.getEmployeeId());
+			if (slot < 0)
+				return Optional.empty();
+			update(slot, employee);
+			version++;
+			return Optional.of(employee);
+		} finally {
+			write.unlock();
+		}
+	}
+
+	@Override
+	public Optional<Employee> replace(Employee employee, long expectedVersion) {
+		Lock write = LockWaitEvent.lock(lock.writeLock(), WRITE_LOCK);
+		try {
+			int slot = findSlot(employee.getEmployeeId());
+			if (slot < 0 || versions.getLong(slot, 0) != expectedVersion)
+				return Optional.empty();
+			update(slot, employee);
+			version++;
+			return Optional.of(employee);
+		} finally {
+			write.unlock();
+		}
+	}
+
+	@Override
+	public Employee deleteById(String id) {
+		Lock write = LockWaitEvent.lock(lock.writeLock(), WRITE_LOCK);
+		try {
+			int index = find(id, encode(id));
+			if (index < 0)
+				return null;
+			Employee removed = materialize(slotOf(table.getLong(index, 0)));
+			delete(index);
+			version++;
+			return removed;
+		} finally {
+			write.unlock();
+		}
+	}
+
+	@Override
+	public Optional<Employee> deleteById(String id, long expectedVersion) {
+		Lock write = LockWaitEvent.lock(lock.writeLock(), WRITE_LOCK);
+		try {
+			int slot = findSlot(id);
+			if (slot < 0 || versions.getLong(slot, 0) != expectedVersion)
+				return Optional.empty();
+			return Optional.of(deleteById(id));
+		} finally {
+			write.unlock();
+		}
+	}
+
+	/**
+	 * @return the off-heap memory used by the repository, in bytes
+	 */
+	public long getOffHeapBytes() {
+		Lock read = LockWaitEvent.lock(lock.readLock(), READ_LOCK);
+		try {
+			return slots.bytes() + salaries.bytes() + versions.bytes() + table.bytes()
+				+ arena.bytes();
+		} finally {
+			read.unlock();
+		}
+	}
+}
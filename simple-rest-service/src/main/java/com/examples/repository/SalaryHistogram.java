@@ -0,0 +1,148 @@
+package com.examples.repository;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.examples.model.SalaryStats;
+
+/**
+ * A histogram of the salaries of the employees, together with their sum,
+ * for computing {@link SalaryStats} without reading any
+ * {@link com.examples.model.Employee}.
+ * 
+ * Each bucket is a {@link LongAdder}, so updates take constant time without
+ * any lock, and concurrent updates of the same bucket do not contend; the
+ * buckets are merged when statistics are computed, which takes a time that
+ * only depends on the number of buckets. Statistics are weakly consistent
+ * with respect to concurrent updates.
+ * 
+ * The histogram counts non-negative salaries exactly up to 127, and then in
+ * buckets that are 1/128 of their power of two: percentiles are the upper
+ * bound of their bucket, which is less than 1% above the actual value;
+ * negative salaries are counted as 0.
+ */
+class SalaryHistogram {
+
+	private static final int SUB_BUCKET_BITS = 7;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	// enough for Integer.MAX_VALUE
+	private static final int BUCKETS = (32 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final LongAdder[] histogram = new LongAdder[BUCKETS];
+
+	private final LongAdder sum = new LongAdder();
+
+	SalaryHistogram() {
+		for (int bucket = 0; bucket < BUCKETS; bucket++)
+			histogram[bucket] = new LongAdder();
+	}
+
+	void add(int salary) {
+		histogram[bucket(salary)].increment();
+		sum.add(salary);
+	}
+
+	void remove(int salary) {
+		histogram[bucket(salary)].decrement();
+		sum.add(-salary);
+	}
+
+	/**
+	 * The histogram does not know the exact extremes of the salaries, so they
+	 * are passed by the caller; percentiles are kept within them.
+	 * 
+	 * @param min
+	 *            the least salary, null if there are no employees
+	 * @param max
+	 *            the greatest salary, null if there are no employees
+	 * @return the statistics, with approximated percentiles
+	 */
+	SalaryStats stats(Integer min, Integer max) {
+		long[] counts = new long[BUCKETS];
+		long count = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			// a bucket read between concurrent updates can be negative
+			counts[bucket] = Math.max(0, histogram[bucket].sum());
+			count += counts[bucket];
+		}
+		SalaryStats stats = new SalaryStats();
+		if (count == 0 || min == null || max == null)
+			return stats;
+		long total = sum.sum();
+		stats.setCount(count);
+		stats.setSum(total);
+		stats.setAverage((double) total / count);
+		stats.setMin(min);
+		stats.setMax(max);
+		long[] ranks = { rank(count, 50), rank(count, 90), rank(count, 99) };
+		int[] percentiles = new int[ranks.length];
+		long seen = 0;
+		int next = 0;
+		for (int bucket = 0; bucket < BUCKETS && next < ranks.length; bucket++) {
+			seen += counts[bucket];
+			while (next < ranks.length && seen >= ranks[next])
+				percentiles[next++] = Math.max(min, Math.min(max, upperBound(bucket)));
+		}
+		stats.setP50(percentiles[0]);
+		stats.setP90(percentiles[1]);
+		stats.setP99(percentiles[2]);
+		return stats;
+	}
+
+	/**
+	 * For repositories that do not keep a histogram.
+	 * 
+	 * @param salaries
+	 *            sorted in place
+	 * @return the statistics, with exact percentiles
+	 */
+	static SalaryStats exactStats(int[] salaries) {
+		Arrays.sort(salaries);
+		SalaryStats stats = new SalaryStats();
+		stats.setCount(salaries.length);
+		if (salaries.length == 0)
+			return stats;
+		long sum = 0;
+		for (int salary : salaries)
+			sum += salary;
+		stats.setSum(sum);
+		stats.setAverage((double) sum / salaries.length);
+		stats.setMin(salaries[0]);
+		stats.setMax(salaries[salaries.length - 1]);
+		stats.setP50(salaries[(int) rank(salaries.length, 50) - 1]);
+		stats.setP90(salaries[(int) rank(salaries.length, 90) - 1]);
+		stats.setP99(salaries[(int) rank(salaries.length, 99) - 1]);
+		return stats;
+	}
+
+	/**
+	 * @return the 1-based rank of the percentile, with the nearest-rank
+	 *         method
+	 */
+	private static long rank(long count, int percentile) {
+		return Math.max(1, (count * percentile + 99) / 100);
+	}
+
+	static int bucket(int salary) {
+		if (salary < SUB_BUCKETS)
+			return Math.max(salary, 0);
+		int exponent = 31 - Integer.numberOfLeadingZeros(salary);
+		int subBucket = (salary >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * @return the greatest salary in the bucket
+	 */
+	static int upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		int subBucket = bucket % SUB_BUCKETS;
+		long lowerBound = (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+		long width = 1L << (exponent - SUB_BUCKET_BITS);
+		return (int) Math.min(Integer.MAX_VALUE, lowerBound + width - 1);
+	}
+}
@@ -0,0 +1,442 @@
+package com.examples.repository;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+import com.examples.events.LockWaitEvent;
+import com.examples.model.Employee;
+
+/**
+ * An append-only log of changes to employees, stored in a directory as a
+ * sequence of numbered segments ("log.1", "log.2", ...): records are always
+ * appended to the last segment, and {@link #rotate()} starts a new one, so
+ * that the segments before it can be deleted once their changes have been
+ * saved somewhere else, e.g., in an {@link EmployeeSnapshot}.
+ * 
+ * Records are appended to a buffer in memory, and {@link #sync()} makes them
+ * durable: while a thread writes and forces the buffer to the file, the
+ * threads that call {@link #sync()} in the meantime wait, and the first of
+ * them then writes all their records with a single force (group commit), so
+ * the more the concurrent writers, the more records for each force.
+ * 
+ * Each record is framed by its length and followed by its CRC32: when the log
+ * is replayed, a record that was only partially written before a crash is
+ * detected, and the segment is truncated before it.
+ */
+public class WriteAheadLog implements Closeable {
+
+	private static final String SEGMENT_PREFIX = "log.";
+
+	private static final byte SAVE = 1;
+
+	private static final byte DELETE = 2;
+
+	private static final byte RESERVE = 3;
+
+	// the largest record that can be replayed
+	static final int MAX_RECORD_LENGTH = 16 * 1024 * 1024;
+
+	/**
+	 * Receives the records of the log, in the order they were appended.
+	 */
+	public interface Handler {
+
+		void save(Employee employee);
+
+		void delete(String id);
+
+		/**
+		 * @param highWaterMark
+		 *            as passed to {@link WriteAheadLog#appendReservation(long)}
+		 */
+		void reserve(long highWaterMark);
+	}
+
+	private final Path directory;
+
+	private final boolean force;
+
+	// the numbers of the existing segments, guarded by syncLock
+	private final NavigableSet<Long> segments = new TreeSet<>();
+
+	// the last segment, where records are written, guarded by syncLock
+	private FileChannel channel;
+
+	// records appended and not written yet, guarded by this
+	private final ByteArrayOutputStream pending = new ByteArrayOutputStream(4096);
+
+	private final DataOutputStream pendingData = new DataOutputStream(pending);
+
+	private final ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+
+	private final DataOutputStream recordData = new DataOutputStream(record);
+
+	private final CRC32 crc = new CRC32();
+
+	// the number of bytes appended so far, guarded by this
+	private long appended;
+
+	// the number of bytes appended so far that are durable
+	private volatile long durable;
+
+	private volatile IOException failure;
+
+	// only one thread at a time writes and forces
+	private final Object syncLock = new Object();
+
+	private long syncs;
+
+	/**
+	 * @param directory
+	 *            created if it does not exist
+	 * @param force
+	 *            whether {@link #sync()} also forces the written records to the
+	 *            storage device, which is what makes them survive a crash of
+	 *            the operating system and not only of the process
+	 * @throws IOException
+	 */
+	public WriteAheadLog(Path directory, boolean force) throws IOException {
+		this.directory = Files.createDirectories(directory);
+		this.force = force;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+			for (Path file : files) {
+				try {
+					segments.add(Long.parseLong(
+						file.getFileName().toString().substring(SEGMENT_PREFIX.length())));
+				} catch (NumberFormatException e) {
+					// not a segment
+				}
+			}
+		}
+	}
+
+	private Path segmentFile(long segment) {
+		return directory.resolve(SEGMENT_PREFIX + segment);
+	}
+
+	private FileChannel openSegment(long segment) throws IOException {
+		Path file = segmentFile(segment);
+		boolean created = !Files.exists(file);
+		FileChannel segmentChannel = FileChannel.open(file,
+			StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		segments.add(segment);
+		// forcing the records is useless if the entry of the file is lost
+		if (created && force)
+			forceDirectory(directory);
+		return segmentChannel;
+	}
+
+	/**
+	 * Forces the entries of a directory, e.g., a file just created or renamed
+	 * in it, to the storage device; not supported on Windows, where it does
+	 * nothing.
+	 * 
+	 * @param directory
+	 * @throws IOException
+	 */
+	static void forceDirectory(Path directory) throws IOException {
+		if (System.getProperty("os.name").startsWith("Windows"))
+			return;
+		try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			channel.force(true);
+		}
+	}
+
+	/**
+	 * Reads the records of the segments starting from the given one, and
+	 * truncates each segment after its last complete record; new records are
+	 * then appended to the last segment. It must be called before appending
+	 * any record.
+	 * 
+	 * @param fromSegment
+	 *            the segments before this one are ignored
+	 * @param handler
+	 * @return the number of replayed records
+	 * @throws IOException
+	 */
+	public long replay(long fromSegment, Handler handler) throws IOException {
+		synchronized (syncLock) {
+			long records = 0;
+			for (long segment : new TreeSet<>(segments.tailSet(fromSegment, true))) {
+				try (FileChannel segmentChannel = openSegment(segment)) {
+					records += replay(segmentChannel, handler);
+				}
+			}
+			long last = Math.max(fromSegment, segments.isEmpty() ? 1 : segments.last());
+			channel = openSegment(last);
+			channel.position(channel.size());
+			return records;
+		}
+	}
+
+	private static long replay(FileChannel segmentChannel, Handler handler) throws IOException {
+		long position = 0;
+		long records = 0;
+		DataInputStream in = new DataInputStream(
+			new BufferedInputStream(Channels.newInputStream(segmentChannel), 64 * 1024));
+		CRC32 check = new CRC32();
+		while (true) {
+			byte[] payload;
+			try {
+				int length = in.readInt();
+				if (length < 1 || length > MAX_RECORD_LENGTH)
+					break;
+				payload = new byte[length];
+				in.readFully(payload);
+				check.reset();
+				check.update(payload, 0, length);
+				if (in.readInt() != (int) check.getValue())
+					break;
+			} catch (EOFException e) {
+				break;
+			}
+			apply(payload, handler);
+			position += 4 + payload.length + 4;
+			records++;
+		}
+		segmentChannel.truncate(position);
+		return records;
+	}
+
+	private static void apply(byte[] payload, Handler handler) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+		byte type = in.readByte();
+		switch (type) {
+		case SAVE:
+			String id = readString(in);
+			String name = readString(in);
+			handler.save(new Employee(id, name, in.readInt()));
+			break;
+		case DELETE:
+			handler.delete(readString(in));
+			break;
+		case RESERVE:
+			handler.reserve(in.readLong());
+			break;
+		default:
+			throw new IOException("Unknown record type " + type);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0)
+			return null;
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Appends a record for the saved employee; it becomes durable with the
+	 * next {@link #sync()}.
+	 * 
+	 * @param employee
+	 * @throws IllegalArgumentException
+	 *             if the record would be too large to be replayed; nothing is
+	 *             appended then
+	 */
+	public synchronized void appendSave(Employee employee) {
+		try {
+			recordData.writeByte(SAVE);
+			writeString(recordData, employee.getEmployeeId());
+			writeString(recordData, employee.getName());
+			recordData.writeInt(employee.getSalary());
+			appendRecord();
+		} catch (IOException e) {
+			// cannot happen with a ByteArrayOutputStream
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public synchronized void appendDelete(String id) {
+		try {
+			recordData.writeByte(DELETE);
+			writeString(recordData, id);
+			appendRecord();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Records a high-water mark of an {@link IdGenerator}, see
+	 * {@link IdGenerator#IdGenerator(String, long, int, java.util.function.LongConsumer)}.
+	 * 
+	 * @param highWaterMark
+	 */
+	public synchronized void appendReservation(long highWaterMark) {
+		try {
+			recordData.writeByte(RESERVE);
+			recordData.writeLong(highWaterMark);
+			appendRecord();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void appendRecord() throws IOException {
+		if (record.size() > MAX_RECORD_LENGTH) {
+			int length = record.size();
+			record.reset();
+			throw new IllegalArgumentException("Record too large for the log: " + length + " bytes");
+		}
+		crc.reset();
+		crc.update(record.toByteArray(), 0, record.size());
+		pendingData.writeInt(record.size());
+		record.writeTo(pendingData);
+		pendingData.writeInt((int) crc.getValue());
+		appended += 4 + record.size() + 4;
+		record.reset();
+	}
+
+	private synchronized long appended() {
+		return appended;
+	}
+
+	/**
+	 * Returns when all the records appended before this call are durable.
+	 * 
+	 * @throws IOException
+	 *             if the records could not be written; the log cannot be used
+	 *             anymore
+	 */
+	public void sync() throws IOException {
+		long position = appended();
+		while (durable < position) {
+			// waits for the force of the threads before, if any
+			LockWaitEvent event = new LockWaitEvent();
+			synchronized (syncLock) {
+				event.acquired("WriteAheadLog.sync");
+				if (durable >= position)
+					return;
+				writePending();
+			}
+		}
+	}
+
+	/**
+	 * Writes and forces all the records appended so far, including the ones
+	 * of the threads waiting for the current one; must be called holding
+	 * syncLock.
+	 */
+	private void writePending() throws IOException {
+		if (failure != null)
+			throw new IOException("The log cannot be written anymore", failure);
+		byte[] batch;
+		long end;
+		synchronized (this) {
+			batch = pending.toByteArray();
+			pending.reset();
+			end = appended;
+		}
+		try {
+			ByteBuffer buffer = ByteBuffer.wrap(batch);
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+			if (force)
+				channel.force(false);
+		} catch (IOException e) {
+			failure = e;
+			throw e;
+		}
+		syncs++;
+		durable = end;
+	}
+
+	/**
+	 * Makes all the records appended so far durable in the current segment,
+	 * and starts a new segment for the next ones.
+	 * 
+	 * @return the number of the new segment
+	 * @throws IOException
+	 */
+	public long rotate() throws IOException {
+		synchronized (syncLock) {
+			writePending();
+			long segment = segments.last() + 1;
+			FileChannel next = openSegment(segment);
+			channel.close();
+			channel = next;
+			return segment;
+		}
+	}
+
+	/**
+	 * Deletes the files of the segments before the given one.
+	 * 
+	 * @param segment
+	 * @throws IOException
+	 */
+	public void deleteSegmentsBefore(long segment) throws IOException {
+		synchronized (syncLock) {
+			NavigableSet<Long> old = segments.headSet(segment, false);
+			for (long s : old)
+				Files.deleteIfExists(segmentFile(s));
+			old.clear();
+		}
+	}
+
+	/**
+	 * @return the numbers of the existing segments
+	 */
+	public NavigableSet<Long> getSegments() {
+		synchronized (syncLock) {
+			return new TreeSet<>(segments);
+		}
+	}
+
+	/**
+	 * @return the number of times records have been written, each with a
+	 *         single force
+	 */
+	public long getSyncs() {
+		synchronized (syncLock) {
+			return syncs;
+		}
+	}
+
+	/**
+	 * Makes the appended records durable and closes the current segment.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (syncLock) {
+			if (channel == null || !channel.isOpen())
+				return;
+			try {
+				if (durable < appended())
+					writePending();
+			} finally {
+				channel.close();
+			}
+		}
+	}
+}
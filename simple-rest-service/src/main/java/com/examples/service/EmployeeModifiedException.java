@@ -0,0 +1,17 @@
+package com.examples.service;
+
+import javax.ws.rs.ClientErrorException;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * A conditional update or delete found the employee at a version different
+ * from the expected one.
+ */
+public class EmployeeModifiedException extends ClientErrorException {
+
+	private static final long serialVersionUID = 1L;
+
+	public EmployeeModifiedException(String message) {
+		super(message, Status.PRECONDITION_FAILED);
+	}
+}
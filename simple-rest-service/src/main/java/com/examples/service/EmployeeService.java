@@ -1,19 +1,90 @@
 package com.examples.service;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 import com.examples.model.Employee;
+import com.examples.model.EmployeeBatch;
+import com.examples.model.SalaryStats;
 
 public interface EmployeeService {
 
 	List<Employee> allEmployees();
 
+	Stream<Employee> streamAllEmployees();
+
+	List<Employee> employeesPage(String afterId, int limit);
+
+	/**
+	 * @return the employees with a salary between the bounds (inclusive),
+	 *         ordered by salary
+	 */
+	List<Employee> employeesBySalary(int minSalary, int maxSalary);
+
+	/**
+	 * @return at most "limit" employees whose name matches the query, see
+	 *         {@link com.examples.repository.EmployeeRepository#searchByName(String, int)}
+	 */
+	List<Employee> searchEmployees(String query, int limit);
+
+	SalaryStats salaryStats();
+
 	Employee getEmployeeById(String id);
 
+	/**
+	 * Differently from {@link #getEmployeeById(String)}, missing employees
+	 * are reported in the result; repeated ids are read only once.
+	 * 
+	 * @return the employees with the given ids, read at once
+	 */
+	EmployeeBatch getEmployeesByIds(List<String> ids);
+
+	long countEmployees();
+
+	/**
+	 * @return the version of the collection of employees, see
+	 *         {@link com.examples.repository.EmployeeRepository#getVersion()}
+	 */
+	long employeesVersion();
+
 	Employee addEmployee(Employee employee);
 
+	/**
+	 * Checks that the employee can be added, with the same rules as
+	 * {@link #addEmployee(Employee)}.
+	 * 
+	 * @throws javax.ws.rs.BadRequestException
+	 *             if it cannot be added
+	 */
+	void checkNewEmployee(Employee employee);
+
+	/**
+	 * Adds a batch of employees with a single call to the repository, see
+	 * {@link com.examples.repository.EmployeeRepository#saveAll(List)}.
+	 * 
+	 * @throws javax.ws.rs.BadRequestException
+	 *             if any of them cannot be added, before adding them
+	 */
+	List<Employee> addEmployees(List<Employee> employees);
+
 	Employee replaceEmployeeById(String id, Employee employee);
 
+	/**
+	 * Replaces the employee only if it is still at the given version.
+	 * 
+	 * @throws EmployeeModifiedException
+	 *             if the employee is at another version
+	 */
+	Employee replaceEmployeeById(String id, Employee employee, long version);
+
 	Employee deleteEmployeeById(String id);
 
+	/**
+	 * Deletes the employee only if it is still at the given version.
+	 * 
+	 * @throws EmployeeModifiedException
+	 *             if the employee is at another version
+	 */
+	Employee deleteEmployeeById(String id, long version);
+
 }
\ No newline at end of file
@@ -1,16 +1,36 @@
 package com.examples.service;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.NotFoundException;
 
 import com.examples.model.Employee;
+import com.examples.model.EmployeeBatch;
+import com.examples.model.SalaryStats;
 import com.examples.repository.EmployeeRepository;
 
+/**
+ * The service does not hold any lock of its own: thread-safety is the
+ * responsibility of the {@link EmployeeRepository} implementation, so that
+ * concurrent requests are serialized only when the repository requires it.
+ */
 public class EmployeeServiceImpl implements EmployeeService {
 
+	public static final int MAX_PAGE_SIZE = 1000;
+
+	public static final int MAX_SEARCH_RESULTS = 100;
+
+	public static final int MAX_BATCH_SIZE = 1000;
+
+	// in characters; longer names could not be stored by all the repositories
+	public static final int MAX_NAME_LENGTH = 1000;
+
 	private EmployeeRepository employeeRepository;
 
 	@Inject
@@ -19,12 +39,48 @@ public class EmployeeServiceImpl implements EmployeeService {
 	}
 
 	@Override
-	public synchronized List<Employee> allEmployees() {
+	public List<Employee> allEmployees() {
 		return employeeRepository.findAll();
 	}
 
 	@Override
-	public synchronized Employee getEmployeeById(String id) {
+	public Stream<Employee> streamAllEmployees() {
+		return employeeRepository.streamAll();
+	}
+
+	@Override
+	public List<Employee> employeesPage(String afterId, int limit) {
+		if (limit < 1 || limit > MAX_PAGE_SIZE)
+			throw new BadRequestException(
+				"Invalid limit " + limit + ", must be between 1 and " + MAX_PAGE_SIZE);
+		return employeeRepository.findPage(afterId, limit);
+	}
+
+	@Override
+	public List<Employee> employeesBySalary(int minSalary, int maxSalary) {
+		if (minSalary > maxSalary)
+			throw new BadRequestException(
+				"Invalid salary range, " + minSalary + " is greater than " + maxSalary);
+		return employeeRepository.findBySalary(minSalary, maxSalary);
+	}
+
+	@Override
+	public List<Employee> searchEmployees(String query, int limit) {
+		if (query == null || query.trim().isEmpty())
+			throw new BadRequestException("Missing search query");
+		if (limit < 1 || limit > MAX_SEARCH_RESULTS)
+			throw new BadRequestException(
+				"Invalid limit " + limit + ", must be between 1 and " + MAX_SEARCH_RESULTS);
+		return employeeRepository.searchByName(query, limit);
+	}
+
+	@Override
+	public SalaryStats salaryStats() {
+		return employeeRepository.salaryStats();
+	}
+
+	@Override
+	public Employee getEmployeeById(String id) {
 		return employeeRepository
 			.findOne(id)
 			.orElseThrow(
@@ -32,18 +88,66 @@ public class EmployeeServiceImpl implements EmployeeService {
 	}
 
 	@Override
-	public synchronized Employee addEmployee(Employee employee) {
+	public EmployeeBatch getEmployeesByIds(List<String> ids) {
+		if (ids == null || ids.isEmpty() || ids.size() > MAX_BATCH_SIZE)
+			throw new BadRequestException(
+				"Invalid number of ids, must be between 1 and " + MAX_BATCH_SIZE);
+		if (ids.contains(null))
+			throw new BadRequestException("Invalid null id");
+		Set<String> distinct = new LinkedHashSet<>(ids);
+		Map<String, Employee> found = employeeRepository.findByIds(distinct);
+		EmployeeBatch batch = new EmployeeBatch();
+		for (String id : distinct) {
+			Employee employee = found.get(id);
+			if (employee != null)
+				batch.getEmployees().add(employee);
+			else
+				batch.getMissing().add(id);
+		}
+		return batch;
+	}
+
+	@Override
+	public long countEmployees() {
+		return employeeRepository.count();
+	}
+
+	@Override
+	public long employeesVersion() {
+		return employeeRepository.getVersion();
+	}
+
+	@Override
+	public Employee addEmployee(Employee employee) {
 		sanityChecks(employee);
 		return employeeRepository.save(employee);
 	}
 
 	@Override
-	public synchronized Employee replaceEmployeeById(String id, Employee employee) {
+	public void checkNewEmployee(Employee employee) {
+		sanityChecks(employee);
+	}
+
+	@Override
+	public List<Employee> addEmployees(List<Employee> employees) {
+		employees.forEach(this::sanityChecks);
+		return employeeRepository.saveAll(employees);
+	}
+
+	@Override
+	public Employee replaceEmployeeById(String id, Employee employee) {
 		sanityChecks(employee);
-		if (!employeeRepository.findOne(id).isPresent())
-			throw new NotFoundException("Employee not found with id " + id);
 		employee.setEmployeeId(id);
-		return employeeRepository.save(employee);
+		return employeeRepository.replace(employee)
+			.orElseThrow(() -> new NotFoundException("Employee not found with id " + id));
+	}
+
+	@Override
+	public Employee replaceEmployeeById(String id, Employee employee, long version) {
+		sanityChecks(employee);
+		employee.setEmployeeId(id);
+		return employeeRepository.replace(employee, version)
+			.orElseThrow(() -> notFoundOrModified(id));
 	}
 
 	private void sanityChecks(Employee employee) {
@@ -53,11 +157,27 @@ public class EmployeeServiceImpl implements EmployeeService {
 		if (employee.getEmployeeId() != null) {
 			throw new BadRequestException("Unexpected id specification for Employee");
 		}
+		if (employee.getName() != null && employee.getName().length() > MAX_NAME_LENGTH) {
+			throw new BadRequestException(
+				"Invalid name for Employee, must be at most " + MAX_NAME_LENGTH + " characters");
+		}
 	}
 
 	@Override
-	public synchronized Employee deleteEmployeeById(String id) {
+	public Employee deleteEmployeeById(String id) {
 		return employeeRepository.deleteById(id);
 	}
 
+	@Override
+	public Employee deleteEmployeeById(String id, long version) {
+		return employeeRepository.deleteById(id, version)
+			.orElseThrow(() -> notFoundOrModified(id));
+	}
+
+	private RuntimeException notFoundOrModified(String id) {
+		if (!employeeRepository.findOne(id).isPresent())
+			return new NotFoundException("Employee not found with id " + id);
+		return new EmployeeModifiedException("Employee with id " + id + " has been modified");
+	}
+
 }
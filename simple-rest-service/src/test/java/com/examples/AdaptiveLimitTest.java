@@ -0,0 +1,86 @@
+package com.examples;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class AdaptiveLimitTest {
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private AdaptiveLimit limit = new AdaptiveLimit(100);
+
+	@Test
+	public void testRequestsOverTheLimitAreNotAcquired() {
+		limit = new AdaptiveLimit(2);
+		assertThat(limit.tryAcquire()).isTrue();
+		assertThat(limit.tryAcquire()).isTrue();
+		assertThat(limit.tryAcquire()).isFalse();
+		assertThat(limit.getInFlight()).isEqualTo(2);
+		limit.release(FAST);
+		assertThat(limit.tryAcquire()).isTrue();
+	}
+
+	@Test
+	public void testNoLimit() {
+		limit = new AdaptiveLimit(0);
+		for (int i = 0; i < 1000; i++)
+			assertThat(limit.tryAcquire()).isTrue();
+		assertThat(limit.getLimit()).isZero();
+	}
+
+	@Test
+	public void testTheLimitGrowsWhileTheLatencyDoesNotChange() {
+		runWindows(10, FAST);
+		assertThat(limit.getLimit()).isGreaterThan(AdaptiveLimit.INITIAL_LIMIT);
+	}
+
+	@Test
+	public void testTheLimitDoesNotGrowWhenItIsNotUsed() {
+		for (int i = 0; i < 10 * AdaptiveLimit.WINDOW; i++) {
+			limit.tryAcquire();
+			limit.release(FAST);
+		}
+		assertThat(limit.getLimit()).isEqualTo(AdaptiveLimit.INITIAL_LIMIT);
+	}
+
+	@Test
+	public void testTheLimitDecreasesWhenTheLatencyGrows() {
+		runWindows(5, FAST);
+		int before = limit.getLimit();
+		runWindows(20, 10 * FAST);
+		assertThat(limit.getLimit()).isLessThan(before / 2);
+		// and grows again once the overload is over
+		int overloaded = limit.getLimit();
+		runWindows(20, FAST);
+		assertThat(limit.getLimit()).isGreaterThan(overloaded);
+	}
+
+	@Test
+	public void testTheLimitStaysWithinItsBounds() {
+		limit = new AdaptiveLimit(30);
+		runWindows(50, FAST);
+		assertThat(limit.getLimit()).isEqualTo(30);
+		// a few requests still go through a long overload
+		runWindows(100, 1000 * FAST);
+		assertThat(limit.getLimit()).isBetween(1, 4);
+	}
+
+	/**
+	 * Runs about "windows" windows of requests with the given latency, as many
+	 * at the same time as the limit.
+	 */
+	private void runWindows(int windows, long latencyNanos) {
+		int samples = 0;
+		while (samples < windows * AdaptiveLimit.WINDOW) {
+			int acquired = 0;
+			while (limit.tryAcquire())
+				acquired++;
+			for (int i = 0; i < acquired; i++)
+				limit.release(latencyNanos);
+			samples += acquired;
+		}
+	}
+}
@@ -7,6 +7,8 @@ import static org.awaitility.Awaitility.await;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
 
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -84,6 +86,111 @@ public class EmployeeResourceRestAssuredIT {
 				body(equalTo("Got it!"));
 	}
 
+	@Test
+	public void testGetEmployeesPages() {
+		Response response = given().
+				accept(MediaType.APPLICATION_JSON).
+				queryParam("limit", 2).
+			when().
+				get(EMPLOYEES);
+
+		assertThat(response.path("id"), contains("ID1", "ID2"));
+
+		// follow the "next" link
+		String next = response.header("Link").replaceAll("^<(.*)>.*$", "$1");
+		given().
+			accept(MediaType.APPLICATION_JSON).
+		when().
+			get(next).
+		then().
+			statusCode(200).
+			assertThat().
+			body("id", contains("ID3")).
+			header("Link", nullValue());
+	}
+
+	@Test
+	public void testGetEmployeesBySalary() {
+		given().
+			accept(MediaType.APPLICATION_JSON).
+			queryParam("minSalary", 1500).
+			queryParam("maxSalary", 3000).
+		when().
+			get(EMPLOYEES).
+		then().
+			statusCode(200).
+			assertThat().
+			body("id", contains("ID2", "ID3"));
+	}
+
+	@Test
+	public void testSearchEmployees() {
+		given().
+			accept(MediaType.APPLICATION_JSON).
+			queryParam("q", "ir").
+			queryParam("limit", 5).
+		when().
+			get(EMPLOYEES + "/search").
+		then().
+			statusCode(200).
+			assertThat().
+			body("id", empty());
+
+		given().
+			accept(MediaType.APPLICATION_JSON).
+			queryParam("q", "thi EMPL").
+		when().
+			get(EMPLOYEES + "/search").
+		then().
+			statusCode(200).
+			assertThat().
+			body("id", contains("ID3"));
+	}
+
+	@Test
+	public void testGetSalaryStats() {
+		given().
+			accept(MediaType.APPLICATION_JSON).
+		when().
+			get(EMPLOYEES + "/stats").
+		then().
+			statusCode(200).
+			assertThat().
+			body(
+				"count", equalTo(3),
+				"sum", equalTo(6000),
+				"min", equalTo(1000),
+				"max", equalTo(3000)
+			);
+	}
+
+	@Test
+	public void testGetEmployeesByIds() {
+		given().
+			contentType(MediaType.APPLICATION_JSON).
+			accept(MediaType.APPLICATION_JSON).
+			body("[\"ID3\",\"foo\",\"ID1\",\"ID3\"]").
+		when().
+			post(EMPLOYEES + "/batch-get").
+		then().
+			statusCode(200).
+			assertThat().
+			body(
+				"employees.id", contains("ID3", "ID1"),
+				"employees.name", contains("Third Employee", "First Employee"),
+				"missing", contains("foo")
+			);
+
+		given().
+			contentType(MediaType.APPLICATION_JSON).
+			body("[]").
+		when().
+			post(EMPLOYEES + "/batch-get").
+		then().
+			statusCode(400).
+			body(equalTo("Invalid number of ids, must be between 1 and 1000"));
+	}
+
 	@Test
 	public void testPostNewEmployee() {
 		JsonObject newObject = Json.createObjectBuilder()
@@ -117,6 +224,67 @@ public class EmployeeResourceRestAssuredIT {
 			);
 	}
 
+	@Test
+	public void testPostMalformedEmployee() {
+		given().
+			contentType(MediaType.APPLICATION_JSON).
+			body("{\"name\" \"test employee\"}").
+		when().
+			post(EMPLOYEES).
+		then().
+			statusCode(400).
+			assertThat().
+			contentType(MediaType.TEXT_PLAIN).
+			body(equalTo("Malformed JSON at offset 8: expected ':'"));
+	}
+
+	@Test
+	public void testPostBulkEmployees() {
+		// more than a batch
+		String upload = IntStream.range(0, EmployeeBulkImport.BATCH_SIZE + 10)
+			.mapToObj(i -> i == 500
+				? "{\"id\":\"ID1\",\"name\":\"bulk employee\",\"salary\":" + i + "}"
+				: "{\"name\":\"bulk employee\",\"salary\":" + i + "}")
+			.collect(Collectors.joining("\n"));
+
+		String[] results = given().
+				contentType(EmployeeBulkImport.APPLICATION_NDJSON).
+				body(upload.getBytes(StandardCharsets.UTF_8)).
+			when().
+				post(EMPLOYEES + "/bulk").
+			then().
+				statusCode(200).
+				contentType(EmployeeBulkImport.APPLICATION_NDJSON).
+			extract().
+				body().asString().split("\n");
+
+		assertThat(results.length, equalTo(EmployeeBulkImport.BATCH_SIZE + 10));
+		assertThat(results[500],
+			equalTo("{\"line\":501,\"error\":\"Unexpected id specification for Employee\"}"));
+		String id = Json.createReader(new StringReader(results[1009]))
+			.readObject().getString("id");
+
+		given().
+			accept(MediaType.APPLICATION_JSON).
+		when().
+			get(EMPLOYEES + "/" + id).
+		then().
+			statusCode(200).
+			assertThat().
+			body(
+				"name", equalTo("bulk employee"),
+				"salary", equalTo(1009)
+			);
+
+		// the initial employees, and all the valid lines
+		given().
+			accept(MediaType.TEXT_PLAIN).
+		when().
+			get(EMPLOYEES + "/count").
+		then().
+			body(equalTo(String.valueOf(3 + EmployeeBulkImport.BATCH_SIZE + 9)));
+	}
+
 	@Test
 	public void testPostNewEmployeeConcurrent() {
 		JsonObject newObject = Json.createObjectBuilder()
@@ -158,6 +326,15 @@ public class EmployeeResourceRestAssuredIT {
 				.add("salary", 2000)
 				.build();
 
+		// read the employee before, so that it gets in the encoded cache
+		given().
+			accept(MediaType.APPLICATION_JSON).
+		when().
+			get(EMPLOYEES + "/ID1").
+		then().
+			statusCode(200).
+			body("name", equalTo("First Employee"));
+
 		given().
 			contentType(MediaType.APPLICATION_JSON).
 			body(newObject.toString()).
@@ -209,6 +386,59 @@ public class EmployeeResourceRestAssuredIT {
 			body(equalTo("Unexpected id specification for Employee"));
 	}
 
+	@Test
+	public void testPutAndDeleteIfMatch() {
+		String etag = given().
+				accept(MediaType.APPLICATION_JSON).
+			when().
+				get(EMPLOYEES + "/ID2").
+			then().
+				statusCode(200).
+				extract().header("ETag");
+
+		String newEtag = given().
+				contentType(MediaType.APPLICATION_JSON).
+				header("If-Match", etag).
+				body("{\"name\":\"modified employee\",\"salary\":2500}").
+			when().
+				put(EMPLOYEES + "/ID2").
+			then().
+				statusCode(200).
+				extract().header("ETag");
+
+		// the employee has been modified since we read it
+		given().
+			contentType(MediaType.APPLICATION_JSON).
+			header("If-Match", etag).
+			body("{\"name\":\"lost update\",\"salary\":3000}").
+		when().
+			put(EMPLOYEES + "/ID2").
+		then().
+			statusCode(412);
+		given().
+			header("If-Match", etag).
+		when().
+			delete(EMPLOYEES + "/ID2").
+		then().
+			statusCode(412);
+
+		given().
+			accept(MediaType.APPLICATION_JSON).
+			header("If-None-Match", newEtag).
+		when().
+			get(EMPLOYEES + "/ID2").
+		then().
+			statusCode(304);
+
+		given().
+			header("If-Match", newEtag).
+		when().
+			delete(EMPLOYEES + "/ID2").
+		then().
+			statusCode(202).
+			body("name", equalTo("modified employee"));
+	}
+
 	@Test
 	public void testDelete() {
 		when().
@@ -3,19 +3,43 @@ package com.examples;
 import static io.restassured.RestAssured.given;
 import static io.restassured.RestAssured.when;
 import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import java.util.List;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import javax.json.Json;
 import javax.json.JsonObject;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.core.Application;
 import javax.ws.rs.core.MediaType;
 
+import org.glassfish.hk2.api.TypeLiteral;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
+import org.glassfish.jersey.moxy.xml.MoxyXmlFeature;
 import org.glassfish.jersey.server.ResourceConfig;
 import org.glassfish.jersey.test.JerseyTest;
 import org.hamcrest.Matchers;
@@ -24,7 +48,12 @@ import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import com.examples.binary.EmployeeBinaryReader;
+import com.examples.cache.EncodedEmployeeCache;
+import com.examples.cache.SingleFlight;
 import com.examples.model.Employee;
+import com.examples.model.EmployeeBatch;
+import com.examples.model.SalaryStats;
 import com.examples.service.EmployeeService;
 
 import io.restassured.RestAssured;
@@ -36,11 +65,29 @@ public class EmployeeResourceRestAssuredTest extends JerseyTest {
 	@Mock
 	private EmployeeService employeeService;
 
+	private EncodedEmployeeCache cache;
+
+	private AdaptiveLimit reads;
+
+	private AdaptiveLimit writes;
+
+	private SingleFlight<String, byte[]> flights;
+
 	@Override
 	protected Application configure() {
 		MockitoAnnotations.initMocks(this);
+		cache = new EncodedEmployeeCache(1024 * 1024);
+		reads = new AdaptiveLimit(AdaptiveLimit.INITIAL_LIMIT);
+		writes = new AdaptiveLimit(AdaptiveLimit.INITIAL_LIMIT);
+		flights = new SingleFlight<>();
 		// register only the EmployeeResource
-		return new ResourceConfig(EmployeeResource.class)
+		// and the providers for employees
+		return new ResourceConfig(EmployeeResource.class,
+				EmployeeStreamWriter.class, EmployeeBinaryProvider.class,
+				EmployeeJsonProvider.class, EmployeeCollectionJsonProvider.class,
+				EmployeeBatchJsonProvider.class,
+				EncodedEmployeeCacheInterceptor.class, CoalescingInterceptor.class,
+				AdmissionFilter.class, MoxyXmlFeature.class)
 			// inject the mock in our EmployeeResource
 			.register(new AbstractBinder() {
 				@Override
@@ -49,6 +96,20 @@ public class EmployeeResourceRestAssuredTest extends JerseyTest {
 					// bind(concrete).to(abstract)
 					bind(employeeService)
 						.to(EmployeeService.class);
+					bind(cache)
+						.to(EncodedEmployeeCache.class);
+					bind(new ResourceExecutor(2, 10, 0))
+						.to(ResourceExecutor.class);
+					bind(reads)
+						.named(AdmissionFilter.READS)
+						.to(AdaptiveLimit.class);
+					bind(writes)
+						.named(AdmissionFilter.WRITES)
+						.to(AdaptiveLimit.class);
+					bind(new QueueDelay(0))
+						.to(QueueDelay.class);
+					bind(flights)
+						.to(new TypeLiteral<SingleFlight<String, byte[]>>() {});
 				}
 			});
 	}
@@ -71,8 +132,8 @@ public class EmployeeResourceRestAssuredTest extends JerseyTest {
 
 	@Test
 	public void testGetAllEmployees() {
-		when(employeeService.allEmployees())
-			.thenReturn(asList(
+		when(employeeService.streamAllEmployees())
+			.thenReturn(Stream.of(
 				new Employee("ID1", "First Employee", 1000),
 				new Employee("ID2", "Second Employee", 2000)
 			));
@@ -96,8 +157,8 @@ public class EmployeeResourceRestAssuredTest extends JerseyTest {
 
 	@Test
 	public void testGetAllEmployeesWithRootPaths() {
-		when(employeeService.allEmployees())
-			.thenReturn(asList(
+		when(employeeService.streamAllEmployees())
+			.thenReturn(Stream.of(
 				new Employee("ID1", "First Employee", 1000),
 				new Employee("ID2", "Second Employee", 2000)
 			));
@@ -124,6 +185,180 @@ public class EmployeeResourceRestAssuredTest extends JerseyTest {
 				);
 	}
 
+	@Test
+	public void testGetAllEmployeesWhenEmpty() {
+		when(employeeService.streamAllEmployees())
+			.thenReturn(Stream.empty(), Stream.empty());
+
+		given().
+			accept(MediaType.APPLICATION_JSON).
+		when().
+			get(EMPLOYEES).
+		then().
+			statusCode(200).
+			body(equalTo("[]"));
+
+		given().
+			accept(MediaType.APPLICATION_XML).
+		when().
+			get(EMPLOYEES).
+		then().
+			statusCode(200).
+			body(endsWith("<employees></employees>"));
+	}
+
+	@Test
+	public void testGetEmployeesPageWithNextLink() {
+		when(employeeService.employeesPage(null, 2))
+			.thenReturn(asList(
+				new Employee("ID1", "First Employee", 1000),
+				new Employee("ID2", "Second Employee", 2000)
+			));
+
+		given().
+			accept(MediaType.APPLICATION_JSON).
+			queryParam("limit", 2).
+		when().
+			get(EMPLOYEES).
+		then().
+			statusCode(200).
+			assertThat().
+			body(
+				"id", contains("ID1", "ID2")
+			).
+			// the cursor is "ID2" in Base64
+			header("Link", containsString("cursor=SUQy")).
+			header("Link", containsString("rel=\"next\""));
+	}
+
+	@Test
+	public void testGetEmployeesBySalary() {
+		when(employeeService.employeesBySalary(1500, Integer.MAX_VALUE))
+			.thenReturn(asList(
+				new Employee("ID2", "Second Employee", 2000),
+				new Employee("ID3", "Third Employee", 3000)
+			));
+
+		given().
+			accept(MediaType.APPLICATION_JSON).
+			queryParam("minSalary", 1500).
+		when().
+			get(EMPLOYEES).
+		then().
+			statusCode(200).
+			assertThat().
+			body(
+				"id", contains("ID2", "ID3"),
+				"salary", contains(2000, 3000)
+			);
+	}
+
+	@Test
+	public void testGetEmployeesBySalaryCannotBePaginated() {
+		given().
+			accept(MediaType.APPLICATION_JSON).
+			queryParam("maxSalary", 1500).
+			queryParam("limit", 10).
+		when().
+			get(EMPLOYEES).
+		then().
+			statusCode(400);
+
+		verify(employeeService, never()).employeesBySalary(anyInt(), anyInt());
+	}
+
+	@Test
+	public void testSearchEmployees() {
+		when(employeeService.searchEmployees("fir emp", EmployeeResource.DEFAULT_SEARCH_LIMIT))
+			.thenReturn(asList(
+				new Employee("ID1", "First Employee", 1000)
+			));
+
+		given().
+			accept(MediaType.APPLICATION_XML).
+			queryParam("q", "fir emp").
+		when().
+			get(EMPLOYEES + "/search").
+		then().
+			statusCode(200).
+			assertThat().
+			body(
+				"employees.employee[0].id", equalTo("ID1"),
+				"employees.employee[0].name", equalTo("First Employee")
+			);
+	}
+
+	@Test
+	public void testGetSalaryStats() {
+		SalaryStats stats = new SalaryStats();
+		stats.setCount(2);
+		stats.setSum(3000);
+		stats.setAverage(1500);
+		stats.setMin(1000);
+		stats.setMax(2000);
+		stats.setP50(1000);
+		stats.setP90(2000);
+		stats.setP99(2000);
+		when(employeeService.salaryStats())
+			.thenReturn(stats);
+
+		given().
+			accept(MediaType.APPLICATION_JSON).
+		when().
+			get(EMPLOYEES + "/stats").
+		then().
+			statusCode(200).
+			assertThat().
+			body(
+				"count", equalTo(2),
+				"sum", equalTo(3000),
+				"average", equalTo(1500.0f),
+				"min", equalTo(1000),
+				"p90", equalTo(2000)
+			);
+
+		given().
+			accept(MediaType.APPLICATION_XML).
+		when().
+			get(EMPLOYEES + "/stats").
+		then().
+			statusCode(200).
+			assertThat().
+			body("salaryStats.max", equalTo("2000"));
+	}
+
+	@Test
+	public void testGetEmployeesLastPageWithCursor() {
+		when(employeeService.employeesPage("ID2", EmployeeResource.DEFAULT_PAGE_SIZE))
+			.thenReturn(asList(
+				new Employee("ID3", "Third Employee", 3000)
+			));
+
+		given().
+			accept(MediaType.APPLICATION_JSON).
+			queryParam("cursor", "SUQy").
+		when().
+			get(EMPLOYEES).
+		then().
+			statusCode(200).
+			assertThat().
+			body(
+				"id", contains("ID3")
+			).
+			header("Link", nullValue());
+	}
+
+	@Test
+	public void testGetEmployeesPageWithInvalidCursor() {
+		given().
+			accept(MediaType.APPLICATION_JSON).
+			queryParam("cursor", "#").
+		when().
+			get(EMPLOYEES).
+		then().
+			statusCode(400);
+	}
+
 	@Test
 	public void testGetOneEmployee() {
 		when(employeeService.getEmployeeById(anyString()))
@@ -146,8 +381,8 @@ public class EmployeeResourceRestAssuredTest extends JerseyTest {
 
 	@Test
 	public void testGetAllEmployeesJSON() {
-		when(employeeService.allEmployees())
-			.thenReturn(asList(
+		when(employeeService.streamAllEmployees())
+			.thenReturn(Stream.of(
 				new Employee("ID1", "First Employee", 1000),
 				new Employee("ID2", "Second Employee", 2000)
 			));
@@ -193,18 +428,204 @@ public class EmployeeResourceRestAssuredTest extends JerseyTest {
 			);
 	}
 
+	@Test
+	public void testGetEmployeesByIds() {
+		when(employeeService.getEmployeesByIds(asList("ID1", "ID9")))
+			.thenReturn(new EmployeeBatch(
+				asList(new Employee("ID1", "An Employee", 2000)), asList("ID9")));
+
+		given().
+			contentType(MediaType.APPLICATION_JSON).
+			accept(MediaType.APPLICATION_JSON).
+			body("[\"ID1\", \"ID9\"]").
+		when().
+			post(EMPLOYEES + "/batch-get").
+		then().
+			statusCode(200).
+			assertThat().
+			body(
+				"employees.id", contains("ID1"),
+				"employees.salary", contains(2000),
+				"missing", contains("ID9")
+			);
+	}
+
+	@Test
+	public void testGetEmployeesByIdsXML() {
+		when(employeeService.getEmployeesByIds(asList("ID1", "ID9")))
+			.thenReturn(new EmployeeBatch(
+				asList(new Employee("ID1", "An Employee", 2000)), asList("ID9")));
+
+		given().
+			contentType(MediaType.APPLICATION_JSON).
+			accept(MediaType.APPLICATION_XML).
+			body("[\"ID1\", \"ID9\"]").
+		when().
+			post(EMPLOYEES + "/batch-get").
+		then().
+			statusCode(200).
+			assertThat().
+			body(
+				"employeeBatch.employees.id", equalTo("ID1"),
+				"employeeBatch.missing", equalTo("ID9")
+			);
+	}
+
+	@Test
+	public void testGetOneEmployeeFromTheEncodedCache() {
+		Employee employee = new Employee("ID1", "An Employee", 2000);
+		when(employeeService.getEmployeeById("ID1"))
+			.thenReturn(employee);
+
+		for (int i = 0; i < 2; i++) {
+			given().
+				accept(MediaType.APPLICATION_JSON).
+			when().
+				get(EMPLOYEES + "/ID1").
+			then().
+				statusCode(200).
+				body("id", equalTo("ID1"), "salary", equalTo(2000));
+		}
+		// the XML encoding is cached separately
+		given().
+			accept(MediaType.APPLICATION_XML).
+		when().
+			get(EMPLOYEES + "/ID1").
+		then().
+			statusCode(200).
+			body("employee.id", equalTo("ID1"));
+
+		assertThat(cache.getMisses()).isEqualTo(2);
+		assertThat(cache.getHits()).isEqualTo(1);
+	}
+
+	@Test
+	public void testGetOneEmployeeNotFromTheEncodedCacheWhenReplaced() {
+		when(employeeService.getEmployeeById("ID1"))
+			.thenReturn(new Employee("ID1", "An Employee", 2000))
+			.thenReturn(new Employee("ID1", "Replaced Employee", 3000));
+
+		when().get(EMPLOYEES + "/ID1").then().body("employee.name", equalTo("An Employee"));
+		when().get(EMPLOYEES + "/ID1").then().body("employee.name", equalTo("Replaced Employee"));
+
+		assertThat(cache.getHits()).isZero();
+	}
+
+	@Test
+	public void testGetEmployeesPageEncodedAgainAtAnotherVersion() {
+		when(employeeService.employeesVersion())
+			.thenReturn(1L)
+			.thenReturn(2L);
+		when(employeeService.employeesPage(null, 1))
+			.thenReturn(asList(new Employee("ID1", "An Employee", 2000)))
+			.thenReturn(asList(new Employee("ID1", "Replaced Employee", 3000)));
+
+		given().accept(MediaType.APPLICATION_JSON).queryParam("limit", 1).when().get(EMPLOYEES)
+			.then().statusCode(200).body("name", contains("An Employee"));
+		given().accept(MediaType.APPLICATION_JSON).queryParam("limit", 1).when().get(EMPLOYEES)
+			.then().statusCode(200).body("name", contains("Replaced Employee"));
+
+		// sequential requests do not share the encoding
+		assertThat(flights.getComputed()).isEqualTo(2);
+		assertThat(flights.getShared()).isZero();
+	}
+
+	@Test
+	public void testGetAllEmployeesStreamedNotCoalesced() throws Exception {
+		// the second half of the employees is produced only after the client
+		// received the first bytes, which never happens if the listing is
+		// buffered whole
+		CountDownLatch firstBytesReceived = new CountDownLatch(1);
+		AtomicBoolean streamed = new AtomicBoolean();
+		when(employeeService.streamAllEmployees())
+			.thenReturn(IntStream.range(0, 20_000).mapToObj(i -> {
+				if (i == 10_000)
+					streamed.set(await(firstBytesReceived));
+				return new Employee("ID" + i, "Employee " + i, i);
+			}));
+
+		try (InputStream body = target(EMPLOYEES)
+				.request(MediaType.APPLICATION_XML)
+				.get(InputStream.class)) {
+			assertThat(body.read()).isNotEqualTo(-1);
+			firstBytesReceived.countDown();
+			String rest = new String(readAll(body), StandardCharsets.UTF_8);
+			assertThat(rest).endsWith("</employees>");
+		}
+
+		assertThat(streamed).isTrue();
+		assertThat(flights.getComputed()).isZero();
+	}
+
+	private static boolean await(CountDownLatch latch) {
+		try {
+			return latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		for (int n; (n = in.read(buffer)) != -1;)
+			out.write(buffer, 0, n);
+		return out.toByteArray();
+	}
+
+	@Test
+	public void testGetOneEmployeeBinary() throws IOException {
+		when(employeeService.getEmployeeById(anyString()))
+			.thenReturn(
+				new Employee("ID1", "An Employee", 2000));
+
+		byte[] body = given().
+				accept(EmployeeBinaryProvider.APPLICATION_EMPLOYEE_BINARY).
+			when().
+				get(EMPLOYEES + "/ID1").
+			then().
+				statusCode(200).
+				contentType(EmployeeBinaryProvider.APPLICATION_EMPLOYEE_BINARY).
+				extract().asByteArray();
+
+		assertThat(new EmployeeBinaryReader(new ByteArrayInputStream(body)).readAll())
+			.containsExactly(new Employee("ID1", "An Employee", 2000));
+	}
+
+	@Test
+	public void testGetAllEmployeesBinary() throws IOException {
+		when(employeeService.streamAllEmployees())
+			.thenReturn(Stream.of(
+				new Employee("ID1", "First Employee", 1000),
+				new Employee("ID2", "Second Employee", 2000)
+			));
+
+		byte[] body = given().
+				accept(EmployeeBinaryProvider.APPLICATION_EMPLOYEE_BINARY).
+			when().
+				get(EMPLOYEES).
+			then().
+				statusCode(200).
+				extract().asByteArray();
+
+		assertThat(new EmployeeBinaryReader(new ByteArrayInputStream(body)).readAll())
+			.containsExactly(
+				new Employee("ID1", "First Employee", 1000),
+				new Employee("ID2", "Second Employee", 2000));
+	}
+
 	@Test
 	public void testCount() {
-		List<Employee> employees = asList(new Employee(), new Employee());
-		when(employeeService.allEmployees())
-			.thenReturn(employees);
+		when(employeeService.countEmployees())
+			.thenReturn(2L);
 
 		when().
 			get(EMPLOYEES + "/count").
 		then().
 			statusCode(200).
 			assertThat().
-			body(equalTo("" + employees.size()));
+			body(equalTo("2"));
 	}
 
 	@Test
@@ -240,6 +661,72 @@ public class EmployeeResourceRestAssuredTest extends JerseyTest {
 				response -> endsWith(EMPLOYEES + "/ID"));
 	}
 
+	@Test
+	public void testPostEmployeeWithTrailingData() {
+		given().
+			contentType(MediaType.APPLICATION_JSON).
+			body("{\"name\":\"passed name\",\"salary\":1000} {\"name\":\"another\"}").
+		when().
+			post(EMPLOYEES).
+		then().
+			statusCode(400);
+
+		verify(employeeService, never()).addEmployee(any());
+	}
+
+	@Test
+	public void testPostBulkEmployees() {
+		doThrow(new BadRequestException("Unexpected id specification for Employee"))
+			.when(employeeService).checkNewEmployee(new Employee("ID", "with id", 0));
+		when(employeeService.addEmployees(
+				asList(new Employee(null, "first", 1000), new Employee(null, "third", 3000))))
+			.thenReturn(asList(new Employee("ID1", "first", 1000), new Employee("ID3", "third", 3000)));
+
+		given().
+			contentType(EmployeeBulkImport.APPLICATION_NDJSON).
+			// RestAssured cannot encode strings for this content type
+			body(("{\"name\":\"first\",\"salary\":1000}\n"
+				+ "{\"id\":\"ID\",\"name\":\"with id\"}\n"
+				+ "\n"
+				+ "{\"name\":\"third\",\"salary\":3000}\n"
+				+ "{\"name\" \"malformed\"}\n"
+				+ "{\"name\":\"not alone\"} {}\n").getBytes(StandardCharsets.UTF_8)).
+		when().
+			post(EMPLOYEES + "/bulk").
+		then().
+			statusCode(200).
+			contentType(EmployeeBulkImport.APPLICATION_NDJSON).
+			body(equalTo("{\"line\":1,\"id\":\"ID1\"}\n"
+				+ "{\"line\":2,\"error\":\"Unexpected id specification for Employee\"}\n"
+				+ "{\"line\":4,\"id\":\"ID3\"}\n"
+				+ "{\"line\":5,\"error\":\"Malformed JSON at offset 100: expected ':'\"}\n"
+				+ "{\"line\":6,\"error\":\"Malformed JSON at offset 134: expected the end of the line\"}\n"));
+
+		// all the valid employees in a single batch
+		verify(employeeService, never()).addEmployee(any());
+	}
+
+	@Test
+	public void testPostBulkEmployeesWithTooLongLine() {
+		when(employeeService.addEmployees(asList(new Employee(null, "second", 2000))))
+			.thenReturn(asList(new Employee("ID2", "second", 2000)));
+		char[] name = new char[EmployeeBulkImport.MAX_LINE_LENGTH];
+		Arrays.fill(name, 'a');
+
+		given().
+			contentType(EmployeeBulkImport.APPLICATION_NDJSON).
+			body(("{\"name\":\"" + new String(name) + "\"}\n"
+				+ "{\"name\":\"second\",\"salary\":2000}\n").getBytes(StandardCharsets.UTF_8)).
+		when().
+			post(EMPLOYEES + "/bulk").
+		then().
+			statusCode(200).
+			body(
+				startsWith("{\"line\":1,\"error\":\"Malformed JSON at offset "),
+				containsString(": line longer than " + EmployeeBulkImport.MAX_LINE_LENGTH + " bytes\"}\n"),
+				endsWith("\n{\"line\":2,\"id\":\"ID2\"}\n"));
+	}
+
 	@Test
 	public void testPutEmployee() {
 		// values for the new Employee in the request body
@@ -297,4 +784,228 @@ public class EmployeeResourceRestAssuredTest extends JerseyTest {
 			assertThat().
 			body(Matchers.isEmptyString());
 	}
+
+	private static Employee employeeAtVersion(String id, long version) {
+		Employee employee = new Employee(id, "An Employee", 2000);
+		employee.setVersion(version);
+		return employee;
+	}
+
+	@Test
+	public void testGetOneEmployeeNotModified() {
+		when(employeeService.getEmployeeById("ID1"))
+			.thenReturn(employeeAtVersion("ID1", 7));
+
+		String etag = given().
+				accept(MediaType.APPLICATION_JSON).
+			when().
+				get(EMPLOYEES + "/ID1").
+			then().
+				statusCode(200).
+				header("ETag", Matchers.notNullValue()).
+				extract().header("ETag");
+
+		given().
+			accept(MediaType.APPLICATION_JSON).
+			header("If-None-Match", etag).
+		when().
+			get(EMPLOYEES + "/ID1").
+		then().
+			statusCode(304).
+			header("ETag", equalTo(etag)).
+			body(equalTo(""));
+
+		// a new version has another ETag
+		when(employeeService.getEmployeeById("ID1"))
+			.thenReturn(employeeAtVersion("ID1", 8));
+		given().
+			accept(MediaType.APPLICATION_JSON).
+			header("If-None-Match", etag).
+		when().
+			get(EMPLOYEES + "/ID1").
+		then().
+			statusCode(200).
+			header("ETag", Matchers.not(equalTo(etag)));
+	}
+
+	@Test
+	public void testRepresentationsHaveDifferentETags() {
+		when(employeeService.getEmployeeById("ID1"))
+			.thenReturn(employeeAtVersion("ID1", 7));
+
+		String jsonEtag = given().
+				accept(MediaType.APPLICATION_JSON).
+			when().
+				get(EMPLOYEES + "/ID1").
+			then().
+				statusCode(200).
+				contentType(MediaType.APPLICATION_JSON).
+				extract().header("ETag");
+		String xmlEtag = given().
+				accept(MediaType.APPLICATION_XML).
+			when().
+				get(EMPLOYEES + "/ID1").
+			then().
+				statusCode(200).
+				contentType(MediaType.APPLICATION_XML).
+				extract().header("ETag");
+		assertThat(xmlEtag).isNotEqualTo(jsonEtag);
+
+		// a cached JSON employee is not valid for XML
+		given().
+			accept(MediaType.APPLICATION_XML).
+			header("If-None-Match", jsonEtag).
+		when().
+			get(EMPLOYEES + "/ID1").
+		then().
+			statusCode(200).
+			contentType(MediaType.APPLICATION_XML).
+			header("ETag", equalTo(xmlEtag));
+		given().
+			accept(MediaType.APPLICATION_XML).
+			header("If-None-Match", xmlEtag).
+		when().
+			get(EMPLOYEES + "/ID1").
+		then().
+			statusCode(304);
+	}
+
+	@Test
+	public void testGetAllEmployeesNotModifiedDoesNotReadEmployees() {
+		when(employeeService.employeesVersion())
+			.thenReturn(3L);
+		when(employeeService.streamAllEmployees())
+			.thenReturn(Stream.of(new Employee("ID1", "First Employee", 1000)));
+
+		String etag = given().
+				accept(MediaType.APPLICATION_JSON).
+			when().
+				get(EMPLOYEES).
+			then().
+				statusCode(200).
+				extract().header("ETag");
+
+		given().
+			accept(MediaType.APPLICATION_JSON).
+			header("If-None-Match", etag).
+		when().
+			get(EMPLOYEES).
+		then().
+			statusCode(304);
+		given().
+			accept(MediaType.APPLICATION_JSON).
+			header("If-None-Match", etag).
+		when().
+			get(EMPLOYEES + "?limit=10").
+		then().
+			statusCode(304);
+
+		verify(employeeService, times(1)).streamAllEmployees();
+		verify(employeeService, never()).employeesPage(null, 10);
+	}
+
+	@Test
+	public void testPutEmployeeIfMatch() {
+		when(employeeService.getEmployeeById("ID"))
+			.thenReturn(employeeAtVersion("ID", 4));
+		when(employeeService.replaceEmployeeById("ID", new Employee(null, "passed name", 1000), 4))
+			.thenReturn(employeeAtVersion("ID", 5));
+		String etag = when().get(EMPLOYEES + "/ID").then().extract().header("ETag");
+
+		given().
+			contentType(MediaType.APPLICATION_JSON).
+			header("If-Match", "\"another\"").
+			body("{\"name\":\"passed name\",\"salary\":1000}").
+		when().
+			put(EMPLOYEES + "/ID").
+		then().
+			statusCode(412);
+
+		given().
+			contentType(MediaType.APPLICATION_JSON).
+			header("If-Match", etag).
+			body("{\"name\":\"passed name\",\"salary\":1000}").
+		when().
+			put(EMPLOYEES + "/ID").
+		then().
+			statusCode(200).
+			header("ETag", Matchers.not(equalTo(etag))).
+			body("id", equalTo("ID"));
+
+		verify(employeeService, never()).replaceEmployeeById(anyString(), any(Employee.class));
+	}
+
+	@Test
+	public void testDeleteEmployeeIfMatch() {
+		when(employeeService.getEmployeeById("ID"))
+			.thenReturn(employeeAtVersion("ID", 4));
+		when(employeeService.deleteEmployeeById("ID", 4))
+			.thenReturn(employeeAtVersion("ID", 4));
+		String etag = when().get(EMPLOYEES + "/ID").then().extract().header("ETag");
+
+		given().
+			header("If-Match", "\"another\"").
+		when().
+			delete(EMPLOYEES + "/ID").
+		then().
+			statusCode(412);
+
+		given().
+			header("If-Match", etag).
+		when().
+			delete(EMPLOYEES + "/ID").
+		then().
+			statusCode(202).
+			body("id", equalTo("ID"));
+
+		verify(employeeService, never()).deleteEmployeeById("ID");
+	}
+
+	@Test
+	public void testAdmittedRequestsAreReleased() {
+		when(employeeService.getEmployeeById("ID1"))
+			.thenReturn(new Employee("ID1", "An Employee", 2000));
+
+		// more requests than the limit, one at a time
+		for (int i = 0; i < 2 * AdaptiveLimit.INITIAL_LIMIT; i++)
+			when().
+				get(EMPLOYEES + "/ID1").
+			then().
+				statusCode(200);
+	}
+
+	@Test
+	public void testReadsOverTheLimitAreRejected() {
+		while (reads.tryAcquire()) {
+			// the reads are all being processed
+		}
+		when(employeeService.addEmployee(new Employee(null, "passed name", 1000)))
+			.thenReturn(new Employee("ID", "returned name", 2000));
+
+		when().
+			get(EMPLOYEES + "/ID1").
+		then().
+			statusCode(429).
+			header("Retry-After", "1");
+
+		given().
+			contentType(MediaType.APPLICATION_JSON).
+			body("[\"ID1\"]").
+		when().
+			post(EMPLOYEES + "/batch-get").
+		then().
+			statusCode(429);
+
+		// writes have their own limit
+		given().
+			contentType(MediaType.APPLICATION_JSON).
+			body("{\"name\":\"passed name\",\"salary\":1000}").
+		when().
+			post(EMPLOYEES).
+		then().
+			statusCode(201);
+
+		verify(employeeService, never()).getEmployeeById(anyString());
+		verify(employeeService, never()).getEmployeesByIds(any());
+	}
 }
@@ -0,0 +1,65 @@
+package com.examples;
+
+import static io.restassured.RestAssured.*;
+import static org.hamcrest.Matchers.*;
+
+import javax.ws.rs.core.MediaType;
+
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import io.restassured.RestAssured;
+
+/**
+ * XML of employees with the whole application, as started by {@link Main}:
+ * JAXB contexts must not need the reference implementation, which cannot
+ * initialize on JDK 17 and later.
+ */
+public class EmployeeXmlRestAssuredTest {
+
+	private HttpServer server;
+
+	@Before
+	public void setUp() throws Exception {
+		server = Main.startServer();
+	}
+
+	@BeforeClass
+	public static void configureRestAssured() {
+		RestAssured.baseURI = Main.BASE_URI;
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.shutdownNow();
+	}
+
+	@Test
+	public void testGetAllEmployeesXML() {
+		given().
+			accept(MediaType.APPLICATION_XML).
+		when().
+			get("employees").
+		then().
+			statusCode(200).
+			assertThat().
+				contentType(MediaType.APPLICATION_XML).
+				and().
+				body("employees.employee.id", hasItems("ID1", "ID2", "ID3"));
+	}
+
+	@Test
+	public void testGetOneEmployeeXML() {
+		given().
+			accept(MediaType.APPLICATION_XML).
+		when().
+			get("employees/ID1").
+		then().
+			statusCode(200).
+			assertThat().
+				body("employee.name", equalTo("First Employee"));
+	}
+}
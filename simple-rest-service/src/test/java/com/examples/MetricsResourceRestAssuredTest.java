@@ -0,0 +1,60 @@
+package com.examples;
+
+import static io.restassured.RestAssured.*;
+import static org.hamcrest.Matchers.*;
+
+import javax.ws.rs.core.MediaType;
+
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import io.restassured.RestAssured;
+
+public class MetricsResourceRestAssuredTest {
+
+	private HttpServer server;
+
+	@Before
+	public void setUp() throws Exception {
+		server = Main.startServer();
+	}
+
+	@BeforeClass
+	public static void configureRestAssured() {
+		RestAssured.baseURI = Main.BASE_URI;
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.shutdownNow();
+	}
+
+	@Test
+	public void testRequestsByResourceMethodAndStatus() {
+		given().accept(MediaType.TEXT_PLAIN).when().get("myresource").then().statusCode(200);
+		given().accept(MediaType.TEXT_PLAIN).when().get("myresource").then().statusCode(200);
+		// NotFoundMapper
+		when().get("nothing").then().statusCode(404);
+		// BadRequestMapper
+		given().accept(MediaType.APPLICATION_JSON).when().get("employees/search")
+			.then().statusCode(400);
+		when().
+			get("metrics").
+		then().
+			statusCode(200).
+			assertThat().
+				contentType(startsWith("text/plain")).
+				and().
+				body(
+					containsString("http_server_requests_seconds_count{method=\"MyResource.getIt\"} 2\n"),
+					containsString("http_server_responses_total{method=\"MyResource.getIt\",status=\"200\"} 2\n"),
+					containsString("http_server_responses_total{method=\"none\",status=\"404\"} 1\n"),
+					containsString("http_server_responses_total{method=\"EmployeeResource.searchEmployees\",status=\"400\"} 1\n"),
+					containsString("# TYPE employee_cache_hits_total counter\n"),
+					containsString("# TYPE coalesced_shared_total counter\n"),
+					containsString("process_cpu_seconds_total "));
+	}
+}
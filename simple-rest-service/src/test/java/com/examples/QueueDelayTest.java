@@ -0,0 +1,65 @@
+package com.examples;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class QueueDelayTest {
+
+	private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final QueueDelay queueDelay = new QueueDelay(5);
+
+	private long now = System.nanoTime();
+
+	@Test
+	public void testABurstIsNotRejected() {
+		// a request went through the queue right away in the last interval
+		assertThat(waited(0)).isFalse();
+		assertThat(waited(50)).isFalse();
+		now += QueueDelay.INTERVAL_NANOS + 1;
+		assertThat(waited(50)).isFalse();
+		assertThat(queueDelay.isOverloaded()).isFalse();
+	}
+
+	@Test
+	public void testAStandingQueueRejectsTheRequestsThatWaitedTooLong() {
+		assertThat(waited(20)).isFalse();
+		assertThat(waited(30)).isFalse();
+		now += QueueDelay.INTERVAL_NANOS + 1;
+		assertThat(waited(50)).isTrue();
+		assertThat(waited(10)).isFalse();
+		assertThat(queueDelay.isOverloaded()).isTrue();
+		// drained: a request waited less than the target in the last interval
+		assertThat(waited(4)).isFalse();
+		now += QueueDelay.INTERVAL_NANOS + 1;
+		assertThat(waited(50)).isFalse();
+	}
+
+	@Test
+	public void testAnIntervalWithoutRequestsIsNotOverloaded() {
+		now += 3 * QueueDelay.INTERVAL_NANOS + 1;
+		assertThat(waited(50)).isFalse();
+	}
+
+	@Test
+	public void testNoTarget() {
+		QueueDelay noTarget = new QueueDelay(0);
+		assertThat(noTarget.isTooLong(now - 1000 * MILLIS, now)).isFalse();
+		now += QueueDelay.INTERVAL_NANOS + 1;
+		assertThat(noTarget.isTooLong(now - 1000 * MILLIS, now)).isFalse();
+	}
+
+	@Test
+	public void testAnUnknownWaitIsNotRejected() {
+		assertThat(waited(20)).isFalse();
+		now += QueueDelay.INTERVAL_NANOS + 1;
+		assertThat(queueDelay.isTooLong(0, now)).isFalse();
+	}
+
+	private boolean waited(long millis) {
+		return queueDelay.isTooLong(now - millis * MILLIS, now);
+	}
+}
@@ -0,0 +1,172 @@
+package com.examples;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.Response;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class ResourceExecutorTest {
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@After
+	public void releaseBlockedMethods() {
+		release.countDown();
+	}
+
+	private String blocked() {
+		try {
+			release.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return "released";
+	}
+
+	private static boolean isTooManyRequests(Object entity) {
+		return entity instanceof Response && ((Response) entity).getStatus() == 429
+			&& ((Response) entity).getHeaderString("Retry-After") != null;
+	}
+
+	@Test
+	public void testResumesWithTheResult() {
+		ResourceExecutor executor = new ResourceExecutor(1, 1, 0);
+		AsyncResponse response = mock(AsyncResponse.class);
+		executor.execute(response, () -> "result");
+		verify(response, timeout(1000)).resume("result");
+	}
+
+	@Test
+	public void testResumesWithTheException() {
+		ResourceExecutor executor = new ResourceExecutor(1, 1, 0);
+		AsyncResponse response = mock(AsyncResponse.class);
+		NotFoundException exception = new NotFoundException();
+		executor.execute(response, () -> {
+			throw exception;
+		});
+		verify(response, timeout(1000)).resume(exception);
+	}
+
+	@Test
+	public void testWithoutThreadsRunsSynchronously() {
+		ResourceExecutor executor = new ResourceExecutor(0, 0, 1000);
+		AsyncResponse response = mock(AsyncResponse.class);
+		Thread[] thread = new Thread[1];
+		executor.execute(response, () -> thread[0] = Thread.currentThread());
+		verify(response).resume(Thread.currentThread());
+		verify(response, never()).setTimeout(any(Long.class), any());
+	}
+
+	@Test
+	public void testSetsTheTimeout() {
+		ResourceExecutor executor = new ResourceExecutor(1, 1, 100);
+		AsyncResponse response = mock(AsyncResponse.class);
+		executor.execute(response, () -> "result");
+		verify(response).setTimeout(100, TimeUnit.MILLISECONDS);
+		verify(response).setTimeoutHandler(any());
+	}
+
+	@Test
+	public void testRejectsWhenTheQueueIsFull() {
+		ResourceExecutor executor = new ResourceExecutor(1, 1, 0);
+		AsyncResponse running = mock(AsyncResponse.class);
+		AsyncResponse queued = mock(AsyncResponse.class);
+		AsyncResponse rejected = mock(AsyncResponse.class);
+		executor.execute(running, this::blocked);
+		executor.execute(queued, this::blocked);
+		executor.execute(rejected, this::blocked);
+		verify(rejected).resume((Object) argThat(ResourceExecutorTest::isTooManyRequests));
+		release.countDown();
+		verify(running, timeout(1000)).resume("released");
+		verify(queued, timeout(1000)).resume("released");
+	}
+
+	@Test
+	public void testResumesWithServerErrorOnErrors() {
+		ResourceExecutor executor = new ResourceExecutor(1, 1, 0);
+		AsyncResponse response = mock(AsyncResponse.class);
+		executor.execute(response, () -> {
+			throw new AssertionError("an error");
+		});
+		verify(response, timeout(1000)).resume(
+			(Object) argThat(entity -> entity instanceof Response
+				&& ((Response) entity).getStatus() == 500));
+	}
+
+	private static TimeoutHandler timeoutHandler(AsyncResponse response) {
+		ArgumentCaptor<TimeoutHandler> handler = ArgumentCaptor.forClass(TimeoutHandler.class);
+		verify(response).setTimeoutHandler(handler.capture());
+		return handler.getValue();
+	}
+
+	@Test
+	public void testMethodsTimedOutInTheQueueAreNotRun() {
+		ResourceExecutor executor = new ResourceExecutor(1, 1, 100);
+		AsyncResponse running = mock(AsyncResponse.class);
+		AsyncResponse timedOut = mock(AsyncResponse.class);
+		boolean[] run = new boolean[1];
+		executor.execute(running, this::blocked);
+		executor.execute(timedOut, () -> run[0] = true);
+		timeoutHandler(timedOut).handleTimeout(timedOut);
+		verify(timedOut).resume((Object) argThat(ResourceExecutorTest::isTooManyRequests));
+		release.countDown();
+		verify(running, timeout(1000)).resume("released");
+		assertThat(run[0]).isFalse();
+		verify(timedOut).resume(any(Object.class));
+	}
+
+	@Test
+	public void testStartedMethodsDoNotTimeOut() throws InterruptedException {
+		ResourceExecutor executor = new ResourceExecutor(1, 1, 100);
+		AsyncResponse running = mock(AsyncResponse.class);
+		CountDownLatch started = new CountDownLatch(1);
+		executor.execute(running, () -> {
+			started.countDown();
+			return blocked();
+		});
+		assertThat(started.await(1, TimeUnit.SECONDS)).isTrue();
+		timeoutHandler(running).handleTimeout(running);
+		// waits again, instead of answering while the change can be applied
+		verify(running, times(2)).setTimeout(100, TimeUnit.MILLISECONDS);
+		verify(running, never()).resume(any(Object.class));
+		release.countDown();
+		verify(running, timeout(1000)).resume("released");
+	}
+
+	@Test
+	public void testCloseWaitsForTheAcceptedMethods() throws InterruptedException {
+		ResourceExecutor executor = new ResourceExecutor(1, 1, 0);
+		AsyncResponse running = mock(AsyncResponse.class);
+		AsyncResponse queued = mock(AsyncResponse.class);
+		AsyncResponse rejected = mock(AsyncResponse.class);
+		executor.execute(running, this::blocked);
+		executor.execute(queued, () -> "queued");
+		Thread closing = new Thread(executor::close);
+		closing.start();
+		closing.join(100);
+		assertThat(closing.isAlive()).isTrue();
+		release.countDown();
+		closing.join(1000);
+		assertThat(closing.isAlive()).isFalse();
+		verify(running).resume("released");
+		verify(queued).resume("queued");
+		executor.execute(rejected, () -> "rejected");
+		verify(rejected).resume((Object) argThat(ResourceExecutorTest::isTooManyRequests));
+	}
+}
@@ -0,0 +1,43 @@
+package com.examples;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.concurrent.ExecutorService;
+
+import org.junit.Test;
+
+public class VirtualThreadsTest {
+
+	private static boolean isSupported() {
+		try {
+			Thread.class.getMethod("isVirtual");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	@Test
+	public void testRunsTasksOnVirtualThreads() throws Exception {
+		assumeTrue(isSupported());
+		ExecutorService executor = VirtualThreads.newExecutor();
+		try {
+			Object virtual = executor.submit(() ->
+				Thread.class.getMethod("isVirtual").invoke(Thread.currentThread())).get();
+			assertThat(virtual).isEqualTo(true);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testFailsBeforeJava21() {
+		assumeFalse(isSupported());
+		assertThatThrownBy(VirtualThreads::newExecutor)
+			.isInstanceOf(IllegalStateException.class)
+			.hasMessageContaining("Java 21");
+	}
+}
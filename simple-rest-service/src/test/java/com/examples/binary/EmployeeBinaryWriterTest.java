@@ -0,0 +1,81 @@
+package com.examples.binary;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.examples.model.Employee;
+
+public class EmployeeBinaryWriterTest {
+
+	private static byte[] write(List<Employee> employees) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EmployeeBinaryWriter writer = new EmployeeBinaryWriter(out);
+		writer.writeAll(employees.iterator());
+		writer.flush();
+		return out.toByteArray();
+	}
+
+	private static List<Employee> read(byte[] bytes) throws IOException {
+		return new EmployeeBinaryReader(new ByteArrayInputStream(bytes)).readAll();
+	}
+
+	@Test
+	public void testRecordLayout() throws IOException {
+		assertThat(write(asList(new Employee("ID1", "a", -1))))
+			.containsExactly(
+				8, // record length
+				3, // id and name present
+				3, 'I', 'D', '1',
+				1, 'a',
+				1 // zig-zag -1
+			);
+		assertThat(write(asList(new Employee(null, null, 64))))
+			.containsExactly(3, 0, 0x80, 0x01);
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		List<Employee> employees = asList(
+			new Employee("ID1", "First Employee", 1000),
+			new Employee(null, null, 0),
+			new Employee("ID3", "unicode é€ 😀", Integer.MIN_VALUE),
+			new Employee("ID4", "", Integer.MAX_VALUE));
+		assertThat(read(write(employees)))
+			.isEqualTo(employees);
+	}
+
+	@Test
+	public void testRoundTripOfLongRecords() throws IOException {
+		char[] name = new char[20000];
+		Arrays.fill(name, '€');
+		List<Employee> employees = asList(
+			new Employee("ID1", new String(name), 1),
+			new Employee("ID2", "short", 2));
+		assertThat(read(write(employees)))
+			.isEqualTo(employees);
+	}
+
+	@Test
+	public void testEmptyStream() throws IOException {
+		assertThat(write(asList())).isEmpty();
+		assertThat(new EmployeeBinaryReader(new ByteArrayInputStream(new byte[0])).read())
+			.isNull();
+	}
+
+	@Test
+	public void testTruncatedRecord() throws IOException {
+		byte[] bytes = write(asList(new Employee("ID1", "a", 1)));
+		assertThatThrownBy(() -> read(Arrays.copyOf(bytes, bytes.length - 1)))
+			.isInstanceOf(EOFException.class);
+	}
+}
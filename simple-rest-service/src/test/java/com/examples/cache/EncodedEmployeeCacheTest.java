@@ -0,0 +1,98 @@
+package com.examples.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import com.examples.model.Employee;
+
+public class EncodedEmployeeCacheTest {
+
+	private static final String JSON = "application/json";
+
+	private static final String XML = "application/xml";
+
+	@Test
+	public void testGetPutEncodingsPerMediaType() {
+		EncodedEmployeeCache cache = new EncodedEmployeeCache(1024 * 1024);
+		Employee employee = new Employee("ID1", "an employee", 1000);
+		assertThat(cache.get(employee, JSON)).isNull();
+		cache.put(employee, JSON, new byte[] { 1 });
+		cache.put(employee, XML, new byte[] { 2 });
+		assertThat(cache.get(employee, JSON)).containsExactly(1);
+		assertThat(cache.get(employee, XML)).containsExactly(2);
+		assertThat(cache.getHits()).isEqualTo(2);
+		assertThat(cache.getMisses()).isEqualTo(1);
+		assertThat(cache.getSize()).isEqualTo(1);
+	}
+
+	@Test
+	public void testOnlyTheSameInstanceHits() {
+		EncodedEmployeeCache cache = new EncodedEmployeeCache(1024 * 1024);
+		Employee employee = new Employee("ID1", "an employee", 1000);
+		cache.put(employee, JSON, new byte[] { 1 });
+		Employee replaced = new Employee("ID1", "an employee", 1000);
+		assertThat(cache.get(replaced, JSON)).isNull();
+		// the encoding of the replaced employee takes the place of the old one
+		cache.put(replaced, XML, new byte[] { 2 });
+		assertThat(cache.get(employee, JSON)).isNull();
+		assertThat(cache.get(replaced, JSON)).isNull();
+		assertThat(cache.get(replaced, XML)).containsExactly(2);
+		assertThat(cache.getSize()).isEqualTo(1);
+	}
+
+	@Test
+	public void testInvalidate() {
+		EncodedEmployeeCache cache = new EncodedEmployeeCache(1024 * 1024);
+		Employee employee = new Employee("ID1", "an employee", 1000);
+		cache.put(employee, JSON, new byte[10]);
+		cache.put(employee, XML, new byte[10]);
+		cache.invalidate("ID1");
+		cache.invalidate("ID2");
+		cache.invalidate(null);
+		assertThat(cache.get(employee, JSON)).isNull();
+		assertThat(cache.getSize()).isZero();
+		assertThat(cache.getBytes()).isZero();
+	}
+
+	@Test
+	public void testLeastRecentlyUsedAreEvictedBeyondTheMemoryCap() {
+		EncodedEmployeeCache cache = new EncodedEmployeeCache(64 * 1024);
+		Employee first = null;
+		for (int i = 0; i < 10000; i++) {
+			Employee employee = new Employee("ID" + i, "employee " + i, i);
+			if (first == null)
+				first = employee;
+			cache.put(employee, JSON, new byte[100]);
+			// keeps the first employee as the most recently used
+			assertThat(cache.get(first, JSON)).isNotNull();
+		}
+		assertThat(cache.getBytes()).isLessThanOrEqualTo(64 * 1024);
+		assertThat(cache.getEvictions()).isEqualTo(10000 - cache.getSize());
+		assertThat(cache.get(new Employee("ID9999", null, 0), JSON)).isNull();
+	}
+
+	@Test
+	public void testEncodingLargerThanTheCapIsNotCached() {
+		EncodedEmployeeCache cache = new EncodedEmployeeCache(1024);
+		Employee employee = new Employee("ID1", "an employee", 1000);
+		cache.put(employee, JSON, new byte[1024]);
+		assertThat(cache.get(employee, JSON)).isNull();
+		assertThat(cache.getSize()).isZero();
+	}
+
+	@Test
+	public void testDisabled() {
+		EncodedEmployeeCache cache = new EncodedEmployeeCache(0);
+		assertThat(cache.isEnabled()).isFalse();
+		Employee employee = new Employee("ID1", "an employee", 1000);
+		cache.put(employee, JSON, new byte[1]);
+		assertThat(cache.get(employee, JSON)).isNull();
+		assertThat(new EncodedEmployeeCache(1).isEnabled()).isTrue();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeSize() {
+		new EncodedEmployeeCache(-1);
+	}
+}
@@ -0,0 +1,77 @@
+package com.examples.cache;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.examples.model.Employee;
+import com.examples.repository.EmployeeRepository;
+
+public class InvalidatingEmployeeRepositoryTest {
+
+	private static final String JSON = "application/json";
+
+	@Mock
+	private EmployeeRepository delegate;
+
+	private EncodedEmployeeCache cache;
+
+	private InvalidatingEmployeeRepository repository;
+
+	private Employee employee;
+
+	@Before
+	public void setup() {
+		MockitoAnnotations.initMocks(this);
+		cache = new EncodedEmployeeCache(1024 * 1024);
+		repository = new InvalidatingEmployeeRepository(delegate, cache);
+		employee = new Employee("ID1", "an employee", 1000);
+		cache.put(employee, JSON, new byte[1]);
+	}
+
+	@Test
+	public void testSaveInvalidates() {
+		Employee saved = new Employee("ID1", "saved", 2000);
+		when(delegate.save(saved)).thenReturn(saved);
+		assertThat(repository.save(saved)).isSameAs(saved);
+		assertThat(cache.getSize()).isZero();
+	}
+
+	@Test
+	public void testSaveAllInvalidates() {
+		List<Employee> saved = asList(new Employee("ID1", "saved", 2000));
+		when(delegate.saveAll(saved)).thenReturn(saved);
+		assertThat(repository.saveAll(saved)).isSameAs(saved);
+		assertThat(cache.getSize()).isZero();
+	}
+
+	@Test
+	public void testDeleteByIdInvalidates() {
+		when(delegate.deleteById("ID1")).thenReturn(employee);
+		assertThat(repository.deleteById("ID1")).isSameAs(employee);
+		assertThat(cache.getSize()).isZero();
+	}
+
+	@Test
+	public void testReadsAreDelegated() {
+		repository.findOne("ID1");
+		repository.findPage("ID1", 10);
+		repository.findBySalary(1000, 2000);
+		repository.searchByName("emp", 10);
+		repository.salaryStats();
+		verify(delegate).findOne("ID1");
+		verify(delegate).findPage("ID1", 10);
+		verify(delegate).findBySalary(1000, 2000);
+		verify(delegate).searchByName("emp", 10);
+		verify(delegate).salaryStats();
+		assertThat(cache.getSize()).isEqualTo(1);
+	}
+}
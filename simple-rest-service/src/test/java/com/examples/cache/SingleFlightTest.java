@@ -0,0 +1,129 @@
+package com.examples.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class SingleFlightTest {
+
+	private static final int FOLLOWERS = 4;
+
+	private final SingleFlight<String, String> flights = new SingleFlight<>();
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	private final CountDownLatch computing = new CountDownLatch(1);
+
+	private final CountDownLatch done = new CountDownLatch(1);
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testConcurrentCallersShareTheValue() throws Exception {
+		AtomicInteger computations = new AtomicInteger();
+		List<Future<String>> values = new ArrayList<>();
+		values.add(executor.submit(() -> flights.execute("key", () -> {
+			computing.countDown();
+			await(done);
+			return "value" + computations.incrementAndGet();
+		})));
+		computing.await();
+		for (int i = 0; i < FOLLOWERS; i++)
+			values.add(executor.submit(() -> flights.execute("key",
+				() -> "value" + computations.incrementAndGet())));
+		awaitShared(FOLLOWERS);
+		done.countDown();
+		for (Future<String> value : values)
+			assertThat(value.get()).isEqualTo("value1");
+		assertThat(computations.get()).isEqualTo(1);
+		assertThat(flights.getComputed()).isEqualTo(1);
+	}
+
+	@Test
+	public void testTheValueIsForgottenOnceComputed() throws IOException {
+		assertThat(flights.execute("key", () -> "first")).isEqualTo("first");
+		assertThat(flights.execute("key", () -> "second")).isEqualTo("second");
+		assertThat(flights.getComputed()).isEqualTo(2);
+		assertThat(flights.getShared()).isZero();
+	}
+
+	@Test
+	public void testOtherKeysAreComputedSeparately() throws Exception {
+		Future<String> first = executor.submit(() -> flights.execute("first", () -> {
+			computing.countDown();
+			await(done);
+			return "first";
+		}));
+		computing.await();
+		assertThat(flights.execute("second", () -> "second")).isEqualTo("second");
+		done.countDown();
+		assertThat(first.get()).isEqualTo("first");
+		assertThat(flights.getShared()).isZero();
+	}
+
+	@Test
+	public void testTheExceptionIsThrownToAllTheCallers() throws Exception {
+		Future<String> leader = executor.submit(() -> flights.execute("key", () -> {
+			computing.countDown();
+			await(done);
+			throw new IOException("failed");
+		}));
+		computing.await();
+		Future<String> follower = executor.submit(() -> flights.execute("key", () -> "value"));
+		awaitShared(1);
+		done.countDown();
+		for (Future<String> caller : Arrays.asList(leader, follower))
+			assertThatThrownBy(caller::get)
+				.isInstanceOf(ExecutionException.class)
+				.hasCauseInstanceOf(IOException.class)
+				.hasStackTraceContaining("failed");
+		// the next caller computes the value again
+		assertThat(flights.execute("key", () -> "value")).isEqualTo("value");
+	}
+
+	@Test
+	public void testDisabledCallersComputeTheirOwnValue() throws Exception {
+		SingleFlight<String, String> disabled = new SingleFlight<>(false);
+		Future<String> first = executor.submit(() -> disabled.execute("key", () -> {
+			computing.countDown();
+			await(done);
+			return "first";
+		}));
+		computing.await();
+		assertThat(disabled.execute("key", () -> "second")).isEqualTo("second");
+		done.countDown();
+		assertThat(first.get()).isEqualTo("first");
+		assertThat(disabled.getComputed()).isEqualTo(2);
+		assertThat(disabled.getShared()).isZero();
+	}
+
+	private static void await(CountDownLatch latch) throws InterruptedIOException {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException();
+		}
+	}
+
+	private void awaitShared(int callers) throws InterruptedException {
+		while (flights.getShared() < callers)
+			Thread.sleep(1);
+	}
+}
@@ -0,0 +1,99 @@
+package com.examples.events;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.examples.MarshallingEventInterceptor;
+import com.examples.cache.EncodedEmployeeCache;
+import com.examples.cache.InvalidatingEmployeeRepository;
+import com.examples.model.Employee;
+import com.examples.repository.ConcurrentEmployeeRepository;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class FlightRecorderEventsTest {
+
+	private Recording recording;
+
+	private Path file;
+
+	@Before
+	public void startRecording() throws Exception {
+		file = Files.createTempFile("events", ".jfr");
+		recording = new Recording();
+		recording.enable(RepositoryEvent.class).withoutThreshold();
+		recording.enable(LockWaitEvent.class).withoutThreshold();
+		recording.enable(MarshallingEvent.class).withoutThreshold();
+		recording.start();
+	}
+
+	@After
+	public void deleteRecording() throws Exception {
+		recording.close();
+		Files.delete(file);
+	}
+
+	private List<RecordedEvent> stopRecording() throws Exception {
+		recording.stop();
+		recording.dump(file);
+		return RecordingFile.readAllEvents(file);
+	}
+
+	@Test
+	public void testRepositoryEvents() throws Exception {
+		InvalidatingEmployeeRepository repository = new InvalidatingEmployeeRepository(
+			new ConcurrentEmployeeRepository(), new EncodedEmployeeCache(1024));
+		repository.findAll();
+		repository.findOne("ID1");
+		List<RecordedEvent> events = stopRecording();
+		assertThat(events)
+			.filteredOn(event -> event.getEventType().getName().equals("com.examples.Repository"))
+			.extracting(event -> event.getString("operation"), event -> event.getString("storage"),
+				event -> event.getInt("count"))
+			.containsExactly(
+				tuple("findAll", "ConcurrentEmployeeRepository", 3),
+				tuple("findOne", "ConcurrentEmployeeRepository", 1));
+	}
+
+	@Test
+	public void testLockWaitEvents() throws Exception {
+		ReentrantLock lock = new ReentrantLock();
+		LockWaitEvent.lock(lock, "test").unlock();
+		List<RecordedEvent> events = stopRecording();
+		assertThat(events)
+			.filteredOn(event -> event.getEventType().getName().equals("com.examples.LockWait"))
+			.extracting(event -> event.getString("lock"))
+			.containsExactly("test");
+	}
+
+	@Test
+	public void testMarshallingEvents() throws Exception {
+		WriterInterceptorContext context = mock(WriterInterceptorContext.class);
+		when(context.getType()).thenAnswer(invocation -> Employee.class);
+		when(context.getMediaType()).thenReturn(MediaType.APPLICATION_JSON_TYPE);
+		new MarshallingEventInterceptor().aroundWriteTo(context);
+		List<RecordedEvent> events = stopRecording();
+		assertThat(events)
+			.filteredOn(event -> event.getEventType().getName().equals("com.examples.Marshalling"))
+			.extracting(event -> event.getString("direction"), event -> event.getString("type"),
+				event -> event.getString("mediaType"))
+			.containsExactly(tuple("write",
+				Employee.class.getName(), MediaType.APPLICATION_JSON));
+	}
+}
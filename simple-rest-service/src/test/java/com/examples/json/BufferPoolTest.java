@@ -0,0 +1,49 @@
+package com.examples.json;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class BufferPoolTest {
+
+	private BufferPool pool = new BufferPool(16);
+
+	@Test
+	public void testAcquiredBuffersAreNotShared() {
+		byte[] first = pool.acquire();
+		byte[] second = pool.acquire();
+		assertThat(first).hasSize(16);
+		assertThat(second).isNotSameAs(first);
+		pool.release(first);
+		assertThat(pool.acquire()).isSameAs(first);
+	}
+
+	@Test
+	public void testBuffersOfAnotherSizeAreNotKept() {
+		byte[] grown = new byte[32];
+		pool.release(grown);
+		assertThat(pool.acquire()).hasSize(16);
+	}
+
+	@Test
+	public void testShortLivedThreadsShareTheBuffers() throws Exception {
+		Set<byte[]> buffers = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (int i = 0; i < 10 * BufferPool.STRIPES; i++) {
+			Thread thread = new Thread(() -> {
+				byte[] buffer = pool.acquire();
+				synchronized (buffers) {
+					buffers.add(buffer);
+				}
+				pool.release(buffer);
+			});
+			thread.start();
+			thread.join();
+		}
+		// one buffer at most for each stripe, instead of one for each thread
+		assertThat(buffers.size()).isLessThanOrEqualTo(BufferPool.STRIPES);
+	}
+}
@@ -0,0 +1,185 @@
+package com.examples.json;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.examples.json.EmployeeJsonParser.MalformedJsonException;
+import com.examples.model.Employee;
+
+public class EmployeeJsonParserTest {
+
+	private static EmployeeJsonParser parser(String json) {
+		return new EmployeeJsonParser(
+			new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void testReadEmployee() throws IOException {
+		assertThat(parser("{\"id\":\"ID1\",\"name\":\"First Employee\",\"salary\":1000}")
+				.readEmployee())
+			.isEqualTo(new Employee("ID1", "First Employee", 1000));
+	}
+
+	@Test
+	public void testReadEmployeeWithWhitespaceAndMissingFields() throws IOException {
+		assertThat(parser(" {\n \"name\" : \"passed name\" ,\n\t\"salary\": -5 } ")
+				.readEmployee())
+			.isEqualTo(new Employee(null, "passed name", -5));
+		assertThat(parser("{}").readEmployee())
+			.isEqualTo(new Employee());
+	}
+
+	@Test
+	public void testReadEmployeeSkipsUnknownFields() throws IOException {
+		assertThat(parser("{\"x\":[1,{\"a\":true},null,-1.5e3],\"name\":null,\"y\":{},\"salary\":\"12\"}")
+				.readEmployee())
+			.isEqualTo(new Employee(null, null, 12));
+	}
+
+	@Test
+	public void testReadEmployeeWithEscapes() throws IOException {
+		assertThat(parser("{\"name\":\"a\\\"b\\\\c\\/d\\n\\u00e9\\ud83d\\ude00€\"}")
+				.readEmployee().getName())
+			.isEqualTo("a\"b\\c/d\né😀€");
+	}
+
+	@Test
+	public void testReadLongString() throws IOException {
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < 10000; i++)
+			name.append("é");
+		assertThat(parser("{\"name\":\"" + name + "\"}").readEmployee().getName())
+			.isEqualTo(name.toString());
+	}
+
+	@Test
+	public void testStringsOverTheLimit() throws IOException {
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < EmployeeJsonParser.MAX_STRING_LENGTH / 2; i++)
+			name.append("é");
+		assertThat(parser("{\"name\":\"" + name + "\"}").readEmployee().getName())
+			.isEqualTo(name.toString());
+		assertThatThrownBy(() -> parser("{\"name\":\"" + name + "a\"}").readEmployee())
+			.isInstanceOf(MalformedJsonException.class)
+			.hasMessageContaining("string longer than " + EmployeeJsonParser.MAX_STRING_LENGTH + " bytes");
+		// also the strings of skipped fields
+		assertThatThrownBy(() -> parser("{\"x\":\"" + name + name + "\"}").readEmployee())
+			.isInstanceOf(MalformedJsonException.class);
+	}
+
+	@Test
+	public void testExpectEnd() throws IOException {
+		EmployeeJsonParser parser = parser("{\"salary\":1} \n");
+		parser.readEmployee();
+		parser.expectEnd();
+		EmployeeJsonParser trailing = parser("{\"salary\":1} x");
+		trailing.readEmployee();
+		assertThatThrownBy(trailing::expectEnd)
+			.isInstanceOf(MalformedJsonException.class)
+			.hasMessage("Malformed JSON at offset 13: unexpected data after the value");
+	}
+
+	@Test
+	public void testReadNull() throws IOException {
+		assertThat(parser("null").readEmployee()).isNull();
+	}
+
+	@Test
+	public void testReadEmployees() throws IOException {
+		assertThat(parser("[{\"id\":\"ID1\",\"salary\":1}, {\"id\":\"ID2\",\"salary\":2}]")
+				.readEmployees())
+			.containsExactly(new Employee("ID1", null, 1), new Employee("ID2", null, 2));
+		assertThat(parser(" [ ] ").readEmployees()).isEmpty();
+	}
+
+	@Test
+	public void testReadSeveralEmployeesAndLines() throws IOException {
+		EmployeeJsonParser parser = parser("{\"salary\":1}\n{\"salary\":2}\n");
+		assertThat(parser.hasNext()).isTrue();
+		assertThat(parser.readEmployee().getSalary()).isEqualTo(1);
+		assertThat(parser.getLine()).isEqualTo(1);
+		assertThat(parser.hasNext()).isTrue();
+		assertThat(parser.getLine()).isEqualTo(2);
+		assertThat(parser.readEmployee().getSalary()).isEqualTo(2);
+		assertThat(parser.hasNext()).isFalse();
+	}
+
+	@Test
+	public void testLinesOverTheLimit() throws IOException {
+		StringBuilder values = new StringBuilder();
+		for (int i = 0; i < 20000; i++)
+			values.append("1,");
+		EmployeeJsonParser parser = new EmployeeJsonParser(new ByteArrayInputStream((
+				"{\"salary\":1}\n"
+				+ "{\"name\":\"longer than 30 bytes\"}\n"
+				+ "{\"x\":[" + values + "1],\"salary\":2}\n"
+				+ "{\"salary\":3}\n").getBytes(StandardCharsets.UTF_8)), 30);
+		assertThat(parser.readEmployee().getSalary()).isEqualTo(1);
+		parser.expectEndOfLine();
+		// known once the line ends
+		parser.readEmployee();
+		assertThatThrownBy(parser::expectEndOfLine)
+			.isInstanceOf(MalformedJsonException.class)
+			.hasMessageContaining("line longer than 30 bytes");
+		parser.skipLine();
+		// known before the value is read whole
+		assertThatThrownBy(parser::readEmployee)
+			.isInstanceOf(MalformedJsonException.class)
+			.hasMessageContaining("line longer than 30 bytes");
+		assertThat(parser.getLine()).isEqualTo(3);
+		parser.skipLine();
+		assertThat(parser.hasNext()).isTrue();
+		assertThat(parser.readEmployee().getSalary()).isEqualTo(3);
+	}
+
+	@Test
+	public void testReadStrings() throws IOException {
+		assertThat(parser(" [ \"ID1\" , null,\"\\u0049D2\"] ").readStrings())
+			.containsExactly("ID1", null, "ID2");
+		assertThat(parser("[]").readStrings()).isEmpty();
+		assertThatThrownBy(() -> parser("[1]").readStrings())
+			.isInstanceOf(MalformedJsonException.class);
+	}
+
+	@Test
+	public void testNewlineDelimited() throws IOException {
+		EmployeeJsonParser parser = parser("{\"salary\":1} \r\n{\"salary\":2} {}\n{\"salary\":3}");
+		assertThat(parser.readEmployee().getSalary()).isEqualTo(1);
+		parser.expectEndOfLine();
+		assertThat(parser.getLine()).isEqualTo(2);
+		assertThat(parser.readEmployee().getSalary()).isEqualTo(2);
+		assertThatThrownBy(parser::expectEndOfLine)
+			.isInstanceOf(MalformedJsonException.class)
+			.hasMessageContaining("expected the end of the line");
+		parser.skipLine();
+		assertThat(parser.getLine()).isEqualTo(3);
+		assertThat(parser.readEmployee().getSalary()).isEqualTo(3);
+		// the end of the input ends the line as well
+		parser.expectEndOfLine();
+		assertThat(parser.hasNext()).isFalse();
+	}
+
+	@Test
+	public void testMalformed() {
+		assertThatThrownBy(() -> parser("{\"name\" \"a\"}").readEmployee())
+			.isInstanceOf(MalformedJsonException.class)
+			.hasMessage("Malformed JSON at offset 8: expected ':'");
+		assertThatThrownBy(() -> parser("{\"name\":\"a}").readEmployee())
+			.isInstanceOf(MalformedJsonException.class)
+			.hasMessageContaining("unterminated string");
+		assertThatThrownBy(() -> parser("{\"salary\":1.5}").readEmployee())
+			.isInstanceOf(MalformedJsonException.class)
+			.hasMessageContaining("expected ',' or '}'");
+		assertThatThrownBy(() -> parser("{\"salary\":99999999999}").readEmployee())
+			.isInstanceOf(MalformedJsonException.class)
+			.hasMessageContaining("number too large");
+		assertThatThrownBy(() -> parser("[1]").readEmployees())
+			.isInstanceOf(MalformedJsonException.class);
+	}
+}
@@ -0,0 +1,116 @@
+package com.examples.json;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import org.eclipse.persistence.jaxb.JAXBContextFactory;
+import org.eclipse.persistence.jaxb.MarshallerProperties;
+import org.junit.Test;
+
+import com.examples.model.Employee;
+import com.examples.model.EmployeeBatch;
+
+public class EmployeeJsonWriterTest {
+
+	private static String write(Employee employee) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EmployeeJsonWriter writer = new EmployeeJsonWriter(out);
+		writer.write(employee);
+		writer.flush();
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static String writeArray(List<Employee> employees) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EmployeeJsonWriter writer = new EmployeeJsonWriter(out);
+		writer.writeArray(employees.iterator());
+		writer.flush();
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static String moxy(Object entity) throws JAXBException {
+		Marshaller marshaller = JAXBContextFactory
+			.createContext(new Class<?>[] { Employee.class }, null)
+			.createMarshaller();
+		marshaller.setProperty(MarshallerProperties.MEDIA_TYPE, "application/json");
+		marshaller.setProperty(MarshallerProperties.JSON_INCLUDE_ROOT, false);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		marshaller.marshal(entity, out);
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testWrite() throws Exception {
+		assertThat(write(new Employee("ID1", "First Employee", 1000)))
+			.isEqualTo("{\"id\":\"ID1\",\"name\":\"First Employee\",\"salary\":1000}");
+	}
+
+	@Test
+	public void testNullPropertiesAreOmitted() throws Exception {
+		assertThat(write(new Employee()))
+			.isEqualTo("{\"salary\":0}");
+		assertThat(write(new Employee(null, "name", 1)))
+			.isEqualTo("{\"name\":\"name\",\"salary\":1}");
+	}
+
+	@Test
+	public void testWriteArray() throws Exception {
+		assertThat(writeArray(Collections.emptyList()))
+			.isEqualTo("[]");
+		assertThat(writeArray(asList(new Employee("ID1", "a", 1), new Employee("ID2", "b", 2))))
+			.isEqualTo("[{\"id\":\"ID1\",\"name\":\"a\",\"salary\":1},{\"id\":\"ID2\",\"name\":\"b\",\"salary\":2}]");
+	}
+
+	@Test
+	public void testWriteBatch() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EmployeeJsonWriter writer = new EmployeeJsonWriter(out);
+		writer.write(new EmployeeBatch(asList(new Employee("ID1", "a", 1)), asList("ID2", "ID3")));
+		writer.write(new EmployeeBatch());
+		writer.flush();
+		assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8))
+			.isEqualTo("{\"employees\":[{\"id\":\"ID1\",\"name\":\"a\",\"salary\":1}],\"missing\":[\"ID2\",\"ID3\"]}"
+				+ "{\"employees\":[],\"missing\":[]}");
+	}
+
+	@Test
+	public void testWriteResultAndError() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EmployeeJsonWriter writer = new EmployeeJsonWriter(out);
+		writer.writeResult(1, new Employee("ID1", "a", 1));
+		writer.writeError(2, "a \"quoted\" error");
+		writer.flush();
+		assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8))
+			.isEqualTo("{\"line\":1,\"id\":\"ID1\"}\n{\"line\":2,\"error\":\"a \\\"quoted\\\" error\"}\n");
+	}
+
+	@Test
+	public void testSameOutputAsMoxy() throws Exception {
+		List<Employee> employees = asList(
+			new Employee("ID1", "quotes \" and \\ back/slashes", Integer.MIN_VALUE),
+			new Employee(null, "controls \n\t\r\b\f\u0001\u001f", Integer.MAX_VALUE),
+			new Employee("ID3", "unicode é€ 😀", -1),
+			new Employee("ID4", null, 0));
+		for (Employee employee : employees)
+			assertThat(write(employee)).isEqualTo(moxy(employee));
+		assertThat(writeArray(employees)).isEqualTo(moxy(employees));
+	}
+
+	@Test
+	public void testLongStringsSpanningTheBuffer() throws Exception {
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < 5000; i++)
+			name.append("é\"");
+		Employee employee = new Employee("ID1", name.toString(), 1);
+		assertThat(write(employee)).isEqualTo(moxy(employee));
+	}
+}
@@ -0,0 +1,50 @@
+package com.examples.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	private final LatencyHistogram histogram = new LatencyHistogram();
+
+	@Test
+	public void testBucketsAreWithinASixteenthOfTheirValues() {
+		for (long nanos : new long[] { 0, 1, 15, 16, 17, 31, 32, 1000, 123456789L, 1L << 40 }) {
+			int bucket = LatencyHistogram.bucket(nanos);
+			long upperBound = LatencyHistogram.upperBound(bucket);
+			assertThat(upperBound).isGreaterThanOrEqualTo(nanos);
+			assertThat(upperBound - nanos).isLessThanOrEqualTo(nanos / 16);
+			if (bucket > 0)
+				assertThat(LatencyHistogram.upperBound(bucket - 1)).isLessThan(nanos);
+		}
+	}
+
+	@Test
+	public void testLongLatenciesAreCountedInTheLastBucket() {
+		assertThat(LatencyHistogram.bucket(Long.MAX_VALUE))
+			.isEqualTo(LatencyHistogram.BUCKETS - 1);
+		assertThat(LatencyHistogram.bucket((1L << 41) - 1))
+			.isEqualTo(LatencyHistogram.BUCKETS - 1);
+	}
+
+	@Test
+	public void testCountAndSum() {
+		histogram.record(1000);
+		histogram.record(3000);
+		histogram.record(-5);
+		assertThat(histogram.getCount()).isEqualTo(3);
+		assertThat(histogram.getSum()).isEqualTo(4000);
+	}
+
+	@Test
+	public void testCumulativeCounts() {
+		histogram.record(500);
+		histogram.record(900);
+		// in a bucket up to 1023
+		histogram.record(1000);
+		histogram.record(5_000_000);
+		assertThat(histogram.cumulativeCounts(new long[] { 100, 1000, 1_000_000, 10_000_000 }))
+			.containsExactly(0, 2, 3, 4);
+	}
+}
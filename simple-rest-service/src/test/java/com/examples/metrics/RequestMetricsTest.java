@@ -0,0 +1,49 @@
+package com.examples.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class RequestMetricsTest {
+
+	private final RequestMetrics metrics = new RequestMetrics();
+
+	@Test
+	public void testEndpointsAreCreatedOnce() {
+		assertThat(metrics.endpoint("MyResource.getIt"))
+			.isSameAs(metrics.endpoint("MyResource.getIt"));
+	}
+
+	@Test
+	public void testCountsByStatus() {
+		RequestMetrics.Endpoint endpoint = metrics.endpoint("EmployeeResource.getEmployee");
+		endpoint.record(200, 1000);
+		endpoint.record(200, 1000);
+		endpoint.record(404, 1000);
+		assertThat(endpoint.getCount(200)).isEqualTo(2);
+		assertThat(endpoint.getCount(404)).isEqualTo(1);
+		assertThat(endpoint.getCount(500)).isZero();
+		assertThat(endpoint.getLatency().getCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void testWritesPrometheusText() {
+		metrics.endpoint("MyResource.getIt").record(200, 2_000_000);
+		metrics.endpoint("EmployeeResource.searchEmployees").record(400, 50_000);
+		PrometheusText text = new PrometheusText();
+		metrics.write(text);
+		assertThat(text.toString())
+			.contains("# TYPE http_server_requests_seconds histogram\n")
+			.contains("http_server_requests_seconds_bucket{method=\"MyResource.getIt\",le=\"0.001\"} 0\n")
+			.contains("http_server_requests_seconds_bucket{method=\"MyResource.getIt\",le=\"0.0025\"} 1\n")
+			.contains("http_server_requests_seconds_bucket{method=\"MyResource.getIt\",le=\"+Inf\"} 1\n")
+			.contains("http_server_requests_seconds_sum{method=\"MyResource.getIt\"} 0.002\n")
+			.contains("http_server_requests_seconds_count{method=\"MyResource.getIt\"} 1\n")
+			.contains("# TYPE http_server_responses_total counter\n")
+			.contains("http_server_responses_total{method=\"EmployeeResource.searchEmployees\",status=\"400\"} 1\n")
+			.contains("http_server_responses_total{method=\"MyResource.getIt\",status=\"200\"} 1\n");
+		// sorted by endpoint
+		assertThat(text.toString().indexOf("EmployeeResource"))
+			.isLessThan(text.toString().indexOf("MyResource"));
+	}
+}
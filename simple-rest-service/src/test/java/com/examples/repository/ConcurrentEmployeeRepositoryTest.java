@@ -0,0 +1,300 @@
+package com.examples.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.examples.model.Employee;
+import com.examples.model.SalaryStats;
+
+public class ConcurrentEmployeeRepositoryTest {
+
+	private ConcurrentEmployeeRepository repository;
+
+	@Before
+	public void setup() {
+		repository = new ConcurrentEmployeeRepository();
+		// make sure the repository is always empty
+		repository.findAll()
+			.forEach(e -> repository.deleteById(e.getEmployeeId()));
+	}
+
+	@Test
+	public void testFindAll() {
+		Employee e1 = repository.save(new Employee("ID1", "Test Employee", 0));
+		Employee e2 = repository.save(new Employee("ID2", "Test Employee", 0));
+		assertThat(repository.findAll())
+			.containsExactlyInAnyOrder(e1, e2);
+	}
+
+	@Test
+	public void testStreamAll() {
+		Employee e1 = repository.save(new Employee("ID1", "Test Employee", 0));
+		Employee e2 = repository.save(new Employee("ID2", "Test Employee", 0));
+		assertThat(repository.streamAll())
+			.containsExactlyInAnyOrder(e1, e2);
+	}
+
+	@Test
+	public void testFindOne() {
+		assertThat(repository.findOne("ID1")).isEmpty();
+		Employee e1 = repository.save(new Employee("ID1", "Test Employee", 0));
+		assertThat(repository.findOne("ID1")).contains(e1);
+	}
+
+	@Test
+	public void testCount() {
+		assertThat(repository.count()).isZero();
+		repository.save(new Employee("ID1", "Test Employee", 0));
+		repository.save(new Employee(null, "Test Employee", 0));
+		// replacing does not change the count
+		repository.save(new Employee("ID1", "Modified", 0));
+		assertThat(repository.count()).isEqualTo(2);
+		repository.deleteById("ID1");
+		repository.deleteById("ID1");
+		assertThat(repository.count()).isEqualTo(1);
+	}
+
+	@Test
+	public void testFindPage() {
+		Employee e3 = repository.save(new Employee("ID3", "Test Employee", 0));
+		Employee e1 = repository.save(new Employee("ID1", "Test Employee", 0));
+		Employee e2 = repository.save(new Employee("ID2", "Test Employee", 0));
+		assertThat(repository.findPage(null, 2))
+			.containsExactly(e1, e2);
+		assertThat(repository.findPage("ID2", 2))
+			.containsExactly(e3);
+		assertThat(repository.findPage("ID3", 2))
+			.isEmpty();
+	}
+
+	@Test
+	public void testFindPageSkipsDeletedEmployees() {
+		Employee e1 = repository.save(new Employee("ID1", "Test Employee", 0));
+		repository.save(new Employee("ID2", "Test Employee", 0));
+		Employee e3 = repository.save(new Employee("ID3", "Test Employee", 0));
+		repository.deleteById("ID2");
+		assertThat(repository.findPage(null, 2))
+			.containsExactly(e1, e3);
+	}
+
+	@Test
+	public void testFindBySalary() {
+		Employee e1 = repository.save(new Employee("ID1", "Test Employee", 2000));
+		Employee e2 = repository.save(new Employee("ID2", "Test Employee", 1000));
+		Employee e3 = repository.save(new Employee("ID3", "Test Employee", 2000));
+		repository.save(new Employee("ID4", "Test Employee", 3000));
+		// ordered by salary, then by id
+		assertThat(repository.findBySalary(1000, 2000))
+			.containsExactly(e2, e1, e3);
+		assertThat(repository.findBySalary(Integer.MIN_VALUE, 1999))
+			.containsExactly(e2);
+		assertThat(repository.findBySalary(3001, Integer.MAX_VALUE))
+			.isEmpty();
+		assertThat(repository.findBySalary(2000, 1000))
+			.isEmpty();
+	}
+
+	@Test
+	public void testFindBySalaryAfterChanges() {
+		Employee e1 = repository.save(new Employee("ID1", "Test Employee", 1000));
+		repository.save(new Employee("ID2", "Test Employee", 1000));
+		repository.save(new Employee("ID3", "Test Employee", 1000));
+		Employee modified = repository.save(new Employee("ID2", "Modified", 5000));
+		Employee replaced = repository
+			.replace(new Employee("ID3", "Replaced", 1000), repository.findOne("ID3").get().getVersion())
+			.get();
+		repository.deleteById("ID1", e1.getVersion());
+		assertThat(repository.findBySalary(1000, 1000))
+			.containsExactly(replaced);
+		assertThat(repository.findBySalary(0, 10000))
+			.containsExactly(replaced, modified);
+		repository.deleteById("ID3");
+		assertThat(repository.findBySalary(0, 10000))
+			.containsExactly(modified);
+	}
+
+	@Test
+	public void testSearchByName() {
+		Employee e1 = repository.save(new Employee("ID1", "First Employee", 0));
+		Employee e2 = repository.save(new Employee("ID2", "Second Employee", 0));
+		repository.save(new Employee("ID3", null, 0));
+		assertThat(repository.searchByName("EMP", 10))
+			.containsExactlyInAnyOrder(e1, e2);
+		assertThat(repository.searchByName("emp sec", 10))
+			.containsExactly(e2);
+		assertThat(repository.searchByName("emp", 1))
+			.hasSize(1);
+		assertThat(repository.searchByName("mploy", 10))
+			.isEmpty();
+		assertThat(repository.searchByName(" ", 10))
+			.isEmpty();
+	}
+
+	@Test
+	public void testSearchByNameAfterChanges() {
+		repository.save(new Employee("ID1", "First Employee", 0));
+		Employee e2 = repository.save(new Employee("ID2", "Second Employee", 0));
+		Employee modified = repository.save(new Employee("ID1", "First Manager", 0));
+		assertThat(repository.searchByName("emp", 10))
+			.containsExactly(e2);
+		assertThat(repository.searchByName("man", 10))
+			.containsExactly(modified);
+		repository.deleteById("ID1");
+		assertThat(repository.searchByName("first", 10))
+			.isEmpty();
+	}
+
+	@Test
+	public void testSalaryStats() {
+		repository.save(new Employee("ID1", "Test Employee", 1000));
+		repository.save(new Employee("ID2", "Test Employee", 2000));
+		repository.save(new Employee("ID3", "Test Employee", 3000));
+		repository.save(new Employee("ID2", "Test Employee", 4000));
+		repository.deleteById("ID1");
+		SalaryStats stats = repository.salaryStats();
+		assertThat(stats.getCount()).isEqualTo(2);
+		assertThat(stats.getSum()).isEqualTo(7000);
+		assertThat(stats.getAverage()).isEqualTo(3500);
+		assertThat(stats.getMin()).isEqualTo(3000);
+		assertThat(stats.getMax()).isEqualTo(4000);
+		// approximated within 1%
+		assertThat(stats.getP50()).isBetween(3000, 3030);
+		assertThat(stats.getP99()).isEqualTo(4000);
+	}
+
+	@Test
+	public void testSaveWithoutIdCreatesAnIdAutomatically() {
+		Employee saved = repository.save(new Employee(null, "Test Employee", 0));
+		String generatedId = saved.getEmployeeId();
+		assertThat(generatedId).isNotNull();
+		assertThat(repository.findOne(generatedId)).contains(saved);
+	}
+
+	@Test
+	public void testSaveWithoutIdDoesNotReuseIdsAfterDelete() {
+		Employee first = repository.save(new Employee(null, "First", 0));
+		Employee second = repository.save(new Employee(null, "Second", 0));
+		repository.deleteById(first.getEmployeeId());
+		Employee third = repository.save(new Employee(null, "Third", 0));
+		assertThat(third.getEmployeeId())
+			.isNotEqualTo(first.getEmployeeId())
+			.isNotEqualTo(second.getEmployeeId());
+		assertThat(repository.findOne(second.getEmployeeId())).contains(second);
+	}
+
+	@Test
+	public void testSaveWithoutIdSkipsIdsAlreadyTaken() {
+		// the repository was initialized with ID1, ID2 and ID3
+		Employee existing = repository.save(new Employee("ID4", "Existing", 0));
+		Employee saved = repository.save(new Employee(null, "Test Employee", 0));
+		assertThat(saved.getEmployeeId()).isEqualTo("ID5");
+		assertThat(repository.findOne("ID4")).contains(existing);
+	}
+
+	@Test
+	public void testSaveWithIdReplacesTheExistingEmployee() {
+		Employee original = repository.save(new Employee("ID1", "Test Employee", 0));
+		Employee modified = new Employee("ID1", "Modified", 0);
+		assertThat(repository.save(modified)).isSameAs(modified);
+		assertThat(repository.findOne("ID1").get())
+			.isSameAs(modified)
+			.isNotSameAs(original);
+	}
+
+	@Test
+	public void testDeleteById() {
+		Employee employee = repository.save(new Employee("ID1", "Test Employee", 0));
+		assertThat(repository.deleteById("ID1"))
+			.isSameAs(employee);
+		assertThat(repository.deleteById("non-existent"))
+			.isNull();
+	}
+
+	@Test
+	public void testVersions() {
+		long version = repository.getVersion();
+		Employee e1 = repository.save(new Employee("ID1", "Test Employee", 0));
+		Employee e2 = repository.save(new Employee(null, "Test Employee", 0));
+		assertThat(e2.getVersion()).isGreaterThan(e1.getVersion());
+		assertThat(repository.getVersion()).isEqualTo(version + 2);
+		Employee modified = repository.save(new Employee("ID1", "Modified", 0));
+		assertThat(modified.getVersion()).isGreaterThan(e2.getVersion());
+		repository.deleteById("ID1");
+		// deleting a missing employee does not change the collection
+		repository.deleteById("ID1");
+		assertThat(repository.getVersion()).isEqualTo(version + 4);
+	}
+
+	@Test
+	public void testReplaceOnlyAtTheExpectedVersion() {
+		Employee original = repository.save(new Employee("ID1", "Test Employee", 0));
+		long version = repository.getVersion();
+		assertThat(repository.replace(new Employee("ID1", "Stale", 0), original.getVersion() - 1))
+			.isEmpty();
+		assertThat(repository.replace(new Employee("ID2", "Missing", 0), original.getVersion()))
+			.isEmpty();
+		assertThat(repository.getVersion()).isEqualTo(version);
+		Employee modified = new Employee("ID1", "Modified", 0);
+		assertThat(repository.replace(modified, original.getVersion()))
+			.containsSame(modified);
+		assertThat(modified.getVersion()).isGreaterThan(original.getVersion());
+		assertThat(repository.findOne("ID1")).containsSame(modified);
+		assertThat(repository.getVersion()).isEqualTo(version + 1);
+	}
+
+	@Test
+	public void testReplaceOnlyIfPresent() {
+		Employee original = repository.save(new Employee("ID1", "Test Employee", 0));
+		long version = repository.getVersion();
+		assertThat(repository.replace(new Employee("ID2", "Missing", 0)))
+			.isEmpty();
+		assertThat(repository.findOne("ID2")).isEmpty();
+		assertThat(repository.getVersion()).isEqualTo(version);
+		Employee modified = new Employee("ID1", "Modified", 0);
+		assertThat(repository.replace(modified))
+			.containsSame(modified);
+		assertThat(modified.getVersion()).isGreaterThan(original.getVersion());
+		assertThat(repository.findOne("ID1")).containsSame(modified);
+		assertThat(repository.getVersion()).isEqualTo(version + 1);
+	}
+
+	@Test
+	public void testDeleteByIdOnlyAtTheExpectedVersion() {
+		Employee employee = repository.save(new Employee("ID1", "Test Employee", 0));
+		assertThat(repository.deleteById("ID1", employee.getVersion() + 1))
+			.isEmpty();
+		assertThat(repository.deleteById("ID2", employee.getVersion()))
+			.isEmpty();
+		assertThat(repository.deleteById("ID1", employee.getVersion()))
+			.containsSame(employee);
+		assertThat(repository.findOne("ID1")).isEmpty();
+	}
+
+	@Test
+	public void testConcurrentSavesGenerateDistinctIds() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Employee>> futures = IntStream.range(0, 1000)
+				.mapToObj(i -> executor.submit(
+					() -> repository.save(new Employee(null, "Employee " + i, i))))
+				.collect(Collectors.toList());
+			for (Future<Employee> future : futures)
+				future.get();
+		} finally {
+			executor.shutdown();
+		}
+		assertThat(repository.findAll())
+			.hasSize(1000)
+			.extracting(Employee::getEmployeeId)
+			.doesNotHaveDuplicates();
+	}
+}
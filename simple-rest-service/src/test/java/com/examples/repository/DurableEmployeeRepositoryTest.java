@@ -0,0 +1,248 @@
+package com.examples.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.examples.model.Employee;
+
+public class DurableEmployeeRepositoryTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path directory;
+
+	private DurableEmployeeRepository repository;
+
+	@Before
+	public void setup() throws IOException {
+		directory = folder.getRoot().toPath();
+		repository = new DurableEmployeeRepository(directory, false);
+		// make sure the repository is always empty
+		repository.findAll()
+			.forEach(e -> repository.deleteById(e.getEmployeeId()));
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		repository.close();
+	}
+
+	/**
+	 * A new repository replays what has been written so far, as after a
+	 * crash: writing methods have already made their changes durable, so
+	 * closing the previous repository only releases the files.
+	 */
+	private DurableEmployeeRepository restart() throws IOException {
+		repository.close();
+		repository = new DurableEmployeeRepository(directory, false);
+		return repository;
+	}
+
+	private Path lastSegment() {
+		return directory.resolve("log." + repository.getLogSegments().last());
+	}
+
+	@Test
+	public void testNewLogIsInitializedWithSomeContents() throws IOException {
+		try (DurableEmployeeRepository newRepository =
+				new DurableEmployeeRepository(folder.newFolder().toPath(), false)) {
+			assertThat(newRepository.findAll())
+				.extracting(Employee::getEmployeeId)
+				.containsExactlyInAnyOrder("ID1", "ID2", "ID3");
+		}
+		// not again after the contents have been removed
+		assertThat(restart().findAll()).isEmpty();
+	}
+
+	@Test
+	public void testChangesAreRecovered() throws IOException {
+		repository.save(new Employee("ID1", "First", 1000));
+		repository.save(new Employee("ID2", "Second", 2000));
+		Employee third = repository.save(new Employee(null, "Third", 3000));
+		repository.save(new Employee("ID1", "Modified", 1500));
+		repository.deleteById("ID2");
+		repository.replace(new Employee(third.getEmployeeId(), "Replaced", 3500), third.getVersion());
+		repository.deleteById("ID1", 0);
+
+		assertThat(restart().findAll())
+			.containsExactlyInAnyOrder(
+				new Employee("ID1", "Modified", 1500),
+				new Employee(third.getEmployeeId(), "Replaced", 3500));
+		assertThat(repository.findPage(null, 10))
+			.extracting(Employee::getEmployeeId)
+			.containsExactly("ID1", third.getEmployeeId());
+	}
+
+	@Test
+	public void testNullNamesAreRecovered() throws IOException {
+		repository.save(new Employee("ID1", null, 1000));
+		assertThat(restart().findOne("ID1"))
+			.contains(new Employee("ID1", null, 1000));
+	}
+
+	@Test
+	public void testGeneratedIdsAreNotReusedAfterRestart() throws IOException {
+		String first = repository.save(new Employee(null, "First", 0)).getEmployeeId();
+		repository.deleteById(first);
+		String second = restart().save(new Employee(null, "Second", 0)).getEmployeeId();
+		assertThat(second).isNotEqualTo(first);
+		IdGenerator ids = new IdGenerator(0);
+		assertThat(ids.parse(second)).isGreaterThan(ids.parse(first));
+	}
+
+	@Test
+	public void testPartiallyWrittenRecordIsDiscarded() throws IOException {
+		repository.save(new Employee("ID1", "First", 1000));
+		repository.save(new Employee("ID2", "Second", 2000));
+		Path segment = lastSegment();
+		long size = Files.size(segment);
+		// a crash in the middle of writing the last record
+		try (RandomAccessFile raf = new RandomAccessFile(segment.toFile(), "rw")) {
+			raf.setLength(size - 3);
+		}
+		assertThat(restart().findAll())
+			.containsExactly(new Employee("ID1", "First", 1000));
+		// new records are appended after the last complete one
+		repository.save(new Employee("ID3", "Third", 3000));
+		assertThat(restart().findAll())
+			.containsExactlyInAnyOrder(
+				new Employee("ID1", "First", 1000),
+				new Employee("ID3", "Third", 3000));
+	}
+
+	@Test
+	public void testTooLargeRecordIsRejected() throws IOException {
+		repository.save(new Employee("ID1", "First", 1000));
+		char[] name = new char[WriteAheadLog.MAX_RECORD_LENGTH];
+		Arrays.fill(name, 'a');
+		assertThatThrownBy(() -> repository.save(new Employee("ID1", new String(name), 0)))
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> repository.save(new Employee("ID2", new String(name), 0)))
+			.isInstanceOf(IllegalArgumentException.class);
+		// neither the repository nor the log have been changed
+		assertThat(repository.findAll())
+			.containsExactly(new Employee("ID1", "First", 1000));
+		assertThat(repository.findPage(null, 10))
+			.extracting(Employee::getEmployeeId)
+			.containsExactly("ID1");
+		// and the records after them can be replayed
+		repository.save(new Employee("ID3", "Third", 3000));
+		assertThat(restart().findAll())
+			.containsExactlyInAnyOrder(
+				new Employee("ID1", "First", 1000),
+				new Employee("ID3", "Third", 3000));
+	}
+
+	@Test
+	public void testCorruptedRecordIsDiscarded() throws IOException {
+		repository.save(new Employee("ID1", "First", 1000));
+		Path segment = lastSegment();
+		long size = Files.size(segment);
+		repository.save(new Employee("ID2", "Second", 2000));
+		// garbage in the payload of the last record
+		try (RandomAccessFile raf = new RandomAccessFile(segment.toFile(), "rw")) {
+			raf.seek(size + 10);
+			raf.write(0xFF);
+		}
+		assertThat(restart().findAll())
+			.containsExactly(new Employee("ID1", "First", 1000));
+		assertThat(Files.size(segment)).isEqualTo(size);
+	}
+
+	@Test
+	public void testSnapshotAndLogTailAreRecovered() throws IOException {
+		repository.save(new Employee("ID1", null, 1000));
+		repository.save(new Employee("ID2", "Second", 2000));
+		EmployeeSnapshot snapshot = repository.snapshot();
+		assertThat(snapshot.getCount()).isEqualTo(2);
+		// changes after the snapshot are only in the log
+		repository.save(new Employee("ID1", "Modified", 1500));
+		repository.deleteById("ID2");
+		repository.save(new Employee("ID3", "Third", 3000));
+
+		assertThat(restart().findAll())
+			.containsExactlyInAnyOrder(
+				new Employee("ID1", "Modified", 1500),
+				new Employee("ID3", "Third", 3000));
+		assertThat(repository.findPage(null, 10))
+			.extracting(Employee::getEmployeeId)
+			.containsExactly("ID1", "ID3");
+	}
+
+	@Test
+	public void testSnapshotDeletesOldSegments() throws IOException {
+		repository.save(new Employee("ID1", "First", 1000));
+		long first = repository.getLogSegments().first();
+		EmployeeSnapshot snapshot = repository.snapshot();
+		assertThat(snapshot.getSegment()).isGreaterThan(first);
+		assertThat(repository.getLogSegments()).containsExactly(snapshot.getSegment());
+		assertThat(directory.resolve("log." + first)).doesNotExist();
+		// not initialized again with some contents, even if the log is empty
+		repository.deleteById("ID1");
+		repository.snapshot();
+		assertThat(restart().findAll()).isEmpty();
+	}
+
+	@Test
+	public void testGeneratedIdsAreNotReusedAfterSnapshot() throws IOException {
+		String first = repository.save(new Employee(null, "First", 0)).getEmployeeId();
+		repository.deleteById(first);
+		repository.snapshot();
+		String second = restart().save(new Employee(null, "Second", 0)).getEmployeeId();
+		IdGenerator ids = new IdGenerator(0);
+		assertThat(ids.parse(second)).isGreaterThan(ids.parse(first));
+	}
+
+	@Test
+	public void testSaveAllForcesTheLogOnce() throws IOException {
+		long syncs = repository.getSyncs();
+		List<Employee> saved = repository.saveAll(IntStream.range(0, 100)
+			.mapToObj(i -> new Employee(null, "Employee " + i, i))
+			.collect(Collectors.toList()));
+		assertThat(repository.getSyncs() - syncs).isEqualTo(1);
+		assertThat(saved)
+			.extracting(Employee::getEmployeeId)
+			.doesNotContainNull()
+			.doesNotHaveDuplicates();
+		assertThat(restart().findAll())
+			.containsExactlyInAnyOrderElementsOf(saved);
+	}
+
+	@Test
+	public void testConcurrentSavesAreAllDurable() throws Exception {
+		long syncs = repository.getSyncs();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Employee>> futures = IntStream.range(0, 1000)
+				.mapToObj(i -> executor.submit(
+					() -> repository.save(new Employee(null, "Employee " + i, i))))
+				.collect(Collectors.toList());
+			for (Future<Employee> future : futures)
+				future.get();
+		} finally {
+			executor.shutdown();
+		}
+		// writers waiting at the same time share a single write
+		assertThat(repository.getSyncs() - syncs).isLessThanOrEqualTo(1000);
+		assertThat(restart().count()).isEqualTo(1000);
+	}
+}
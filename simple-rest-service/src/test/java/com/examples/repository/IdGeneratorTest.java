@@ -0,0 +1,110 @@
+package com.examples.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class IdGeneratorTest {
+
+	@Test
+	public void testNextIdStartsAfterTheLastUsedNumber() {
+		IdGenerator generator = new IdGenerator(3);
+		assertThat(generator.nextId()).isEqualTo("ID4");
+		assertThat(generator.nextId()).isEqualTo("ID5");
+	}
+
+	@Test
+	public void testBlocksAreReservedOnce() {
+		List<Long> reservations = new ArrayList<>();
+		IdGenerator generator = new IdGenerator("E", 0, 10, reservations::add);
+		for (int i = 0; i < 15; i++)
+			generator.nextId();
+		assertThat(reservations).containsExactly(10L, 20L);
+		assertThat(generator.getHighWaterMark()).isEqualTo(20);
+	}
+
+	@Test
+	public void testAdvancePast() {
+		IdGenerator generator = new IdGenerator(0);
+		generator.advancePast(10);
+		// never goes back
+		generator.advancePast(5);
+		assertThat(generator.nextId()).isEqualTo("ID11");
+	}
+
+	@Test
+	public void testInvalidBlockSize() {
+		assertThatThrownBy(() -> new IdGenerator("ID", 0, 0, n -> {}))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessage("Invalid block size: 0");
+	}
+
+	@Test
+	public void testParse() {
+		IdGenerator generator = new IdGenerator(0);
+		assertThat(generator.parse("ID42")).isEqualTo(42);
+		assertThat(generator.parse("ID")).isEqualTo(-1);
+		assertThat(generator.parse("ID-1")).isEqualTo(-1);
+		assertThat(generator.parse("IDfoo")).isEqualTo(-1);
+		assertThat(generator.parse("foo")).isEqualTo(-1);
+		assertThat(generator.parse(null)).isEqualTo(-1);
+	}
+
+	@Test
+	public void testConcurrentGenerationIsUniqueAndIncreasingInEachThread() throws Exception {
+		IdGenerator generator = new IdGenerator(0);
+		Collection<Long> all = new ConcurrentLinkedQueue<>();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Boolean>> futures = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				futures.add(executor.submit(() -> {
+					long previous = 0;
+					boolean increasing = true;
+					for (int i = 0; i < 1000; i++) {
+						long current = generator.nextNumber();
+						increasing &= current > previous;
+						previous = current;
+						all.add(current);
+					}
+					return increasing;
+				}));
+			}
+			for (Future<Boolean> future : futures)
+				assertThat(future.get()).isTrue();
+		} finally {
+			executor.shutdown();
+		}
+		assertThat(all)
+			.hasSize(8000)
+			.doesNotHaveDuplicates();
+	}
+
+	@Test
+	public void testShortLivedThreadsShareTheBlocks() throws Exception {
+		List<Long> reservations = new ArrayList<>();
+		IdGenerator generator = new IdGenerator("ID", 0, 32, reservations::add);
+		Collection<Long> all = new ConcurrentLinkedQueue<>();
+		// like a new (virtual) thread for each request
+		for (int i = 0; i < 1000; i++) {
+			Thread thread = new Thread(() -> all.add(generator.nextNumber()));
+			thread.start();
+			thread.join();
+		}
+		assertThat(all)
+			.hasSize(1000)
+			.doesNotHaveDuplicates();
+		// at most a partially used block for each stripe
+		assertThat(reservations.size())
+			.isLessThanOrEqualTo(1000 / 32 + IdGenerator.STRIPES);
+	}
+}
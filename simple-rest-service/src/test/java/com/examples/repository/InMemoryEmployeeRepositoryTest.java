@@ -2,6 +2,7 @@ package com.examples.repository;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -9,6 +10,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.examples.model.Employee;
+import com.examples.model.SalaryStats;
 
 /**
  * In spite of {@link InMemoryEmployeeRepositoryTest} being an in-memory,
@@ -40,6 +42,25 @@ public class InMemoryEmployeeRepositoryTest {
 			.containsExactlyInAnyOrder(e1, e2);
 	}
 
+	@Test
+	public void testFindByIds() {
+		Employee e1 = new Employee("ID1", "Test Employee", 0);
+		map.put("ID1", e1);
+		assertThat(repository.findByIds(Arrays.asList("ID1", "ID2")))
+			.containsOnlyKeys("ID1")
+			.containsEntry("ID1", e1);
+	}
+
+	@Test
+	public void testStreamAll() {
+		Employee e1 = new Employee("ID1", "Test Employee", 0);
+		Employee e2 = new Employee("ID2", "Test Employee", 0);
+		map.put("ID1", e1);
+		map.put("ID2", e2);
+		assertThat(repository.streamAll())
+			.containsExactlyInAnyOrder(e1, e2);
+	}
+
 	@Test
 	public void testFindOne() {
 		assertThat(repository.findOne("ID1")).isEmpty();
@@ -48,6 +69,78 @@ public class InMemoryEmployeeRepositoryTest {
 		assertThat(repository.findOne("ID1")).contains(e1);
 	}
 
+	@Test
+	public void testCount() {
+		assertThat(repository.count()).isZero();
+		map.put("ID1", new Employee("ID1", "Test Employee", 0));
+		map.put("ID2", new Employee("ID2", "Test Employee", 0));
+		assertThat(repository.count()).isEqualTo(2);
+	}
+
+	@Test
+	public void testFindPage() {
+		Employee e1 = new Employee("ID1", "Test Employee", 0);
+		Employee e2 = new Employee("ID2", "Test Employee", 0);
+		Employee e3 = new Employee("ID3", "Test Employee", 0);
+		map.put("ID3", e3);
+		map.put("ID1", e1);
+		map.put("ID2", e2);
+		assertThat(repository.findPage(null, 2))
+			.containsExactly(e1, e2);
+		assertThat(repository.findPage("ID2", 2))
+			.containsExactly(e3);
+		assertThat(repository.findPage("ID3", 2))
+			.isEmpty();
+	}
+
+	@Test
+	public void testFindBySalary() {
+		Employee e1 = new Employee("ID1", "Test Employee", 2000);
+		Employee e2 = new Employee("ID2", "Test Employee", 1000);
+		Employee e3 = new Employee("ID3", "Test Employee", 2000);
+		map.put("ID3", e3);
+		map.put("ID1", e1);
+		map.put("ID2", e2);
+		map.put("ID4", new Employee("ID4", "Test Employee", 3000));
+		assertThat(repository.findBySalary(1000, 2000))
+			.containsExactly(e2, e1, e3);
+		assertThat(repository.findBySalary(3001, Integer.MAX_VALUE))
+			.isEmpty();
+	}
+
+	@Test
+	public void testSearchByName() {
+		Employee e1 = new Employee("ID1", "First Employee", 0);
+		Employee e2 = new Employee("ID2", "Second Employee", 0);
+		map.put("ID2", e2);
+		map.put("ID1", e1);
+		map.put("ID3", new Employee("ID3", null, 0));
+		assertThat(repository.searchByName("EMP", 10))
+			.containsExactly(e1, e2);
+		assertThat(repository.searchByName("emp sec", 10))
+			.containsExactly(e2);
+		assertThat(repository.searchByName("emp", 1))
+			.containsExactly(e1);
+		assertThat(repository.searchByName(" ", 10))
+			.isEmpty();
+	}
+
+	@Test
+	public void testSalaryStats() {
+		assertThat(repository.salaryStats().getCount()).isZero();
+		map.put("ID1", new Employee("ID1", "Test Employee", 3000));
+		map.put("ID2", new Employee("ID2", "Test Employee", 1000));
+		map.put("ID3", new Employee("ID3", "Test Employee", 2000));
+		SalaryStats stats = repository.salaryStats();
+		assertThat(stats.getCount()).isEqualTo(3);
+		assertThat(stats.getSum()).isEqualTo(6000);
+		assertThat(stats.getAverage()).isEqualTo(2000);
+		assertThat(stats.getMin()).isEqualTo(1000);
+		assertThat(stats.getMax()).isEqualTo(3000);
+		assertThat(stats.getP50()).isEqualTo(2000);
+		assertThat(stats.getP90()).isEqualTo(3000);
+	}
+
 	@Test
 	public void testSaveWithoutIdCreatesAnIdAutomatically() {
 		Employee e = new Employee(null, "Test Employee", 0);
@@ -57,6 +150,28 @@ public class InMemoryEmployeeRepositoryTest {
 		assertThat(map.get(generatedId)).isEqualTo(saved);
 	}
 
+	@Test
+	public void testSaveWithoutIdDoesNotReuseIdsAfterDelete() {
+		Employee first = repository.save(new Employee(null, "First", 0));
+		Employee second = repository.save(new Employee(null, "Second", 0));
+		repository.deleteById(first.getEmployeeId());
+		Employee third = repository.save(new Employee(null, "Third", 0));
+		assertThat(third.getEmployeeId())
+			.isNotEqualTo(first.getEmployeeId())
+			.isNotEqualTo(second.getEmployeeId());
+		assertThat(map.get(second.getEmployeeId())).isSameAs(second);
+	}
+
+	@Test
+	public void testSaveWithoutIdSkipsIdsAlreadyTaken() {
+		// the repository was initialized with ID1, ID2 and ID3
+		Employee existing = new Employee("ID4", "Existing", 0);
+		map.put("ID4", existing);
+		Employee saved = repository.save(new Employee(null, "Test Employee", 0));
+		assertThat(saved.getEmployeeId()).isEqualTo("ID5");
+		assertThat(map.get("ID4")).isSameAs(existing);
+	}
+
 	@Test
 	public void testSaveWithIdReplacesTheExistingEmployee() {
 		String id = "ID1";
@@ -80,4 +195,64 @@ public class InMemoryEmployeeRepositoryTest {
 		assertThat(repository.deleteById("non-existent"))
 			.isNull();
 	}
+
+	@Test
+	public void testVersions() {
+		long version = repository.getVersion();
+		Employee e1 = repository.save(new Employee("ID1", "Test Employee", 0));
+		Employee e2 = repository.save(new Employee(null, "Test Employee", 0));
+		assertThat(e2.getVersion()).isGreaterThan(e1.getVersion());
+		assertThat(repository.getVersion()).isEqualTo(version + 2);
+		Employee modified = repository.save(new Employee("ID1", "Modified", 0));
+		assertThat(modified.getVersion()).isGreaterThan(e2.getVersion());
+		repository.deleteById("ID1");
+		// deleting a missing employee does not change the collection
+		repository.deleteById("ID1");
+		assertThat(repository.getVersion()).isEqualTo(version + 4);
+	}
+
+	@Test
+	public void testReplaceOnlyIfPresent() {
+		Employee original = repository.save(new Employee("ID1", "Test Employee", 0));
+		long version = repository.getVersion();
+		assertThat(repository.replace(new Employee("ID2", "Missing", 0)))
+			.isEmpty();
+		assertThat(repository.findOne("ID2")).isEmpty();
+		assertThat(repository.getVersion()).isEqualTo(version);
+		Employee modified = new Employee("ID1", "Modified", 0);
+		assertThat(repository.replace(modified))
+			.containsSame(modified);
+		assertThat(modified.getVersion()).isGreaterThan(original.getVersion());
+		assertThat(repository.findOne("ID1")).containsSame(modified);
+		assertThat(repository.getVersion()).isEqualTo(version + 1);
+	}
+
+	@Test
+	public void testReplaceOnlyAtTheExpectedVersion() {
+		Employee original = repository.save(new Employee("ID1", "Test Employee", 0));
+		long version = repository.getVersion();
+		assertThat(repository.replace(new Employee("ID1", "Stale", 0), original.getVersion() - 1))
+			.isEmpty();
+		assertThat(repository.replace(new Employee("ID2", "Missing", 0), original.getVersion()))
+			.isEmpty();
+		assertThat(repository.getVersion()).isEqualTo(version);
+		Employee modified = new Employee("ID1", "Modified", 0);
+		assertThat(repository.replace(modified, original.getVersion()))
+			.containsSame(modified);
+		assertThat(modified.getVersion()).isGreaterThan(original.getVersion());
+		assertThat(repository.findOne("ID1")).containsSame(modified);
+		assertThat(repository.getVersion()).isEqualTo(version + 1);
+	}
+
+	@Test
+	public void testDeleteByIdOnlyAtTheExpectedVersion() {
+		Employee employee = repository.save(new Employee("ID1", "Test Employee", 0));
+		assertThat(repository.deleteById("ID1", employee.getVersion() + 1))
+			.isEmpty();
+		assertThat(repository.deleteById("ID2", employee.getVersion()))
+			.isEmpty();
+		assertThat(repository.deleteById("ID1", employee.getVersion()))
+			.containsSame(employee);
+		assertThat(repository.findOne("ID1")).isEmpty();
+	}
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+package com.examples.repository;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+public class NameIndexTest {
+
+	private NameIndex index = new NameIndex();
+
+	private List<String> candidates(String query) {
+		List<String> ids = new ArrayList<>();
+		for (Iterator<String> i = index.candidates(NameIndex.words(query)); i.hasNext();)
+			ids.add(i.next());
+		return ids;
+	}
+
+	@Test
+	public void testWords() {
+		assertThat(NameIndex.words(" First-Employee,  Ünïcode 2 "))
+			.containsExactly("first", "employee", "ünïcode", "2");
+		assertThat(NameIndex.words(" , ")).isEmpty();
+		assertThat(NameIndex.words(null)).isEmpty();
+	}
+
+	@Test
+	public void testMatches() {
+		assertThat(NameIndex.matches("First Employee", asList("emp"))).isTrue();
+		assertThat(NameIndex.matches("First Employee", asList("emp", "fi"))).isTrue();
+		assertThat(NameIndex.matches("First Employee", asList("mploy"))).isFalse();
+		assertThat(NameIndex.matches("First Employee", asList("fi", "second"))).isFalse();
+		assertThat(NameIndex.matches(null, asList("fi"))).isFalse();
+	}
+
+	@Test
+	public void testCandidatesArePrefixRanges() {
+		index.update("ID1", null, "First Employee");
+		index.update("ID2", null, "Second Employee");
+		index.update("ID3", null, "Firstly");
+		assertThat(candidates("fir")).containsExactly("ID1", "ID3");
+		assertThat(candidates("employee")).containsExactly("ID1", "ID2");
+		assertThat(candidates("third")).isEmpty();
+	}
+
+	@Test
+	public void testCandidatesOfTheWordWithFewestEntries() {
+		index.update("ID1", null, "First Employee");
+		index.update("ID2", null, "Second Employee");
+		assertThat(candidates("employee sec")).containsExactly("ID2");
+	}
+
+	@Test
+	public void testUpdate() {
+		index.update("ID1", null, "First Employee");
+		index.update("ID1", "First Employee", "First Manager");
+		assertThat(candidates("first")).containsExactly("ID1");
+		assertThat(candidates("employee")).isEmpty();
+		assertThat(candidates("manager")).containsExactly("ID1");
+		index.update("ID1", "First Manager", null);
+		assertThat(candidates("f")).isEmpty();
+	}
+}
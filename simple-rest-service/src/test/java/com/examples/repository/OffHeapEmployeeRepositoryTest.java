@@ -0,0 +1,329 @@
+package com.examples.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.examples.model.Employee;
+import com.examples.model.SalaryStats;
+
+public class OffHeapEmployeeRepositoryTest {
+
+	private OffHeapEmployeeRepository repository;
+
+	@Before
+	public void setup() {
+		repository = new OffHeapEmployeeRepository();
+		// make sure the repository is always empty
+		repository.findAll()
+			.forEach(e -> repository.deleteById(e.getEmployeeId()));
+	}
+
+	@Test
+	public void testFindAll() {
+		Employee e1 = repository.save(new Employee("ID1", "Test Employee", 0));
+		Employee e2 = repository.save(new Employee("ID2", "Test Employee", 0));
+		assertThat(repository.findAll())
+			.containsExactlyInAnyOrder(e1, e2);
+	}
+
+	@Test
+	public void testStreamAll() {
+		Employee e1 = repository.save(new Employee("ID1", "Test Employee", 0));
+		Employee e2 = repository.save(new Employee("ID2", "Test Employee", 0));
+		assertThat(repository.streamAll())
+			.containsExactlyInAnyOrder(e1, e2);
+	}
+
+	@Test
+	public void testFindOne() {
+		assertThat(repository.findOne("ID1")).isEmpty();
+		Employee e1 = repository.save(new Employee("ID1", "Tést Émployée", 10));
+		Employee found = repository.findOne("ID1").get();
+		// a new instance, with the same fields
+		assertThat(found)
+			.isEqualTo(e1)
+			.isNotSameAs(e1);
+		assertThat(found.getVersion()).isEqualTo(e1.getVersion());
+	}
+
+	@Test
+	public void testFindByIds() {
+		Employee e1 = repository.save(new Employee("ID1", "Test Employee", 0));
+		Employee e2 = repository.save(new Employee("ID2", "Test Employee", 0));
+		assertThat(repository.findByIds(Arrays.asList("ID2", "ID3", "ID1")))
+			.containsOnlyKeys("ID1", "ID2")
+			.containsEntry("ID1", e1)
+			.containsEntry("ID2", e2);
+	}
+
+	@Test
+	public void testNullName() {
+		Employee e1 = repository.save(new Employee("ID1", null, 0));
+		assertThat(repository.findOne("ID1")).contains(e1);
+		Employee modified = repository.save(new Employee("ID1", "Modified", 0));
+		assertThat(repository.findOne("ID1")).contains(modified);
+	}
+
+	@Test
+	public void testCount() {
+		assertThat(repository.count()).isZero();
+		repository.save(new Employee("ID1", "Test Employee", 0));
+		repository.save(new Employee(null, "Test Employee", 0));
+		// replacing does not change the count
+		repository.save(new Employee("ID1", "Modified", 0));
+		assertThat(repository.count()).isEqualTo(2);
+		repository.deleteById("ID1");
+		repository.deleteById("ID1");
+		assertThat(repository.count()).isEqualTo(1);
+	}
+
+	@Test
+	public void testManyEmployees() {
+		// enough to grow the hash table and the columns
+		IntStream.range(0, 100_000)
+			.forEach(i -> repository.save(new Employee("E" + i, "Employee " + i, i)));
+		// deleting moves back the following entries of the hash table
+		IntStream.range(0, 100_000)
+			.filter(i -> i % 3 == 0)
+			.forEach(i -> repository.deleteById("E" + i));
+		assertThat(repository.count()).isEqualTo(66_666);
+		for (int i = 0; i < 100_000; i++) {
+			if (i % 3 == 0)
+				assertThat(repository.findOne("E" + i)).isEmpty();
+			else
+				assertThat(repository.findOne("E" + i))
+					.contains(new Employee("E" + i, "Employee " + i, i));
+		}
+	}
+
+	@Test
+	public void testSlotsOfDeletedEmployeesAreReused() {
+		IntStream.range(0, 1000)
+			.forEach(i -> repository.save(new Employee("E" + i, "Employee", i)));
+		long bytes = repository.getOffHeapBytes();
+		for (int round = 0; round < 100; round++) {
+			int r = round;
+			IntStream.range(0, 1000)
+				.forEach(i -> repository.deleteById("E" + i));
+			IntStream.range(0, 1000)
+				.forEach(i -> repository.save(new Employee("E" + i, "Employee", r)));
+		}
+		assertThat(repository.findOne("E999")).contains(new Employee("E999", "Employee", 99));
+		// only the arena grows, until it is compacted
+		assertThat(repository.getOffHeapBytes()).isLessThan(bytes + 8 * OffHeapArena.CHUNK_BYTES);
+	}
+
+	@Test
+	public void testReplacedNamesAreCompacted() {
+		char[] chars = new char[8 * 1024];
+		Arrays.fill(chars, 'a');
+		String longName = new String(chars);
+		repository.save(new Employee("ID1", "Test Employee", 0));
+		for (int i = 0; i < 10_000; i++)
+			repository.save(new Employee("ID2", longName + i, i));
+		assertThat(repository.findOne("ID1")).contains(new Employee("ID1", "Test Employee", 0));
+		assertThat(repository.findOne("ID2")).contains(new Employee("ID2", longName + 9999, 9999));
+		// 80MB of names were appended
+		assertThat(repository.getOffHeapBytes()).isLessThan(16 * OffHeapArena.CHUNK_BYTES);
+	}
+
+	@Test
+	public void testTooLongNamesAreRejected() {
+		Employee e1 = repository.save(new Employee("ID1", "Test Employee", 10));
+		char[] name = new char[OffHeapArena.CHUNK_BYTES + 1];
+		Arrays.fill(name, 'a');
+		assertThatThrownBy(() -> repository.save(new Employee("ID2", new String(name), 20)))
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> repository.replace(new Employee("ID1", new String(name), 20)))
+			.isInstanceOf(IllegalArgumentException.class);
+		// no slot is left behind, and the replaced employee is unchanged
+		assertThat(repository.count()).isEqualTo(1);
+		assertThat(repository.streamAll())
+			.containsExactly(e1);
+		assertThat(repository.findPage(null, 10))
+			.containsExactly(e1);
+		Employee e2 = repository.save(new Employee("ID2", "Test Employee", 20));
+		assertThat(repository.findAll())
+			.containsExactlyInAnyOrder(e1, e2);
+	}
+
+	@Test
+	public void testFindPage() {
+		Employee e3 = repository.save(new Employee("ID3", "Test Employee", 0));
+		Employee e1 = repository.save(new Employee("ID1", "Test Employee", 0));
+		Employee e2 = repository.save(new Employee("ID2", "Test Employee", 0));
+		assertThat(repository.findPage(null, 2))
+			.containsExactly(e1, e2);
+		assertThat(repository.findPage("ID2", 2))
+			.containsExactly(e3);
+		assertThat(repository.findPage("ID3", 2))
+			.isEmpty();
+	}
+
+	@Test
+	public void testFindPageSkipsDeletedEmployees() {
+		Employee e1 = repository.save(new Employee("ID1", "Test Employee", 0));
+		repository.save(new Employee("ID2", "Test Employee", 0));
+		Employee e3 = repository.save(new Employee("ID3", "Test Employee", 0));
+		repository.deleteById("ID2");
+		assertThat(repository.findPage(null, 2))
+			.containsExactly(e1, e3);
+	}
+
+	@Test
+	public void testFindBySalary() {
+		Employee e1 = repository.save(new Employee("ID1", "Test Employee", 2000));
+		Employee e2 = repository.save(new Employee("ID2", "Test Employee", 1000));
+		Employee e3 = repository.save(new Employee("ID3", "Test Employee", 2000));
+		repository.save(new Employee("ID4", "Test Employee", 3000));
+		// ordered by salary, then by id
+		assertThat(repository.findBySalary(1000, 2000))
+			.containsExactly(e2, e1, e3);
+		assertThat(repository.findBySalary(3001, Integer.MAX_VALUE))
+			.isEmpty();
+		assertThat(repository.findBySalary(2000, 1000))
+			.isEmpty();
+	}
+
+	@Test
+	public void testSearchByName() {
+		Employee e1 = repository.save(new Employee("ID1", "First Employee", 0));
+		Employee e2 = repository.save(new Employee("ID2", "Second Employee", 0));
+		repository.save(new Employee("ID3", null, 0));
+		assertThat(repository.searchByName("EMP", 10))
+			.containsExactly(e1, e2);
+		assertThat(repository.searchByName("emp sec", 10))
+			.containsExactly(e2);
+		assertThat(repository.searchByName("emp", 1))
+			.containsExactly(e1);
+		assertThat(repository.searchByName("mploy", 10))
+			.isEmpty();
+		assertThat(repository.searchByName(" ", 10))
+			.isEmpty();
+	}
+
+	@Test
+	public void testSalaryStats() {
+		repository.save(new Employee("ID1", "Test Employee", 1000));
+		repository.save(new Employee("ID2", "Test Employee", 2000));
+		repository.save(new Employee("ID3", "Test Employee", 3000));
+		repository.save(new Employee("ID2", "Test Employee", 4000));
+		repository.deleteById("ID1");
+		SalaryStats stats = repository.salaryStats();
+		assertThat(stats.getCount()).isEqualTo(2);
+		assertThat(stats.getSum()).isEqualTo(7000);
+		assertThat(stats.getMin()).isEqualTo(3000);
+		assertThat(stats.getMax()).isEqualTo(4000);
+		// exact
+		assertThat(stats.getP50()).isEqualTo(3000);
+		assertThat(stats.getP99()).isEqualTo(4000);
+	}
+
+	@Test
+	public void testSaveWithoutIdSkipsIdsAlreadyTaken() {
+		// the repository was initialized with ID1, ID2 and ID3
+		Employee existing = repository.save(new Employee("ID4", "Existing", 0));
+		Employee saved = repository.save(new Employee(null, "Test Employee", 0));
+		assertThat(saved.getEmployeeId()).isEqualTo("ID5");
+		assertThat(repository.findOne("ID4")).contains(existing);
+	}
+
+	@Test
+	public void testDeleteById() {
+		Employee employee = repository.save(new Employee("ID1", "Test Employee", 0));
+		assertThat(repository.deleteById("ID1"))
+			.isEqualTo(employee);
+		assertThat(repository.deleteById("non-existent"))
+			.isNull();
+	}
+
+	@Test
+	public void testVersions() {
+		long version = repository.getVersion();
+		Employee e1 = repository.save(new Employee("ID1", "Test Employee", 0));
+		Employee e2 = repository.save(new Employee(null, "Test Employee", 0));
+		assertThat(e2.getVersion()).isGreaterThan(e1.getVersion());
+		assertThat(repository.getVersion()).isEqualTo(version + 2);
+		Employee modified = repository.save(new Employee("ID1", "Modified", 0));
+		assertThat(modified.getVersion()).isGreaterThan(e2.getVersion());
+		repository.deleteById("ID1");
+		// deleting a missing employee does not change the collection
+		repository.deleteById("ID1");
+		assertThat(repository.getVersion()).isEqualTo(version + 4);
+	}
+
+	@Test
+	public void testReplaceOnlyIfPresent() {
+		Employee original = repository.save(new Employee("ID1", "Test Employee", 0));
+		long version = repository.getVersion();
+		assertThat(repository.replace(new Employee("ID2", "Missing", 0)))
+			.isEmpty();
+		assertThat(repository.findOne("ID2")).isEmpty();
+		assertThat(repository.getVersion()).isEqualTo(version);
+		Employee modified = new Employee("ID1", "Modified", 0);
+		assertThat(repository.replace(modified))
+			.containsSame(modified);
+		assertThat(modified.getVersion()).isGreaterThan(original.getVersion());
+		assertThat(repository.findOne("ID1")).contains(modified);
+		assertThat(repository.getVersion()).isEqualTo(version + 1);
+	}
+
+	@Test
+	public void testReplaceOnlyAtTheExpectedVersion() {
+		Employee original = repository.save(new Employee("ID1", "Test Employee", 0));
+		long version = repository.getVersion();
+		assertThat(repository.replace(new Employee("ID1", "Stale", 0), original.getVersion() - 1))
+			.isEmpty();
+		assertThat(repository.replace(new Employee("ID2", "Missing", 0), original.getVersion()))
+			.isEmpty();
+		assertThat(repository.getVersion()).isEqualTo(version);
+		Employee modified = new Employee("ID1", "Modified", 0);
+		assertThat(repository.replace(modified, original.getVersion()))
+			.containsSame(modified);
+		assertThat(modified.getVersion()).isGreaterThan(original.getVersion());
+		assertThat(repository.findOne("ID1")).contains(modified);
+		assertThat(repository.getVersion()).isEqualTo(version + 1);
+	}
+
+	@Test
+	public void testDeleteByIdOnlyAtTheExpectedVersion() {
+		Employee employee = repository.save(new Employee("ID1", "Test Employee", 0));
+		assertThat(repository.deleteById("ID1", employee.getVersion() + 1))
+			.isEmpty();
+		assertThat(repository.deleteById("ID2", employee.getVersion()))
+			.isEmpty();
+		assertThat(repository.deleteById("ID1", employee.getVersion()))
+			.contains(employee);
+		assertThat(repository.findOne("ID1")).isEmpty();
+	}
+
+	@Test
+	public void testConcurrentSavesGenerateDistinctIds() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Employee>> futures = IntStream.range(0, 1000)
+				.mapToObj(i -> executor.submit(
+					() -> repository.save(new Employee(null, "Employee " + i, i))))
+				.collect(Collectors.toList());
+			for (Future<Employee> future : futures)
+				future.get();
+		} finally {
+			executor.shutdown();
+		}
+		assertThat(repository.findAll())
+			.hasSize(1000)
+			.extracting(Employee::getEmployeeId)
+			.doesNotHaveDuplicates();
+	}
+}
@@ -0,0 +1,109 @@
+package com.examples.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import com.examples.model.SalaryStats;
+
+public class SalaryHistogramTest {
+
+	private SalaryHistogram histogram = new SalaryHistogram();
+
+	@Test
+	public void testEmptyHistogram() {
+		SalaryStats stats = histogram.stats(null, null);
+		assertThat(stats.getCount()).isZero();
+		assertThat(stats.getMin()).isNull();
+		assertThat(stats.getP50()).isNull();
+	}
+
+	@Test
+	public void testStats() {
+		// exact buckets below 128
+		IntStream.rangeClosed(1, 100)
+			.forEach(histogram::add);
+		SalaryStats stats = histogram.stats(1, 100);
+		assertThat(stats.getCount()).isEqualTo(100);
+		assertThat(stats.getSum()).isEqualTo(5050);
+		assertThat(stats.getAverage()).isEqualTo(50.5);
+		assertThat(stats.getMin()).isEqualTo(1);
+		assertThat(stats.getMax()).isEqualTo(100);
+		assertThat(stats.getP50()).isEqualTo(50);
+		assertThat(stats.getP90()).isEqualTo(90);
+		assertThat(stats.getP99()).isEqualTo(99);
+	}
+
+	@Test
+	public void testRemove() {
+		histogram.add(10);
+		histogram.add(20);
+		histogram.add(30);
+		histogram.remove(10);
+		SalaryStats stats = histogram.stats(20, 30);
+		assertThat(stats.getCount()).isEqualTo(2);
+		assertThat(stats.getSum()).isEqualTo(50);
+		assertThat(stats.getP50()).isEqualTo(20);
+		assertThat(stats.getP99()).isEqualTo(30);
+	}
+
+	@Test
+	public void testPercentilesAreWithinTheExtremes() {
+		histogram.add(1000);
+		histogram.add(1001);
+		SalaryStats stats = histogram.stats(1000, 1001);
+		// both in the bucket from 1000 to 1003
+		assertThat(stats.getP50()).isEqualTo(1001);
+		assertThat(stats.getP99()).isEqualTo(1001);
+	}
+
+	@Test
+	public void testBucketsAreWithinOnePercent() {
+		Random random = new Random(0);
+		for (int i = 0; i < 100000; i++) {
+			int salary = random.nextInt(Integer.MAX_VALUE);
+			int upperBound = SalaryHistogram.upperBound(SalaryHistogram.bucket(salary));
+			assertThat(upperBound).isGreaterThanOrEqualTo(salary);
+			assertThat((double) upperBound).isCloseTo(salary, within(salary / 100.0 + 1));
+		}
+		assertThat(SalaryHistogram.upperBound(SalaryHistogram.bucket(Integer.MAX_VALUE)))
+			.isEqualTo(Integer.MAX_VALUE);
+		assertThat(SalaryHistogram.bucket(-1)).isZero();
+	}
+
+	@Test
+	public void testConcurrentUpdates() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = IntStream.range(0, 8)
+				.mapToObj(thread -> executor.submit(() -> {
+					for (int i = 0; i < 10000; i++) {
+						histogram.add(1000 + i % 1000);
+						if (i % 2 == 1)
+							histogram.remove(1000 + (i - 1) % 1000);
+						histogram.stats(1000, 1999);
+					}
+				}))
+				.collect(Collectors.toList());
+			for (Future<?> future : futures)
+				future.get();
+		} finally {
+			executor.shutdown();
+		}
+		SalaryStats stats = histogram.stats(1001, 1999);
+		// each thread keeps the odd salaries from 1001 to 1999, ten times
+		assertThat(stats.getCount()).isEqualTo(8 * 5000);
+		assertThat(stats.getSum()).isEqualTo(8 * 10 * IntStream.range(0, 500)
+			.map(i -> 1001 + 2 * i).sum());
+		assertThat((double) stats.getP50()).isCloseTo(1500, within(20.0));
+	}
+}
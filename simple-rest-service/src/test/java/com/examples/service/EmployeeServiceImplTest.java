@@ -4,7 +4,17 @@ import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.NotFoundException;
@@ -16,6 +26,9 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import com.examples.model.Employee;
+import com.examples.model.EmployeeBatch;
+import com.examples.model.SalaryStats;
+import com.examples.repository.ConcurrentEmployeeRepository;
 import com.examples.repository.EmployeeRepository;
 
 public class EmployeeServiceImplTest {
@@ -42,6 +55,91 @@ public class EmployeeServiceImplTest {
 			.containsExactly(e1, e2);
 	}
 
+	@Test
+	public void testStreamAllEmployees() {
+		Employee e1 = new Employee();
+		Employee e2 = new Employee();
+		when(employeeRepository.streamAll())
+			.thenReturn(Stream.of(e1, e2));
+
+		assertThat(employeeService.streamAllEmployees())
+			.containsExactly(e1, e2);
+	}
+
+	@Test
+	public void testEmployeesPage() {
+		Employee e1 = new Employee();
+		when(employeeRepository.findPage("ID1", 10))
+			.thenReturn(Arrays.asList(e1));
+
+		assertThat(employeeService.employeesPage("ID1", 10))
+			.containsExactly(e1);
+	}
+
+	@Test
+	public void testEmployeesPageWithInvalidLimit() {
+		assertThatThrownBy(() -> employeeService.employeesPage(null, 0))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessage("Invalid limit 0, must be between 1 and 1000");
+		assertThatThrownBy(() -> employeeService.employeesPage(null, 1001))
+			.isInstanceOf(BadRequestException.class);
+
+		verifyNoMoreInteractions(employeeRepository);
+	}
+
+	@Test
+	public void testEmployeesBySalary() {
+		Employee e1 = new Employee();
+		when(employeeRepository.findBySalary(1000, 2000))
+			.thenReturn(Arrays.asList(e1));
+
+		assertThat(employeeService.employeesBySalary(1000, 2000))
+			.containsExactly(e1);
+	}
+
+	@Test
+	public void testEmployeesBySalaryWithInvalidRange() {
+		assertThatThrownBy(() -> employeeService.employeesBySalary(2000, 1000))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessage("Invalid salary range, 2000 is greater than 1000");
+
+		verifyNoMoreInteractions(employeeRepository);
+	}
+
+	@Test
+	public void testSearchEmployees() {
+		Employee e1 = new Employee();
+		when(employeeRepository.searchByName("emp", 10))
+			.thenReturn(Arrays.asList(e1));
+
+		assertThat(employeeService.searchEmployees("emp", 10))
+			.containsExactly(e1);
+	}
+
+	@Test
+	public void testSearchEmployeesWithInvalidArguments() {
+		assertThatThrownBy(() -> employeeService.searchEmployees(" ", 10))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessage("Missing search query");
+		assertThatThrownBy(() -> employeeService.searchEmployees(null, 10))
+			.isInstanceOf(BadRequestException.class);
+		assertThatThrownBy(() -> employeeService.searchEmployees("emp", 101))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessage("Invalid limit 101, must be between 1 and 100");
+
+		verifyNoMoreInteractions(employeeRepository);
+	}
+
+	@Test
+	public void testSalaryStats() {
+		SalaryStats stats = new SalaryStats();
+		when(employeeRepository.salaryStats())
+			.thenReturn(stats);
+
+		assertThat(employeeService.salaryStats())
+			.isSameAs(stats);
+	}
+
 	@Test
 	public void testGetEmployeeByIdWhenEmployeeIsFound() {
 		Employee employee = new Employee();
@@ -62,6 +160,42 @@ public class EmployeeServiceImplTest {
 			.hasMessage("Employee not found with id an id");
 	}
 
+	@Test
+	public void testGetEmployeesByIds() {
+		Employee employee = new Employee("ID1", "employee", 1000);
+		Map<String, Employee> found = new HashMap<>();
+		found.put("ID1", employee);
+		when(employeeRepository.findByIds(new LinkedHashSet<>(Arrays.asList("ID2", "ID1"))))
+			.thenReturn(found);
+
+		// repeated ids are read only once
+		assertThat(employeeService.getEmployeesByIds(Arrays.asList("ID2", "ID1", "ID2")))
+			.isEqualTo(new EmployeeBatch(Arrays.asList(employee), Arrays.asList("ID2")));
+	}
+
+	@Test
+	public void testGetEmployeesByIdsWithInvalidIds() {
+		assertThatThrownBy(() -> employeeService.getEmployeesByIds(Collections.emptyList()))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessage("Invalid number of ids, must be between 1 and 1000");
+		assertThatThrownBy(() -> employeeService.getEmployeesByIds(Collections.nCopies(1001, "ID")))
+			.isInstanceOf(BadRequestException.class);
+		assertThatThrownBy(() -> employeeService.getEmployeesByIds(Arrays.asList("ID1", null)))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessage("Invalid null id");
+
+		verifyNoMoreInteractions(employeeRepository);
+	}
+
+	@Test
+	public void testCountEmployees() {
+		when(employeeRepository.count())
+			.thenReturn(5L);
+
+		assertThat(employeeService.countEmployees())
+			.isEqualTo(5);
+	}
+
 	@Test
 	public void testAddEmployeeWhenIdIsNullReturnsTheSavedEmployee() {
 		// the id of the employee to save must be null
@@ -94,6 +228,45 @@ public class EmployeeServiceImplTest {
 		verifyNoMoreInteractions(employeeRepository);
 	}
 
+	@Test
+	public void testAddEmployeeWhenNameIsTooLong() {
+		char[] name = new char[EmployeeServiceImpl.MAX_NAME_LENGTH + 1];
+		Arrays.fill(name, 'a');
+		assertThatThrownBy(() -> employeeService.addEmployee(new Employee(null, new String(name), 1000)))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessage("Invalid name for Employee, must be at most "
+				+ EmployeeServiceImpl.MAX_NAME_LENGTH + " characters");
+		assertThatThrownBy(() -> employeeService.replaceEmployeeById("ID1", new Employee(null, new String(name), 1000)))
+			.isInstanceOf(BadRequestException.class);
+
+		verifyNoMoreInteractions(employeeRepository);
+	}
+
+	@Test
+	public void testAddEmployees() {
+		List<Employee> toAdd = Arrays.asList(new Employee(), new Employee(null, "second", 0));
+		List<Employee> toReturn = Arrays.asList(new Employee("ID1", null, 0), new Employee("ID2", "second", 0));
+
+		when(employeeRepository.saveAll(toAdd))
+			.thenReturn(toReturn);
+
+		assertThat(employeeService.addEmployees(toAdd))
+			.isSameAs(toReturn);
+	}
+
+	@Test
+	public void testAddEmployeesWhenAnyIdIsNotNull() {
+		assertThatThrownBy(() -> employeeService.addEmployees(
+				Arrays.asList(new Employee(), new Employee("ID", "", 1000))))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessage("Unexpected id specification for Employee");
+		assertThatThrownBy(() -> employeeService.checkNewEmployee(null))
+			.isInstanceOf(BadRequestException.class)
+			.hasMessage("Missing values for Employee");
+
+		verifyNoMoreInteractions(employeeRepository);
+	}
+
 	@Test
 	public void testReplaceEmployeeWhenEmployeeIsFoundReturnsTheSavedEmployee() {
 		// the id of the employee to save must be null
@@ -101,10 +274,8 @@ public class EmployeeServiceImplTest {
 		// we don't care about the contents of the saved employee
 		Employee toReturn = new Employee();
 
-		when(employeeRepository.findOne("an id"))
-			.thenReturn(Optional.of(new Employee("an id", null, 0)));
-		when(employeeRepository.save(toPass))
-			.thenReturn(toReturn);
+		when(employeeRepository.replace(toPass))
+			.thenReturn(Optional.of(toReturn));
 
 		assertThat(employeeService.replaceEmployeeById("an id", toPass))
 			.isSameAs(toReturn);
@@ -133,7 +304,7 @@ public class EmployeeServiceImplTest {
 
 	@Test
 	public void testReplaceEmployeeWhenEmployeeIsNotFound() {
-		when(employeeRepository.findOne(anyString()))
+		when(employeeRepository.replace(any()))
 			.thenReturn(Optional.empty());
 		assertThatThrownBy(() -> employeeService.replaceEmployeeById("AN ID", new Employee()))
 			.isInstanceOf(NotFoundException.class)
@@ -150,4 +321,104 @@ public class EmployeeServiceImplTest {
 			.isSameAs(employee);
 	}
 
+	@Test
+	public void testEmployeesVersion() {
+		when(employeeRepository.getVersion())
+			.thenReturn(5L);
+		assertThat(employeeService.employeesVersion())
+			.isEqualTo(5L);
+	}
+
+	@Test
+	public void testReplaceEmployeeAtVersion() {
+		Employee toPass = new Employee(null, "a name", 1000);
+		when(employeeRepository.replace(toPass, 3L))
+			.thenReturn(Optional.of(toPass));
+		assertThat(employeeService.replaceEmployeeById("an id", toPass, 3L))
+			.isSameAs(toPass);
+		assertThat(toPass.getEmployeeId())
+			.isEqualTo("an id");
+	}
+
+	@Test
+	public void testReplaceEmployeeAtVersionWhenModified() {
+		when(employeeRepository.replace(any(), eq(3L)))
+			.thenReturn(Optional.empty());
+		when(employeeRepository.findOne("an id"))
+			.thenReturn(Optional.of(new Employee("an id", null, 0)));
+		assertThatThrownBy(() -> employeeService.replaceEmployeeById("an id", new Employee(), 3L))
+			.isInstanceOf(EmployeeModifiedException.class)
+			.hasMessage("Employee with id an id has been modified");
+	}
+
+	@Test
+	public void testReplaceEmployeeAtVersionWhenNotFound() {
+		when(employeeRepository.replace(any(), eq(3L)))
+			.thenReturn(Optional.empty());
+		when(employeeRepository.findOne("an id"))
+			.thenReturn(Optional.empty());
+		assertThatThrownBy(() -> employeeService.replaceEmployeeById("an id", new Employee(), 3L))
+			.isInstanceOf(NotFoundException.class)
+			.hasMessage("Employee not found with id an id");
+	}
+
+	@Test
+	public void testDeleteEmployeeAtVersion() {
+		Employee employee = new Employee();
+		when(employeeRepository.deleteById("an id", 3L))
+			.thenReturn(Optional.of(employee));
+		assertThat(employeeService.deleteEmployeeById("an id", 3L))
+			.isSameAs(employee);
+	}
+
+	@Test
+	public void testDeleteEmployeeAtVersionWhenModified() {
+		when(employeeRepository.deleteById("an id", 3L))
+			.thenReturn(Optional.empty());
+		when(employeeRepository.findOne("an id"))
+			.thenReturn(Optional.of(new Employee("an id", null, 0)));
+		assertThatThrownBy(() -> employeeService.deleteEmployeeById("an id", 3L))
+			.isInstanceOf(EmployeeModifiedException.class);
+	}
+
+	@Test
+	public void testConcurrentReplaceDoesNotBringBackADeletedEmployee() throws Exception {
+		ConcurrentEmployeeRepository repository = new ConcurrentEmployeeRepository() {
+			@Override
+			public Optional<Employee> findOne(String id) {
+				Optional<Employee> found = super.findOne(id);
+				// widen the window between a check and a following write
+				Thread.yield();
+				return found;
+			}
+		};
+		EmployeeService service = new EmployeeServiceImpl(repository);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			for (int i = 0; i < 1000; i++) {
+				String id = service.addEmployee(new Employee()).getEmployeeId();
+				CountDownLatch start = new CountDownLatch(1);
+				Future<?> replace = executor.submit(() -> {
+					start.await();
+					try {
+						return service.replaceEmployeeById(id, new Employee(null, "Replaced", 0));
+					} catch (NotFoundException e) {
+						// the delete came first
+						return null;
+					}
+				});
+				Future<?> delete = executor.submit(() -> {
+					start.await();
+					return service.deleteEmployeeById(id);
+				});
+				start.countDown();
+				replace.get();
+				delete.get();
+				// whatever the order, the delete wins
+				assertThat(repository.findOne(id)).isEmpty();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
 }